@@ -10,10 +10,21 @@ repositories {
     mavenCentral()
 }
 
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+
 dependencies {
     implementation("com.google.code.gson:gson:2.13.1")
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 application {
@@ -27,4 +38,68 @@ tasks.test {
 tasks.named<JavaExec>("run") {
     standardInput = System.`in`
     jvmArgs = listOf("-Dfile.encoding=UTF-8")
-}
\ No newline at end of file
+}
+
+// Runs the benchmarks in src/jmh, e.g. ./gradlew jmh -PjmhArgs="JsonLoadBenchmark -prof gc"
+// Unless jmhArgs says otherwise, the results are also written to build/reports/jmh/results.json,
+// so two runs (e.g. before and after a change) can be compared.
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val jmhArgs = (project.findProperty("jmhArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    args = if ("-rff" in jmhArgs || "-rf" in jmhArgs) jmhArgs else jmhArgs + listOf("-rf", "json", "-rff", resultsFile.path)
+    doFirst { resultsFile.parentFile.mkdirs() }
+}
+
+// Writes a synthetic dataset, e.g. ./gradlew generateDataset -PdatasetArgs="--plays 10000000 --snapshot data/large.snap"
+// (see DatasetGenerator for the options)
+tasks.register<JavaExec>("generateDataset") {
+    group = "application"
+    description = "Writes a synthetic dataset of the given size."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.spotifumtp37.util.DatasetGenerator")
+    jvmArgs = listOf("-Xmx512m")
+    args = (project.findProperty("datasetArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+}
+
+// Serves saved data to listeners over a local socket, e.g. ./gradlew runSessionServer -PserverArgs="data/large.snap 7037"
+// (see SessionServer for the commands)
+tasks.register<JavaExec>("runSessionServer") {
+    group = "application"
+    description = "Starts the headless session server."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.spotifumtp37.server.SessionServer")
+    args = (project.findProperty("serverArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+}
+
+// Serves saved data over a local HTTP/JSON API, e.g. ./gradlew runApiServer -PserverArgs="data/large.snap 8037"
+// (see ApiServer for the endpoints)
+tasks.register<JavaExec>("runApiServer") {
+    group = "application"
+    description = "Starts the local HTTP API."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.spotifumtp37.server.ApiServer")
+    args = (project.findProperty("serverArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+}
+
+// Load-tests a running API, e.g. ./gradlew apiLoadTest -PloadArgs="http://localhost:8037 8 100000 /albums /stats"
+tasks.register<JavaExec>("apiLoadTest") {
+    group = "benchmark"
+    description = "Sends requests to a running API and reports throughput and latency."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.spotifumtp37.server.ApiLoadClient")
+    args = (project.findProperty("loadArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+}
+
+// Simulates many listeners at once, e.g. ./gradlew simulate -PsimArgs="--users 10000 --rate 2 --seconds 30"
+// (see LoadSimulation for the options)
+tasks.register<JavaExec>("simulate") {
+    group = "benchmark"
+    description = "Runs the load simulation and reports throughput, latency, allocation and GC."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.spotifumtp37.LoadSimulation")
+    args = (project.findProperty("simArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: listOf()
+}
@@ -0,0 +1,37 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.SpotifUMData;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data sets shared by the benchmarks.
+ */
+final class BenchmarkData {
+    private static final long SEED = 42;
+
+    // the size of data/spotifumdata.json: albums, songs, users, playlists and plays
+    private static final int ALBUMS = 31;
+    private static final int SONGS = 93;
+    private static final int USERS = 5;
+    private static final int PLAYLISTS = 14;
+    private static final long PLAYS = 150;
+
+    /**
+     * The middle of the span the generated plays fall in, so date windows from it hold about half of them.
+     */
+    static final LocalDateTime MIDDLE = DatasetGenerator.START.plusSeconds(DatasetGenerator.SPAN_SECONDS / 2);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Data made by {@link DatasetGenerator} as large as data/spotifumdata.json times {@code scale},
+     * always from the same seed. Albums are named {@code "Album <n>"}, songs {@code "Song <n>"} and
+     * users {@code "user<n>"}.
+     */
+    static SpotifUMData generated(int scale) {
+        return new DatasetGenerator(SEED, ALBUMS * scale, SONGS * scale, USERS * scale, PLAYLISTS * scale,
+                PLAYS * scale).generate();
+    }
+}
@@ -0,0 +1,51 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running a statistic over a deep copy of the users (getMapUsers) against a snapshot of them,
+ * and reading it from a StatsEngine that keeps it up to date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class DataSnapshotBenchmark {
+
+    @Param({"100"})
+    public int scale;
+
+    private SpotifUMData data;
+    private StatsEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.generated(scale);
+        engine = new StatsEngine(data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public String genreFromDeepCopy() {
+        return Stats.mostListenedGenre(data.getMapUsers());
+    }
+
+    @Benchmark
+    public String genreFromSnapshot() {
+        return Stats.mostListenedGenre(data.snapshot().getUsers());
+    }
+
+    @Benchmark
+    public String genreFromEngine() {
+        return engine.mostListenedGenre();
+    }
+}
@@ -0,0 +1,62 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date-range queries over the users' histories: filtering every record against a binary search
+ * per user, and the per-day counts of the StatsEngine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class DateRangeBenchmark {
+
+    @Param({"100"})
+    public int scale;
+
+    private SpotifUMData data;
+    private StatsEngine engine;
+    private final LocalDateTime from = BenchmarkData.MIDDLE;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.generated(scale);
+        engine = new StatsEngine(data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public User topListenerByFiltering() {
+        Map<String, User> users = data.snapshot().getUsers();
+        return users.values().stream()
+                .max(Comparator.comparingInt(user ->
+                        (int) user.getHistoryView().stream()
+                                .filter(h -> h.getTime().isAfter(from) || h.getTime().isEqual(from))
+                                .count()))
+                .orElse(null);
+    }
+
+    @Benchmark
+    public User topListenerBySearch() {
+        return Stats.getTopListenerFromDate(data.snapshot().getUsers(), from);
+    }
+
+    @Benchmark
+    public long playsBetweenDays() {
+        return engine.playsBetween(from.toLocalDate(), from.toLocalDate().plusDays(1));
+    }
+}
@@ -0,0 +1,76 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.HistoryList;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording plays in the old history (an ArrayList of History records, each with its own song copy)
+ * against HistoryList. Run with {@code -prof gc}: gc.alloc.rate.norm divided by {@code plays} is the
+ * bytes allocated per play, and the setup prints the bytes each representation keeps per play.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class HistoryMemoryBenchmark {
+
+    @Param({"100000"})
+    public int plays;
+
+    private Song[] songs;
+    private LocalDateTime start;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        songs = new Song[200];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = new Song("Song " + i, "Artist " + (i % 20), "Publisher", "Lyrics " + i, "Notes " + i, "Rock", 180);
+        }
+        start = LocalDateTime.of(2025, 5, 17, 4, 51, 52, 984853900);
+        System.out.printf("%nretained bytes per play: list of records %.1f, HistoryList %.1f%n",
+                retainedPerPlay(true), retainedPerPlay(false));
+    }
+
+    @Benchmark
+    public List<History> recordList() {
+        List<History> history = new ArrayList<>();
+        for (int i = 0; i < plays; i++) {
+            history.add(new History(songs[i % songs.length].clone(), start.plusSeconds(i)));
+        }
+        return history;
+    }
+
+    @Benchmark
+    public HistoryList historyList() {
+        HistoryList history = new HistoryList();
+        for (int i = 0; i < plays; i++) {
+            history.append(songs[i % songs.length].clone(), start.plusSeconds(i));
+        }
+        return history;
+    }
+
+    private double retainedPerPlay(boolean records) {
+        long before = usedHeap();
+        Object history = records ? recordList() : historyList();
+        long after = usedHeap();
+        double perPlay = (double) (after - before) / plays;
+        return history != null ? perPlay : 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,88 @@
+package org.spotifumtp37.util;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming JSON load path against the old tree based adapters on
+ * generated data as large as data/spotifumdata.json times {@code scale}.
+ * Run with {@code -prof gc} to also get the allocated bytes per load; the peak heap
+ * seen during each trial is printed at the end of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class JsonLoadBenchmark {
+
+    @Param({"100"})
+    public int scale;
+
+    private File scaledFile;
+    private Gson treeGson;
+    private JsonDataParser parser;
+    private long peakHeap;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        parser = new JsonDataParser();
+        treeGson = TreeAdapters.createGson();
+
+        SpotifUMData scaled = BenchmarkData.generated(scale);
+        scaledFile = File.createTempFile("spotifum-scaled-", ".json");
+        scaledFile.deleteOnExit();
+        parser.toJsonData(scaled, scaledFile.getPath());
+        System.out.printf("%nScaled data set: %d MB%n", scaledFile.length() >> 20);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void recordPeak() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += pool.getPeakUsage().getUsed();
+            }
+        }
+        peakHeap = Math.max(peakHeap, used);
+    }
+
+    @TearDown(Level.Trial)
+    public void printPeak() {
+        System.out.printf("%nPeak heap during trial: %d MB%n", peakHeap >> 20);
+    }
+
+    @Benchmark
+    public SpotifUMData loadTreeAdapters() throws IOException {
+        try (Reader reader = Files.newBufferedReader(scaledFile.toPath(), StandardCharsets.UTF_8)) {
+            return treeGson.fromJson(reader, SpotifUMData.class);
+        }
+    }
+
+    @Benchmark
+    public SpotifUMData loadStreaming() throws IOException {
+        return parser.fromJsonData(scaledFile.getPath());
+    }
+}
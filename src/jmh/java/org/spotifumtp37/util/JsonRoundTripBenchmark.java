@@ -0,0 +1,49 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonDataParser saving and loading a single file, over data sets of growing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class JsonRoundTripBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int scale;
+
+    private SpotifUMData data;
+    private JsonDataParser parser;
+    private File loadFile;
+    private File saveFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        parser = new JsonDataParser();
+        data = BenchmarkData.generated(scale);
+        loadFile = File.createTempFile("spotifum-load-", ".json");
+        loadFile.deleteOnExit();
+        saveFile = File.createTempFile("spotifum-save-", ".json");
+        saveFile.deleteOnExit();
+        parser.toJsonData(data, loadFile.getPath());
+    }
+
+    @Benchmark
+    public SpotifUMData load() throws IOException {
+        return parser.fromJsonData(loadFile.getPath());
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        parser.toJsonData(data, saveFile.getPath());
+    }
+}
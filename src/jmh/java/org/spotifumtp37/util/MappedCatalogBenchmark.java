@@ -0,0 +1,76 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.MappedCatalog;
+import org.spotifumtp37.model.album.Song;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start: time from nothing in memory to the first song lookup, with the albums coming
+ * from the mapped catalog, from a binary snapshot or from JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class MappedCatalogBenchmark {
+
+    private static final String ALBUM = "Album 7";
+
+    @Param({"100"})
+    public int scale;
+
+    private String song;
+    private Path directory;
+    private Path catalogFile;
+    private Path snapFile;
+    private Path jsonFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SpotifUMData data = BenchmarkData.generated(scale);
+        song = data.getAlbum(ALBUM).getSongs().get(0).getName();
+        SpotifUMData albumsOnly = new SpotifUMData();
+        albumsOnly.setMapAlbums(data.getMapAlbumsView());
+
+        directory = Files.createTempDirectory("spotifum-catalog-");
+        catalogFile = directory.resolve("catalog.spmc");
+        snapFile = directory.resolve("albums.snap");
+        jsonFile = directory.resolve("albums.json");
+        MappedCatalog.write(data.getMapAlbumsView().values(), catalogFile);
+        new BinarySnapshotCodec().save(albumsOnly, snapFile);
+        new JsonDataParser().toJsonData(albumsOnly, jsonFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(catalogFile);
+        Files.deleteIfExists(snapFile);
+        Files.deleteIfExists(jsonFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Song mappedCatalog() throws Exception {
+        SpotifUMData data = new SpotifUMData();
+        data.attachCatalog(MappedCatalog.open(catalogFile));
+        return data.getSong(song, ALBUM);
+    }
+
+    @Benchmark
+    public Song snapshot() throws Exception {
+        return new BinarySnapshotCodec().load(snapFile).getSong(song, ALBUM);
+    }
+
+    @Benchmark
+    public Song json() throws Exception {
+        return new JsonDataParser().fromJsonData(jsonFile.toString()).getSong(song, ALBUM);
+    }
+}
@@ -0,0 +1,104 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpotifUMData lookups and the users' top genre playlists, over data sets of growing size.
+ * Each lookup takes the next key of a fixed list, so all entries are visited in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ModelBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int scale;
+
+    private SpotifUMData data;
+    private Map<String, Album> albums;
+    private String[] albumTitles;
+    private String[] userNames;
+    private String[] playlistNames;
+    private String[][] songs;
+    private User listener;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.generated(scale);
+        DataSnapshot snapshot = data.snapshot();
+        albums = snapshot.getAlbums();
+        albumTitles = albums.keySet().toArray(new String[0]);
+        userNames = snapshot.getUsers().keySet().toArray(new String[0]);
+        playlistNames = snapshot.getPlaylists().keySet().toArray(new String[0]);
+        songs = albums.values().stream()
+                .flatMap(album -> album.getSongs().stream().map(song -> new String[]{song.getName(), album.getTitle()}))
+                .toArray(String[][]::new);
+        listener = Stats.getTopListener(snapshot.getUsers());
+    }
+
+    @Benchmark
+    public Album getAlbum() throws DoesntExistException {
+        return data.getAlbum(albumTitles[next++ % albumTitles.length]);
+    }
+
+    @Benchmark
+    public Song getSong() throws DoesntExistException {
+        String[] song = songs[next++ % songs.length];
+        return data.getSong(song[0], song[1]);
+    }
+
+    @Benchmark
+    public User getUser() throws DoesntExistException {
+        return data.getUser(userNames[next++ % userNames.length]);
+    }
+
+    @Benchmark
+    public User getCurrentUserPointer() {
+        return data.getCurrentUserPointer(userNames[next++ % userNames.length]);
+    }
+
+    @Benchmark
+    public Playlist getPlaylist() throws DoesntExistException {
+        return data.getPlaylist(playlistNames[next++ % playlistNames.length]);
+    }
+
+    @Benchmark
+    public boolean existsAlbum() {
+        return data.existsAlbum(albumTitles[next++ % albumTitles.length]);
+    }
+
+    @Benchmark
+    public Map<String, Playlist> getPlaylistMapByCreator() {
+        return data.getPlaylistMapByCreator(listener);
+    }
+
+    @Benchmark
+    public List<Song> createTopGenrePlaylist() {
+        return listener.createTopGenrePlaylist(albums);
+    }
+
+    @Benchmark
+    public List<Song> createTopGenrePlaylistWithinTime() {
+        return listener.createTopGenrePlaylistWithinTime(albums, 3600);
+    }
+
+    @Benchmark
+    public List<Song> createTopGenreExplicitPlaylist() {
+        return listener.createTopGenreExplicitPlaylist(albums);
+    }
+}
@@ -0,0 +1,62 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restore and save time of the split users/albums/playlists files, one after another
+ * versus the three files at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class MultiFileLoadBenchmark {
+
+    @Param({"100"})
+    public int scale;
+
+    private JsonDataParser sequential;
+    private JsonDataParser parallel;
+    private SpotifUMData data;
+    private Path directory;
+    private Path saveDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sequential = new JsonDataParser(false);
+        parallel = new JsonDataParser(true);
+
+        data = BenchmarkData.generated(scale);
+        directory = Files.createTempDirectory("spotifum-split-");
+        saveDirectory = Files.createTempDirectory("spotifum-save-");
+        sequential.toJsonData(data, directory.toString());
+    }
+
+    @Benchmark
+    public SpotifUMData loadSequential() throws IOException {
+        return sequential.fromJsonData(directory.toString());
+    }
+
+    @Benchmark
+    public SpotifUMData loadParallel() throws IOException {
+        return parallel.fromJsonData(directory.toString());
+    }
+
+    @Benchmark
+    public void saveSequential() throws IOException {
+        sequential.toJsonData(data, saveDirectory.toString());
+    }
+
+    @Benchmark
+    public void saveParallel() throws IOException {
+        parallel.toJsonData(data, saveDirectory.toString());
+    }
+}
@@ -0,0 +1,83 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of persisting one play: appending it to the play log (written with group commit and
+ * forced on flush) against saving the whole data as a snapshot or as JSON after the play.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class PlayLogBenchmark {
+
+    @Param({"100"})
+    public int scale;
+
+    private SpotifUMData data;
+    private Album album;
+    private User user;
+    private Path directory;
+    private PlayEventLog log;
+    private BinarySnapshotCodec codec;
+    private JsonDataParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.generated(scale);
+        album = data.getAlbum("Album 0");
+        album.setCurrentSong(album.getSongs().get(0));
+        user = data.getCurrentUserPointer("user0");
+        directory = Files.createTempDirectory("spotifum-playlog-");
+        log = new PlayEventLog(directory.resolve("plays.log"), data, directory.resolve("state.snap"), 10, 0);
+        codec = new BinarySnapshotCodec();
+        parser = new JsonDataParser();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void appendToLog() {
+        log.played(album, user, album.getCurrentSong(), LocalDateTime.now(), 5);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public void appendToLogAndFlushEvery100() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            log.played(album, user, album.getCurrentSong(), LocalDateTime.now(), 5);
+        }
+        log.flush();
+    }
+
+    @Benchmark
+    public void saveSnapshot() throws IOException {
+        codec.save(data, directory.resolve("state.snap"));
+    }
+
+    @Benchmark
+    public void saveJson() throws IOException {
+        parser.toJsonData(data, directory.resolve("state.json").toString());
+    }
+}
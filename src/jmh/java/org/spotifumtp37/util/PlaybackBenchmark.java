@@ -0,0 +1,98 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Playable.next/previous/play on an album and a playlist of {@code songs} songs, for a premium
+ * user (sequential skips) and a free user (shuffled skips). Every play adds to the user's history,
+ * so the users are recreated for each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class PlaybackBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int songs;
+
+    private Album album;
+    private Playlist playlist;
+    private User premium;
+    private User free;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Song> list = new ArrayList<>(songs);
+        for (int i = 0; i < songs; i++) {
+            list.add(new Song("Song " + i, "Artist " + (i % 500), "Publisher", "Lyrics of song " + i, "C G Am F", "Rock", 180));
+        }
+        album = new Album("Album", "Artist", 2025, "Rock", list);
+        album.setCurrentSong();
+        album.setShuffleSeed(42);
+        User creator = new User("creator", "creator@mail.com", "Address", new PremiumBase(), "password", 0, new ArrayList<>());
+        playlist = new Playlist(creator, "Playlist", "", 0, "public", list);
+        playlist.setShuffleSeed(42);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpUsers() {
+        premium = new User("premium", "premium@mail.com", "Address", new PremiumBase(), "password", 0, new ArrayList<>());
+        free = new User("free", "free@mail.com", "Address", new FreePlan(), "password", 0, new ArrayList<>());
+    }
+
+    @Benchmark
+    public Song albumNext() {
+        album.next(premium);
+        return album.getCurrentSong();
+    }
+
+    @Benchmark
+    public Song albumPrevious() throws SubscriptionDoesNotAllowException {
+        album.previous(premium);
+        return album.getCurrentSong();
+    }
+
+    @Benchmark
+    public Song albumNextFree() {
+        album.next(free);
+        return album.getCurrentSong();
+    }
+
+    @Benchmark
+    public User albumPlay() {
+        album.play(premium);
+        return premium;
+    }
+
+    @Benchmark
+    public Song playlistNext() {
+        playlist.next(premium);
+        return playlist.getCurrentSong();
+    }
+
+    @Benchmark
+    public Song playlistPrevious() throws SubscriptionDoesNotAllowException {
+        playlist.previous(premium);
+        return playlist.getCurrentSong();
+    }
+
+    @Benchmark
+    public User playlistPlay() {
+        playlist.play(premium);
+        return premium;
+    }
+}
@@ -0,0 +1,64 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Skipping to the next song of a long playlist: the cursor kept by Playlist against the
+ * indexOf(currentSong) scan that next() used to do (measured here on the same song list),
+ * and a shuffle skip through the playlist's shuffle session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class PlaybackCursorBenchmark {
+
+    @Param({"50000"})
+    public int songs;
+
+    private Playlist playlist;
+    private User user;
+    private List<Song> list;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = new ArrayList<>(songs);
+        for (int i = 0; i < songs; i++) {
+            list.add(new Song("Song " + i, "Artist " + (i % 500), "Publisher", "Lyrics of song " + i, "C G Am F", "Rock", 180));
+        }
+        user = new User("user", "user@mail.com", "Address", new PremiumBase(), "password", 0, new ArrayList<>());
+        playlist = new Playlist(user, "Long", "", 0, "public", list);
+        playlist.setShuffleSeed(42);
+        position = songs / 2;
+    }
+
+    @Benchmark
+    public Song nextWithCursor() {
+        playlist.next(user);
+        return playlist.getCurrentSong();
+    }
+
+    @Benchmark
+    public Song nextWithIndexOf() {
+        int index = list.indexOf(list.get(position));
+        position = (index + 1) % list.size();
+        return list.get(position);
+    }
+
+    @Benchmark
+    public Song nextShuffle() {
+        playlist.nextShuffle();
+        return playlist.getCurrentSong();
+    }
+}
@@ -0,0 +1,92 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save and load time of the binary snapshot against Java serialization (.ser) and JSON.
+ * The size of each format is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class SnapshotBenchmark {
+
+    @Param({"100"})
+    public int scale;
+
+    private SpotifUMData data;
+    private JsonDataParser parser;
+    private BinarySnapshotCodec codec;
+    private Path directory;
+    private Path serFile;
+    private Path jsonFile;
+    private Path snapFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.generated(scale);
+        parser = new JsonDataParser();
+        codec = new BinarySnapshotCodec();
+
+        directory = Files.createTempDirectory("spotifum-snapshot-");
+        serFile = directory.resolve("data.ser");
+        jsonFile = directory.resolve("data.json");
+        snapFile = directory.resolve("data.snap");
+        saveSer();
+        saveJson();
+        saveSnapshot();
+        System.out.printf("%n.ser: %d KB, .json: %d KB, .snap: %d KB%n",
+                Files.size(serFile) >> 10, Files.size(jsonFile) >> 10, Files.size(snapFile) >> 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (Path file : new Path[]{serFile, jsonFile, snapFile}) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void saveSer() throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(serFile.toFile())))) {
+            out.writeObject(data);
+        }
+    }
+
+    @Benchmark
+    public SpotifUMData loadSer() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(serFile.toFile())))) {
+            return (SpotifUMData) in.readObject();
+        }
+    }
+
+    @Benchmark
+    public void saveJson() throws IOException {
+        parser.toJsonData(data, jsonFile.toString());
+    }
+
+    @Benchmark
+    public SpotifUMData loadJson() throws IOException {
+        return parser.fromJsonData(jsonFile.toString());
+    }
+
+    @Benchmark
+    public void saveSnapshot() throws IOException {
+        codec.save(data, snapFile);
+    }
+
+    @Benchmark
+    public SpotifUMData loadSnapshot() throws IOException {
+        return codec.load(snapFile);
+    }
+}
@@ -0,0 +1,85 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every Stats method on its own, over data sets of growing size, each reading a fresh snapshot
+ * of the data as the admin menu does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class StatsBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int scale;
+
+    private SpotifUMData data;
+    private final LocalDateTime from = BenchmarkData.MIDDLE;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.generated(scale);
+    }
+
+    @Benchmark
+    public Song getMostPlayedSong() {
+        return Stats.getMostPlayedSong(data.snapshot().getAlbums());
+    }
+
+    @Benchmark
+    public String getMostListenedArtist() {
+        return Stats.getMostListenedArtist(data.snapshot().getAlbums());
+    }
+
+    @Benchmark
+    public User getTopListener() {
+        return Stats.getTopListener(data.snapshot().getUsers());
+    }
+
+    @Benchmark
+    public User getTopListenerFromDate() {
+        return Stats.getTopListenerFromDate(data.snapshot().getUsers(), from);
+    }
+
+    @Benchmark
+    public long countPlaysBetween() {
+        return Stats.countPlaysBetween(data.snapshot().getUsers(), from, null);
+    }
+
+    @Benchmark
+    public User getUserWithMostPoints() {
+        return Stats.getUserWithMostPoints(data.snapshot().getUsers());
+    }
+
+    @Benchmark
+    public String mostListenedGenre() {
+        return Stats.mostListenedGenre(data.snapshot().getUsers());
+    }
+
+    @Benchmark
+    public long countPublicPlaylists() {
+        return Stats.countPublicPlaylists(data.snapshot().getPlaylists());
+    }
+
+    @Benchmark
+    public User userWithMostPlaylists() {
+        return Stats.userWithMostPlaylists(data.snapshot().getPlaylists());
+    }
+
+    @Benchmark
+    public StatsReport report() {
+        DataSnapshot snapshot = data.snapshot();
+        return Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists());
+    }
+}
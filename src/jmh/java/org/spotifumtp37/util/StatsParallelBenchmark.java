@@ -0,0 +1,55 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential against parallel Stats over growing numbers of users, to place Stats.PARALLEL_THRESHOLD.
+ * Scale 1 is 150 plays over 5 users; run with a matching -Djava.util.concurrent.ForkJoinPool.common.parallelism
+ * to see the cutover for a given core count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class StatsParallelBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    private Map<String, User> users;
+    private final LocalDateTime from = BenchmarkData.MIDDLE;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SpotifUMData data = BenchmarkData.generated(scale);
+        users = data.snapshot().getUsers();
+    }
+
+    @Benchmark
+    public String genreSequential() {
+        return Stats.mostListenedGenre(users, false);
+    }
+
+    @Benchmark
+    public String genreParallel() {
+        return Stats.mostListenedGenre(users, true);
+    }
+
+    @Benchmark
+    public User topListenerFromDateSequential() {
+        return Stats.getTopListenerFromDate(users, from, false);
+    }
+
+    @Benchmark
+    public User topListenerFromDateParallel() {
+        return Stats.getTopListenerFromDate(users, from, true);
+    }
+}
@@ -0,0 +1,55 @@
+package org.spotifumtp37.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every statistic of the admin menu, one Stats call after another against the single-pass report,
+ * sequential and parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class StatsReportBenchmark {
+
+    @Param({"100"})
+    public int scale;
+
+    private SpotifUMData data;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.generated(scale);
+    }
+
+    @Benchmark
+    public void eachStatistic(Blackhole blackhole) {
+        DataSnapshot snapshot = data.snapshot();
+        blackhole.consume(Stats.getMostPlayedSong(snapshot.getAlbums()));
+        blackhole.consume(Stats.getMostListenedArtist(snapshot.getAlbums()));
+        blackhole.consume(Stats.getTopListener(snapshot.getUsers()));
+        blackhole.consume(Stats.getUserWithMostPoints(snapshot.getUsers()));
+        blackhole.consume(Stats.mostListenedGenre(snapshot.getUsers()));
+        blackhole.consume(Stats.countPublicPlaylists(snapshot.getPlaylists()));
+        blackhole.consume(Stats.userWithMostPlaylists(snapshot.getPlaylists()));
+    }
+
+    @Benchmark
+    public StatsReport report() {
+        DataSnapshot snapshot = data.snapshot();
+        return Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists());
+    }
+
+    @Benchmark
+    public StatsReport parallelReport() {
+        DataSnapshot snapshot = data.snapshot();
+        return Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists(), true);
+    }
+}
@@ -0,0 +1,96 @@
+package org.spotifumtp37.util;
+
+import com.google.gson.*;
+import org.spotifumtp37.model.album.ExplicitSong;
+import org.spotifumtp37.model.album.MultimediaSong;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.subscription.*;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The tree based JsonSerializer/JsonDeserializer adapters used before the streaming ones,
+ * kept only as the baseline for the load benchmarks.
+ */
+final class TreeAdapters {
+
+    private TreeAdapters() {
+    }
+
+    static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(SubscriptionPlan.class, new PlanAdapter())
+                .registerTypeAdapter(LocalDateTime.class, new DateAdapter())
+                .registerTypeAdapter(Song.class, new SongAdapter())
+                .setPrettyPrinting()
+                .create();
+    }
+
+    static class SongAdapter implements JsonSerializer<Song>, JsonDeserializer<Song> {
+        private final Gson delegateGson = new Gson();
+
+        @Override
+        public Song deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
+            JsonObject obj = json.getAsJsonObject();
+            boolean isMultimedia = obj.has("multimedia") && obj.get("multimedia").getAsBoolean();
+            boolean isExplicit = obj.has("explicit") && obj.get("explicit").getAsBoolean();
+
+            if (isMultimedia) {
+                MultimediaSong song = delegateGson.fromJson(json, MultimediaSong.class);
+                if (obj.has("videoLink")) {
+                    song.setVideoLink(obj.get("videoLink").getAsString());
+                }
+                return song;
+            } else if (isExplicit) {
+                return delegateGson.fromJson(json, ExplicitSong.class);
+            } else {
+                return delegateGson.fromJson(json, Song.class);
+            }
+        }
+
+        @Override
+        public JsonElement serialize(Song src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonObject obj = delegateGson.toJsonTree(src, src.getClass()).getAsJsonObject();
+            if (src instanceof MultimediaSong) {
+                obj.addProperty("multimedia", true);
+            } else if (src instanceof ExplicitSong) {
+                obj.addProperty("explicit", true);
+            }
+            return obj;
+        }
+    }
+
+    static class DateAdapter implements JsonSerializer<LocalDateTime>, JsonDeserializer<LocalDateTime> {
+        @Override
+        public JsonElement serialize(LocalDateTime src, Type typeOfSrc, JsonSerializationContext ctx) {
+            return new JsonPrimitive(src.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx) {
+            return LocalDateTime.parse(json.getAsString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+    }
+
+    static class PlanAdapter implements JsonSerializer<SubscriptionPlan>, JsonDeserializer<SubscriptionPlan> {
+        @Override
+        public JsonElement serialize(SubscriptionPlan src, Type typeOfSrc, JsonSerializationContext ctx) {
+            JsonObject obj = (JsonObject) ctx.serialize(src, src.getClass());
+            obj.addProperty("type", src.getClass().getSimpleName());
+            return obj;
+        }
+
+        @Override
+        public SubscriptionPlan deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx) {
+            JsonObject obj = json.getAsJsonObject();
+            String kind = obj.has("type") ? obj.get("type").getAsString() : "FreePlan";
+            return switch (kind) {
+                case "PremiumBase" -> ctx.deserialize(obj, PremiumBase.class);
+                case "PremiumTop" -> ctx.deserialize(obj, PremiumTop.class);
+                default -> ctx.deserialize(obj, FreePlan.class);
+            };
+        }
+    }
+}
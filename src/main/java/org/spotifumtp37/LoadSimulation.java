@@ -0,0 +1,639 @@
+package org.spotifumtp37;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.playlist.PlayPipeline;
+import org.spotifumtp37.model.playlist.Playable;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.subscription.PremiumTop;
+import org.spotifumtp37.model.subscription.SubscriptionPlan;
+import org.spotifumtp37.model.user.User;
+import org.spotifumtp37.util.BinarySnapshotCodec;
+import org.spotifumtp37.util.DatasetGenerator;
+import org.spotifumtp37.util.JsonDataParser;
+import org.spotifumtp37.util.LatencyHistogram;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates many listeners using the model at once, to see how it behaves under load.
+ * <p>
+ * Each virtual user gets a plan from the configured mix, picks an album or a public playlist,
+ * plays through its own {@link Playable#playback()} with a random mix of {@code play}, {@code next},
+ * {@code previous} and {@code nextShuffle}, and after a few operations picks another one. Users
+ * act at a configured rate (with random, Poisson-like gaps) or as fast as they can. The virtual
+ * users are plain objects shared out between a few worker threads, so a run can have many more of
+ * them than threads. The same seed picks the same plans, albums and operations.
+ * </p>
+ * The run reports the plays per second, the latency histogram of each operation, the bytes the
+ * workers allocated and the garbage collections that happened meanwhile (see {@link Report}).
+ * Run it with {@code Main --simulate} or the {@code simulate} Gradle task (see {@link #main}).
+ */
+public class LoadSimulation {
+    /**
+     * What a virtual user can do.
+     */
+    public enum Operation {
+        PLAY, NEXT, PREVIOUS, SHUFFLE
+    }
+
+    private static final int OPERATIONS = Operation.values().length;
+
+    private final SpotifUMData data;
+    private final int users;
+    private long seed = 37;
+    private double premiumBaseShare = 0.25;
+    private double premiumTopShare = 0.15;
+    private double playlistShare = 0.3;
+    private double rate;
+    private double[] mix = {0.6, 0.25, 0.05, 0.1};
+    private int sessionLength = 20;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param data  The data to play from; it is switched to the concurrent mode and the virtual
+     *              users are added to it, as {@code sim-0}, {@code sim-1}...
+     * @param users The number of virtual users
+     */
+    public LoadSimulation(SpotifUMData data, int users) {
+        if (users < 1) {
+            throw new IllegalArgumentException("There must be at least one user.");
+        }
+        this.data = data;
+        this.users = users;
+    }
+
+    /**
+     * @param seed The seed of the plans, choices and gaps
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param premiumBase The fraction of users on {@link PremiumBase}
+     * @param premiumTop  The fraction of users on {@link PremiumTop}; the others are on {@link FreePlan}
+     */
+    public void setPlanShares(double premiumBase, double premiumTop) {
+        if (!(premiumBase >= 0 && premiumTop >= 0 && premiumBase + premiumTop <= 1)) {
+            throw new IllegalArgumentException("The shares must be fractions adding up to at most 1.");
+        }
+        this.premiumBaseShare = premiumBase;
+        this.premiumTopShare = premiumTop;
+    }
+
+    /**
+     * @param playlistShare The fraction of choices that are playlists rather than albums
+     */
+    public void setPlaylistShare(double playlistShare) {
+        if (!(playlistShare >= 0 && playlistShare <= 1)) {
+            throw new IllegalArgumentException("The share must be a fraction.");
+        }
+        this.playlistShare = playlistShare;
+    }
+
+    /**
+     * @param rate The operations per second of each user, or 0 for as fast as they can
+     */
+    public void setRate(double rate) {
+        if (!(rate >= 0)) {
+            throw new IllegalArgumentException("The rate cannot be negative.");
+        }
+        this.rate = rate;
+    }
+
+    /**
+     * Sets how often each operation is picked. The weights are relative, e.g. 60, 25, 5, 10.
+     *
+     * @param play     The weight of {@code play}
+     * @param next     The weight of {@code next}
+     * @param previous The weight of {@code previous}
+     * @param shuffle  The weight of {@code nextShuffle}
+     */
+    public void setOperationMix(double play, double next, double previous, double shuffle) {
+        double total = play + next + previous + shuffle;
+        if (!(play >= 0 && next >= 0 && previous >= 0 && shuffle >= 0 && total > 0)) {
+            throw new IllegalArgumentException("The weights cannot be negative and one must be positive.");
+        }
+        this.mix = new double[]{play / total, next / total, previous / total, shuffle / total};
+    }
+
+    /**
+     * @param sessionLength The operations a user makes on an album or playlist before picking another
+     */
+    public void setSessionLength(int sessionLength) {
+        if (sessionLength < 1) {
+            throw new IllegalArgumentException("A session needs at least one operation.");
+        }
+        this.sessionLength = sessionLength;
+    }
+
+    /**
+     * @param threads The number of worker threads the users are shared out between
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least one thread.");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * What a run measured.
+     */
+    public static final class Report {
+        private final long elapsedNanos;
+        private final Map<String, Integer> usersByPlan;
+        private final LatencyHistogram[] latencies;
+        private final long deniedPrevious;
+        private final long allocatedBytes;
+        private final LatencyHistogram gcPauses;
+        private final long gcCount;
+        private final long gcMillis;
+
+        private Report(long elapsedNanos, Map<String, Integer> usersByPlan, LatencyHistogram[] latencies,
+                       long deniedPrevious, long allocatedBytes, LatencyHistogram gcPauses, long gcCount, long gcMillis) {
+            this.elapsedNanos = elapsedNanos;
+            this.usersByPlan = usersByPlan;
+            this.latencies = latencies;
+            this.deniedPrevious = deniedPrevious;
+            this.allocatedBytes = allocatedBytes;
+            this.gcPauses = gcPauses;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /**
+         * @return How long the run took, in seconds
+         */
+        public double getSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        /**
+         * @return The number of virtual users of each plan
+         */
+        public Map<String, Integer> getUsersByPlan() {
+            return Collections.unmodifiableMap(usersByPlan);
+        }
+
+        /**
+         * @param operation An operation
+         * @return The latencies of that operation; {@code previous} includes the refused ones
+         */
+        public LatencyHistogram getLatencies(Operation operation) {
+            return latencies[operation.ordinal()];
+        }
+
+        /**
+         * @param operation An operation
+         * @return How many times it was made
+         */
+        public long getCount(Operation operation) {
+            return latencies[operation.ordinal()].getCount();
+        }
+
+        /**
+         * @return The {@code previous} refused because the user's plan does not allow it
+         */
+        public long getDeniedPrevious() {
+            return deniedPrevious;
+        }
+
+        /**
+         * @return The plays per second
+         */
+        public double getPlaysPerSecond() {
+            return getCount(Operation.PLAY) / getSeconds();
+        }
+
+        /**
+         * @return The bytes allocated by the worker threads, or -1 if the JVM cannot tell
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return The pauses of the collections during the run, from the JVM's notifications
+         */
+        public LatencyHistogram getGcPauses() {
+            return gcPauses;
+        }
+
+        /**
+         * @return The number of collections during the run, concurrent ones included
+         */
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        /**
+         * @return The time spent collecting during the run, concurrent collections included, in ms
+         */
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        /**
+         * @param histograms Whether to add the distribution of each operation's latency
+         * @return The report, as printed by {@link #main}
+         */
+        public String describe(boolean histograms) {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.ROOT, "%.1f s, users %s%n", getSeconds(), usersByPlan));
+            text.append(String.format(Locale.ROOT, "%.0f plays/s, %d previous refused by the plan%n",
+                    getPlaysPerSecond(), deniedPrevious));
+            if (allocatedBytes >= 0) {
+                text.append(String.format(Locale.ROOT, "allocated %.1f MB, %.1f MB/s%n",
+                        allocatedBytes / 1e6, allocatedBytes / 1e6 / getSeconds()));
+            }
+            text.append(String.format(Locale.ROOT, "GC: %d collections, %d ms; pauses p50 %s, p99 %s, max %s%n",
+                    gcCount, gcMillis, LatencyHistogram.format(gcPauses.getValueAtPercentile(50)),
+                    LatencyHistogram.format(gcPauses.getValueAtPercentile(99)), LatencyHistogram.format(gcPauses.getMax())));
+            text.append(String.format(Locale.ROOT, "%-9s %10s %10s %10s %10s %10s %10s%n",
+                    "operation", "count", "mean", "p50", "p99", "p99.9", "max"));
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram latency = getLatencies(operation);
+                text.append(String.format(Locale.ROOT, "%-9s %10d %10s %10s %10s %10s %10s%n",
+                        operation.name().toLowerCase(Locale.ROOT), latency.getCount(),
+                        LatencyHistogram.format(latency.getMean()),
+                        LatencyHistogram.format(latency.getValueAtPercentile(50)),
+                        LatencyHistogram.format(latency.getValueAtPercentile(99)),
+                        LatencyHistogram.format(latency.getValueAtPercentile(99.9)),
+                        LatencyHistogram.format(latency.getMax())));
+            }
+            if (histograms) {
+                for (Operation operation : Operation.values()) {
+                    text.append(System.lineSeparator()).append(operation.name().toLowerCase(Locale.ROOT))
+                            .append(System.lineSeparator()).append(getLatencies(operation).describe());
+                }
+            }
+            return text.toString();
+        }
+
+        @Override
+        public String toString() {
+            return describe(false);
+        }
+    }
+
+    private static final class VirtualUser {
+        private final User user;
+        private final SplittableRandom random;
+        private Playable playable;
+        private int left;
+        private long due;
+
+        VirtualUser(User user, SplittableRandom random) {
+            this.user = user;
+            this.random = random;
+        }
+    }
+
+    /**
+     * What one worker measured, merged into the report at the end.
+     */
+    private static final class Worker implements Runnable {
+        private final List<VirtualUser> users = new ArrayList<>();
+        private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS];
+        private final LoadSimulation simulation;
+        private final List<Playable> albums;
+        private final List<Playable> playlists;
+        private final long deadline;
+        private long deniedPrevious;
+        private long allocatedBytes = -1;
+        private RuntimeException failure;
+
+        Worker(LoadSimulation simulation, List<Playable> albums, List<Playable> playlists, long deadline) {
+            this.simulation = simulation;
+            this.albums = albums;
+            this.playlists = playlists;
+            this.deadline = deadline;
+            for (int i = 0; i < OPERATIONS; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            long allocatedBefore = allocatedBytes();
+            try {
+                if (simulation.rate > 0) {
+                    runAtRate();
+                } else {
+                    runFlatOut();
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            long allocatedAfter = allocatedBytes();
+            if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+                allocatedBytes = allocatedAfter - allocatedBefore;
+            }
+        }
+
+        private void runFlatOut() {
+            while (System.nanoTime() < deadline) {
+                for (VirtualUser user : users) {
+                    act(user);
+                }
+            }
+        }
+
+        private void runAtRate() {
+            PriorityQueue<VirtualUser> queue = new PriorityQueue<>(Comparator.comparingLong(user -> user.due));
+            long now = System.nanoTime();
+            for (VirtualUser user : users) {
+                user.due = now + gap(user);
+                queue.add(user);
+            }
+            while (!queue.isEmpty()) {
+                VirtualUser user = queue.poll();
+                if (user.due >= deadline) {
+                    return;
+                }
+                for (long wait = user.due - System.nanoTime(); wait > 0; wait = user.due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                act(user);
+                user.due += gap(user);
+                queue.add(user);
+            }
+        }
+
+        /**
+         * An exponentially distributed gap, so each user's operations arrive as a Poisson process.
+         */
+        private long gap(VirtualUser user) {
+            return (long) (-Math.log(1 - user.random.nextDouble()) / simulation.rate * 1e9);
+        }
+
+        private void act(VirtualUser user) {
+            if (user.playable == null || user.left == 0) {
+                boolean playlist = !playlists.isEmpty()
+                        && (albums.isEmpty() || user.random.nextDouble() < simulation.playlistShare);
+                List<Playable> choices = playlist ? playlists : albums;
+                user.playable = choices.get(user.random.nextInt(choices.size())).playback();
+                user.left = simulation.sessionLength;
+            }
+            user.left--;
+            Operation operation = simulation.pick(user.random.nextDouble());
+            long start = System.nanoTime();
+            switch (operation) {
+                case PLAY -> user.playable.play(user.user);
+                case NEXT -> user.playable.next(user.user);
+                case SHUFFLE -> user.playable.nextShuffle();
+                case PREVIOUS -> {
+                    try {
+                        user.playable.previous(user.user);
+                    } catch (SubscriptionDoesNotAllowException e) {
+                        deniedPrevious++;
+                    }
+                }
+            }
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+
+        private static long allocatedBytes() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getCurrentThreadAllocatedBytes();
+            }
+            return -1;
+        }
+    }
+
+    private Operation pick(double x) {
+        for (int i = 0; i < OPERATIONS - 1; i++) {
+            x -= mix[i];
+            if (x < 0) {
+                return Operation.values()[i];
+            }
+        }
+        return Operation.values()[OPERATIONS - 1];
+    }
+
+    private SubscriptionPlan plan(SplittableRandom random) {
+        double x = random.nextDouble();
+        if (x < premiumTopShare) {
+            return new PremiumTop();
+        }
+        return x < premiumTopShare + premiumBaseShare ? new PremiumBase() : new FreePlan();
+    }
+
+    /**
+     * Records the pause of every collection that ends while the run goes on.
+     */
+    private static final class GcPauses implements NotificationListener {
+        private final LatencyHistogram pauses = new LatencyHistogram();
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+        GcPauses() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener(this, null, null);
+                    emitters.add(emitter);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification notification, Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                // the concurrent phases of G1 and ZGC run beside the application, they are not pauses
+                if (!info.getGcAction().contains("concurrent") && !info.getGcName().contains("Concurrent")) {
+                    pauses.record(info.getGcInfo().getDuration() * 1_000_000);
+                }
+            }
+        }
+
+        synchronized LatencyHistogram stop() {
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // already removed
+                }
+            }
+            return pauses;
+        }
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    /**
+     * Adds the virtual users to the data and runs the simulation.
+     *
+     * @param duration How long to run
+     * @return What the run measured
+     * @throws InterruptedException If interrupted while waiting for the workers
+     */
+    public Report run(Duration duration) throws InterruptedException {
+        data.makeConcurrent();
+        List<Playable> albums = new ArrayList<>();
+        for (Album album : data.getMapAlbumsView().values()) {
+            if (!album.getSongs().isEmpty()) {
+                albums.add(album);
+            }
+        }
+        List<Playable> playlists = new ArrayList<>();
+        for (Playlist playlist : data.getMapPlaylistsView().values()) {
+            if (playlist.isPublic() && !playlist.getSongsView().isEmpty()) {
+                playlists.add(playlist);
+            }
+        }
+        if (albums.isEmpty() && playlists.isEmpty()) {
+            throw new IllegalArgumentException("There is nothing to play.");
+        }
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        Worker[] workers = new Worker[Math.min(threads, users)];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new Worker(this, albums, playlists, deadline);
+        }
+        Map<String, Integer> usersByPlan = new TreeMap<>();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int i = 0; i < users; i++) {
+            SplittableRandom random = seeds.split();
+            String name = "sim-" + i;
+            SubscriptionPlan plan = plan(random);
+            try {
+                data.addUser(new User(name, name + "@sim", "", plan, "", 0, new ArrayList<>()));
+            } catch (AlreadyExistsException e) {
+                throw new IllegalStateException("The data already has a user " + name + ".", e);
+            }
+            usersByPlan.merge(plan.getClass().getSimpleName(), 1, Integer::sum);
+            workers[i % workers.length].users.add(new VirtualUser(data.getCurrentUserPointer(name), random));
+        }
+
+        long[] gcBefore = gcTotals();
+        GcPauses gcPauses = new GcPauses();
+        long start = System.nanoTime();
+        Thread[] running = new Thread[workers.length];
+        for (int w = 0; w < workers.length; w++) {
+            running[w] = new Thread(workers[w], "simulation-" + w);
+            running[w].start();
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        LatencyHistogram pauses = gcPauses.stop();
+        long[] gcAfter = gcTotals();
+
+        LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS];
+        long denied = 0;
+        long allocated = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw worker.failure;
+            }
+            for (int i = 0; i < OPERATIONS; i++) {
+                latencies[i].merge(worker.latencies[i]);
+            }
+            denied += worker.deniedPrevious;
+            allocated = allocated < 0 || worker.allocatedBytes < 0 ? -1 : allocated + worker.allocatedBytes;
+        }
+        return new Report(elapsed, usersByPlan, latencies, denied, allocated, pauses,
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+    }
+
+    /**
+     * Runs a simulation from the command line, e.g. {@code --users 10000 --rate 2 --seconds 30}.
+     * The data is read with {@code --data} (a .snap snapshot, a JSON file or directory) or generated
+     * with {@code --seed}, {@code --albums}, {@code --songs} and {@code --playlists}. The other options
+     * are {@code --premium-base} and {@code --premium-top} (fractions of users), {@code --playlist-share},
+     * {@code --rate} (operations per second per user, 0 for flat out), {@code --mix} (weights of play,
+     * next, previous and shuffle, e.g. 60,25,5,10), {@code --session}, {@code --threads}
+     * and {@code --histograms true}. With {@code --pipeline block}, {@code drop} or {@code caller-runs}
+     * the plays go through a {@link PlayPipeline} ({@code --pipeline-capacity}, {@code --pipeline-batch}).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i] + ".");
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        long seed = Long.parseLong(options.getOrDefault("seed", "37"));
+        SpotifUMData data;
+        if (options.containsKey("data")) {
+            String file = options.get("data");
+            data = file.endsWith(".snap")
+                    ? new BinarySnapshotCodec().load(Path.of(file))
+                    : new JsonDataParser().fromJsonData(file);
+        } else {
+            int playlists = Integer.parseInt(options.getOrDefault("playlists", "1000"));
+            // a few premium creators for the playlists; the listeners are the virtual users
+            data = new DatasetGenerator(seed, Integer.parseInt(options.getOrDefault("albums", "1000")),
+                    Integer.parseInt(options.getOrDefault("songs", "10000")),
+                    playlists > 0 ? 100 : 0, playlists, 0).generate();
+        }
+
+        LoadSimulation simulation = new LoadSimulation(data, Integer.parseInt(options.getOrDefault("users", "1000")));
+        simulation.setSeed(seed);
+        simulation.setPlanShares(Double.parseDouble(options.getOrDefault("premium-base", "0.25")),
+                Double.parseDouble(options.getOrDefault("premium-top", "0.15")));
+        simulation.setPlaylistShare(Double.parseDouble(options.getOrDefault("playlist-share", "0.3")));
+        simulation.setRate(Double.parseDouble(options.getOrDefault("rate", "0")));
+        String[] mix = options.getOrDefault("mix", "60,25,5,10").split(",");
+        if (mix.length != OPERATIONS) {
+            throw new IllegalArgumentException("The mix needs " + OPERATIONS + " weights.");
+        }
+        simulation.setOperationMix(Double.parseDouble(mix[0]), Double.parseDouble(mix[1]),
+                Double.parseDouble(mix[2]), Double.parseDouble(mix[3]));
+        simulation.setSessionLength(Integer.parseInt(options.getOrDefault("session", "20")));
+        if (options.containsKey("threads")) {
+            simulation.setThreads(Integer.parseInt(options.get("threads")));
+        }
+
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "10")));
+        boolean histograms = Boolean.parseBoolean(options.getOrDefault("histograms", "false"));
+        if (!options.containsKey("pipeline")) {
+            System.out.print(simulation.run(duration).describe(histograms));
+            return;
+        }
+        PlayPipeline.Backpressure backpressure = PlayPipeline.Backpressure.valueOf(
+                options.get("pipeline").toUpperCase(Locale.ROOT).replace('-', '_'));
+        try (PlayPipeline pipeline = new PlayPipeline(Integer.parseInt(options.getOrDefault("pipeline-capacity", "8192")),
+                Integer.parseInt(options.getOrDefault("pipeline-batch", "256")), backpressure)) {
+            Report report = simulation.run(duration);
+            long start = System.nanoTime();
+            pipeline.flush();
+            System.out.print(report.describe(histograms));
+            System.out.printf(Locale.ROOT, "pipeline (%s): %d plays applied in %d batches, %d dropped, %d failed, drained in %s%n",
+                    backpressure, pipeline.getApplied(), pipeline.getBatches(), pipeline.getDropped(),
+                    pipeline.getFailures(), LatencyHistogram.format(System.nanoTime() - start));
+        }
+    }
+}
@@ -3,8 +3,16 @@ package org.spotifumtp37;
 
 import org.spotifumtp37.delegate.SpotifUMUI;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            // load simulation instead of the menus, see LoadSimulation for the options
+            LoadSimulation.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         System.out.println("\nWelcome to SpotifUM!");
 
         SpotifUMUI application = new SpotifUMUI();
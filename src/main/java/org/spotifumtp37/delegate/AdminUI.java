@@ -1,16 +1,24 @@
 package org.spotifumtp37.delegate;
 
+import org.spotifumtp37.model.DataSnapshot;
 import org.spotifumtp37.model.SpotifUMData;
 import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.MappedCatalog;
 import org.spotifumtp37.model.album.Song;
 import org.spotifumtp37.exceptions.AlreadyExistsException;
 import org.spotifumtp37.exceptions.DoesntExistException;
 import org.spotifumtp37.model.playlist.Playlist;
 import org.spotifumtp37.model.user.User;
+import org.spotifumtp37.util.BinarySnapshotCodec;
 import org.spotifumtp37.util.JsonDataParser;
+import org.spotifumtp37.util.Leaderboards;
+import org.spotifumtp37.util.ListenerCounts;
 import org.spotifumtp37.util.Stats;
+import org.spotifumtp37.util.StatsEngine;
+import org.spotifumtp37.util.StatsReport;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
@@ -18,13 +26,22 @@ import java.util.*;
 
 public class AdminUI {
     private final JsonDataParser parser;
+    private final BinarySnapshotCodec snapshotCodec;
     private final Scanner scanner;
     private final SpotifUMData modelData;
+    private final StatsEngine stats;
+    private final Leaderboards leaderboards;
+    private final ListenerCounts listenerCounts;
 
-    public AdminUI(SpotifUMData modelData, Scanner scanner) {
+    public AdminUI(SpotifUMData modelData, Scanner scanner, StatsEngine stats, Leaderboards leaderboards,
+                   ListenerCounts listenerCounts) {
         this.modelData = modelData;
         this.scanner = scanner;
-        this.parser = new JsonDataParser();
+        this.stats = stats;
+        this.leaderboards = leaderboards;
+        this.listenerCounts = listenerCounts;
+        this.parser = new JsonDataParser(true);
+        this.snapshotCodec = new BinarySnapshotCodec();
     }
 
     public void showAdminMenu() {
@@ -94,6 +111,8 @@ public class AdminUI {
                 "Export Data to JSON",
                 "Serialize System Data",
                 "Deserialize System Data",
+                "Export Album Catalog",
+                "Open Album Catalog",
                 "Clear System Data",
                 "DEBUG PRINT DATA"
         });
@@ -102,8 +121,10 @@ public class AdminUI {
         dataMenu.setHandler(2, this::saveData);
         dataMenu.setHandler(3, this::serializeData);
         dataMenu.setHandler(4, this::deserializeData);
-        dataMenu.setHandler(5, this::clearSystemData);
-        dataMenu.setHandler(6, this::printCurrentData);
+        dataMenu.setHandler(5, this::exportCatalog);
+        dataMenu.setHandler(6, this::openCatalog);
+        dataMenu.setHandler(7, this::clearSystemData);
+        dataMenu.setHandler(8, this::printCurrentData);
 
         dataMenu.run();
     }
@@ -117,11 +138,15 @@ public class AdminUI {
                 "Get User With Most Points",
                 "Get Most Played Genre",
                 "Count Public Playlists",
-                "Get User Who Created Most Playlists"
+                "Get User Who Created Most Playlists",
+                "View Listening Activity Between Two Dates",
+                "View Full Statistics Report",
+                "View Leaderboards",
+                "Count Different Listeners of an Artist or Song"
         });
 
         statsMenu.setHandler(1, () -> {
-            Song song = Stats.getMostPlayedSong(modelData.getMapAlbumsCopy());
+            Song song = stats.getMostPlayedSong();
             if (song != null) {
                 System.out.println("Most Played Song: " + song.getName() + " by " + song.getArtist() +
                         " (Played " + song.getTimesPlayed() + " times)");
@@ -130,7 +155,7 @@ public class AdminUI {
             }
         });
         statsMenu.setHandler(2, () -> {
-            String artist = Stats.getMostListenedArtist(modelData.getMapAlbumsCopy());
+            String artist = stats.getMostListenedArtist();
             if (artist != null) {
                 System.out.println("Most Listened Artist: " + artist);
             } else {
@@ -138,17 +163,17 @@ public class AdminUI {
             }
         });
         statsMenu.setHandler(3, () -> {
-            User user = Stats.getTopListener(modelData.getMapUsers());
+            User user = stats.getTopListener();
             if (user != null) {
                 System.out.println("Top Listener (Most Songs Listened): " + user.getName() +
-                        " (Listening History Size: " + user.getHistory().size() + ")");
+                        " (Listening History Size: " + user.getHistoryView().size() + ")");
             } else {
                 System.out.println("No user data available.");
             }
         });
         statsMenu.setHandler(4, this::handleTopListenerFromDate);
         statsMenu.setHandler(5, () -> {
-            User user = Stats.getUserWithMostPoints(modelData.getMapUsers());
+            User user = Stats.getUserWithMostPoints(modelData.snapshot().getUsers());
             if (user != null) {
                 System.out.println("User With Most Points: " + user.getName() +
                         " (Points: " + user.getPontos() + ")");
@@ -157,7 +182,7 @@ public class AdminUI {
             }
         });
         statsMenu.setHandler(6, () -> {
-            String genre = Stats.mostListenedGenre(modelData.getMapUsers());
+            String genre = stats.mostListenedGenre();
             if (genre != null) {
                 System.out.println("Most Played Genre: " + genre);
             } else {
@@ -166,12 +191,12 @@ public class AdminUI {
         });
 
         statsMenu.setHandler(7, () -> {
-            long count = Stats.countPublicPlaylists(modelData.getMapPlaylists());
+            long count = Stats.countPublicPlaylists(modelData.snapshot().getPlaylists());
             System.out.println("Number of Public Playlists: " + count);
         });
 
         statsMenu.setHandler(8, () -> {
-            User user = Stats.userWithMostPlaylists(modelData.getMapPlaylists());
+            User user = stats.userWithMostPlaylists();
             if (user != null) {
                 System.out.println("User Who Created Most Playlists: " + user.getName());
             } else {
@@ -179,6 +204,11 @@ public class AdminUI {
             }
         });
 
+        statsMenu.setHandler(9, this::handleActivityBetweenDates);
+        statsMenu.setHandler(10, this::printStatsReport);
+        statsMenu.setHandler(11, this::printLeaderboards);
+        statsMenu.setHandler(12, this::handleDistinctListeners);
+
         statsMenu.run();
     }
 
@@ -196,7 +226,7 @@ public class AdminUI {
         }
         LocalDateTime fromDate = startDate.atStartOfDay();
 
-        User top = Stats.getTopListenerFromDate(modelData.getMapUsers(), fromDate);
+        User top = stats.getTopListenerFromDate(fromDate);
         if (top != null) {
             System.out.println("User who listened to the most songs since " + startDate + ": " + top.getName());
         } else {
@@ -205,6 +235,126 @@ public class AdminUI {
     }
 
 
+    public void handleActivityBetweenDates() {
+        LocalDate from = readDate("Enter start date (yyyy-MM-dd): ");
+        if (from == null) {
+            return;
+        }
+        LocalDate to = readDate("Enter end date (yyyy-MM-dd): ");
+        if (to == null) {
+            return;
+        }
+        if (to.isBefore(from)) {
+            System.out.println("The end date must not be before the start date.");
+            return;
+        }
+
+        System.out.println("Songs played from " + from + " to " + to + ": " + stats.playsBetween(from, to));
+        long[] daily = stats.dailyActivity(from, to);
+        System.out.println("Plays per day:");
+        for (int i = 0; i < daily.length; i++) {
+            if (daily[i] > 0) {
+                System.out.println("  " + from.plusDays(i) + ": " + daily[i]);
+            }
+        }
+        long[] hourly = stats.hourlyActivity(from, to);
+        System.out.println("Plays per hour of the day:");
+        for (int hour = 0; hour < hourly.length; hour++) {
+            System.out.printf("  %02d:00  %d%n", hour, hourly[hour]);
+        }
+    }
+
+    public void printStatsReport() {
+        DataSnapshot snapshot = modelData.snapshot();
+        StatsReport report = Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists());
+
+        System.out.println("Albums: " + report.getAlbums() + " (" + report.getSongs() + " songs)");
+        System.out.println("Users: " + report.getUsers() + " (" + report.getTotalPlays() + " songs played)");
+        System.out.println("Playlists: " + report.getPlaylists() + " (" + report.getPublicPlaylists() + " public)");
+        Song song = report.getMostPlayedSong();
+        if (song != null) {
+            System.out.println("Most Played Song: " + song.getName() + " by " + song.getArtist() +
+                    " (Played " + song.getTimesPlayed() + " times)");
+        }
+        if (report.getMostListenedArtist() != null) {
+            System.out.println("Most Listened Artist: " + report.getMostListenedArtist());
+        }
+        if (report.getTopListener() != null) {
+            System.out.println("Top Listener: " + report.getTopListener() +
+                    " (Listening History Size: " + report.getTopListenerPlays() + ")");
+        }
+        if (report.getUserWithMostPoints() != null) {
+            System.out.println("User With Most Points: " + report.getUserWithMostPoints() +
+                    " (Points: " + report.getMostPoints() + ")");
+        }
+        if (report.getMostListenedGenre() != null) {
+            System.out.println("Most Played Genre: " + report.getMostListenedGenre());
+        }
+        if (report.getUserWithMostPlaylists() != null) {
+            System.out.println("User Who Created Most Playlists: " + report.getUserWithMostPlaylists() +
+                    " (" + report.getPlaylistsOfTopCreator() + " playlists)");
+        }
+
+        System.out.println("Plays per genre:");
+        report.getPlaysByGenre().forEach((genre, plays) -> System.out.println("  " + genre + ": " + plays));
+        System.out.println("Plays per artist:");
+        report.getPlaysByArtist().forEach((artist, plays) -> System.out.println("  " + artist + ": " + plays));
+        System.out.println("Per subscription plan:");
+        report.getUsersByPlan().forEach((plan, users) -> System.out.println("  " + plan + ": " + users + " users, " +
+                report.getPlaysByPlan().get(plan) + " songs played, " + report.getPointsByPlan().get(plan) + " points"));
+    }
+
+    public void printLeaderboards() {
+        final int size = 10;
+        System.out.println("Top " + size + " Songs:");
+        List<Song> songs = leaderboards.getTopSongs(size);
+        for (int i = 0; i < songs.size(); i++) {
+            Song song = songs.get(i);
+            System.out.println("  " + (i + 1) + ". " + song.getName() + " by " + song.getArtist() +
+                    " (" + leaderboards.getPlays(song) + " plays)");
+        }
+        printBoard("Artists", leaderboards.getTopArtists(size));
+        printBoard("Genres", leaderboards.getTopGenres(size));
+        printBoard("Publishers", leaderboards.getTopPublishers(size));
+        if (leaderboards.getErrorBound() > 0) {
+            System.out.println("(Play counts may be up to " + leaderboards.getErrorBound() + " over.)");
+        }
+    }
+
+    public void handleDistinctListeners() {
+        System.out.print("Enter artist name: ");
+        String artist = scanner.nextLine().trim();
+        System.out.print("Enter song name (leave empty for all the artist's songs): ");
+        String songName = scanner.nextLine().trim();
+
+        long listeners;
+        if (songName.isEmpty()) {
+            listeners = listenerCounts.getDistinctListeners(artist);
+        } else {
+            listeners = listenerCounts.getDistinctListeners(artist, songName);
+        }
+        System.out.printf("About %d different users listened to %s (within %.1f%%).%n", listeners,
+                songName.isEmpty() ? artist : songName + " by " + artist, listenerCounts.getRelativeError() * 100);
+    }
+
+    private void printBoard(String title, List<String> entries) {
+        System.out.println("Top " + title + ":");
+        for (int i = 0; i < entries.size(); i++) {
+            System.out.println("  " + (i + 1) + ". " + entries.get(i));
+        }
+    }
+
+    private LocalDate readDate(String prompt) {
+        System.out.print(prompt);
+        String input = scanner.nextLine().trim();
+        try {
+            return LocalDate.parse(input);
+        } catch (DateTimeParseException ex) {
+            System.out.println("Invalid date format. Please use yyyy-MM-dd.");
+            return null;
+        }
+    }
+
     public void saveData() {
         System.out.print("Enter file path to save: ");
         String path = scanner.nextLine();
@@ -229,9 +379,7 @@ public class AdminUI {
 
     public void loadFromJson(String filePath) throws IOException {
         SpotifUMData loaded = parser.fromJsonData(filePath);
-        modelData.setMapAlbums(loaded.getMapAlbumsCopy());
-        modelData.setMapUsers(loaded.getMapUsers());
-        modelData.setMapPlaylists(loaded.getMapPlaylists());
+        modelData.restoreFrom(loaded);
     }
 
     public void saveToJson(String filePath) throws IOException {
@@ -239,41 +387,55 @@ public class AdminUI {
     }
 
     public void serializeData() {
-        System.out.print("Enter filename to save serialized data (data/serial/spotifumdata.ser suggested): ");
+        System.out.print("Enter filename to save serialized data (data/serial/spotifumdata.snap suggested): ");
         String filename = scanner.nextLine().trim();
 
-        try (FileOutputStream fileOut = new FileOutputStream(filename)) {
-            try (ObjectOutputStream out = new ObjectOutputStream(fileOut)) {
-                out.writeObject(modelData);
-                System.out.println("Data serialized successfully!");
-            } catch (IOException e) {
-                System.out.println("Error serializing data: " + e.getMessage());
-            }
+        try {
+            snapshotCodec.save(modelData, Path.of(filename));
+            System.out.println("Data serialized successfully!");
         } catch (IOException e) {
             System.out.println("Error serializing data: " + e.getMessage());
         }
     }
 
     public void deserializeData() {
-        System.out.print("Enter filename to load serialized data (data/serial/spotifumdata.ser suggested): ");
+        System.out.print("Enter filename to load serialized data (data/serial/spotifumdata.snap suggested): ");
         String filename = scanner.nextLine().trim();
 
-        try (FileInputStream fileIn = new FileInputStream(filename)) {
-            try (ObjectInputStream in = new ObjectInputStream(fileIn)) {
-                SpotifUMData deserializedData = (SpotifUMData) in.readObject();
-                this.modelData.setMapAlbums(deserializedData.getMapAlbumsCopy());
-                this.modelData.setMapUsers(deserializedData.getMapUsers());
-                this.modelData.setMapPlaylists(deserializedData.getMapPlaylists());
-
-                System.out.println("Data deserialized successfully!");
-            } catch (IOException | ClassNotFoundException e) {
-                System.out.println("Error deserializing data: " + e.getMessage());
-            }
+        // only snapshots are read: Java serialization files (.ser) no longer match the model classes
+        try {
+            this.modelData.restoreFrom(snapshotCodec.load(Path.of(filename)));
+            System.out.println("Data deserialized successfully!");
         } catch (IOException e) {
             System.out.println("Error deserializing data: " + e.getMessage());
         }
     }
 
+    public void exportCatalog() {
+        System.out.print("Enter filename to save the album catalog (data/serial/catalog.spmc suggested): ");
+        String filename = scanner.nextLine().trim();
+
+        try {
+            MappedCatalog.write(modelData.getMapAlbumsView().values(), Path.of(filename));
+            System.out.println("Catalog exported successfully!");
+        } catch (IOException e) {
+            System.out.println("Error exporting catalog: " + e.getMessage());
+        }
+    }
+
+    public void openCatalog() {
+        System.out.print("Enter filename of the album catalog (data/serial/catalog.spmc suggested): ");
+        String filename = scanner.nextLine().trim();
+
+        try {
+            MappedCatalog catalog = MappedCatalog.open(Path.of(filename));
+            modelData.attachCatalog(catalog);
+            System.out.println("Catalog opened with " + catalog.getAlbumCount() + " albums.");
+        } catch (IOException e) {
+            System.out.println("Error opening catalog: " + e.getMessage());
+        }
+    }
+
     public void clearSystemData() {
         modelData.setMapAlbums(new HashMap<>());
         modelData.setMapUsers(new HashMap<>());
@@ -537,7 +699,7 @@ public class AdminUI {
 
     public void viewAllAlbums() {
         System.out.println("\n--- All Albums ---");
-        Map<String, Album> albums = modelData.getMapAlbumsCopy();
+        Map<String, Album> albums = modelData.snapshot().getAlbums();
 
         if (albums.isEmpty()) {
             System.out.println("No albums found in the system.");
@@ -553,7 +715,7 @@ public class AdminUI {
 
     public void viewAllPlaylists() {
         System.out.println("\n--- All Playlists ---");
-        Map<String, Playlist> playlists = modelData.getMapPlaylists();
+        Map<String, Playlist> playlists = modelData.snapshot().getPlaylists();
 
         if (playlists.isEmpty()) {
             System.out.println("No playlists found in the system.");
@@ -570,7 +732,7 @@ public class AdminUI {
 
     public void viewAllUsers() {
         System.out.println("\n--- All Users ---");
-        Map<String, User> users = modelData.getMapUsers();
+        Map<String, User> users = modelData.snapshot().getUsers();
 
         if (users.isEmpty()) {
             System.out.println("No users found in the system.");
@@ -3,29 +3,97 @@ package org.spotifumtp37.delegate;
 import org.spotifumtp37.model.SpotifUMData;
 import org.spotifumtp37.exceptions.AlreadyExistsException;
 import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.playlist.PlayEvents;
 import org.spotifumtp37.model.subscription.FreePlan;
 import org.spotifumtp37.model.user.User;
-
+import org.spotifumtp37.util.Leaderboards;
+import org.spotifumtp37.util.ListenerCounts;
+import org.spotifumtp37.util.PlayEventLog;
+import org.spotifumtp37.util.StatsEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Scanner;
 
 public class SpotifUMUI {
+    private static final Path STATE_DIRECTORY = Path.of("data", "state");
+    private static final Path SNAPSHOT_FILE = STATE_DIRECTORY.resolve("spotifumdata.snap");
+    private static final Path PLAY_LOG_FILE = STATE_DIRECTORY.resolve("plays.log");
+    // each leaderboard keeps at most 1000 entries, with counts over by at most 0.1% of all plays
+    private static final double LEADERBOARD_ERROR = 0.001;
+    private static final Path LISTENERS_FILE = STATE_DIRECTORY.resolve("listeners.hll");
+    // at most 1 KB per song and artist (a few bytes for those with few listeners), counts within about 3%
+    private static final int LISTENERS_PRECISION = 10;
+
     private final Scanner scanner;
     private SpotifUMData modelData;
     private User loggedUser;
     private AdminUI adminUI;
     private UserUI userUI;
+    private PlayEventLog playLog;
+    private StatsEngine statsEngine;
+    private Leaderboards leaderboards;
+    private ListenerCounts listenerCounts;
 
     public SpotifUMUI() {
         this.scanner = new Scanner(System.in);
         this.modelData = new SpotifUMData();
         this.loggedUser = null;
-        this.adminUI = new AdminUI(modelData, scanner);
+        this.openPlayLog();
+        this.statsEngine = new StatsEngine(modelData); // after the log has replayed the saved plays
+        this.leaderboards = new Leaderboards(modelData, LEADERBOARD_ERROR);
+        this.listenerCounts = ListenerCounts.open(modelData, LISTENERS_PRECISION, LISTENERS_FILE);
+        this.adminUI = new AdminUI(modelData, scanner, statsEngine, leaderboards, listenerCounts);
         this.userUI = new UserUI(modelData, loggedUser, scanner);
     }
 
     public void run() {
         this.showMainMenu();
+        this.closePlayLog();
+        this.saveListenerCounts();
+    }
+
+    // restores the last saved state and keeps every play in the log from now on
+    private void openPlayLog() {
+        try {
+            Files.createDirectories(STATE_DIRECTORY);
+            playLog = PlayEventLog.open(modelData, SNAPSHOT_FILE, PLAY_LOG_FILE);
+            PlayEvents.addListener(playLog);
+            modelData.addDataListener(playLog);
+        } catch (IOException e) {
+            System.out.println("Could not open the saved state, plays will not be kept: " + e.getMessage());
+            playLog = null;
+        }
+    }
+
+    private void closePlayLog() {
+        if (playLog == null) {
+            return;
+        }
+        PlayEvents.removeListener(playLog);
+        modelData.removeDataListener(playLog);
+        try {
+            try {
+                // always, so changes the log does not keep (e.g. edits by the admin) are saved too
+                playLog.compact();
+            } finally {
+                playLog.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving the plays: " + e.getMessage());
+        }
+    }
+
+    // kept apart from the play log, so the counts are saved even when it could not be opened or saved
+    private void saveListenerCounts() {
+        try {
+            Files.createDirectories(STATE_DIRECTORY);
+            listenerCounts.save(LISTENERS_FILE);
+        } catch (IOException e) {
+            System.out.println("Error saving the listener counts: " + e.getMessage());
+        }
     }
 
     //menus do programa
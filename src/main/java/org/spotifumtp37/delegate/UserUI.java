@@ -6,6 +6,7 @@ import org.spotifumtp37.model.album.Song;
 import org.spotifumtp37.exceptions.AlreadyExistsException;
 import org.spotifumtp37.exceptions.DoesntExistException;
 import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.playlist.CatalogShuffle;
 import org.spotifumtp37.model.playlist.Playlist;
 import org.spotifumtp37.model.subscription.FreePlan;
 import org.spotifumtp37.model.subscription.PremiumBase;
@@ -93,7 +94,7 @@ public class UserUI {
 
     private void viewAllPlaylistsForPlaying() {
         System.out.println("Available Playlists:");
-        this.modelData.getMapPlaylists().forEach((name, playlist) -> {
+        this.modelData.snapshot().getPlaylists().forEach((name, playlist) -> {
             if (playlist.isPublic() || playlist.getCreator().equals(loggedUser)) {
                 System.out.println("- " + name + (playlist.isPublic() ? " (Public)" : " (Private)"));
             }
@@ -124,7 +125,7 @@ public class UserUI {
 
     private void viewAllAlbumsForPlaying() {
         System.out.println("Available Albums:");
-        this.modelData.getMapAlbumsCopy().forEach((title, album) -> System.out.println("- " + title + " by " + album.getArtist()));
+        this.modelData.snapshot().getAlbums().forEach((title, album) -> System.out.println("- " + title + " by " + album.getArtist()));
         System.out.println("--- End of Album List ---");
     }
 
@@ -151,25 +152,16 @@ public class UserUI {
     }
 
     private void playFreePlaylist() {
-        List<Song> allAvailableSongs = new ArrayList<>();
-        // Aggregate ALL songs from all albums
-        for (Album album : modelData.getMapAlbums().values()) {
-            allAvailableSongs.addAll(album.getSongs());
-        }
-
-        if (allAvailableSongs.isEmpty()) {
+        // Shuffle ALL songs from all albums, played where they are
+        CatalogShuffle freePlaylist = new CatalogShuffle(modelData.snapshot().getAlbums().values());
+        if (freePlaylist.getCurrentSong() == null) {
             System.out.println("No songs available to play.");
             return;
         }
-        // Shuffle the songs
-        Collections.shuffle(allAvailableSongs);
-
-        // Create a temporary Playlist object
-        Playlist tempPlaylist = new Playlist(this.loggedUser, "FreeShuffle", "", 0 , "", allAvailableSongs);
 
-        // Play with PlayerUI (using your existing playSong(Playlist, User) method)
+        // Play with PlayerUI (using your existing playSong(Playable, User) method)
         try {
-            playerUI.playSong(tempPlaylist, loggedUser);
+            playerUI.playSong(freePlaylist, loggedUser);
         } catch (IOException e) {
             System.out.println("Error playing songs: " + e.getMessage());
         }
@@ -0,0 +1,41 @@
+package org.spotifumtp37.model;
+
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.User;
+
+/**
+ * Receives the changes made to the albums, users and playlists of a {@link SpotifUMData},
+ * registered with {@link SpotifUMData#addDataListener(DataListener)}.
+ * Each method gets the instance held by the data, after the change. All methods do nothing by default.
+ */
+public interface DataListener {
+
+    default void albumAdded(Album album) {
+    }
+
+    default void albumRemoved(Album album) {
+    }
+
+    default void userAdded(User user) {
+    }
+
+    default void userRemoved(User user) {
+    }
+
+    default void playlistAdded(Playlist playlist) {
+    }
+
+    default void playlistRemoved(Playlist playlist) {
+    }
+
+    default void playlistCreatorChanged(Playlist playlist, User oldCreator, User newCreator) {
+    }
+
+    /**
+     * Called when whole maps are replaced (setMapAlbums/setMapUsers/setMapPlaylists, restoreFrom),
+     * instead of one call per entity.
+     */
+    default void dataReplaced() {
+    }
+}
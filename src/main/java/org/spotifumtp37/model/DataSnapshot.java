@@ -0,0 +1,52 @@
+package org.spotifumtp37.model;
+
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.User;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Read-only, point-in-time view of the albums, users and playlists of a {@link SpotifUMData},
+ * taken with {@link SpotifUMData#snapshot()}.
+ * <p>
+ * Taking a snapshot copies nothing: it shares the data's maps, and the data copies a map (only the
+ * map, not the entities in it) the first time it adds or removes an entry after a snapshot.
+ * So the set of albums, users and playlists seen through a snapshot never changes. The entities are
+ * shared as they are, which is what the statistics and the savers need, and must not be modified
+ * through a snapshot; changes made to them afterwards (e.g. new plays) are visible through it.
+ * </p>
+ */
+public final class DataSnapshot {
+    private final Map<String, Album> albums;
+    private final Map<String, User> users;
+    private final Map<String, Playlist> playlists;
+
+    DataSnapshot(Map<String, Album> albums, Map<String, User> users, Map<String, Playlist> playlists) {
+        this.albums = Collections.unmodifiableMap(albums);
+        this.users = Collections.unmodifiableMap(users);
+        this.playlists = Collections.unmodifiableMap(playlists);
+    }
+
+    /**
+     * @return The albums at the time of the snapshot, by title
+     */
+    public Map<String, Album> getAlbums() {
+        return albums;
+    }
+
+    /**
+     * @return The users at the time of the snapshot, by name
+     */
+    public Map<String, User> getUsers() {
+        return users;
+    }
+
+    /**
+     * @return The playlists at the time of the snapshot, by name
+     */
+    public Map<String, Playlist> getPlaylists() {
+        return playlists;
+    }
+}
@@ -8,12 +8,23 @@ import org.spotifumtp37.model.user.*;
 
 import java.io.Serializable;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class SpotifUMData implements Serializable {
     private Map<String, Album> albums;
     private Map<String, User> users;
     private Map<String, Playlist> playlists;
+    private transient Map<String, Map<String, Playlist>> playlistsByCreator;
+    private transient MappedCatalog catalog;
+    // set while a snapshot shares the map, which is then copied before its next change
+    private transient boolean albumsShared;
+    private transient boolean usersShared;
+    private transient boolean playlistsShared;
+    private transient Set<String> removedFromCatalog;
+    private transient List<DataListener> dataListeners;
+    private transient boolean concurrent;
+    private int nextSongId;
 
     public SpotifUMData() {
         this.albums = new HashMap<>();
@@ -23,7 +34,7 @@ public class SpotifUMData implements Serializable {
 
     public SpotifUMData(SpotifUMData outro) {
         this.albums = new HashMap<>();
-        for (Map.Entry<String, Album> entry : outro.albums.entrySet()) {
+        for (Map.Entry<String, Album> entry : outro.loadedAlbums().entrySet()) {
             this.albums.put(entry.getKey(), entry.getValue().clone());
         }
         this.users = new HashMap<>();
@@ -34,6 +45,20 @@ public class SpotifUMData implements Serializable {
         for (Map.Entry<String, Playlist> entry : outro.playlists.entrySet()) {
             this.playlists.put(entry.getKey(), entry.getValue().clone());
         }
+        this.nextSongId = outro.nextSongId;
+    }
+
+    /**
+     * Builds the data around already loaded maps, which are used as they are (no copies).
+     * Meant for loaders that have just created these maps and will not touch them again.
+     */
+    public SpotifUMData(Map<String, Album> albums, Map<String, User> users, Map<String, Playlist> playlists) {
+        this.albums = albums != null ? albums : new HashMap<>();
+        this.users = users != null ? users : new HashMap<>();
+        this.playlists = playlists != null ? playlists : new HashMap<>();
+        for (Album album : this.albums.values()) {
+            assignSongIds(album);
+        }
     }
 
     @Override
@@ -43,7 +68,7 @@ public class SpotifUMData implements Serializable {
 
     @Override
     public String toString() {
-        return "Albums: " + albums.toString()
+        return "Albums: " + loadedAlbums().toString()
                 + "\nUsers: " + users.toString()
                 + "\nPlaylists: " + playlists.toString();
     }
@@ -53,21 +78,21 @@ public class SpotifUMData implements Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         SpotifUMData that = (SpotifUMData) o;
-        return Objects.equals(albums, that.albums)
+        return Objects.equals(loadedAlbums(), that.loadedAlbums())
                 && Objects.equals(users, that.users)
                 && Objects.equals(playlists, that.playlists);
     }
 
     public Map<String, Album> getMapAlbumsCopy() {
         Map<String, Album> mapCarros = new HashMap<>();
-        for (Map.Entry<String, Album> entry : albums.entrySet()) {
+        for (Map.Entry<String, Album> entry : loadedAlbums().entrySet()) {
             mapCarros.put(entry.getKey(), entry.getValue().clone());
         }
         return mapCarros;
     }
 
     public Map<String, Album> getMapAlbums() {
-        return new HashMap<>(albums);
+        return new HashMap<>(loadedAlbums());
     }
 
     public Map<String, User> getMapUsers() {
@@ -78,6 +103,64 @@ public class SpotifUMData implements Serializable {
         return mapUsers;
     }
 
+    /**
+     * Read-only views over the live maps, for code that only has to walk the data
+     * (e.g. writing it to disk) and should not pay for a deep copy.
+     */
+    public Map<String, Album> getMapAlbumsView() {
+        return Collections.unmodifiableMap(loadedAlbums());
+    }
+
+    public Map<String, User> getMapUsersView() {
+        return Collections.unmodifiableMap(users);
+    }
+
+    public Map<String, Playlist> getMapPlaylistsView() {
+        return Collections.unmodifiableMap(playlists);
+    }
+
+    /**
+     * Takes a read-only, point-in-time view of the albums, users and playlists without copying them
+     * (see {@link DataSnapshot}). Meant for code that only reads the whole data, such as the statistics
+     * and the savers, instead of the deep copies made by getMapUsers/getMapPlaylists/getMapAlbumsCopy.
+     * With a catalog attached, the albums still in the catalog are loaded first.
+     */
+    public DataSnapshot snapshot() {
+        loadedAlbums();
+        if (concurrent) {
+            // the maps keep changing under other threads: the snapshot gets its own (shallow) copies
+            return new DataSnapshot(new HashMap<>(albums), new HashMap<>(users), new HashMap<>(playlists));
+        }
+        albumsShared = true;
+        usersShared = true;
+        playlistsShared = true;
+        return new DataSnapshot(albums, users, playlists);
+    }
+
+    private Map<String, Album> writableAlbums() {
+        if (albumsShared) {
+            albums = new HashMap<>(albums);
+            albumsShared = false;
+        }
+        return albums;
+    }
+
+    private Map<String, User> writableUsers() {
+        if (usersShared) {
+            users = new HashMap<>(users);
+            usersShared = false;
+        }
+        return users;
+    }
+
+    private Map<String, Playlist> writablePlaylists() {
+        if (playlistsShared) {
+            playlists = new HashMap<>(playlists);
+            playlistsShared = false;
+        }
+        return playlists;
+    }
+
     public User getCurrentUserPointer(String username) {
         return this.users.get(username);
     }
@@ -91,43 +174,272 @@ public class SpotifUMData implements Serializable {
     }
 
     public void setMapAlbums(Map<String, Album> mapAlbums) {
-        Map<String, Album> newMapAlbums = new HashMap<>();
+        Map<String, Album> newMapAlbums = newMap();
         for (Map.Entry<String, Album> entry : mapAlbums.entrySet()) {
-            newMapAlbums.put(entry.getKey(), entry.getValue().clone());
+            Album album = entry.getValue().clone();
+            assignSongIds(album);
+            newMapAlbums.put(entry.getKey(), album);
         }
         this.albums = newMapAlbums;
+        this.albumsShared = false;
+        this.catalog = null;
+        fireDataReplaced();
     }
 
     public void setMapUsers(Map<String, User> mapUsers) {
-        Map<String, User> newMapUsers = new HashMap<>();
+        Map<String, User> newMapUsers = newMap();
         for (Map.Entry<String, User> entry : mapUsers.entrySet()) {
             newMapUsers.put(entry.getKey(), entry.getValue().clone());
         }
         this.users = newMapUsers;
+        this.usersShared = false;
+        fireDataReplaced();
     }
 
     public void setMapPlaylists(Map<String, Playlist> mapPlaylists) {
-        Map<String, Playlist> newMapPlaylists = new HashMap<>();
+        Map<String, Playlist> newMapPlaylists = newMap();
         for (Map.Entry<String, Playlist> entry : mapPlaylists.entrySet()) {
             newMapPlaylists.put(entry.getKey(), entry.getValue().clone());
         }
         this.playlists = newMapPlaylists;
+        this.playlistsShared = false;
+        this.playlistsByCreator = null;
+        if (concurrent) {
+            playlistsByCreator();
+        }
+        fireDataReplaced();
     }
 
-    public boolean existsAlbum(String title) {
-        return albums.containsKey(title);
+    /**
+     * Takes over the maps of a freshly loaded instance, without copying them,
+     * so references linked by {@link #linkReferences()} are kept.
+     * The loaded instance must not be used afterwards.
+     */
+    public void restoreFrom(SpotifUMData loaded) {
+        this.albums = concurrent ? new ConcurrentHashMap<>(loaded.albums) : loaded.albums;
+        this.users = concurrent ? new ConcurrentHashMap<>(loaded.users) : loaded.users;
+        this.playlists = concurrent ? new ConcurrentHashMap<>(loaded.playlists) : loaded.playlists;
+        this.playlistsByCreator = null;
+        this.albumsShared = loaded.albumsShared;
+        this.usersShared = loaded.usersShared;
+        this.playlistsShared = loaded.playlistsShared;
+        this.catalog = loaded.catalog;
+        this.removedFromCatalog = loaded.removedFromCatalog;
+        this.nextSongId = loaded.nextSongId;
+        if (concurrent) {
+            loadedAlbums();
+            playlistsByCreator();
+        }
+        fireDataReplaced();
     }
 
-    public boolean existsSong(String title, String albumTitle) {
-        if (existsAlbum(albumTitle)) {
-            Album album = albums.get(albumTitle);
-            for (Song song : album.getSongsCopy()) {
-                if (song.getName().equals(title)) {
-                    return true;
+    /**
+     * Uses a memory-mapped catalog as the backend for the albums that are not in memory.
+     * Albums are only read from the catalog when they are looked up, and are then kept in memory
+     * (so play counts and edits made to them are saved with the rest of the data).
+     * Albums already in memory take precedence over the catalog ones with the same title.
+     *
+     * @param catalog The catalog to use, or null to stop using one
+     */
+    public void attachCatalog(MappedCatalog catalog) {
+        this.catalog = catalog;
+        this.removedFromCatalog = new HashSet<>();
+        if (catalog != null && nextSongId != 0) {
+            // the catalog songs keep their ids, new ones must come after them
+            nextSongId = Math.max(nextSongId, catalog.getMaxSongId() + 1);
+        }
+        if (concurrent) {
+            // albums are not loaded lazily while other threads look them up
+            loadedAlbums();
+        }
+        fireDataReplaced();
+    }
+
+    /**
+     * Switches the data to the concurrent mode, so it can serve many sessions from several threads.
+     * <p>
+     * The albums, users and playlists are kept in {@link ConcurrentHashMap}s, and adding or removing
+     * one is a single atomic operation on its map: of two sessions adding the same user, exactly one
+     * gets an {@link AlreadyExistsException}. The index of playlists by creator is kept the same way.
+     * An attached catalog is loaded in full, and {@link #snapshot()} copies the maps instead of sharing
+     * them. Plays are safe from several threads in either mode: the play counts are atomic and each
+     * user records its plays under its own lock (see {@link User#recordPlay}).
+     * </p>
+     * Meant to be called once, before the data is shared between threads; it cannot be undone.
+     */
+    public synchronized void makeConcurrent() {
+        if (concurrent) {
+            return;
+        }
+        loadedAlbums();
+        this.albums = new ConcurrentHashMap<>(albums);
+        this.users = new ConcurrentHashMap<>(users);
+        this.playlists = new ConcurrentHashMap<>(playlists);
+        this.albumsShared = false;
+        this.usersShared = false;
+        this.playlistsShared = false;
+        if (dataListeners == null) {
+            dataListeners = new CopyOnWriteArrayList<>();
+        }
+        this.concurrent = true;
+        this.playlistsByCreator = null;
+        playlistsByCreator();
+    }
+
+    /**
+     * @return True if the data was switched to the concurrent mode (see {@link #makeConcurrent()})
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    private <V> Map<String, V> newMap() {
+        return concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+    /**
+     * Registers a listener for the changes made through this object (see {@link DataListener}).
+     * Changes made directly to the entities, other than a playlist's creator, are not reported.
+     *
+     * @param listener The listener to add
+     */
+    public void addDataListener(DataListener listener) {
+        if (dataListeners == null) {
+            dataListeners = new CopyOnWriteArrayList<>();
+        }
+        dataListeners.add(listener);
+        playlistsByCreator(); // so playlists report creator changes
+    }
+
+    public void removeDataListener(DataListener listener) {
+        if (dataListeners != null) {
+            dataListeners.remove(listener);
+        }
+    }
+
+    private boolean hasDataListeners() {
+        return dataListeners != null && !dataListeners.isEmpty();
+    }
+
+    private void fireDataReplaced() {
+        if (hasDataListeners()) {
+            playlistsByCreator();
+            for (DataListener listener : dataListeners) {
+                listener.dataReplaced();
+            }
+        }
+    }
+
+    /**
+     * Gets an album from memory or, failing that, from the attached catalog.
+     */
+    private Album findAlbum(String title) {
+        Album album = albums.get(title);
+        if (album == null && catalog != null && !removedFromCatalog.contains(title)) {
+            album = catalog.getAlbum(title);
+            if (album != null) {
+                assignSongIds(album);
+                writableAlbums().put(title, album);
+                if (hasDataListeners()) {
+                    for (DataListener listener : dataListeners) {
+                        listener.albumAdded(album);
+                    }
                 }
             }
         }
-        return false;
+        return album;
+    }
+
+    /**
+     * Gets the album map with every catalog album loaded into it, for the operations that need
+     * the whole set of albums. Once this is done the catalog is no longer needed.
+     */
+    private Map<String, Album> loadedAlbums() {
+        if (catalog != null) {
+            for (String title : catalog.getAlbumTitles()) {
+                findAlbum(title);
+            }
+            catalog = null;
+        }
+        return albums;
+    }
+
+    /**
+     * Gives an id to each song of the album that does not have one yet.
+     * The current song, when it is a separate copy, gets the id of the album song with its name.
+     */
+    private void assignSongIds(Album album) {
+        for (Song song : album.getSongs()) {
+            if (song.getId() == 0) {
+                song.setId(nextSongId());
+            }
+        }
+        Song current = album.getCurrentSong();
+        if (current != null && current.getId() == 0) {
+            Song match = album.getSongPointer(current.getName());
+            if (match != null) {
+                current.setId(match.getId());
+            }
+        }
+    }
+
+    /**
+     * Hands out the next song id. Ids start after the highest one already given to a
+     * song in memory or in the attached catalog, so songs keep their ids and new ones never
+     * collide with them.
+     */
+    private synchronized int nextSongId() {
+        if (nextSongId == 0) {
+            MappedCatalog attached = catalog;
+            int max = attached != null ? attached.getMaxSongId() : 0;
+            for (Album album : albums.values()) {
+                for (Song song : album.getSongs()) {
+                    max = Math.max(max, song.getId());
+                }
+            }
+            nextSongId = max + 1;
+        }
+        return nextSongId++;
+    }
+
+    /**
+     * Re-points playlist creators at the registered users, so data that was loaded from separate
+     * files shares instances instead of holding one copy per reference.
+     * Songs get their ids here too, and playlist songs take the id of the matching catalog song.
+     * Histories keep their own copy of each song: they record the song as it was when played,
+     * so they never point at the catalog songs, which keep changing.
+     */
+    public void linkReferences() {
+        for (Playlist playlist : playlists.values()) {
+            User creator = playlist.getCreator();
+            if (creator != null && users.containsKey(creator.getName())) {
+                playlist.setCreatorUsername(users.get(creator.getName()));
+            }
+        }
+
+        Map<String, Song> catalog = new HashMap<>();
+        for (Album album : loadedAlbums().values()) {
+            assignSongIds(album);
+            for (Song song : album.getSongs()) {
+                catalog.putIfAbsent(song.getArtist() + '\0' + song.getName(), song);
+            }
+        }
+        for (Playlist playlist : playlists.values()) {
+            playlist.linkSongIds(song -> {
+                Song match = catalog.get(song.getArtist() + '\0' + song.getName());
+                return match != null ? match.getId() : 0;
+            });
+        }
+    }
+
+    public boolean existsAlbum(String title) {
+        return albums.containsKey(title)
+                || (catalog != null && !removedFromCatalog.contains(title) && catalog.containsAlbum(title));
+    }
+
+    public boolean existsSong(String title, String albumTitle) {
+        Album album = findAlbum(albumTitle);
+        return album != null && album.hasSong(title);
     }
 
     public boolean existsPlaylist(String playlistName) {
@@ -142,7 +454,7 @@ public class SpotifUMData implements Serializable {
         if (!existsAlbum(title)) {
             throw new DoesntExistException(title);
         } else {
-            return albums.get(title);
+            return findAlbum(title);
         }
     }
 
@@ -150,14 +462,8 @@ public class SpotifUMData implements Serializable {
         if (!existsSong(title, albumTitle)) {
             throw new DoesntExistException(title);
         } else {
-            Album album = albums.get(albumTitle);
-            for (Song song : album.getSongsCopy()) {
-                if (song.getName().equals(title)) {
-                    return song;
-                }
-            }
+            return findAlbum(albumTitle).getSongPointer(title).clone();
         }
-        return null;
     }
 
     public Playlist getPlaylist(String playlistName) throws DoesntExistException {
@@ -169,8 +475,9 @@ public class SpotifUMData implements Serializable {
     }
 
     public Playlist getAnyPlaylist(String playlistName,User creator) throws DoesntExistException {
-        if (existsPlaylist(playlistName) && ( this.getPlaylistMapByCreator(creator).containsKey(playlistName) || playlists.get(playlistName).isPublic())) {
-            return playlists.get(playlistName);
+        Playlist playlist = playlists.get(playlistName);
+        if (playlist != null && ((playlist.getCreator() != null && playlist.getCreator().equals(creator)) || playlist.isPublic())) {
+            return playlist;
         } else {
             throw new DoesntExistException(playlistName);
         }
@@ -185,59 +492,185 @@ public class SpotifUMData implements Serializable {
     }
 
     public void addAlbum(Album album) throws AlreadyExistsException {
-        if (!albums.containsKey(album.getTitle())) {
-            albums.put(album.getTitle(), album.clone());
-        } else {
-            throw new AlreadyExistsException(album.getTitle());
+        if (!existsAlbum(album.getTitle())) {
+            Album copy = album.clone();
+            assignSongIds(copy);
+            if (writableAlbums().putIfAbsent(album.getTitle(), copy) == null) {
+                if (hasDataListeners()) {
+                    for (DataListener listener : dataListeners) {
+                        listener.albumAdded(copy);
+                    }
+                }
+                return;
+            }
         }
+        throw new AlreadyExistsException(album.getTitle());
     }
 
     public void addPlaylist(Playlist playlist) throws AlreadyExistsException {
         if (!playlists.containsKey(playlist.getPlaylistName())) {
-            playlists.put(playlist.getPlaylistName(), playlist.clone());
-        } else {
-            throw new AlreadyExistsException(playlist.getPlaylistName());
+            Playlist copy = playlist.clone();
+            // indexed inside the compute call, while no other thread can remove the key
+            Playlist stored = writablePlaylists().compute(playlist.getPlaylistName(), (key, existing) -> {
+                if (existing != null) {
+                    return existing;
+                }
+                if (playlistsByCreator != null) {
+                    indexPlaylist(key, copy);
+                }
+                return copy;
+            });
+            if (stored == copy) {
+                if (hasDataListeners()) {
+                    for (DataListener listener : dataListeners) {
+                        listener.playlistAdded(copy);
+                    }
+                }
+                return;
+            }
         }
+        throw new AlreadyExistsException(playlist.getPlaylistName());
     }
 
     public void addUser(User user) throws AlreadyExistsException {
         if (!users.containsKey(user.getName())) {
-            users.put(user.getName(), user.clone());
-        } else {
-            throw new AlreadyExistsException(user.getName());
+            User copy = user.clone();
+            if (writableUsers().putIfAbsent(user.getName(), copy) == null) {
+                if (hasDataListeners()) {
+                    for (DataListener listener : dataListeners) {
+                        listener.userAdded(copy);
+                    }
+                }
+                return;
+            }
         }
+        throw new AlreadyExistsException(user.getName());
     }
 
     public void removeAlbum(String title) throws DoesntExistException {
-        if (albums.containsKey(title)) {
-            albums.remove(title);
-        } else {
+        boolean inCatalog = catalog != null && !removedFromCatalog.contains(title) && catalog.containsAlbum(title);
+        Album removed = albums.containsKey(title) ? writableAlbums().remove(title) : null;
+        if (removed == null && !inCatalog) {
             throw new DoesntExistException(title);
         }
+        if (catalog != null) {
+            removedFromCatalog.add(title);
+        }
+        if (removed != null && hasDataListeners()) {
+            for (DataListener listener : dataListeners) {
+                listener.albumRemoved(removed);
+            }
+        }
     }
 
     public void removePlaylist(String playlistName) throws DoesntExistException {
+        Playlist[] removed = new Playlist[1];
         if (playlists.containsKey(playlistName)) {
-            playlists.remove(playlistName);
-        } else {
+            // unindexed inside the compute call, so a concurrent add of the same key is indexed after it
+            writablePlaylists().computeIfPresent(playlistName, (key, playlist) -> {
+                removed[0] = playlist;
+                playlist.setCreatorListener(null);
+                if (playlistsByCreator != null && playlist.getCreator() != null) {
+                    unindexPlaylist(playlist.getCreator().getName(), key);
+                }
+                return null;
+            });
+        }
+        if (removed[0] == null) {
             throw new DoesntExistException(playlistName);
         }
+        if (hasDataListeners()) {
+            for (DataListener listener : dataListeners) {
+                listener.playlistRemoved(removed[0]);
+            }
+        }
     }
 
     public void removeUser(String username) throws DoesntExistException {
-        if (users.containsKey(username)) {
-            users.remove(username);
-        } else {
+        User removed = users.containsKey(username) ? writableUsers().remove(username) : null;
+        if (removed == null) {
             throw new DoesntExistException(username);
         }
+        if (hasDataListeners()) {
+            for (DataListener listener : dataListeners) {
+                listener.userRemoved(removed);
+            }
+        }
     }
 
     public Map<String, Playlist> getPlaylistMapByCreator(User creator) {
-        return playlists.entrySet().stream()
-                .filter(e -> e.getValue().getCreator().equals(creator))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue
-                ));
+        if (creator == null) {
+            return new HashMap<>();
+        }
+        Map<String, Playlist> created = playlistsByCreator().get(creator.getName());
+        return created != null ? new HashMap<>(created) : new HashMap<>();
+    }
+
+    /**
+     * Gets the index of playlists by creator name (then by playlist key), building it on first use.
+     * Playlists in the index report creator changes back to it through {@link Playlist.CreatorListener}.
+     */
+    private Map<String, Map<String, Playlist>> playlistsByCreator() {
+        if (playlistsByCreator == null) {
+            playlistsByCreator = newMap();
+            for (Map.Entry<String, Playlist> entry : playlists.entrySet()) {
+                indexPlaylist(entry.getKey(), entry.getValue());
+            }
+        }
+        return playlistsByCreator;
+    }
+
+    private void indexPlaylist(String key, Playlist playlist) {
+        playlist.setCreatorListener(this::creatorChanged);
+        if (playlist.getCreator() != null) {
+            addToIndex(playlist.getCreator().getName(), key, playlist);
+        }
+    }
+
+    /**
+     * Adds a playlist to its creator's entry of the index. Like {@link #unindexPlaylist}, it updates the
+     * entry with a single compute call, which is atomic in the concurrent mode, so an entry is never
+     * dropped for being empty while another thread adds to it.
+     */
+    private void addToIndex(String creatorName, String key, Playlist playlist) {
+        playlistsByCreator.compute(creatorName, (name, created) -> {
+            Map<String, Playlist> map = created != null ? created : newMap();
+            map.put(key, playlist);
+            return map;
+        });
+    }
+
+    private void unindexPlaylist(String creatorName, String key) {
+        playlistsByCreator.computeIfPresent(creatorName, (name, created) -> {
+            created.remove(key);
+            return created.isEmpty() ? null : created;
+        });
+    }
+
+    private void creatorChanged(Playlist playlist, User oldCreator, User newCreator) {
+        if (hasDataListeners()) {
+            for (DataListener listener : dataListeners) {
+                listener.playlistCreatorChanged(playlist, oldCreator, newCreator);
+            }
+        }
+        if (playlistsByCreator == null) {
+            return;
+        }
+        String key = playlist.getPlaylistName();
+        if (oldCreator != null) {
+            Map<String, Playlist> created = playlistsByCreator.get(oldCreator.getName());
+            if (created != null) {
+                for (Map.Entry<String, Playlist> entry : created.entrySet()) {
+                    if (entry.getValue() == playlist) {
+                        key = entry.getKey();
+                        break;
+                    }
+                }
+            }
+            unindexPlaylist(oldCreator.getName(), key);
+        }
+        if (newCreator != null) {
+            addToIndex(newCreator.getName(), key, playlist);
+        }
     }
 }
\ No newline at end of file
@@ -1,12 +1,17 @@
 package org.spotifumtp37.model.album;
 
 import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.playlist.PlayEvents;
 import org.spotifumtp37.model.playlist.Playable;
+import org.spotifumtp37.model.playlist.ShuffleSession;
 import org.spotifumtp37.model.user.User;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -21,8 +26,13 @@ public class Album implements Playable, Serializable {
     private String artist;
     private int releaseYear;
     private String genre;
-    private List<Song> songs;
+    // replaced, never changed in place, so a playback can copy it while the album is being edited
+    private volatile List<Song> songs;
     private Song currentSong;
+    // built for one version of the songs list and never changed, see songIndex()
+    private transient volatile SongIndex songIndex;
+    private transient int currentIndex = -1;
+    private transient ShuffleSession shuffle;
 
     /**
      * Default constructor that initializes an empty album.
@@ -56,6 +66,26 @@ public class Album implements Playable, Serializable {
         this.currentSong = new Song();
     }
 
+    /**
+     * Builds an album around an existing list of songs, without copying them.
+     * Used by {@link MappedCatalog} so the song views it creates are kept as they are.
+     *
+     * @param title The title of the album
+     * @param artist The name of the artist or band
+     * @param releaseYear The year when the album was released
+     * @param genre The musical genre of the album
+     * @param songs The songs of the album, adopted as they are
+     * @param currentSong The song to start on
+     */
+    Album(String title, String artist, int releaseYear, String genre, List<Song> songs, Song currentSong) {
+        this.title = title;
+        this.artist = artist;
+        this.releaseYear = releaseYear;
+        this.genre = genre;
+        this.songs = songs;
+        this.currentSong = currentSong;
+    }
+
     /**
      * Copy constructor that creates a deep copy of another album.
      *
@@ -67,7 +97,13 @@ public class Album implements Playable, Serializable {
         this.releaseYear = other.getReleaseYear();
         this.genre = other.getGenre();
         this.songs = copySongs(other.getSongs());
-        this.currentSong = new Song(other.getCurrentSong());
+        int index = other.currentIndex();
+        if (index >= 0) {
+            this.currentSong = this.songs.get(index);
+            this.currentIndex = index;
+        } else {
+            this.currentSong = new Song(other.getCurrentSong());
+        }
     }
 
     /**
@@ -120,7 +156,10 @@ public class Album implements Playable, Serializable {
             song = new MultimediaSong(name, this.artist, publisher, lyrics, musicalNotes, genre, durationInSeconds, videoLink);
         } else
             song = new Song(name, this.artist, publisher, lyrics, musicalNotes, genre, durationInSeconds);
-        songs.add(song);
+        List<Song> updated = new ArrayList<>(songs);
+        updated.add(song);
+        songs = updated;
+        shuffle = null;
     }
 
     /**
@@ -130,7 +169,67 @@ public class Album implements Playable, Serializable {
      * @return true if a song was found and removed, false otherwise
      */
     public boolean deleteSong(String name) {
-        return songs.removeIf(song -> song.getName().equals(name));
+        currentIndex = -1;
+        shuffle = null;
+        List<Song> updated = new ArrayList<>(songs);
+        if (!updated.removeIf(song -> song.getName().equals(name))) {
+            return false;
+        }
+        songs = updated;
+        return true;
+    }
+
+    /**
+     * Checks whether the album has a song with the given name.
+     *
+     * @param name The name of the song
+     * @return true if the album has a song with that name
+     */
+    public boolean hasSong(String name) {
+        return songIndex().containsKey(name);
+    }
+
+    /**
+     * Gets the album's own instance of a song, without copying it.
+     * If several songs share the name, the first one is returned.
+     *
+     * @param name The name of the song
+     * @return The song, or null if the album has no song with that name
+     */
+    public Song getSongPointer(String name) {
+        return songIndex().get(name);
+    }
+
+    /**
+     * Gets the index of the songs by name, building it again when the songs list was replaced since
+     * (it is not saved either, so albums loaded from disk start without one). An index is never changed
+     * once published, so a reader on another thread sees it whole, and one built from a list that was
+     * replaced meanwhile is just built again.
+     *
+     * @return The map from song name to song
+     */
+    private Map<String, Song> songIndex() {
+        List<Song> current = songs;
+        SongIndex index = songIndex;
+        if (index == null || index.songs != current) {
+            Map<String, Song> byName = new HashMap<>();
+            for (Song song : current) {
+                byName.putIfAbsent(song.getName(), song);
+            }
+            index = new SongIndex(current, byName);
+            songIndex = index;
+        }
+        return index.byName;
+    }
+
+    private static final class SongIndex {
+        private final List<Song> songs;
+        private final Map<String, Song> byName;
+
+        private SongIndex(List<Song> songs, Map<String, Song> byName) {
+            this.songs = songs;
+            this.byName = byName;
+        }
     }
 
     /**
@@ -156,6 +255,16 @@ public class Album implements Playable, Serializable {
         return new ArrayList<>(this.songs);
     }
 
+    /**
+     * Returns a read-only view of the album's songs as they are now, without copying them.
+     * Editing the album later replaces its list, so the view keeps the songs it was taken with.
+     *
+     * @return An unmodifiable view of the songs on the album
+     */
+    public List<Song> getSongsView() {
+        return Collections.unmodifiableList(this.songs);
+    }
+
     /**
      * Gets the title of the album.
      *
@@ -170,8 +279,7 @@ public class Album implements Playable, Serializable {
      */
     public void setCurrentSong() {
         Random rand = new Random();
-        int randomIndex = rand.nextInt(songs.size());
-        this.currentSong = songs.get(randomIndex);
+        moveTo(rand.nextInt(songs.size()));
     }
 
     /**
@@ -262,6 +370,57 @@ public class Album implements Playable, Serializable {
      */
     public void setCurrentSong(Song currentSong) {
         this.currentSong = currentSong;
+        this.currentIndex = -1;
+    }
+
+    /**
+     * Gets the position of the current song in the album. The cursor is checked against the
+     * song it should point at, and only when it does not (after a deletion, or a current song
+     * set from outside) is the list searched, once, to put it back.
+     *
+     * @return The position of the current song, or -1 if it is not on the album
+     */
+    private int currentIndex() {
+        if (currentIndex >= 0 && currentIndex < songs.size()) {
+            Song atCursor = songs.get(currentIndex);
+            if (atCursor == currentSong || atCursor.equals(currentSong)) {
+                return currentIndex;
+            }
+        }
+        currentIndex = songs.indexOf(currentSong);
+        return currentIndex;
+    }
+
+    /**
+     * Makes the song at the given position the current one.
+     *
+     * @param index The position of the song
+     */
+    private void moveTo(int index) {
+        currentSong = songs.get(index);
+        currentIndex = index;
+    }
+
+    /**
+     * Fixes the shuffle order of this album, so the songs picked by {@link #nextShuffle()} and by
+     * {@link #next(User)} for users who cannot browse are reproducible.
+     *
+     * @param seed The seed of the shuffle order
+     */
+    public void setShuffleSeed(long seed) {
+        this.shuffle = songs.isEmpty() ? null : new ShuffleSession(songs.size(), seed);
+    }
+
+    /**
+     * Gets the shuffle order of this playback, starting a new one if the songs changed.
+     *
+     * @return The shuffle session
+     */
+    private ShuffleSession shuffle() {
+        if (shuffle == null || shuffle.size() != songs.size()) {
+            shuffle = new ShuffleSession(songs.size());
+        }
+        return shuffle;
     }
 
     /**
@@ -274,18 +433,11 @@ public class Album implements Playable, Serializable {
     @Override
     public void next(User user) {
         if (user.getSubscriptionPlan().canBrowsePlaylist()) {
-            int index = songs.indexOf(currentSong);
-            int nextIndex = (index + 1) % songs.size();
-            currentSong = songs.get(nextIndex);
+            int index = currentIndex();
+            moveTo((index + 1) % songs.size());
         } else {
             if (songs.size() == 1) return;
-            Random rand = new Random();
-            int currentIndex = songs.indexOf(currentSong);
-            int randomIndex;
-            do {
-                randomIndex = rand.nextInt(songs.size());
-            } while (randomIndex == currentIndex);
-            currentSong = songs.get(randomIndex);
+            moveTo(shuffle().nextAfter(currentIndex()));
         }
     }
 
@@ -295,13 +447,7 @@ public class Album implements Playable, Serializable {
      */
     public void nextShuffle() {
         if (songs.size() == 1) return;
-        Random rand = new Random();
-        int currentIndex = songs.indexOf(currentSong);
-        int randomIndex;
-        do {
-            randomIndex = rand.nextInt(songs.size());
-        } while (randomIndex == currentIndex);
-        currentSong = songs.get(randomIndex);
+        moveTo(shuffle().nextAfter(currentIndex()));
     }
 
     /**
@@ -314,9 +460,8 @@ public class Album implements Playable, Serializable {
     @Override
     public void previous(User user) throws SubscriptionDoesNotAllowException {
         if (user.getSubscriptionPlan().canBrowsePlaylist()) {
-            int index = songs.indexOf(currentSong);
-            int prevIndex = (index - 1 + songs.size()) % songs.size();
-            currentSong = songs.get(prevIndex);
+            int index = currentIndex();
+            moveTo((index - 1 + songs.size()) % songs.size());
         } else {
             throw new SubscriptionDoesNotAllowException("Your subscription does not allow going back in the playlist.");
         }
@@ -330,9 +475,20 @@ public class Album implements Playable, Serializable {
      */
     @Override
     public void play(User user) {
-        this.currentSong.incrementTimesPlayed();
-        user.addPoints();
-        user.updateHistory(this.currentSong);
+        PlayEvents.play(this, user, this.currentSong);
+    }
+
+    /**
+     * Starts a separate playback of this album on its first song (see {@link Playable#playback()}).
+     * The playback keeps the list of songs the album had when it started, so songs added to or
+     * removed from the album later do not change it.
+     *
+     * @return A view of this album, on its songs, with its own current song
+     */
+    @Override
+    public Album playback() {
+        List<Song> songs = List.copyOf(this.songs);
+        return new Album(title, artist, releaseYear, genre, songs, songs.isEmpty() ? new Song() : songs.get(0));
     }
 
     /**
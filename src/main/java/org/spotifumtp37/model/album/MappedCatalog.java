@@ -0,0 +1,414 @@
+package org.spotifumtp37.model.album;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only album and song catalog kept in a memory-mapped file.
+ * <p>
+ * The file holds a fixed-width record per album (sorted by title, so lookups are a binary search),
+ * a fixed-width record per song and a heap with the strings they point to. Opening a catalog only
+ * maps the file, so it costs the same whatever its size, and the albums handed out are lightweight
+ * views: their songs keep the small fields on the heap and decode the lyrics and musical notes
+ * from the mapping each time they are asked for.
+ * </p>
+ * Layout (big endian, offsets are absolute positions in the file, -1 for null strings):
+ * <pre>
+ * header  : magic "SPMC", version, album count, song count
+ * albums  : title, artist, genre (string offsets), release year, first song, song count
+ * songs   : kind, name, artist, publisher, lyrics, musical notes, genre, video link (string offsets),
+ *           duration, times played, id
+ * strings : length, UTF-8 bytes
+ * </pre>
+ * Version 2 stores each song's id, so songs keep their ids however many times they are loaded;
+ * version 1 files (where the id is 0) are still read, and their songs get new ids when loaded.
+ */
+public class MappedCatalog {
+    private static final int MAGIC = 0x53504D43; // "SPMC"
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int ALBUM_RECORD_SIZE = 24;
+    private static final int SONG_RECORD_SIZE = 44;
+
+    private static final int KIND_SONG = 0;
+    private static final int KIND_EXPLICIT = 1;
+    private static final int KIND_MULTIMEDIA = 2;
+
+    // field positions inside a song record
+    private static final int SONG_KIND = 0;
+    private static final int SONG_NAME = 4;
+    private static final int SONG_ARTIST = 8;
+    private static final int SONG_PUBLISHER = 12;
+    private static final int SONG_LYRICS = 16;
+    private static final int SONG_NOTES = 20;
+    private static final int SONG_GENRE = 24;
+    private static final int SONG_VIDEO = 28;
+    private static final int SONG_DURATION = 32;
+    private static final int SONG_PLAYED = 36;
+    private static final int SONG_ID = 40;
+
+    private final ByteBuffer buffer;
+    private final int albumCount;
+    private final int songCount;
+    private final int songsStart;
+    private int maxSongId = -1;
+
+    private MappedCatalog(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a SpotifUM catalog file.");
+        }
+        if (buffer.getInt(4) < 1 || buffer.getInt(4) > VERSION) {
+            throw new IOException("Unsupported catalog version " + buffer.getInt(4) + ".");
+        }
+        this.albumCount = buffer.getInt(8);
+        this.songCount = buffer.getInt(12);
+        this.songsStart = HEADER_SIZE + albumCount * ALBUM_RECORD_SIZE;
+    }
+
+    /**
+     * Maps an existing catalog file. Only the header is read.
+     *
+     * @param file The catalog file, as written by {@link #write(Collection, Path)}
+     * @return The opened catalog
+     * @throws IOException If the file cannot be mapped or is not a catalog
+     */
+    public static MappedCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog files are limited to 2 GB.");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedCatalog(mapped);
+        }
+    }
+
+    /**
+     * Writes a catalog file with the given albums.
+     * Strings shared by several albums or songs (artists, genres, publishers...) are stored once.
+     *
+     * @param albums The albums to store
+     * @param file The file to (over)write
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Collection<Album> albums, Path file) throws IOException {
+        List<Album> sorted = new ArrayList<>(albums);
+        sorted.sort(Comparator.comparing(Album::getTitle));
+        int songTotal = 0;
+        for (Album album : sorted) {
+            songTotal += album.getSongs().size();
+        }
+
+        int stringsStart = HEADER_SIZE + sorted.size() * ALBUM_RECORD_SIZE + songTotal * SONG_RECORD_SIZE;
+        StringHeap heap = new StringHeap(stringsStart);
+        ByteBuffer records = ByteBuffer.allocate(stringsStart);
+        records.putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(songTotal);
+
+        int firstSong = 0;
+        for (Album album : sorted) {
+            records.putInt(heap.offsetOf(album.getTitle()))
+                    .putInt(heap.offsetOf(album.getArtist()))
+                    .putInt(heap.offsetOf(album.getGenre()))
+                    .putInt(album.getReleaseYear())
+                    .putInt(firstSong)
+                    .putInt(album.getSongs().size());
+            firstSong += album.getSongs().size();
+        }
+        for (Album album : sorted) {
+            for (Song song : album.getSongs()) {
+                int kind = song instanceof MultimediaSong ? KIND_MULTIMEDIA
+                        : song instanceof ExplicitSong ? KIND_EXPLICIT : KIND_SONG;
+                String videoLink = song instanceof MultimediaSong ? ((MultimediaSong) song).getVideoLink() : null;
+                records.putInt(kind)
+                        .putInt(heap.offsetOf(song.getName()))
+                        .putInt(heap.offsetOf(song.getArtist()))
+                        .putInt(heap.offsetOf(song.getPublisher()))
+                        .putInt(heap.offsetOf(song.getLyrics()))
+                        .putInt(heap.offsetOf(song.getMusicalNotes()))
+                        .putInt(heap.offsetOf(song.getGenre()))
+                        .putInt(heap.offsetOf(videoLink))
+                        .putInt(song.getDurationInSeconds())
+                        .putInt(song.getTimesPlayed())
+                        .putInt(song.getId());
+            }
+        }
+        records.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                ByteBuffer strings = heap.toBuffer();
+                while (strings.hasRemaining()) {
+                    channel.write(strings);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return The number of albums in the catalog
+     */
+    public int getAlbumCount() {
+        return albumCount;
+    }
+
+    /**
+     * @return The number of songs in the catalog
+     */
+    public int getSongCount() {
+        return songCount;
+    }
+
+    /**
+     * Gets the highest song id in the catalog, so ids handed out to new songs do not collide with
+     * the ones of albums not loaded yet. Read through the song records the first time.
+     *
+     * @return The highest id, or 0 if no song has one
+     */
+    public synchronized int getMaxSongId() {
+        if (maxSongId < 0) {
+            int max = 0;
+            for (int i = 0; i < songCount; i++) {
+                max = Math.max(max, buffer.getInt(songRecord(i) + SONG_ID));
+            }
+            maxSongId = max;
+        }
+        return maxSongId;
+    }
+
+    /**
+     * Checks whether the catalog has an album with the given title.
+     *
+     * @param title The album title
+     * @return true if the album exists in the catalog
+     */
+    public boolean containsAlbum(String title) {
+        return findAlbum(title) >= 0;
+    }
+
+    /**
+     * Builds a view of an album. The view's songs decode their lyrics and musical notes lazily.
+     *
+     * @param title The album title
+     * @return The album view, or null if the catalog has no album with that title
+     */
+    public Album getAlbum(String title) {
+        int index = findAlbum(title);
+        return index < 0 ? null : albumAt(index);
+    }
+
+    /**
+     * @return The titles of every album in the catalog, in title order
+     */
+    public List<String> getAlbumTitles() {
+        List<String> titles = new ArrayList<>(albumCount);
+        for (int i = 0; i < albumCount; i++) {
+            titles.add(string(albumRecord(i)));
+        }
+        return titles;
+    }
+
+    private Album albumAt(int index) {
+        int record = albumRecord(index);
+        int firstSong = buffer.getInt(record + 16);
+        int count = buffer.getInt(record + 20);
+        List<Song> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            songs.add(songAt(firstSong + i));
+        }
+        return new Album(string(record), string(record + 4), buffer.getInt(record + 12), string(record + 8), songs,
+                new Song());
+    }
+
+    private Song songAt(int index) {
+        int record = songRecord(index);
+        String name = string(record + SONG_NAME);
+        String artist = string(record + SONG_ARTIST);
+        String publisher = string(record + SONG_PUBLISHER);
+        String genre = string(record + SONG_GENRE);
+        int duration = buffer.getInt(record + SONG_DURATION);
+
+        Song song = switch (buffer.getInt(record + SONG_KIND)) {
+            case KIND_MULTIMEDIA -> new MultimediaSongView(this, index, name, artist, publisher, genre, duration,
+                    string(record + SONG_VIDEO));
+            case KIND_EXPLICIT -> new ExplicitSongView(this, index, name, artist, publisher, genre, duration);
+            default -> new SongView(this, index, name, artist, publisher, genre, duration);
+        };
+        song.setTimesPlayed(buffer.getInt(record + SONG_PLAYED));
+        song.setId(buffer.getInt(record + SONG_ID));
+        return song;
+    }
+
+    private int findAlbum(String title) {
+        int low = 0;
+        int high = albumCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = string(albumRecord(mid)).compareTo(title);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int albumRecord(int index) {
+        return HEADER_SIZE + index * ALBUM_RECORD_SIZE;
+    }
+
+    private int songRecord(int index) {
+        return songsStart + index * SONG_RECORD_SIZE;
+    }
+
+    String lyrics(int song) {
+        return string(songRecord(song) + SONG_LYRICS);
+    }
+
+    String musicalNotes(int song) {
+        return string(songRecord(song) + SONG_NOTES);
+    }
+
+    /**
+     * Decodes the string whose offset is stored at the given position.
+     */
+    private String string(int pointer) {
+        int offset = buffer.getInt(pointer);
+        if (offset < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Strings written after the records, each one only once.
+     */
+    private static final class StringHeap {
+        private final int start;
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        StringHeap(int start) {
+            this.start = start;
+        }
+
+        int offsetOf(String s) throws IOException {
+            if (s == null) {
+                return -1;
+            }
+            Integer known = offsets.get(s);
+            if (known != null) {
+                return known;
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            long offset = (long) start + bytes.size();
+            if (offset + 4 + utf8.length > Integer.MAX_VALUE) {
+                throw new IOException("Catalog files are limited to 2 GB.");
+            }
+            bytes.write(ByteBuffer.allocate(4).putInt(utf8.length).array());
+            bytes.write(utf8);
+            offsets.put(s, (int) offset);
+            return (int) offset;
+        }
+
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+
+    // Song views: the small fields live on the heap, lyrics and musical notes are read from the
+    // mapping until they are set. Cloning a view gives a regular song (the copy constructors use the getters).
+
+    private static final class SongView extends Song {
+        private final transient MappedCatalog catalog;
+        private final int index;
+
+        SongView(MappedCatalog catalog, int index, String name, String artist, String publisher, String genre, int duration) {
+            super(name, artist, publisher, null, null, genre, duration);
+            this.catalog = catalog;
+            this.index = index;
+        }
+
+        @Override
+        public String getLyrics() {
+            String lyrics = super.getLyrics();
+            return lyrics != null ? lyrics : catalog.lyrics(index);
+        }
+
+        @Override
+        public String getMusicalNotes() {
+            String notes = super.getMusicalNotes();
+            return notes != null ? notes : catalog.musicalNotes(index);
+        }
+    }
+
+    private static final class ExplicitSongView extends ExplicitSong {
+        private final transient MappedCatalog catalog;
+        private final int index;
+
+        ExplicitSongView(MappedCatalog catalog, int index, String name, String artist, String publisher, String genre, int duration) {
+            super(name, artist, publisher, null, null, genre, duration);
+            this.catalog = catalog;
+            this.index = index;
+        }
+
+        @Override
+        public String getLyrics() {
+            String lyrics = super.getLyrics();
+            return lyrics != null ? lyrics : catalog.lyrics(index);
+        }
+
+        @Override
+        public String getMusicalNotes() {
+            String notes = super.getMusicalNotes();
+            return notes != null ? notes : catalog.musicalNotes(index);
+        }
+    }
+
+    private static final class MultimediaSongView extends MultimediaSong {
+        private final transient MappedCatalog catalog;
+        private final int index;
+
+        MultimediaSongView(MappedCatalog catalog, int index, String name, String artist, String publisher, String genre,
+                           int duration, String videoLink) {
+            super(name, artist, publisher, null, null, genre, duration, videoLink);
+            this.catalog = catalog;
+            this.index = index;
+        }
+
+        @Override
+        public String getLyrics() {
+            String lyrics = super.getLyrics();
+            return lyrics != null ? lyrics : catalog.lyrics(index);
+        }
+
+        @Override
+        public String getMusicalNotes() {
+            String notes = super.getMusicalNotes();
+            return notes != null ? notes : catalog.musicalNotes(index);
+        }
+    }
+}
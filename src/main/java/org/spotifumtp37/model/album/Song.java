@@ -2,6 +2,7 @@ package org.spotifumtp37.model.album;
 
 import java.io.Serializable;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Represents a musical song in the application.
@@ -13,6 +14,9 @@ import java.util.Objects;
  * </p>
  */
 public class Song implements Serializable {
+    private static final AtomicIntegerFieldUpdater<Song> TIMES_PLAYED =
+            AtomicIntegerFieldUpdater.newUpdater(Song.class, "timesPlayed");
+
     private String name;
     private String artist;
     private String publisher;
@@ -20,7 +24,8 @@ public class Song implements Serializable {
     private String musicalNotes;
     private String genre;
     private int durationInSeconds;
-    private int timesPlayed;
+    private volatile int timesPlayed;
+    private int id;
 
     /**
      * Default constructor that initializes an empty song.
@@ -75,6 +80,7 @@ public class Song implements Serializable {
         this.genre = other.getGenre();
         this.durationInSeconds = other.getDurationInSeconds();
         this.timesPlayed = other.getTimesPlayed();
+        this.id = other.getId();
     }
 
     /**
@@ -222,16 +228,48 @@ public class Song implements Serializable {
     }
 
     /**
-     * Increments the play count of the song by one.
+     * Gets the id the catalog gave to this song. Copies of a song keep its id.
+     *
+     * @return The song id, or 0 if the song has not been added to a catalog
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the song. Ids are handed out by the catalog ({@code SpotifUMData})
+     * when the song's album is added to it.
+     *
+     * @param id The new song id, or 0 to clear it
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Increments the play count of the song by one. The increment is atomic, so plays of the
+     * song from several sessions at the same time are all counted.
      */
     public void incrementTimesPlayed() {
-        this.timesPlayed++;
+        TIMES_PLAYED.incrementAndGet(this);
+    }
+
+    /**
+     * Adds several plays to the play count at once, atomically (see {@link #incrementTimesPlayed()}).
+     *
+     * @param plays The number of plays
+     */
+    public void addTimesPlayed(int plays) {
+        TIMES_PLAYED.addAndGet(this, plays);
     }
 
     /**
      * Compares this song to another object for equality.
      * <p>
-     * Two songs are considered equal if they have the same name, artist,
+     * Two songs that both have an id are equal if the ids are the same, so a song is
+     * still equal to its copies after being played or edited. A song with an id is never
+     * equal to one without (other than itself), which keeps the relation transitive.
+     * Songs without an id are equal if they have the same name, artist,
      * publisher, duration, lyrics, musical notes, genre, and play count.
      * </p>
      *
@@ -243,6 +281,9 @@ public class Song implements Serializable {
         if (this == obj) {
             return true;
         }
+        if (obj instanceof Song song && (id != 0 || song.id != 0)) {
+            return id == song.id;
+        }
         if (obj == null || getClass() != obj.getClass()) {
             return false;
         }
@@ -256,13 +297,19 @@ public class Song implements Serializable {
     /**
      * Generates a hash code for this song.
      * <p>
-     * The hash code is based on the song's name, artist, and duration.
+     * A song with an id hashes by the id only, like {@link #equals(Object)} compares it, so
+     * copies changed since they were made still hash alike. A song without one hashes by its
+     * name, artist, and duration. Setting the id changes the hash code, so it should be set
+     * before the song is put in a hash based collection.
      * </p>
      *
      * @return A hash code value for this song
      */
     @Override
     public int hashCode() {
+        if (id != 0) {
+            return Integer.hashCode(id);
+        }
         int result = getName().hashCode();
         result = 31 * result + getArtist().hashCode();
         result = 31 * result + getDurationInSeconds();
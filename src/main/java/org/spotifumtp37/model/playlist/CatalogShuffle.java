@@ -0,0 +1,176 @@
+package org.spotifumtp37.model.playlist;
+
+import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.user.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Plays every song of the catalog in shuffle order (the free playlist).
+ * <p>
+ * Nothing is copied: the songs are numbered album after album, a {@link ShuffleSession} draws the
+ * numbers, and each one is found in its album's own song list. The plays are counted on the albums'
+ * songs, with the album as the source, like playing the album itself. The song lists are the ones
+ * the albums had when the shuffle started.
+ * </p>
+ */
+public class CatalogShuffle implements Playable {
+    private final Album[] albums;
+    private final List<Song>[] songs;
+    // the number of songs in the albums up to and including each one
+    private final int[] ends;
+    private final long seed;
+    private transient ShuffleSession shuffle;
+    private int currentPosition = -1;
+
+    /**
+     * Starts a shuffle over the songs of the given albums, on a random song.
+     *
+     * @param albums The albums, not copied.
+     */
+    public CatalogShuffle(Collection<Album> albums) {
+        this(albums, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Starts a shuffle whose order is fixed by the seed.
+     *
+     * @param albums The albums, not copied.
+     * @param seed   The seed of the random order.
+     */
+    @SuppressWarnings("unchecked")
+    public CatalogShuffle(Collection<Album> albums, long seed) {
+        this.albums = albums.toArray(new Album[0]);
+        this.songs = new List[this.albums.length];
+        this.ends = new int[this.albums.length];
+        int total = 0;
+        for (int i = 0; i < this.albums.length; i++) {
+            songs[i] = this.albums[i].getSongsView();
+            total += songs[i].size();
+            ends[i] = total;
+        }
+        this.seed = seed;
+        if (total > 0) {
+            moveTo(shuffle().next());
+        }
+    }
+
+    private CatalogShuffle(CatalogShuffle other, long seed) {
+        this.albums = other.albums;
+        this.songs = other.songs;
+        this.ends = other.ends;
+        this.seed = seed;
+        if (size() > 0) {
+            moveTo(shuffle().next());
+        }
+    }
+
+    /**
+     * @return The number of songs being shuffled.
+     */
+    public int size() {
+        return ends.length == 0 ? 0 : ends[ends.length - 1];
+    }
+
+    private ShuffleSession shuffle() {
+        if (shuffle == null) {
+            shuffle = new ShuffleSession(size(), seed);
+        }
+        return shuffle;
+    }
+
+    private int albumOf(int position) {
+        // the first album that ends after the position (empty albums end where the one before does)
+        int low = 0;
+        int high = ends.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] > position) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void moveTo(int position) {
+        currentPosition = position;
+    }
+
+    /**
+     * Gets the album the current song belongs to.
+     *
+     * @return The album, or {@code null} if there are no songs.
+     */
+    public Album getCurrentAlbum() {
+        return currentPosition < 0 ? null : albums[albumOf(currentPosition)];
+    }
+
+    @Override
+    public Song getCurrentSong() {
+        if (currentPosition < 0) {
+            return null;
+        }
+        int album = albumOf(currentPosition);
+        return songs[album].get(currentPosition - (album == 0 ? 0 : ends[album - 1]));
+    }
+
+    /**
+     * Plays the current song, counted on its album.
+     *
+     * @param user The user who is playing it.
+     */
+    @Override
+    public void play(User user) {
+        Song song = getCurrentSong();
+        if (song != null && user != null) {
+            PlayEvents.play(getCurrentAlbum(), user, song);
+        }
+    }
+
+    /**
+     * Moves to the next song of the catalog if the user can browse playlists, and to the next one
+     * of the shuffle order otherwise.
+     *
+     * @param user The user performing the action.
+     */
+    @Override
+    public void next(User user) {
+        if (currentPosition < 0 || user == null || user.getSubscriptionPlan() == null) {
+            return;
+        }
+        if (user.getSubscriptionPlan().canBrowsePlaylist()) {
+            moveTo((currentPosition + 1) % size());
+        } else {
+            nextShuffle();
+        }
+    }
+
+    @Override
+    public void nextShuffle() {
+        if (currentPosition >= 0) {
+            moveTo(shuffle().nextAfter(currentPosition)); // different from the current song
+        }
+    }
+
+    @Override
+    public void previous(User user) throws SubscriptionDoesNotAllowException {
+        if (currentPosition < 0 || user == null || user.getSubscriptionPlan() == null) {
+            return;
+        }
+        if (!user.getSubscriptionPlan().canBrowsePlaylist()) {
+            throw new SubscriptionDoesNotAllowException("Your subscription does not allow going back in the playlist.");
+        }
+        moveTo((currentPosition - 1 + size()) % size());
+    }
+
+    @Override
+    public Playable playback() {
+        return new CatalogShuffle(this, new SplittableRandom().nextLong());
+    }
+}
@@ -0,0 +1,117 @@
+package org.spotifumtp37.model.playlist;
+
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the {@link PlayListener}s notified by {@link org.spotifumtp37.model.album.Album#play(User)} and {@link Playlist#play(User)}.
+ * Listeners are called in the order they were added; with none registered plays are not reported anywhere.
+ * <p>
+ * Plays are applied where they happen, unless a {@link PlayPipeline} is open: then they are queued and
+ * applied in batches on the pipeline's thread, and {@link #flush()} waits for the ones queued so far.
+ * </p>
+ */
+public final class PlayEvents {
+    private static final List<PlayListener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile PlayPipeline pipeline;
+
+    private PlayEvents() {
+    }
+
+    /**
+     * Adds a listener that receives every play.
+     *
+     * @param playListener The listener to add.
+     */
+    public static void addListener(PlayListener playListener) {
+        listeners.add(playListener);
+    }
+
+    /**
+     * Stops reporting plays to a listener.
+     *
+     * @param playListener The listener to remove.
+     */
+    public static void removeListener(PlayListener playListener) {
+        listeners.remove(playListener);
+    }
+
+    /**
+     * Replaces every registered listener with the given one.
+     *
+     * @param playListener The listener, or {@code null} to stop reporting plays.
+     */
+    public static void setListener(PlayListener playListener) {
+        listeners.clear();
+        if (playListener != null) {
+            listeners.add(playListener);
+        }
+    }
+
+    /**
+     * Reports a play to the registered listeners.
+     *
+     * @param source The album or playlist the song was played from.
+     * @param user The user who played the song.
+     * @param song The song that was played.
+     * @param time The time recorded in the user's history.
+     * @param pointsDelta The points the user earned with this play.
+     */
+    public static void fire(Playable source, User user, Song song, LocalDateTime time, double pointsDelta) {
+        for (PlayListener listener : listeners) {
+            listener.played(source, user, song, time, pointsDelta);
+        }
+    }
+
+    /**
+     * Plays a song: counts the play, records it for the user and reports it to the listeners, now or,
+     * with a {@link PlayPipeline} open, when the pipeline gets to it.
+     *
+     * @param source The album or playlist the song is played from.
+     * @param user The user who plays the song.
+     * @param song The song played.
+     */
+    public static void play(Playable source, User user, Song song) {
+        PlayPipeline open = pipeline;
+        if (open == null || !open.offer(source, user, song)) {
+            apply(source, user, song, LocalDateTime.now());
+        }
+    }
+
+    static void apply(Playable source, User user, Song song, LocalDateTime time) {
+        song.incrementTimesPlayed();
+        double points = user.recordPlay(song, time);
+        fire(source, user, song, time, points);
+    }
+
+    /**
+     * Waits until every play made so far has been applied and reported, so the play counts, the
+     * users and the listeners can be read in a consistent state. Returns at once with no
+     * {@link PlayPipeline} open.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public static void flush() throws InterruptedException {
+        PlayPipeline open = pipeline;
+        if (open != null) {
+            open.flush();
+        }
+    }
+
+    static synchronized void install(PlayPipeline playPipeline) {
+        if (pipeline != null) {
+            throw new IllegalStateException("A play pipeline is already open.");
+        }
+        pipeline = playPipeline;
+    }
+
+    static synchronized void uninstall(PlayPipeline playPipeline) {
+        if (pipeline == playPipeline) {
+            pipeline = null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.spotifumtp37.model.playlist;
+
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives every play made through {@link Playable#play(User)}, after the song, the user's points
+ * and the user's history have been updated.
+ * Registered with {@link PlayEvents#addListener(PlayListener)}.
+ */
+@FunctionalInterface
+public interface PlayListener {
+    /**
+     * Called once per play.
+     *
+     * @param source The album or playlist the song was played from.
+     * @param user The user who played the song.
+     * @param song The song that was played, as held by the source.
+     * @param time The time recorded in the user's history for this play.
+     * @param pointsDelta The points the user earned with this play.
+     */
+    void played(Playable source, User user, Song song, LocalDateTime time, double pointsDelta);
+}
@@ -0,0 +1,365 @@
+package org.spotifumtp37.model.playlist;
+
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Applies plays asynchronously: while open, {@link PlayEvents#play} only queues a small event and
+ * returns, and one thread applies the queued plays in batches.
+ * <p>
+ * The queue is a bounded ring of preallocated events. A player claims the next slot with one
+ * compare-and-set, fills it and publishes it; nothing is allocated or locked on the way in. The
+ * pipeline thread takes up to {@code maxBatch} published events at a time and groups them: each song
+ * gets its plays added to its count at once, and each user is locked once for all of its plays in
+ * the batch, which are recorded in the order they were made. The listeners are then told of every
+ * play in the order the plays were queued. What happens when the ring is full is the
+ * {@link Backpressure} chosen.
+ * </p>
+ * <p>
+ * Only one pipeline can be open at a time. {@link #flush()} (or {@link PlayEvents#flush()}) waits for
+ * the plays queued so far, and {@link #close()} applies what is left and goes back to applying plays
+ * where they happen.
+ * </p>
+ * <p>
+ * If the pipeline's thread dies (an {@link Error} thrown while applying a play), the failure is kept
+ * ({@link #getConsumerFailure()}) and plays are applied where they happen again, so players never
+ * wait for it. The plays it had not applied yet are lost, which {@link #flush()} reports.
+ * </p>
+ */
+public class PlayPipeline implements AutoCloseable {
+
+    /**
+     * What a player does when the ring is full.
+     */
+    public enum Backpressure {
+        /**
+         * Waits for a free slot.
+         */
+        BLOCK,
+        /**
+         * Gives up the play, counted by {@link #getDropped()}.
+         */
+        DROP,
+        /**
+         * Applies the play itself, right away, ahead of the ones still queued.
+         */
+        CALLER_RUNS
+    }
+
+    private static final class Event {
+        private Playable source;
+        private User user;
+        private Song song;
+        private LocalDateTime time;
+        private double points;
+        private Event nextOfUser;
+    }
+
+    private final Event[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final int maxBatch;
+    private final Backpressure backpressure;
+    private final Thread consumer;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long applied;
+    private volatile long batches;
+    private volatile long failures;
+    private volatile Throwable consumerFailure;
+
+    // used by the pipeline thread only, cleared after every batch
+    private final Map<Song, Integer> playsBySong = new IdentityHashMap<>();
+    private final Map<User, Event> lastByUser = new IdentityHashMap<>();
+    private final List<Event> firstByUser = new ArrayList<>();
+
+    /**
+     * Opens a pipeline and starts its thread. From now on plays are queued to it.
+     *
+     * @param capacity     The number of plays the ring holds, a power of two
+     * @param maxBatch     The most plays applied in one batch
+     * @param backpressure What to do when the ring is full
+     * @throws IllegalStateException If another pipeline is open
+     */
+    public PlayPipeline(int capacity, int maxBatch, Backpressure backpressure) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two.");
+        }
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+        this.backpressure = Objects.requireNonNull(backpressure);
+        this.maxBatch = maxBatch;
+        this.mask = capacity - 1;
+        this.slots = new Event[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Event();
+            published.set(i, -1);
+        }
+        this.consumer = new Thread(this::consume, "play-pipeline");
+        this.consumer.setDaemon(true);
+        PlayEvents.install(this);
+        this.consumer.start();
+    }
+
+    /**
+     * Queues a play.
+     *
+     * @return {@code false} if the caller must apply the play itself: the pipeline is closing or the
+     * ring is full with {@link Backpressure#CALLER_RUNS}
+     */
+    boolean offer(Playable source, User user, Song song) {
+        Objects.requireNonNull(user);
+        Objects.requireNonNull(song);
+        active.incrementAndGet();
+        try {
+            if (closed || consumerFailure != null) {
+                return false;
+            }
+            long sequence;
+            int spins = 0;
+            while (true) {
+                sequence = claimed.get();
+                if (sequence - consumed > mask) {
+                    if (backpressure == Backpressure.DROP) {
+                        dropped.incrementAndGet();
+                        return true;
+                    } else if (backpressure == Backpressure.CALLER_RUNS || closed || consumerFailure != null) {
+                        return false;
+                    }
+                    spins = pause(spins);
+                } else if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            }
+            int index = (int) sequence & mask;
+            Event event = slots[index];
+            event.source = source;
+            event.user = user;
+            event.song = song;
+            event.time = LocalDateTime.now();
+            published.set(index, sequence);
+            if (waiting) {
+                LockSupport.unpark(consumer);
+            }
+            return true;
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private static int pause(int spins) {
+        if (spins < 100) {
+            Thread.onSpinWait();
+        } else if (spins < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+        return spins + 1;
+    }
+
+    private void consume() {
+        try {
+            applyQueued();
+        } catch (Throwable e) {
+            // nothing applies the queue anymore: plays go back to being applied where they happen
+            consumerFailure = e;
+            PlayEvents.uninstall(this);
+            throw e;
+        }
+    }
+
+    private void applyQueued() {
+        long next = 0;
+        while (true) {
+            int count = 0;
+            while (count < maxBatch && published.get((int) (next + count) & mask) == next + count) {
+                count++;
+            }
+            if (count > 0) {
+                applyBatch(next, count);
+                next += count;
+                consumed = next;
+            } else if (closed) {
+                if (active.get() == 0 && claimed.get() == next) {
+                    return;
+                }
+                // a player is still filling its slot
+                Thread.yield();
+            } else {
+                waiting = true;
+                if (published.get((int) next & mask) != next && !closed) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    private void applyBatch(long first, int count) {
+        for (int i = 0; i < count; i++) {
+            Event event = slots[(int) (first + i) & mask];
+            playsBySong.merge(event.song, 1, Integer::sum);
+            Event last = lastByUser.put(event.user, event);
+            if (last == null) {
+                firstByUser.add(event);
+            } else {
+                last.nextOfUser = event;
+            }
+        }
+        for (Map.Entry<Song, Integer> plays : playsBySong.entrySet()) {
+            plays.getKey().addTimesPlayed(plays.getValue());
+        }
+        long failed = 0;
+        for (Event head : firstByUser) {
+            synchronized (head.user) {
+                for (Event event = head; event != null; event = event.nextOfUser) {
+                    try {
+                        event.points = event.user.recordPlay(event.song, event.time);
+                    } catch (RuntimeException e) {
+                        event.points = Double.NaN;
+                        failed++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int index = (int) (first + i) & mask;
+            Event event = slots[index];
+            if (!Double.isNaN(event.points)) {
+                try {
+                    PlayEvents.fire(event.source, event.user, event.song, event.time, event.points);
+                } catch (RuntimeException e) {
+                    failed++;
+                }
+            }
+            event.source = null;
+            event.user = null;
+            event.song = null;
+            event.time = null;
+            event.nextOfUser = null;
+            published.set(index, -1);
+        }
+        playsBySong.clear();
+        lastByUser.clear();
+        firstByUser.clear();
+        applied += count;
+        batches++;
+        failures += failed;
+    }
+
+    /**
+     * Waits until every play queued so far has been applied and reported.
+     *
+     * @throws InterruptedException  If interrupted while waiting
+     * @throws IllegalStateException If called by a listener, on the pipeline's own thread, or if the
+     *                               pipeline's thread died before applying the plays
+     */
+    public void flush() throws InterruptedException {
+        if (Thread.currentThread() == consumer) {
+            throw new IllegalStateException("The pipeline cannot wait for itself.");
+        }
+        long target = claimed.get();
+        int spins = 0;
+        while (consumed < target && consumer.isAlive()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            spins = pause(spins);
+        }
+        Throwable failure = consumerFailure;
+        if (consumed < target && failure != null) {
+            throw new IllegalStateException("The pipeline stopped before applying every play.", failure);
+        }
+    }
+
+    /**
+     * Stops queueing plays, applies the ones already queued and stops the pipeline's thread.
+     * Plays made from now on are applied where they happen.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PlayEvents.uninstall(this);
+        LockSupport.unpark(consumer);
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return What a player does when the ring is full
+     */
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * @return The number of plays queued and not applied yet
+     */
+    public long getPending() {
+        return Math.max(0, claimed.get() - consumed);
+    }
+
+    /**
+     * @return The number of plays given up because the ring was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return The number of plays applied by the pipeline's thread
+     */
+    public long getApplied() {
+        return applied;
+    }
+
+    /**
+     * @return The number of batches applied
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return The number of plays whose recording or listeners threw, which the pipeline skipped
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return What made the pipeline's thread die, or {@code null} if it is still working
+     */
+    public Throwable getConsumerFailure() {
+        return consumerFailure;
+    }
+}
@@ -53,4 +53,15 @@ public interface Playable extends Serializable {
      */
     Song getCurrentSong();
 
+    /**
+     * Starts a separate playback of this item: a new current song and shuffle order over the
+     * same songs, so its plays are counted on them, while moving through it leaves this item's
+     * current song alone. Lets several listeners play the same album or playlist at once.
+     * The playback has its own unmodifiable list of the songs, taken when it starts, so editing
+     * the item does not change a playback already going.
+     *
+     * @return The new playback.
+     */
+    Playable playback();
+
 }
\ No newline at end of file
@@ -6,9 +6,11 @@ import org.spotifumtp37.model.user.User;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.function.ToIntFunction;
 
 /**
  * Represents a playlist of songs in a music application.
@@ -26,8 +28,26 @@ public class Playlist implements Serializable, Playable {
     private String playlistDescription;
     private int numberOfFollowers;
     private String status; // public or private
-    private List<Song> songs;
+    // replaced, never changed in place, so readers on other threads always see a whole list
+    private volatile List<Song> songs;
     private Song currentSong;
+    private transient int currentIndex = -1;
+    private transient ShuffleSession shuffle;
+    private transient CreatorListener creatorListener;
+
+    /**
+     * Notified when the creator of a playlist changes, so indexes of playlists by creator
+     * (see {@link org.spotifumtp37.model.SpotifUMData}) can follow it.
+     */
+    @FunctionalInterface
+    public interface CreatorListener {
+        /**
+         * @param playlist The playlist whose creator changed.
+         * @param oldCreator The previous creator, possibly {@code null}.
+         * @param newCreator The new creator, possibly {@code null}.
+         */
+        void creatorChanged(Playlist playlist, User oldCreator, User newCreator);
+    }
 
     /**
      * Constructs a playlist with the specified attributes.
@@ -56,8 +76,7 @@ public class Playlist implements Serializable, Playable {
         }
         if (!this.songs.isEmpty()) {
             Random rand = new Random();
-            int randomIndex = rand.nextInt(this.songs.size());
-            this.currentSong = this.songs.get(randomIndex);
+            moveTo(rand.nextInt(this.songs.size()));
         } else {
             this.currentSong = null;
         }
@@ -85,13 +104,31 @@ public class Playlist implements Serializable, Playable {
         if (!this.songs.isEmpty()) {
             Random rand = new Random();
             // Ensure currentSong is from the *new* list of songs
-            int randomIndex = rand.nextInt(this.songs.size());
-            this.currentSong = this.songs.get(randomIndex);
+            moveTo(rand.nextInt(this.songs.size()));
         } else {
             this.currentSong = null;
         }
     }
 
+    /**
+     * Starts a separate playback of this playlist on a random song (see {@link Playable#playback()}).
+     * The playback is not followed by the creator index, so it is never stored in the data.
+     * It keeps the list of songs the playlist had when it started, so a later {@link #setSongs}
+     * does not change it.
+     *
+     * @return A playlist on this playlist's songs, with its own current song.
+     */
+    @Override
+    public Playlist playback() {
+        List<Song> songs = List.copyOf(this.songs);
+        Playlist playback = new Playlist(creator, playlistName, playlistDescription, numberOfFollowers, status, null);
+        playback.songs = songs;
+        if (!songs.isEmpty()) {
+            playback.moveTo(new Random().nextInt(songs.size()));
+        }
+        return playback;
+    }
+
     /**
      * Creates and returns a deep copy of this playlist.
      * This method utilizes the copy constructor.
@@ -206,6 +243,51 @@ public class Playlist implements Serializable, Playable {
         return copy;
     }
 
+    /**
+     * Gets a read-only view of the songs in this playlist, without copying them.
+     *
+     * @return An unmodifiable list of the playlist's own songs.
+     */
+    public List<Song> getSongsView() {
+        return Collections.unmodifiableList(songs);
+    }
+
+    /**
+     * Gets the playlist's own instance of a song, without copying it.
+     *
+     * @param name The name of the song.
+     * @return The song held by this playlist, or {@code null} if there is no song with that name.
+     */
+    public Song getSongPointer(String name) {
+        if (this.songs != null) {
+            for (Song song : this.songs) {
+                if (song.getName().equals(name)) {
+                    return song;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives the songs without an id (including the current song) the id returned for them.
+     * Used after loading, so the playlist's copies are matched to the catalog songs by id.
+     *
+     * @param ids Returns the id of the catalog song matching a playlist song, or 0 if there is none.
+     */
+    public void linkSongIds(ToIntFunction<Song> ids) {
+        if (this.songs != null) {
+            for (Song song : this.songs) {
+                if (song.getId() == 0) {
+                    song.setId(ids.applyAsInt(song));
+                }
+            }
+        }
+        if (this.currentSong != null && this.currentSong.getId() == 0) {
+            this.currentSong.setId(ids.applyAsInt(this.currentSong));
+        }
+    }
+
     /**
      * Gets the currently selected song in the playlist.
      * This returns a direct reference, so modifications to the song object
@@ -224,7 +306,20 @@ public class Playlist implements Serializable, Playable {
      * @param creator The new {@link User} who created the playlist.
      */
     public void setCreatorUsername(User creator) {
+        User oldCreator = this.creator;
         this.creator = creator;
+        if (creatorListener != null) {
+            creatorListener.creatorChanged(this, oldCreator, creator);
+        }
+    }
+
+    /**
+     * Sets the listener notified when the creator changes. Copies of the playlist do not keep it.
+     *
+     * @param creatorListener The listener, or {@code null} for none.
+     */
+    public void setCreatorListener(CreatorListener creatorListener) {
+        this.creatorListener = creatorListener;
     }
 
     /**
@@ -265,20 +360,24 @@ public class Playlist implements Serializable, Playable {
 
     /**
      * Replaces all songs in this playlist with clones of the songs from the provided list.
-     * The existing songs in the playlist are cleared first.
+     * The clones go into a new list that then takes the place of the old one, which is left as it
+     * was, so a session going through the old list (or a view of it) is not disturbed.
      *
      * @param songs The list of {@link Song} objects to set. Each song will be cloned.
      */
     public void setSongs(List<Song> songs) {
-        this.songs.clear();
+        List<Song> updated = new ArrayList<>();
         if (songs != null) {
             for (Song song : songs) {
-                this.songs.add(song.clone()); // Assuming Song has a clone method
+                updated.add(song.clone());
             }
         }
+        this.songs = updated;
         // Optionally, update currentSong if the list of songs changes significantly
-        if (!this.songs.isEmpty() && !this.songs.contains(this.currentSong)) {
-            this.currentSong = this.songs.get(0); // Or a random one
+        this.currentIndex = -1;
+        this.shuffle = null;
+        if (!this.songs.isEmpty() && currentIndex() == -1) {
+            moveTo(0); // Or a random one
         } else if (this.songs.isEmpty()) {
             this.currentSong = null;
         }
@@ -293,6 +392,57 @@ public class Playlist implements Serializable, Playable {
     public void setCurrentSong(Song currentSong) {
         // Consider adding a check to ensure currentSong is part of this.songs
         this.currentSong = currentSong;
+        this.currentIndex = -1;
+    }
+
+    /**
+     * Gets the position of the current song in the playlist. The cursor is checked against the
+     * song it should point at, and only when it does not (e.g. a current song set from outside)
+     * is the list searched, once, to put it back.
+     *
+     * @return The position of the current song, or -1 if it is not in the playlist.
+     */
+    private int currentIndex() {
+        if (currentIndex >= 0 && currentIndex < songs.size()) {
+            Song atCursor = songs.get(currentIndex);
+            if (atCursor == currentSong || atCursor.equals(currentSong)) {
+                return currentIndex;
+            }
+        }
+        currentIndex = songs.indexOf(currentSong);
+        return currentIndex;
+    }
+
+    /**
+     * Makes the song at the given position the current one.
+     *
+     * @param index The position of the song.
+     */
+    private void moveTo(int index) {
+        currentSong = songs.get(index);
+        currentIndex = index;
+    }
+
+    /**
+     * Fixes the shuffle order of this playlist, so the songs picked by {@link #nextShuffle()} and by
+     * {@link #next(User)} for users who cannot browse are reproducible.
+     *
+     * @param seed The seed of the shuffle order.
+     */
+    public void setShuffleSeed(long seed) {
+        this.shuffle = songs.isEmpty() ? null : new ShuffleSession(songs.size(), seed);
+    }
+
+    /**
+     * Gets the shuffle order of this playback, starting a new one if the songs changed.
+     *
+     * @return The shuffle session.
+     */
+    private ShuffleSession shuffle() {
+        if (shuffle == null || shuffle.size() != songs.size()) {
+            shuffle = new ShuffleSession(songs.size());
+        }
+        return shuffle;
     }
 
     /**
@@ -323,10 +473,9 @@ public class Playlist implements Serializable, Playable {
      */
     @Override
     public void play(User user) {
-        if (this.currentSong != null && user != null) {
-            this.currentSong.incrementTimesPlayed();
-            user.addPoints();
-            user.updateHistory(this.currentSong);
+        Song song = this.currentSong;
+        if (song != null && user != null) {
+            PlayEvents.play(this, user, song);
         }
     }
 
@@ -350,24 +499,17 @@ public class Playlist implements Serializable, Playable {
         }
 
         if (user.getSubscriptionPlan().canBrowsePlaylist()) {
-            int index = songs.indexOf(currentSong);
+            int index = currentIndex();
             if (index != -1) { // currentSong is in the list
-                int nextIndex = (index + 1) % songs.size();
-                currentSong = songs.get(nextIndex);
+                moveTo((index + 1) % songs.size());
             } else if (!songs.isEmpty()) { // currentSong was not in list, pick first
-                 currentSong = songs.get(0);
+                 moveTo(0);
             }
         } else {
             if (songs.size() <= 1) { // Only one song or empty, no change or handled by initial check
                 return;
             }
-            Random rand = new Random();
-            int currentIndex = songs.indexOf(currentSong);
-            int randomIndex;
-            do {
-                randomIndex = rand.nextInt(songs.size());
-            } while (randomIndex == currentIndex && songs.size() > 1); // ensure different if possible
-            currentSong = songs.get(randomIndex);
+            moveTo(shuffle().nextAfter(currentIndex())); // different from the current song
         }
     }
 
@@ -382,16 +524,10 @@ public class Playlist implements Serializable, Playable {
             return;
         }
         if (songs.size() == 1) {
-            currentSong = songs.get(0); // Ensure current song is set if it was null
+            moveTo(0); // Ensure current song is set if it was null
             return;
         }
-        Random rand = new Random();
-        int currentIndex = songs.indexOf(currentSong);
-        int randomIndex;
-        do {
-            randomIndex = rand.nextInt(songs.size());
-        } while (randomIndex == currentIndex && songs.size() > 1); // ensure different if possible
-        currentSong = songs.get(randomIndex);
+        moveTo(shuffle().nextAfter(currentIndex())); // different from the current song
     }
 
     /**
@@ -413,12 +549,11 @@ public class Playlist implements Serializable, Playable {
         }
 
         if (user.getSubscriptionPlan().canBrowsePlaylist()) {
-            int index = songs.indexOf(currentSong);
+            int index = currentIndex();
             if (index != -1) { // currentSong is in the list
-                int prevIndex = (index - 1 + songs.size()) % songs.size();
-                currentSong = songs.get(prevIndex);
+                moveTo((index - 1 + songs.size()) % songs.size());
             } else if (!songs.isEmpty()) { // currentSong was not in list, pick last
-                 currentSong = songs.get(songs.size() - 1);
+                 moveTo(songs.size() - 1);
             }
         } else {
             throw new SubscriptionDoesNotAllowException("Your subscription does not allow going back in the playlist.");
@@ -447,9 +582,12 @@ public class Playlist implements Serializable, Playable {
 
         if (creator.getSubscriptionPlan().canCreatePlaylist()) {
             if (!songs.contains(song)) { // Relies on Song.equals()
-                songs.add(song.clone()); // Assuming Song has a clone method
+                List<Song> updated = new ArrayList<>(songs);
+                updated.add(song.clone()); // Assuming Song has a clone method
+                songs = updated;
+                shuffle = null;
                 if (currentSong == null && songs.size() == 1) { // If playlist was empty, set current song
-                    currentSong = songs.get(0);
+                    moveTo(0);
                 }
             } else {
                 throw new UnsupportedOperationException("This song is already in the playlist.");
@@ -481,10 +619,22 @@ public class Playlist implements Serializable, Playable {
         }
 
         if (creator.getSubscriptionPlan().canCreatePlaylist()) {
-            boolean removed = songs.remove(song); // Relies on Song.equals()
-            if (removed) {
-                if (Objects.equals(currentSong, song)) {
-                    currentSong = songs.isEmpty() ? null : songs.get(0); // Or a random one
+            int index = songs.indexOf(song); // Relies on Song.equals()
+            if (index != -1) {
+                int current = currentIndex();
+                List<Song> updated = new ArrayList<>(songs);
+                updated.remove(index);
+                songs = updated;
+                shuffle = null;
+                if (index == current) {
+                    if (songs.isEmpty()) {
+                        currentSong = null;
+                        currentIndex = -1;
+                    } else {
+                        moveTo(0); // Or a random one
+                    }
+                } else if (index < current) {
+                    currentIndex = current - 1;
                 }
             } else {
                 throw new UnsupportedOperationException("This song is not in the playlist.");
@@ -0,0 +1,111 @@
+package org.spotifumtp37.model.playlist;
+
+import java.util.SplittableRandom;
+
+/**
+ * Shuffle order for one playback of an album or playlist.
+ * <p>
+ * The order is a Fisher-Yates permutation of the song positions, drawn one position per skip,
+ * so a skip is a single swap with no allocation. Every song is played once before any repeats.
+ * When the permutation runs out a new one is drawn, and its first song is never the last song
+ * of the previous one. With the same seed the order is the same, so it can be tested.
+ * </p>
+ */
+public class ShuffleSession {
+    private final int size;
+    private final SplittableRandom random;
+    private int[] order;
+    // where each position is in order
+    private int[] slots;
+    private int drawn;
+    private int last = -1;
+
+    /**
+     * Creates a session with a random seed.
+     *
+     * @param size The number of songs being shuffled.
+     */
+    public ShuffleSession(int size) {
+        this(size, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Creates a session whose order is fixed by the seed.
+     *
+     * @param size The number of songs being shuffled.
+     * @param seed The seed of the random order.
+     */
+    public ShuffleSession(int size, long seed) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Cannot shuffle an empty list of songs.");
+        }
+        this.size = size;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return The number of songs being shuffled.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Draws the next position of the shuffle order.
+     *
+     * @return A position between 0 and {@code size() - 1}.
+     */
+    public int next() {
+        return draw(-1);
+    }
+
+    /**
+     * Draws the next position that is not the given one (unless there is only one song).
+     * The given one is skipped over, not drawn, so it stays in the current round.
+     *
+     * @param current The position of the song playing now, or -1.
+     * @return A position between 0 and {@code size() - 1}.
+     */
+    public int nextAfter(int current) {
+        return draw(current);
+    }
+
+    private int draw(int skip) {
+        if (order == null) {
+            order = new int[size];
+            slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+                slots[i] = i;
+            }
+        }
+        if (drawn == size) {
+            drawn = 0;
+        }
+        if (drawn == 0 && skip < 0) {
+            skip = last; // first song of a new round: anything but the song just played
+        }
+        if (skip >= 0 && skip < size && size > 1 && slots[skip] >= drawn) {
+            if (size - drawn == 1) {
+                drawn = 0; // the song to skip is the only one left: go on with a new round
+            }
+            int pick = drawn + random.nextInt(size - drawn - 1);
+            if (pick >= slots[skip]) {
+                pick++;
+            }
+            return take(pick);
+        }
+        return take(drawn + random.nextInt(size - drawn));
+    }
+
+    private int take(int pick) {
+        int position = order[pick];
+        order[pick] = order[drawn];
+        slots[order[drawn]] = pick;
+        order[drawn] = position;
+        slots[position] = drawn;
+        drawn++;
+        last = position;
+        return position;
+    }
+}
@@ -80,6 +80,15 @@ public class History implements Serializable {
         return this.song != null ? this.song.clone() : null;
     }
 
+    /**
+     * Gets the song that was played, without copying it.
+     *
+     * @return The stored {@link Song} reference, or null if no song is set.
+     */
+    public Song getSongPointer() {
+        return this.song;
+    }
+
     /**
      * Sets the song that was played.
      * Stores a reference to the provided song, not a deep copy.
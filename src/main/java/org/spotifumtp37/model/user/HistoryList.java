@@ -0,0 +1,276 @@
+package org.spotifumtp37.model.user;
+
+import org.spotifumtp37.model.album.Song;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Compact listening history, kept as parallel primitive arrays instead of one {@link History}
+ * object (and one song copy) per play.
+ * <p>
+ * Each play takes an int (the song's position in a table of the distinct songs of this history)
+ * and the time as epoch seconds plus nanoseconds. The arrays grow by half their size when full.
+ * Songs are matched by artist and name, so playing the same song again only adds the numbers.
+ * </p>
+ * It is still a {@code List<History>}: {@link #get(int)} builds a record on demand, holding the table's
+ * song (not a copy), and {@link #add(History)} appends one. That is also how Gson reads and writes it,
+ * so the JSON format of the history does not change.
+ * <p>
+ * Plays are appended as they happen, so the times are normally in order. While they are, the plays
+ * in a time range are counted with a binary search ({@link #countBetween}); a history loaded out of
+ * order is scanned instead.
+ * </p>
+ * Plays must be appended by one thread at a time (the owning {@link User} takes care of that), but
+ * the history can be read while a play is being appended: a play is only seen once it is complete.
+ */
+public class HistoryList extends AbstractList<History> implements RandomAccess, Serializable {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    // the arrays are replaced, never shrunk in place, and the size is written last, so a reader
+    // that read the size sees every play below it
+    private volatile int[] songIndexes;
+    private volatile long[] seconds;
+    private volatile int[] nanos;
+    private volatile int size;
+    private volatile Song[] songs;
+    private int songCount;
+    private transient Map<String, Map<String, Integer>> songIds;
+    private transient boolean chronological = true;
+
+    /**
+     * Creates an empty history.
+     */
+    public HistoryList() {
+        this.songIndexes = new int[0];
+        this.seconds = new long[0];
+        this.nanos = new int[0];
+        this.size = 0;
+        this.songs = new Song[0];
+    }
+
+    /**
+     * Deep copy of another history: the arrays are copied and each distinct song is cloned once.
+     *
+     * @param other The history to copy
+     */
+    public HistoryList(HistoryList other) {
+        int size = other.size;
+        this.songIndexes = Arrays.copyOf(other.songIndexes, size);
+        this.seconds = Arrays.copyOf(other.seconds, size);
+        this.nanos = Arrays.copyOf(other.nanos, size);
+        this.size = size;
+        this.chronological = other.chronological;
+        this.songs = new Song[other.songCount];
+        for (int i = 0; i < other.songCount; i++) {
+            this.songs[i] = other.songs[i].clone();
+        }
+        this.songCount = other.songCount;
+    }
+
+    /**
+     * Records a play.
+     *
+     * @param song The song played, stored as it is (not copied); may be null
+     * @param time The time of the play; may be null
+     */
+    public void append(Song song, LocalDateTime time) {
+        append(song, time, false);
+    }
+
+    /**
+     * Records a play of a copy of the song. The copy is only made the first time the song (by
+     * artist and name) is played; replays share it, so they do not copy the song again.
+     *
+     * @param song The song played, not null
+     * @param time The time of the play; may be null
+     */
+    public void appendCopy(Song song, LocalDateTime time) {
+        append(song, time, true);
+    }
+
+    private void append(Song song, LocalDateTime time, boolean copy) {
+        int index = size;
+        int[] songIndexes = this.songIndexes;
+        long[] seconds = this.seconds;
+        int[] nanos = this.nanos;
+        if (index == songIndexes.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, index + (index >> 1));
+            this.songIndexes = songIndexes = Arrays.copyOf(songIndexes, capacity);
+            this.seconds = seconds = Arrays.copyOf(seconds, capacity);
+            this.nanos = nanos = Arrays.copyOf(nanos, capacity);
+        }
+        songIndexes[index] = song == null ? -1 : songId(song, copy);
+        seconds[index] = time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+        nanos[index] = time == null ? 0 : time.getNano();
+        if (index > 0 && compareTime(index - 1, seconds[index], nanos[index]) > 0) {
+            chronological = false;
+        }
+        size = index + 1;
+        modCount++;
+    }
+
+    /**
+     * @param index The position of the play
+     * @return The song of the play (not a copy), or null
+     */
+    public Song songAt(int index) {
+        Objects.checkIndex(index, size);
+        int song = songIndexes[index];
+        return song < 0 ? null : songs[song];
+    }
+
+    /**
+     * @param index The position of the play
+     * @return The time of the play, or null
+     */
+    public LocalDateTime timeAt(int index) {
+        Objects.checkIndex(index, size);
+        return seconds[index] == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds[index], nanos[index], ZoneOffset.UTC);
+    }
+
+    /**
+     * @return True if the plays are in time order, so ranges are found by binary search
+     */
+    public boolean isChronological() {
+        return chronological;
+    }
+
+    /**
+     * Counts the plays at or after a time.
+     *
+     * @param from The start of the range (inclusive); null for no start
+     * @return The number of plays with a time in the range
+     */
+    public int countFrom(LocalDateTime from) {
+        return countBetween(from, null);
+    }
+
+    /**
+     * Counts the plays in a time range. Plays with no time are never counted.
+     * O(log n) while the history is in time order, O(n) otherwise.
+     *
+     * @param from The start of the range (inclusive); null for no start
+     * @param to   The end of the range (exclusive); null for no end
+     * @return The number of plays with a time in the range
+     */
+    public int countBetween(LocalDateTime from, LocalDateTime to) {
+        long fromSeconds = from == null ? NO_TIME + 1 : from.toEpochSecond(ZoneOffset.UTC);
+        int fromNanos = from == null ? 0 : from.getNano();
+        long toSeconds = to == null ? Long.MAX_VALUE : to.toEpochSecond(ZoneOffset.UTC);
+        int toNanos = to == null ? Integer.MAX_VALUE : to.getNano();
+        int size = this.size;
+        if (!chronological) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (compareTime(i, fromSeconds, fromNanos) >= 0 && compareTime(i, toSeconds, toNanos) < 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int start = firstAtOrAfter(size, fromSeconds, fromNanos);
+        int end = firstAtOrAfter(size, toSeconds, toNanos);
+        return Math.max(0, end - start);
+    }
+
+    /**
+     * @return The number of distinct songs in the history
+     */
+    public int distinctSongs() {
+        return songCount;
+    }
+
+    /**
+     * Builds the record of a play. The record holds the history's song, not a copy.
+     */
+    @Override
+    public History get(int index) {
+        return new History(songAt(index), timeAt(index));
+    }
+
+    @Override
+    public boolean add(History record) {
+        append(record.getSongPointer(), record.getTime());
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        songIndexes = new int[0];
+        seconds = new long[0];
+        nanos = new int[0];
+        size = 0;
+        songs = new Song[0];
+        songCount = 0;
+        songIds = null;
+        chronological = true;
+        modCount++;
+    }
+
+    private int songId(Song song, boolean copy) {
+        if (songIds == null) {
+            songIds = new HashMap<>();
+            for (int i = 0; i < songCount; i++) {
+                Song known = songs[i];
+                songIds.computeIfAbsent(known.getArtist(), artist -> new HashMap<>()).putIfAbsent(known.getName(), i);
+            }
+        }
+        Map<String, Integer> byName = songIds.computeIfAbsent(song.getArtist(), artist -> new HashMap<>());
+        Integer id = byName.get(song.getName());
+        if (id == null) {
+            id = songCount;
+            if (id == songs.length) {
+                songs = Arrays.copyOf(songs, Math.max(INITIAL_CAPACITY, id + (id >> 1)));
+            }
+            songs[id] = copy ? song.clone() : song;
+            songCount++;
+            byName.put(song.getName(), id);
+        }
+        return id;
+    }
+
+    /**
+     * Compares the time of a play to a time given as epoch seconds and nanoseconds.
+     */
+    private int compareTime(int index, long otherSeconds, int otherNanos) {
+        int bySeconds = Long.compare(seconds[index], otherSeconds);
+        return bySeconds != 0 ? bySeconds : Integer.compare(nanos[index], otherNanos);
+    }
+
+    /**
+     * Position of the first play at or after the time among the first plays, in a history in time order.
+     */
+    private int firstAtOrAfter(int size, long timeSeconds, int timeNanos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareTime(middle, timeSeconds, timeNanos) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        songIds = null;
+        chronological = true;
+        for (int i = 1; i < size && chronological; i++) {
+            chronological = compareTime(i - 1, seconds[i], nanos[i]) <= 0;
+        }
+    }
+}
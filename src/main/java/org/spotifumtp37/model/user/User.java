@@ -40,11 +40,12 @@ public class User implements Serializable {
     /**
      * The points accumulated by the user.
      */
-    private double pontos;
+    private volatile double pontos;
     /**
      * The listening history of the user, containing records of played songs.
+     * Plays are appended while holding the user's lock, so only one is appended at a time.
      */
-    private List<History> history;
+    private volatile HistoryList history;
 
     /**
      * Constructs a new User with specified details.
@@ -64,7 +65,7 @@ public class User implements Serializable {
         this.subscriptionplan = subscriptionPlan;
         this.password = password;
         this.pontos = pontos;
-        this.history = new ArrayList<>();
+        this.history = new HistoryList();
         for (History h : history) {
             this.history.add(h.clone());
         }
@@ -84,10 +85,9 @@ public class User implements Serializable {
         this.address = other.getAddress();
         this.subscriptionplan = other.getSubscriptionPlan(); // Assumes SubscriptionPlan is immutable or properly handled
         this.password = other.getPassword();
-        this.pontos = other.getPontos();
-        this.history = new ArrayList<>();
-        for (History h : other.history) {
-            this.history.add(h.clone());
+        synchronized (other) {
+            this.pontos = other.getPontos();
+            this.history = new HistoryList(other.history);
         }
     }
 
@@ -103,7 +103,7 @@ public class User implements Serializable {
         this.subscriptionplan = new FreePlan();
         this.password = "";
         this.pontos = 0;
-        this.history = new ArrayList<>();
+        this.history = new HistoryList();
     }
 
     /**
@@ -167,13 +167,37 @@ public class User implements Serializable {
      * @return A new list containing clones of the user's {@link History} records.
      */
     public List<History> getHistory() {
-        List<History> copy = new ArrayList<>();
-        for (History h : this.history) {
-            copy.add(h.clone());
+        List<History> copy = new ArrayList<>(this.history.size());
+        for (int i = 0; i < this.history.size(); i++) {
+            Song song = this.history.songAt(i);
+            copy.add(new History(song != null ? song.clone() : null, this.history.timeAt(i)));
         }
         return copy;
     }
 
+    /**
+     * Gets a read-only view of the user's listening history, without copying it.
+     * The view holds the records the history had when it was taken; later plays are not added to it.
+     *
+     * @return An unmodifiable list with the user's {@link History} records.
+     */
+    public List<History> getHistoryView() {
+        HistoryList records = this.history;
+        int size = records.size();
+        return new AbstractList<>() {
+            @Override
+            public History get(int index) {
+                Objects.checkIndex(index, size);
+                return records.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
     /**
      * Sets the user's subscription plan.
      *
@@ -204,10 +228,11 @@ public class User implements Serializable {
      * @param history A list of {@link History} records to set. Each element will be cloned.
      */
     public void setHistory(List<History> history) {
-        this.history = new ArrayList<>();
+        HistoryList records = new HistoryList();
         for (History h : history) {
-            this.history.add(h.clone());
+            records.add(h.clone());
         }
+        this.history = records;
     }
 
     /**
@@ -250,7 +275,7 @@ public class User implements Serializable {
      * Adds points to the user's account based on their current subscription plan.
      * The calculation of points is delegated to the {@link SubscriptionPlan#addPoints(double)} method.
      */
-    public void addPoints() {
+    public synchronized void addPoints() {
         double newPoints = subscriptionplan.addPoints(pontos); // Get the new points from the plan
         setPontos(newPoints);
     }
@@ -269,7 +294,7 @@ public class User implements Serializable {
      *
      * @param newPlan The new {@link PremiumTop} subscription plan.
      */
-    public void updatePremiumTop(PremiumTop newPlan) {
+    public synchronized void updatePremiumTop(PremiumTop newPlan) {
         this.setSubscriptionPlan(newPlan);
         this.pontos += 100;
     }
@@ -281,11 +306,68 @@ public class User implements Serializable {
      * @param song The {@link Song} to add to the history. A clone of this song will be stored.
      */
     public void updateHistory(Song song) {
-        History h = new History();
-        LocalDateTime time = LocalDateTime.now();
-        h.setSong(song.clone());
-        h.setTime(time);
-        this.history.add(h);
+        updateHistory(song, LocalDateTime.now());
+    }
+
+    /**
+     * Adds a new song to the user's listening history, played at the given time.
+     * The history keeps one copy per distinct song (by artist and name), so replays of a song share it.
+     *
+     * @param song The {@link Song} to add to the history. A clone of this song is stored the first
+     *             time it is played; replays share that clone instead of copying the song again.
+     * @param time The time of the play.
+     */
+    public synchronized void updateHistory(Song song, LocalDateTime time) {
+        this.history.appendCopy(song, time);
+    }
+
+    /**
+     * Records a play of a song: adds the points of the user's plan and appends the song to the
+     * history, both under the user's lock, so plays of the same user from several sessions at the
+     * same time are all kept.
+     *
+     * @param song The {@link Song} played, stored as {@link #updateHistory} does.
+     * @param time The time of the play.
+     * @return The points the play gave.
+     */
+    public synchronized double recordPlay(Song song, LocalDateTime time) {
+        double before = pontos;
+        addPoints();
+        updateHistory(song, time);
+        return pontos - before;
+    }
+
+    /**
+     * Appends an existing record to the listening history as it is, without copying it.
+     * Used when restoring saved data, where the record already holds the right song and time.
+     * The record's song must belong to the history alone (not be a catalog song), see
+     * {@link #updateHistory} to record a play of a song that does not.
+     *
+     * @param record The {@link History} record to append.
+     */
+    public synchronized void addHistoryRecord(History record) {
+        this.history.add(record);
+    }
+
+    /**
+     * Counts the songs the user played at or after a time, without copying the history.
+     *
+     * @param from The start of the period (inclusive).
+     * @return The number of plays in the period.
+     */
+    public int countPlaysFrom(LocalDateTime from) {
+        return this.history.countFrom(from);
+    }
+
+    /**
+     * Counts the songs the user played in a period, without copying the history.
+     *
+     * @param from The start of the period (inclusive), or null for no start.
+     * @param to   The end of the period (exclusive), or null for no end.
+     * @return The number of plays in the period.
+     */
+    public int countPlaysBetween(LocalDateTime from, LocalDateTime to) {
+        return this.history.countBetween(from, to);
     }
 
     /**
@@ -329,8 +411,8 @@ public class User implements Serializable {
         if (history == null || history.isEmpty()) return null;
 
         Map<String, Integer> genreCount = new HashMap<>();
-        for (History h : history) {
-            Song song = h.getSong();
+        for (int i = 0; i < history.size(); i++) {
+            Song song = history.songAt(i);
             if (song != null && song.getGenre() != null) {
                 String genre = song.getGenre();
                 genreCount.put(genre, genreCount.getOrDefault(genre, 0) + 1);
@@ -0,0 +1,151 @@
+package org.spotifumtp37.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load test of an {@link ApiServer}: a few threads send GET requests back to back and the
+ * run reports the throughput and the latency percentiles.
+ * Usage: {@code ApiLoadClient <base url> [threads] [requests] [path...]}, e.g.
+ * {@code ApiLoadClient http://localhost:8080 8 100000 /albums /playlists /stats}.
+ */
+public class ApiLoadClient {
+
+    /**
+     * What a run measured.
+     */
+    public static final class Report {
+        private final int requests;
+        private final int errors;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        private Report(int requests, int errors, long elapsedNanos, long[] sortedLatencies) {
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        /**
+         * @return The number of requests sent
+         */
+        public int getRequests() {
+            return requests;
+        }
+
+        /**
+         * @return The number of requests that failed or did not answer 2xx
+         */
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return The requests answered per second
+         */
+        public double getThroughput() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return The latency below which that share of the requests were answered, in microseconds
+         */
+        public double getLatencyMicros(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d requests (%d errors) in %.2f s: %.0f req/s, latency p50 %.0f us, p99 %.0f us, max %.0f us",
+                    requests, errors, elapsedNanos / 1e9, getThroughput(),
+                    getLatencyMicros(50), getLatencyMicros(99), getLatencyMicros(100));
+        }
+    }
+
+    /**
+     * Sends the requests and waits for all of them.
+     *
+     * @param base     The address of the server, e.g. {@code http://localhost:8080}
+     * @param paths    The paths requested, in turn
+     * @param threads  The number of requests in flight at once
+     * @param requests The total number of requests
+     * @return What the run measured
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public static Report run(URI base, List<String> paths, int threads, int requests) throws InterruptedException {
+        if (paths.isEmpty() || threads <= 0 || requests < 0) {
+            throw new IllegalArgumentException("Give at least one path, one thread and no negative number of requests.");
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<HttpRequest> prepared = new ArrayList<>();
+        for (String path : paths) {
+            prepared.add(HttpRequest.newBuilder(base.resolve(path)).GET().build());
+        }
+
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(prepared.get(i % prepared.size()),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() / 100 != 2) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[i] = System.nanoTime() - sent;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Report(requests, errors.get(), elapsed, latencies);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: ApiLoadClient <base url> [threads] [requests] [path...]");
+            System.exit(2);
+        }
+        URI base = URI.create(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        List<String> paths = args.length > 3 ? Arrays.asList(args).subList(3, args.length) : List.of("/albums");
+
+        // a short warm-up, so the JIT and the connections are ready
+        run(base, paths, threads, Math.min(requests, 1000));
+        System.out.println(run(base, paths, threads, requests));
+    }
+}
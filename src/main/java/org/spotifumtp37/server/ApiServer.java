@@ -0,0 +1,527 @@
+package org.spotifumtp37.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.User;
+import org.spotifumtp37.util.JsonDataParser;
+import org.spotifumtp37.util.Stats;
+import org.spotifumtp37.util.StatsReport;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local HTTP API over the data, on the JDK's built-in server, for programs that would otherwise
+ * have to go through the {@code AdminUI} and {@code UserUI} menus.
+ * <p>
+ * Every request runs on its own thread (virtual threads on Java 21 and later, see
+ * {@link SessionServer}). Responses are JSON written by the same adapters as the saved data
+ * straight into pooled buffers (see {@link ResponseBuffers}). Errors answer
+ * {@code {"error": "..."}} with 400 (bad request), 401 (missing or wrong credentials), 403 (not
+ * allowed by the subscription or not the creator), 404 (not found), 405 (wrong method) or 409
+ * (already exists).
+ * </p>
+ * <p>
+ * Requests that change the data act for the user they are authenticated as, with HTTP Basic
+ * authentication (user name and password). Reads without credentials only see public playlists;
+ * with them, the user's own private playlists too.
+ * </p>
+ * <ul>
+ *     <li>{@code GET /albums}: the albums, without their songs</li>
+ *     <li>{@code GET /albums/<title>}: an album and its songs</li>
+ *     <li>{@code GET /playlists}: the public playlists, and the authenticated user's own</li>
+ *     <li>{@code GET /playlists/<name>}: a playlist the authenticated user (or anyone, if public) can see</li>
+ *     <li>{@code POST /playlists}: creates a playlist of the authenticated user, from
+ *     {@code {"name", "description", "status", "songs": [{"album", "song"}]}}</li>
+ *     <li>{@code PUT /playlists/<name>}: changes the given fields of
+ *     {@code {"description", "status", "songs"}}, for the creator</li>
+ *     <li>{@code DELETE /playlists/<name>}: removes a playlist, for the creator</li>
+ *     <li>{@code POST /plays}: plays a song for the authenticated user, from
+ *     {@code {"album" or "playlist", "song"}}; without a song, the first one played</li>
+ *     <li>{@code GET /stats}: the {@link StatsReport} of the data, once the plays made so far are applied</li>
+ * </ul>
+ */
+public class ApiServer implements Closeable {
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final int BACKLOG = 1024;
+
+    private final SpotifUMData data;
+    private final HttpServer server;
+    private final ExecutorService threads;
+    private final Gson gson = JsonDataParser.gsonBuilder().create();
+    // up to 256 buffers of up to 1 MB are kept between requests
+    private final ResponseBuffers buffers = new ResponseBuffers(256, 8 * 1024, 1024 * 1024);
+
+    /**
+     * Writes a response body.
+     */
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonWriter out) throws IOException;
+    }
+
+    /**
+     * Answers a request under one path.
+     */
+    @FunctionalInterface
+    private interface Route {
+        void handle(HttpExchange exchange, String name, Map<String, String> query) throws Exception;
+    }
+
+    /**
+     * A request that cannot be answered, with the status saying why.
+     */
+    private static final class ApiException extends Exception {
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class SongRef {
+        String album;
+        String song;
+    }
+
+    private static final class PlaylistRequest {
+        String name;
+        String creator;
+        String description;
+        String status;
+        List<SongRef> songs;
+    }
+
+    private static final class PlayRequest {
+        String user;
+        String album;
+        String playlist;
+        String song;
+    }
+
+    /**
+     * Starts listening on the loopback address.
+     *
+     * @param data The data to serve, switched to the concurrent mode
+     * @param port The port, or 0 for any free port (see {@link #getPort()})
+     * @throws IOException If the port cannot be bound
+     */
+    public ApiServer(SpotifUMData data, int port) throws IOException {
+        this.data = data;
+        data.makeConcurrent();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        ExecutorService virtual = SessionServer.newVirtualThreadExecutor();
+        this.threads = virtual != null ? virtual : Executors.newCachedThreadPool(new SessionServer.PlatformThreads("api"));
+        server.setExecutor(threads);
+        route("/albums", this::albums);
+        route("/playlists", this::playlists);
+        route("/plays", this::plays);
+        route("/stats", this::stats);
+        server.start();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, letting the requests being answered finish for up to a second.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        threads.shutdown();
+        try {
+            threads.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void route(String path, Route route) {
+        server.createContext(path, exchange -> {
+            try {
+                String rest = exchange.getRequestURI().getPath().substring(path.length());
+                if (!rest.isEmpty() && !rest.startsWith("/")) {
+                    throw new ApiException(404, "No such path.");
+                }
+                String name = rest.length() > 1 ? rest.substring(1) : null;
+                route.handle(exchange, name, query(exchange.getRequestURI().getRawQuery()));
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (DoesntExistException e) {
+                sendError(exchange, 404, "Not found: " + e.getMessage());
+            } catch (AlreadyExistsException e) {
+                sendError(exchange, 409, "Already exists: " + e.getMessage());
+            } catch (SubscriptionDoesNotAllowException e) {
+                sendError(exchange, 403, e.getMessage());
+            } catch (JsonParseException e) {
+                sendError(exchange, 400, "Invalid JSON: " + e.getMessage());
+            } catch (IOException e) {
+                // the client went away
+            } catch (Exception e) {
+                sendError(exchange, 500, e.toString());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return query;
+    }
+
+    private static void requireMethod(HttpExchange exchange, String... allowed) throws ApiException {
+        for (String method : allowed) {
+            if (method.equals(exchange.getRequestMethod())) {
+                return;
+            }
+        }
+        exchange.getResponseHeaders().set("Allow", String.join(", ", allowed));
+        throw new ApiException(405, "Use " + String.join(" or ", allowed) + ".");
+    }
+
+    private <T> T readBody(HttpExchange exchange, Class<T> type) throws IOException, ApiException {
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            T body = gson.fromJson(reader, type);
+            if (body == null) {
+                throw new ApiException(400, "The request has no body.");
+            }
+            return body;
+        }
+    }
+
+    private static String required(String value, String field) throws ApiException {
+        if (value == null || value.isEmpty()) {
+            throw new ApiException(400, "Missing \"" + field + "\".");
+        }
+        return value;
+    }
+
+    private static boolean hasCredentials(HttpExchange exchange) {
+        return exchange.getRequestHeaders().containsKey("Authorization");
+    }
+
+    /**
+     * Gets the user a request is made by, from its HTTP Basic credentials.
+     */
+    private User authenticated(HttpExchange exchange) throws ApiException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            throw unauthorized(exchange, "Log in with your user name and password (HTTP Basic).");
+        }
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw unauthorized(exchange, "Invalid credentials.");
+        }
+        int colon = credentials.indexOf(':');
+        User user = colon > 0 ? data.getCurrentUserPointer(credentials.substring(0, colon)) : null;
+        if (user == null || user.getPassword() == null || !MessageDigest.isEqual(
+                user.getPassword().getBytes(StandardCharsets.UTF_8),
+                credentials.substring(colon + 1).getBytes(StandardCharsets.UTF_8))) {
+            throw unauthorized(exchange, "Invalid credentials.");
+        }
+        return user;
+    }
+
+    private static ApiException unauthorized(HttpExchange exchange, String message) {
+        exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"SpotifUM\", charset=\"UTF-8\"");
+        return new ApiException(401, message);
+    }
+
+    /**
+     * Writes the body into a pooled buffer and sends it.
+     */
+    private void send(HttpExchange exchange, int status, Body body) throws IOException {
+        ResponseBuffers.Buffer buffer = buffers.take();
+        try {
+            JsonWriter out = gson.newJsonWriter(buffer.writer());
+            body.write(out);
+            out.flush();
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            exchange.sendResponseHeaders(status, buffer.size());
+            buffer.writeTo(exchange.getResponseBody());
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            send(exchange, status, out -> out.beginObject().name("error").value(message).endObject());
+        } catch (IOException e) {
+            // the client went away
+        }
+    }
+
+    private void albums(HttpExchange exchange, String title, Map<String, String> query) throws Exception {
+        requireMethod(exchange, "GET");
+        if (title != null) {
+            Album album = data.getAlbum(title);
+            send(exchange, 200, out -> gson.toJson(album, Album.class, out));
+            return;
+        }
+        send(exchange, 200, out -> {
+            out.beginArray();
+            for (Album album : data.getMapAlbumsView().values()) {
+                out.beginObject()
+                        .name("title").value(album.getTitle())
+                        .name("artist").value(album.getArtist())
+                        .name("releaseYear").value(album.getReleaseYear())
+                        .name("genre").value(album.getGenre())
+                        .name("songs").value(album.getSongs().size())
+                        .endObject();
+            }
+            out.endArray();
+        });
+    }
+
+    private void playlists(HttpExchange exchange, String name, Map<String, String> query) throws Exception {
+        if (name == null) {
+            requireMethod(exchange, "GET", "POST");
+            if (exchange.getRequestMethod().equals("POST")) {
+                User creator = authenticated(exchange);
+                Playlist created = createPlaylist(creator, readBody(exchange, PlaylistRequest.class));
+                send(exchange, 201, out -> writePlaylist(out, created));
+                return;
+            }
+            User user = reader(exchange, query);
+            send(exchange, 200, out -> {
+                out.beginArray();
+                for (Playlist playlist : data.getMapPlaylistsView().values()) {
+                    if (playlist.isPublic() || (user != null && user.equals(playlist.getCreator()))) {
+                        writePlaylist(out, playlist);
+                    }
+                }
+                out.endArray();
+            });
+            return;
+        }
+
+        requireMethod(exchange, "GET", "PUT", "DELETE");
+        User user = exchange.getRequestMethod().equals("GET") ? reader(exchange, query) : authenticated(exchange);
+        Playlist playlist = data.getAnyPlaylist(name, user);
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                send(exchange, 200, out -> writePlaylist(out, playlist));
+                break;
+            case "PUT":
+                requireCreator(playlist, user);
+                updatePlaylist(playlist, readBody(exchange, PlaylistRequest.class));
+                send(exchange, 200, out -> writePlaylist(out, playlist));
+                break;
+            default:
+                requireCreator(playlist, user);
+                data.removePlaylist(name);
+                send(exchange, 200, out -> out.beginObject().name("deleted").value(name).endObject());
+                break;
+        }
+    }
+
+    /**
+     * Gets the user a read is made for: the authenticated one, or null for a read without credentials,
+     * which only sees what is public. {@code ?user=} (used by older clients) must name the authenticated user.
+     */
+    private User reader(HttpExchange exchange, Map<String, String> query) throws ApiException {
+        String username = query.get("user");
+        if (!hasCredentials(exchange)) {
+            if (username != null) {
+                throw unauthorized(exchange, "Log in to see the playlists of a user.");
+            }
+            return null;
+        }
+        User user = authenticated(exchange);
+        if (username != null && !username.equals(user.getName())) {
+            throw new ApiException(403, "Only your own private playlists can be seen.");
+        }
+        return user;
+    }
+
+    private static void requireCreator(Playlist playlist, User user) throws ApiException {
+        if (user == null || !user.equals(playlist.getCreator())) {
+            throw new ApiException(403, "Only the creator can change a playlist.");
+        }
+    }
+
+    private List<Song> songs(List<SongRef> refs) throws ApiException, DoesntExistException {
+        List<Song> songs = new ArrayList<>();
+        for (SongRef ref : refs) {
+            if (ref == null) {
+                throw new ApiException(400, "Missing song.");
+            }
+            songs.add(data.getSong(required(ref.song, "song"), required(ref.album, "album")));
+        }
+        return songs;
+    }
+
+    private Playlist createPlaylist(User creator, PlaylistRequest request) throws Exception {
+        if (request.creator != null && !request.creator.equals(creator.getName())) {
+            throw new ApiException(403, "A playlist can only be created by the user logged in.");
+        }
+        if (!creator.getSubscriptionPlan().canCreatePlaylist()) {
+            throw new SubscriptionDoesNotAllowException("Your subscription does not allow creating playlists.");
+        }
+        List<Song> songs = request.songs != null ? songs(request.songs) : new ArrayList<>();
+        data.addPlaylist(new Playlist(creator, required(request.name, "name"),
+                request.description != null ? request.description : "", 0,
+                request.status != null ? request.status : "private", songs));
+        return data.getPlaylist(request.name);
+    }
+
+    private void updatePlaylist(Playlist playlist, PlaylistRequest request) throws Exception {
+        if (request.name != null && !request.name.equals(playlist.getPlaylistName())) {
+            throw new ApiException(400, "A playlist cannot be renamed.");
+        }
+        List<Song> songs = request.songs != null ? songs(request.songs) : null;
+        if (songs != null && !playlist.getCreator().getSubscriptionPlan().canCreatePlaylist()) {
+            throw new SubscriptionDoesNotAllowException("Your subscription does not allow changing the songs of a playlist.");
+        }
+        synchronized (playlist) {
+            if (request.description != null) {
+                playlist.setPlaylistDescription(request.description);
+            }
+            if (request.status != null) {
+                playlist.setStatus(request.status);
+            }
+            if (songs != null) {
+                playlist.setSongs(songs);
+            }
+        }
+    }
+
+    private void writePlaylist(JsonWriter out, Playlist playlist) throws IOException {
+        synchronized (playlist) {
+            User creator = playlist.getCreator();
+            out.beginObject()
+                    .name("name").value(playlist.getPlaylistName())
+                    .name("creator").value(creator != null ? creator.getName() : null)
+                    .name("description").value(playlist.getPlaylistDescription())
+                    .name("followers").value(playlist.getNumberOfFollowers())
+                    .name("status").value(playlist.getStatus());
+            out.name("songs").beginArray();
+            for (Song song : playlist.getSongsView()) {
+                gson.toJson(song, Song.class, out);
+            }
+            out.endArray().endObject();
+        }
+    }
+
+    private void plays(HttpExchange exchange, String name, Map<String, String> query) throws Exception {
+        requireMethod(exchange, "POST");
+        if (name != null) {
+            throw new ApiException(404, "No such path.");
+        }
+        User user = authenticated(exchange);
+        PlayRequest request = readBody(exchange, PlayRequest.class);
+        if (request.user != null && !request.user.equals(user.getName())) {
+            throw new ApiException(403, "Songs can only be played by the user logged in.");
+        }
+        Song song;
+        if (request.album != null) {
+            Album album = data.getAlbum(request.album).playback();
+            if (request.song != null) {
+                album.setCurrentSong(pick(album.getSongPointer(request.song), request.song));
+            } else if (album.getSongsView().isEmpty()) {
+                throw new ApiException(400, "This album has no songs.");
+            }
+            album.play(user);
+            song = album.getCurrentSong();
+        } else {
+            Playlist playlist = data.getAnyPlaylist(required(request.playlist, "album\" or \"playlist"), user).playback();
+            if (request.song != null) {
+                playlist.setCurrentSong(pick(playlist.getSongPointer(request.song), request.song));
+            } else if (playlist.getCurrentSong() == null) {
+                throw new ApiException(400, "This playlist has no songs.");
+            }
+            playlist.play(user);
+            song = playlist.getCurrentSong();
+        }
+        double points = user.getPontos();
+        send(exchange, 201, out -> {
+            out.beginObject().name("user").value(user.getName()).name("song");
+            gson.toJson(song, Song.class, out);
+            out.name("points").value(points).endObject();
+        });
+    }
+
+    private static Song pick(Song song, String name) throws DoesntExistException {
+        if (song == null) {
+            throw new DoesntExistException(name);
+        }
+        return song;
+    }
+
+    private void stats(HttpExchange exchange, String name, Map<String, String> query) throws Exception {
+        requireMethod(exchange, "GET");
+        if (name != null) {
+            throw new ApiException(404, "No such path.");
+        }
+        // plays still queued in a pipeline would be missing from the counts
+        PlayEvents.flush();
+        DataSnapshot snapshot = data.snapshot();
+        StatsReport report = Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists());
+        send(exchange, 200, out -> gson.toJson(report, StatsReport.class, out));
+    }
+
+    /**
+     * Serves a saved data file until the process is stopped.
+     * Usage: {@code ApiServer <data.json | data.snap | data directory> [port]}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ApiServer <data.json | data.snap | data directory> [port]");
+            System.exit(2);
+        }
+        // the JDK server sends the headers and the body in separate writes, and with Nagle's
+        // algorithm on every small response waits for the client's delayed ACK (about 40 ms);
+        // read once, when the server is first used, so it is set before that
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        ApiServer server = new ApiServer(SessionServer.load(args[0]), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Listening on http://localhost:" + server.getPort() + "/");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,191 @@
+package org.spotifumtp37.server;
+
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.MultimediaSong;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playable;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.User;
+
+import java.util.Locale;
+
+/**
+ * One listener connected to a {@link SessionServer}: who is logged in and what they are playing.
+ * <p>
+ * Runs the same playback as {@link org.spotifumtp37.delegate.PlayerUI}, one text command at a time
+ * instead of a loop over {@code System.in}. Each album or playlist is played through its own
+ * {@link Playable#playback()}, so listeners playing the same album do not move each other's song.
+ * A session is driven by one thread at a time.
+ * </p>
+ * Commands, one per line (the answer starts with {@code OK} or {@code ERR}):
+ * <ul>
+ *     <li>{@code user <name>}, then {@code pass <password>}: logs in</li>
+ *     <li>{@code album <title>}, {@code playlist <name>}: starts playing it</li>
+ *     <li>{@code next}, {@code prev}, {@code shuffle}: moves and plays the song moved to</li>
+ *     <li>{@code now}: shows the current song without playing it</li>
+ *     <li>{@code stop}: stops playing</li>
+ *     <li>{@code quit}: ends the session</li>
+ * </ul>
+ */
+public class PlayerSession {
+    static final String HELP = "Commands: user <name>, pass <password>, album <title>, playlist <name>, "
+            + "next, prev, shuffle, now, stop, quit";
+
+    private final SpotifUMData data;
+    private String username;
+    private User user;
+    private Playable playable;
+    private boolean closed;
+
+    /**
+     * @param data The data played from, which must be in the concurrent mode if several sessions
+     *             use it at once (see {@link SpotifUMData#makeConcurrent()})
+     */
+    public PlayerSession(SpotifUMData data) {
+        this.data = data;
+    }
+
+    /**
+     * @return The logged in user, or {@code null}
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return The playback going on, or {@code null}
+     */
+    public Playable getPlayable() {
+        return playable;
+    }
+
+    /**
+     * @return True once the listener has quit
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Runs one command.
+     *
+     * @param line The command and its argument
+     * @return The answer, a single line starting with {@code OK} or {@code ERR}
+     */
+    public String handle(String line) {
+        String trimmed = line.trim();
+        int space = trimmed.indexOf(' ');
+        String command = (space < 0 ? trimmed : trimmed.substring(0, space)).toLowerCase(Locale.ROOT);
+        String argument = space < 0 ? "" : trimmed.substring(space + 1).trim();
+
+        switch (command) {
+            case "user":
+                username = argument;
+                user = null;
+                playable = null;
+                return "OK Password?";
+            case "pass":
+                return login(argument);
+            case "help":
+                return "OK " + HELP;
+            case "quit":
+                closed = true;
+                return "OK Bye.";
+            case "":
+                return "ERR Empty command. " + HELP;
+            default:
+                break;
+        }
+        if (user == null) {
+            return "ERR Log in first.";
+        }
+        switch (command) {
+            case "album":
+                return start(argument, true);
+            case "playlist":
+                return start(argument, false);
+            case "stop":
+                playable = null;
+                return "OK Stopped.";
+            default:
+                break;
+        }
+        if (playable == null) {
+            return "ERR Nothing is playing.";
+        }
+        switch (command) {
+            case "next":
+                playable.next(user);
+                return play();
+            case "shuffle":
+                playable.nextShuffle();
+                return play();
+            case "prev":
+                try {
+                    playable.previous(user);
+                } catch (SubscriptionDoesNotAllowException e) {
+                    return "ERR Cannot go back. " + e.getMessage();
+                }
+                return play();
+            case "now":
+                return "OK " + describe(playable.getCurrentSong());
+            default:
+                return "ERR Unknown command. " + HELP;
+        }
+    }
+
+    private String login(String password) {
+        if (username == null || username.isEmpty() || password.isEmpty()) {
+            return "ERR Give the user name first.";
+        }
+        User found = data.getCurrentUserPointer(username);
+        if (found == null || !password.equals(found.getPassword())) {
+            return "ERR Invalid credentials.";
+        }
+        user = found;
+        return "OK Logged in as " + username + ".";
+    }
+
+    private String start(String name, boolean album) {
+        Playable source;
+        boolean empty;
+        try {
+            if (album) {
+                Album found = data.getAlbum(name);
+                source = found;
+                empty = found.getSongs().isEmpty();
+            } else {
+                Playlist found = data.getAnyPlaylist(name, user);
+                source = found;
+                empty = found.getSongs().isEmpty();
+            }
+        } catch (DoesntExistException e) {
+            return "ERR " + (album ? "Album" : "Playlist") + " not found: " + name;
+        }
+        if (empty) {
+            return "ERR This " + (album ? "album" : "playlist") + " has no songs.";
+        }
+        playable = source.playback();
+        return play();
+    }
+
+    private String play() {
+        playable.play(user);
+        return "OK Now playing " + describe(playable.getCurrentSong());
+    }
+
+    private static String describe(Song song) {
+        StringBuilder text = new StringBuilder()
+                .append('"').append(song.getName()).append("\" by ").append(song.getArtist());
+        if (song.isExplicit()) {
+            text.append(" (explicit)");
+        }
+        if (song.isMultimedia()) {
+            text.append(" (video: ").append(((MultimediaSong) song).getVideoLink()).append(')');
+        }
+        return text.toString();
+    }
+}
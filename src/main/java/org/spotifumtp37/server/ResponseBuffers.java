@@ -0,0 +1,90 @@
+package org.spotifumtp37.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of the buffers the {@link ApiServer} writes its responses into.
+ * <p>
+ * A response is encoded by the Gson adapters straight into a buffer's bytes, through the writer
+ * kept with the buffer, and the bytes are sent from the buffer as they are: there is no String
+ * and no copy of the body. Buffers go back to the pool afterwards, so a steady load reuses the
+ * same arrays. A buffer grown past the retained size by a large response is dropped instead, so
+ * one large response does not keep its memory.
+ * </p>
+ */
+final class ResponseBuffers {
+    private final BlockingQueue<Buffer> pool;
+    private final int initialSize;
+    private final int maxRetainedSize;
+
+    /**
+     * A growable byte buffer with the UTF-8 writer that fills it.
+     */
+    static final class Buffer extends ByteArrayOutputStream {
+        private final Writer writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+
+        private Buffer(int size) {
+            super(size);
+        }
+
+        /**
+         * @return The writer encoding into this buffer; flush it before reading the bytes
+         */
+        Writer writer() {
+            return writer;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    /**
+     * @param maxPooled       The most buffers kept when not in use
+     * @param initialSize     The size of a new buffer, in bytes
+     * @param maxRetainedSize The largest buffer given back to the pool, in bytes
+     */
+    ResponseBuffers(int maxPooled, int initialSize, int maxRetainedSize) {
+        this.pool = new ArrayBlockingQueue<>(maxPooled);
+        this.initialSize = initialSize;
+        this.maxRetainedSize = maxRetainedSize;
+    }
+
+    /**
+     * @return An empty buffer, from the pool if one is free
+     */
+    Buffer take() {
+        Buffer buffer = pool.poll();
+        return buffer != null ? buffer : new Buffer(initialSize);
+    }
+
+    /**
+     * Gives a buffer back once its bytes are sent. It must not be used afterwards.
+     *
+     * @param buffer The buffer
+     */
+    void release(Buffer buffer) {
+        try {
+            buffer.writer.flush(); // drops what a failed response left in the encoder
+        } catch (IOException e) {
+            return;
+        }
+        if (buffer.capacity() <= maxRetainedSize) {
+            buffer.reset();
+            pool.offer(buffer);
+        }
+    }
+
+    /**
+     * @return The number of buffers waiting in the pool
+     */
+    int pooled() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,224 @@
+package org.spotifumtp37.server;
+
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.util.BinarySnapshotCodec;
+import org.spotifumtp37.util.JsonDataParser;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless player: listeners connect over a local socket and send {@link PlayerSession} commands,
+ * one per line, getting one line back for each.
+ * <p>
+ * Every connection is served by its own thread, blocked on the socket while the listener is idle.
+ * On Java 21 and later these are virtual threads, so one process can keep tens of thousands of
+ * connected sessions for little more than their sockets. Older runtimes fall back to platform
+ * threads with small stacks. The data is switched to the concurrent mode when the server starts.
+ * </p>
+ */
+public class SessionServer implements Closeable {
+    private static final int BACKLOG = 1024;
+    // enough for the session loop, the play and the play listeners
+    private static final long FALLBACK_STACK_SIZE = 256 * 1024;
+
+    private final SpotifUMData data;
+    private final ServerSocket serverSocket;
+    private final ExecutorService threads;
+    private final boolean virtualThreads;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Starts listening on the loopback address.
+     *
+     * @param data The data to play from
+     * @param port The port, or 0 for any free port (see {@link #getPort()})
+     * @throws IOException If the port cannot be bound
+     */
+    public SessionServer(SpotifUMData data, int port) throws IOException {
+        this.data = data;
+        data.makeConcurrent();
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.threads = virtual != null ? virtual : Executors.newCachedThreadPool(new PlatformThreads("session"));
+        threads.execute(this::acceptConnections);
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()}, which only exists from Java 21.
+     *
+     * @return An executor starting a virtual thread per task, or {@code null} on older runtimes
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Daemon platform threads with small stacks, for runtimes without virtual threads.
+     */
+    static final class PlatformThreads implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        PlatformThreads(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(null, task, name + "-" + count.incrementAndGet(), FALLBACK_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The number of listeners connected now
+     */
+    public int getSessionCount() {
+        return connections.size();
+    }
+
+    /**
+     * @return True if the sessions run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                continue; // a connection that failed before it was accepted
+            }
+            connections.add(socket);
+            if (closed) {
+                closeQuietly(socket);
+                return;
+            }
+            threads.execute(() -> serve(socket));
+        }
+    }
+
+    private void serve(Socket socket) {
+        PlayerSession session = new PlayerSession(data);
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            answer(out, "OK SpotifUM session. " + PlayerSession.HELP);
+            String line;
+            while (!session.isClosed() && (line = in.readLine()) != null) {
+                answer(out, session.handle(line));
+            }
+        } catch (SocketException e) {
+            // the listener went away, or the server is closing
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                System.err.println("Session ended by an error: " + e);
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private static void answer(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Loads the data a server is started with.
+     *
+     * @param file A binary snapshot (ending in .snap), a JSON file or a directory of JSON files
+     * @return The data
+     * @throws IOException If the data cannot be read
+     */
+    static SpotifUMData load(String file) throws IOException {
+        return file.endsWith(".snap")
+                ? new BinarySnapshotCodec().load(Path.of(file))
+                : new JsonDataParser().fromJsonData(file);
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * Stops accepting listeners and disconnects the ones still connected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            serverSocket.close();
+        } finally {
+            for (Socket socket : connections) {
+                closeQuietly(socket);
+            }
+            threads.shutdown();
+            try {
+                threads.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Serves a saved data file until the process is stopped.
+     * Usage: {@code SessionServer <data.json | data.snap | data directory> [port]}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: SessionServer <data.json | data.snap | data directory> [port]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        SessionServer server = new SessionServer(load(args[0]), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> closeQuietly(server)));
+        System.out.println("Listening on port " + server.getPort()
+                + (server.usesVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,765 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.ExplicitSong;
+import org.spotifumtp37.model.album.MultimediaSong;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.subscription.PremiumTop;
+import org.spotifumtp37.model.subscription.SubscriptionPlan;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Versioned binary snapshot of the whole {@link SpotifUMData}, used instead of Java serialization.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * magic "SPUM", version
+ * string table : count, strings       (artists, genres, publishers and musical notes, written once)
+ * albums       : count, album records  (their songs get ids 0..n-1 in this order)
+ * users        : count, user records   (history songs are catalog ids)
+ * playlists    : count, playlist records (songs are catalog ids)
+ * </pre>
+ * Version 2 adds each song's id after its play count; version 1 snapshots are still read (their songs
+ * get new ids when loaded). Version 3 adds references that carry their own play count.
+ * Strings are length-prefixed UTF-8 (-1 for null). History and playlist songs are matched to the
+ * catalog by artist and name, the same rule used by {@link SpotifUMData#linkReferences()}, but are only
+ * written as a catalog id when they are copies of the catalog song: a copy that only differs in its play
+ * count is written as the id and its own count, and any other song (e.g. from a deleted album, or edited
+ * since it was copied) is written inline, so every copy is read back as it was saved.
+ * </p>
+ */
+public class BinarySnapshotCodec {
+    private static final int MAGIC = 0x5350554D; // "SPUM"
+    public static final int VERSION = 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte SONG_NULL = 0;
+    private static final byte SONG_REF = 1;
+    private static final byte SONG_INLINE = 2;
+    private static final byte SONG_REF_PLAYED = 3;
+
+    private static final byte KIND_SONG = 0;
+    private static final byte KIND_EXPLICIT = 1;
+    private static final byte KIND_MULTIMEDIA = 2;
+
+    private static final byte CREATOR_NULL = 0;
+    private static final byte CREATOR_REF = 1;
+    private static final byte CREATOR_INLINE = 2;
+
+    /**
+     * Checks whether a file starts with the snapshot header.
+     */
+    public static boolean isSnapshot(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return false;
+                }
+            }
+            return header.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file next to the target and then moves it into place,
+     * so a crash never leaves a half written snapshot behind.
+     */
+    public void save(SpotifUMData data, Path file) throws IOException {
+        save(data.snapshot(), file);
+    }
+
+    /**
+     * Writes a snapshot taken earlier (see {@link SpotifUMData#snapshot()}), e.g. on another thread
+     * than the one that took it, the same way as {@link #save(SpotifUMData, Path)}.
+     */
+    public void save(DataSnapshot snapshot, Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Out out = new Out(channel);
+                new Encoder(out, snapshot.getUsers()::containsKey).write(snapshot);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public SpotifUMData load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            In in = new In(channel);
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a SpotifUMData snapshot.");
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ".");
+            }
+            return new Decoder(in, version).read();
+        }
+    }
+
+    /**
+     * Starts writing a snapshot one user and playlist at a time, for data too large to be held in
+     * memory at once. The albums are written now; the users and playlists must then be written in that
+     * order, and every string they use (artists, genres, publishers, musical notes) must also be used by
+     * an album. Like {@link #save}, the file only replaces the target when the writer is closed.
+     *
+     * @param file      The file to write
+     * @param albums    The albums of the snapshot
+     * @param users     The number of users that will be written
+     * @param playlists The number of playlists that will be written
+     * @return The writer, which must be closed
+     * @throws IOException If the file cannot be written
+     */
+    public DataWriter openWriter(Path file, Collection<Album> albums, int users, int playlists) throws IOException {
+        return new StreamWriter(file, albums, users, playlists);
+    }
+
+    private static String songKey(Song song) {
+        return song.getArtist() + '\0' + song.getName();
+    }
+
+    private static final class StreamWriter implements DataWriter {
+        private final Path file;
+        private final Path tmp;
+        private final FileChannel channel;
+        private final Out out;
+        private final Encoder encoder;
+        private final Set<String> userNames = new HashSet<>();
+        private int usersLeft;
+        private int playlistsLeft;
+
+        StreamWriter(Path file, Collection<Album> albums, int users, int playlists) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.file = file;
+            this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new Out(channel);
+            this.encoder = new Encoder(out, userNames::contains);
+            this.usersLeft = users;
+            this.playlistsLeft = playlists;
+            try {
+                encoder.internCatalog(albums);
+                encoder.writeHeader();
+                encoder.writeAlbums(albums);
+                out.writeInt(users);
+                if (users == 0) {
+                    out.writeInt(playlists);
+                }
+            } catch (IOException | RuntimeException e) {
+                discard();
+                throw e;
+            }
+        }
+
+        @Override
+        public void writeUser(User user) throws IOException {
+            if (usersLeft == 0) {
+                throw new IllegalStateException("All the users were already written.");
+            }
+            encoder.writeUser(user);
+            userNames.add(user.getName());
+            if (--usersLeft == 0) {
+                out.writeInt(playlistsLeft);
+            }
+        }
+
+        @Override
+        public void writePlaylist(String key, Playlist playlist) throws IOException {
+            if (usersLeft > 0) {
+                throw new IllegalStateException("The users must be written before the playlists.");
+            }
+            if (playlistsLeft == 0) {
+                throw new IllegalStateException("All the playlists were already written.");
+            }
+            out.writeString(key);
+            encoder.writePlaylist(playlist);
+            playlistsLeft--;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!channel.isOpen()) {
+                return;
+            }
+            if (usersLeft > 0 || playlistsLeft > 0) {
+                discard();
+                throw new IOException("Incomplete snapshot: " + usersLeft + " users and " + playlistsLeft
+                        + " playlists were not written.");
+            }
+            try {
+                out.flush();
+                channel.force(true);
+                channel.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                discard();
+            }
+        }
+
+        private void discard() throws IOException {
+            channel.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // ------------------------------------------------------------------ writing
+
+    private static final class Encoder {
+        private final Out out;
+        private final Predicate<String> knownUser;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<String, Integer> songIds = new HashMap<>();
+        private final List<Song> catalog = new ArrayList<>();
+
+        /**
+         * @param knownUser Tells whether a playlist creator is one of the users written, so it is
+         *                  written as a reference by name
+         */
+        Encoder(Out out, Predicate<String> knownUser) {
+            this.out = out;
+            this.knownUser = knownUser;
+        }
+
+        void write(DataSnapshot data) throws IOException {
+            Collection<Album> albums = data.getAlbums().values();
+            Collection<User> users = data.getUsers().values();
+            Collection<Playlist> playlists = data.getPlaylists().values();
+
+            internCatalog(albums);
+            for (User user : users) {
+                for (History h : user.getHistoryView()) {
+                    internSong(h.getSongPointer());
+                }
+            }
+            for (Playlist playlist : playlists) {
+                for (Song song : playlist.getSongs()) {
+                    internSong(song);
+                }
+                internSong(playlist.getCurrentSong());
+            }
+
+            writeHeader();
+            writeAlbums(albums);
+            out.writeInt(users.size());
+            for (User user : users) {
+                writeUser(user);
+            }
+            out.writeInt(playlists.size());
+            for (Map.Entry<String, Playlist> entry : data.getPlaylists().entrySet()) {
+                out.writeString(entry.getKey());
+                writePlaylist(entry.getValue());
+            }
+        }
+
+        void internCatalog(Collection<Album> albums) {
+            int nextId = catalog.size();
+            for (Album album : albums) {
+                intern(album.getArtist());
+                intern(album.getGenre());
+                for (Song song : album.getSongs()) {
+                    songIds.putIfAbsent(songKey(song), nextId++);
+                    catalog.add(song);
+                    internSong(song);
+                }
+                internSong(album.getCurrentSong());
+            }
+        }
+
+        void writeHeader() throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            for (String s : strings.keySet()) {
+                out.writeString(s);
+            }
+        }
+
+        void writeAlbums(Collection<Album> albums) throws IOException {
+            out.writeInt(albums.size());
+            for (Album album : albums) {
+                writeAlbum(album);
+            }
+        }
+
+        private void intern(String s) {
+            if (s != null) {
+                strings.putIfAbsent(s, strings.size());
+            }
+        }
+
+        private void internSong(Song song) {
+            if (song != null) {
+                intern(song.getArtist());
+                intern(song.getPublisher());
+                intern(song.getMusicalNotes());
+                intern(song.getGenre());
+            }
+        }
+
+        private void writeRef(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(-1);
+                return;
+            }
+            Integer index = strings.get(s);
+            if (index == null) {
+                // only when streaming: every string must be in the albums written up front
+                throw new IllegalArgumentException("\"" + s + "\" is not used by any album of the snapshot.");
+            }
+            out.writeInt(index);
+        }
+
+        private void writeAlbum(Album album) throws IOException {
+            out.writeString(album.getTitle());
+            writeRef(album.getArtist());
+            out.writeInt(album.getReleaseYear());
+            writeRef(album.getGenre());
+            List<Song> songs = album.getSongs();
+            out.writeInt(songs.size());
+            for (Song song : songs) {
+                writeSong(song);
+            }
+            writeSongRef(album.getCurrentSong());
+        }
+
+        private void writeSong(Song song) throws IOException {
+            if (song instanceof MultimediaSong) {
+                out.writeByte(KIND_MULTIMEDIA);
+            } else if (song instanceof ExplicitSong) {
+                out.writeByte(KIND_EXPLICIT);
+            } else {
+                out.writeByte(KIND_SONG);
+            }
+            out.writeString(song.getName());
+            writeRef(song.getArtist());
+            writeRef(song.getPublisher());
+            out.writeString(song.getLyrics());
+            writeRef(song.getMusicalNotes());
+            writeRef(song.getGenre());
+            out.writeInt(song.getDurationInSeconds());
+            out.writeInt(song.getTimesPlayed());
+            out.writeInt(song.getId());
+            if (song instanceof MultimediaSong) {
+                out.writeString(((MultimediaSong) song).getVideoLink());
+            }
+        }
+
+        private void writeSongRef(Song song) throws IOException {
+            if (song == null) {
+                out.writeByte(SONG_NULL);
+                return;
+            }
+            Integer id = songIds.get(songKey(song));
+            Song known = id != null ? catalog.get(id) : null;
+            if (known != null && sameSong(song, known)) {
+                if (song.getTimesPlayed() == known.getTimesPlayed()) {
+                    out.writeByte(SONG_REF);
+                    out.writeInt(id);
+                } else {
+                    out.writeByte(SONG_REF_PLAYED);
+                    out.writeInt(id);
+                    out.writeInt(song.getTimesPlayed());
+                }
+            } else {
+                out.writeByte(SONG_INLINE);
+                writeSong(song);
+            }
+        }
+
+        /**
+         * Tells whether a song is read back as it is from a reference to the catalog song, but for
+         * its play count.
+         */
+        private static boolean sameSong(Song song, Song known) {
+            if (song == known) {
+                return true;
+            }
+            return song.getClass() == known.getClass() && song.getId() == known.getId()
+                    && Objects.equals(song.getName(), known.getName()) && Objects.equals(song.getArtist(), known.getArtist())
+                    && Objects.equals(song.getPublisher(), known.getPublisher()) && Objects.equals(song.getLyrics(), known.getLyrics())
+                    && Objects.equals(song.getMusicalNotes(), known.getMusicalNotes())
+                    && Objects.equals(song.getGenre(), known.getGenre())
+                    && song.getDurationInSeconds() == known.getDurationInSeconds()
+                    && (!(song instanceof MultimediaSong multimedia)
+                    || Objects.equals(multimedia.getVideoLink(), ((MultimediaSong) known).getVideoLink()));
+        }
+
+        private void writeUser(User user) throws IOException {
+            out.writeString(user.getName());
+            out.writeString(user.getEmail());
+            out.writeString(user.getAddress());
+            out.writeByte(planCode(user.getSubscriptionPlan()));
+            out.writeString(user.getPassword());
+            out.writeDouble(user.getPontos());
+            List<History> history = user.getHistoryView();
+            out.writeInt(history.size());
+            for (History h : history) {
+                writeSongRef(h.getSongPointer());
+                writeTime(h.getTime());
+            }
+        }
+
+        private void writeTime(LocalDateTime time) throws IOException {
+            if (time == null) {
+                out.writeLong(Long.MIN_VALUE);
+            } else {
+                out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(time.getNano());
+            }
+        }
+
+        private void writePlaylist(Playlist playlist) throws IOException {
+            User creator = playlist.getCreator();
+            if (creator == null) {
+                out.writeByte(CREATOR_NULL);
+            } else if (knownUser.test(creator.getName())) {
+                out.writeByte(CREATOR_REF);
+                out.writeString(creator.getName());
+            } else {
+                out.writeByte(CREATOR_INLINE);
+                writeUser(creator);
+            }
+            out.writeString(playlist.getPlaylistName());
+            out.writeString(playlist.getPlaylistDescription());
+            out.writeInt(playlist.getNumberOfFollowers());
+            out.writeString(playlist.getStatus());
+            List<Song> songs = playlist.getSongs();
+            out.writeInt(songs.size());
+            for (Song song : songs) {
+                writeSongRef(song);
+            }
+            writeSongRef(playlist.getCurrentSong());
+        }
+
+        private static byte planCode(SubscriptionPlan plan) {
+            if (plan instanceof PremiumTop) return 2;
+            if (plan instanceof PremiumBase) return 1;
+            if (plan instanceof FreePlan) return 0;
+            return -1;
+        }
+    }
+
+    // ------------------------------------------------------------------ reading
+
+    private static final class Decoder {
+        private final In in;
+        private final int version;
+        private String[] strings;
+        private final List<Song> catalog = new ArrayList<>();
+
+        Decoder(In in, int version) {
+            this.in = in;
+            this.version = version;
+        }
+
+        SpotifUMData read() throws IOException {
+            strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readString();
+            }
+
+            int albumCount = in.readInt();
+            Map<String, Album> albums = new HashMap<>(albumCount * 2);
+            for (int i = 0; i < albumCount; i++) {
+                Album album = readAlbum();
+                albums.put(album.getTitle(), album);
+            }
+
+            int userCount = in.readInt();
+            Map<String, User> users = new HashMap<>(userCount * 2);
+            for (int i = 0; i < userCount; i++) {
+                User user = readUser();
+                users.put(user.getName(), user);
+            }
+
+            int playlistCount = in.readInt();
+            Map<String, Playlist> playlists = new HashMap<>(playlistCount * 2);
+            for (int i = 0; i < playlistCount; i++) {
+                String key = in.readString();
+                playlists.put(key, readPlaylist(users));
+            }
+            return new SpotifUMData(albums, users, playlists);
+        }
+
+        private String ref() throws IOException {
+            int index = in.readInt();
+            return index < 0 ? null : strings[index];
+        }
+
+        private Album readAlbum() throws IOException {
+            String title = in.readString();
+            String artist = ref();
+            int releaseYear = in.readInt();
+            String genre = ref();
+            int songCount = in.readInt();
+            List<Song> songs = new ArrayList<>(songCount);
+            for (int i = 0; i < songCount; i++) {
+                songs.add(readSong());
+            }
+            Album album = new Album(title, artist, releaseYear, genre, songs);
+            // the album keeps copies, the ids must point at those
+            for (Song song : album.getSongs()) {
+                catalog.add(song);
+            }
+            Song current = readSongRef();
+            if (current != null) {
+                album.setCurrentSong(current);
+            }
+            return album;
+        }
+
+        private Song readSong() throws IOException {
+            byte kind = in.readByte();
+            String name = in.readString();
+            String artist = ref();
+            String publisher = ref();
+            String lyrics = in.readString();
+            String musicalNotes = ref();
+            String genre = ref();
+            int duration = in.readInt();
+            int timesPlayed = in.readInt();
+            int id = version >= 2 ? in.readInt() : 0;
+            Song song = switch (kind) {
+                case KIND_MULTIMEDIA -> new MultimediaSong(name, artist, publisher, lyrics, musicalNotes, genre, duration, in.readString());
+                case KIND_EXPLICIT -> new ExplicitSong(name, artist, publisher, lyrics, musicalNotes, genre, duration);
+                default -> new Song(name, artist, publisher, lyrics, musicalNotes, genre, duration);
+            };
+            song.setTimesPlayed(timesPlayed);
+            song.setId(id);
+            return song;
+        }
+
+        private Song readSongRef() throws IOException {
+            byte tag = in.readByte();
+            return switch (tag) {
+                case SONG_NULL -> null;
+                case SONG_REF -> catalog.get(in.readInt());
+                case SONG_REF_PLAYED -> {
+                    Song copy = catalog.get(in.readInt()).clone();
+                    copy.setTimesPlayed(in.readInt());
+                    yield copy;
+                }
+                case SONG_INLINE -> readSong();
+                default -> throw new IOException("Corrupted snapshot: unknown song tag " + tag + ".");
+            };
+        }
+
+        private User readUser() throws IOException {
+            String name = in.readString();
+            String email = in.readString();
+            String address = in.readString();
+            SubscriptionPlan plan = switch (in.readByte()) {
+                case 2 -> new PremiumTop();
+                case 1 -> new PremiumBase();
+                default -> new FreePlan();
+            };
+            String password = in.readString();
+            double pontos = in.readDouble();
+            User user = new User(name, email, address, plan, password, pontos, new ArrayList<>());
+            int historySize = in.readInt();
+            for (int i = 0; i < historySize; i++) {
+                Song song = readSongRef();
+                LocalDateTime time = readTime();
+                if (song != null) {
+                    // a copy, as when the song was played, not the catalog's song
+                    user.updateHistory(song, time);
+                } else {
+                    user.addHistoryRecord(new History(null, time));
+                }
+            }
+            return user;
+        }
+
+        private LocalDateTime readTime() throws IOException {
+            long seconds = in.readLong();
+            if (seconds == Long.MIN_VALUE) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+        }
+
+        private Playlist readPlaylist(Map<String, User> users) throws IOException {
+            User creator = switch (in.readByte()) {
+                case CREATOR_REF -> users.get(in.readString());
+                case CREATOR_INLINE -> readUser();
+                default -> null;
+            };
+            String name = in.readString();
+            String description = in.readString();
+            int followers = in.readInt();
+            String status = in.readString();
+            int songCount = in.readInt();
+            List<Song> songs = new ArrayList<>(songCount);
+            for (int i = 0; i < songCount; i++) {
+                songs.add(readSongRef());
+            }
+            Playlist playlist = new Playlist(creator, name, description, followers, status, songs);
+            Song current = readSongRef();
+            if (current != null) {
+                playlist.setCurrentSong(current.clone());
+            }
+            return playlist;
+        }
+    }
+
+    // ------------------------------------------------------------------ buffered channel I/O
+
+    private static final class Out {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Out(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void writeByte(byte b) throws IOException {
+            ensure(1);
+            buffer.put(b);
+        }
+
+        void writeInt(int i) throws IOException {
+            ensure(4);
+            buffer.putInt(i);
+        }
+
+        void writeLong(long l) throws IOException {
+            ensure(8);
+            buffer.putLong(l);
+        }
+
+        void writeDouble(double d) throws IOException {
+            ensure(8);
+            buffer.putDouble(d);
+        }
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+    }
+
+    private static final class In {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        In(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Truncated snapshot.");
+                }
+            }
+            buffer.flip();
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            return buffer.getLong();
+        }
+
+        double readDouble() throws IOException {
+            require(8);
+            return buffer.getDouble();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                if (!buffer.hasRemaining()) {
+                    require(1);
+                }
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
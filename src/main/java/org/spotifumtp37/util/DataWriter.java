@@ -0,0 +1,32 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes saved data one user and one playlist at a time, so data too large to be held in memory
+ * can still be written (see {@link JsonDataParser#openWriter} and {@link BinarySnapshotCodec#openWriter}).
+ * The albums are given when the writer is opened; then every user is written, then every playlist,
+ * and the file is complete once the writer is closed.
+ */
+public interface DataWriter extends Closeable {
+    /**
+     * Writes a user and its history.
+     *
+     * @param user The user
+     * @throws IOException If the user cannot be written
+     */
+    void writeUser(User user) throws IOException;
+
+    /**
+     * Writes a playlist. Its creator is linked to the written user of the same name when the data is loaded.
+     *
+     * @param key      The key of the playlist in the data (its name)
+     * @param playlist The playlist
+     * @throws IOException If the playlist cannot be written
+     */
+    void writePlaylist(String key, Playlist playlist) throws IOException;
+}
@@ -0,0 +1,394 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.ExplicitSong;
+import org.spotifumtp37.model.album.MultimediaSong;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.subscription.PremiumTop;
+import org.spotifumtp37.model.subscription.SubscriptionPlan;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Generates synthetic data of any size, to test how the application scales.
+ * <p>
+ * The same seed and sizes always give the same data. The songs are spread over the albums, several
+ * albums per artist, and each play picks a song from a Zipf distribution (a few hits get most of the
+ * plays) over the songs in a shuffled order. Each user gets a plan (by default 60% {@link FreePlan},
+ * 25% {@link PremiumBase} and 15% {@link PremiumTop}), a share of the plays that varies from user to
+ * user, and a chronological history over a year, with the points its plan would have given.
+ * The playlists are made by the premium users. The songs' play counts match the histories.
+ * </p>
+ * Only the albums are kept in memory: {@link #writeJson} and {@link #writeSnapshot} generate and write
+ * one user and one playlist at a time (each play is generated twice, once to count the songs' plays
+ * that are written with the albums), so datasets of tens of millions of plays can be written.
+ * {@link #generate()} builds the whole data in memory, for small datasets.
+ */
+public class DatasetGenerator {
+    private static final String[] GENRES = {"Rock", "Pop", "Hip Hop", "Jazz", "Classical", "Electronic",
+            "Progressive Rock", "Metal", "Reggae", "Blues", "Country", "Folk"};
+    private static final String[] MUSICAL_NOTES = {"C G Am F", "Am F C G", "D A Bm G", "E B C#m A", "G D Em C"};
+    private static final int ALBUMS_PER_ARTIST = 3;
+    // the plays fall in the year from START
+    static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    static final long SPAN_SECONDS = 365L * 24 * 60 * 60;
+    private static final int MIN_PLAYLIST_SONGS = 10;
+    private static final int MAX_PLAYLIST_SONGS = 50;
+
+    // separate random streams, so each user and playlist can be generated on its own
+    private static final long CATALOG_STREAM = 1;
+    private static final long USER_STREAM = 2;
+    private static final long PLAYS_STREAM = 3;
+    private static final long SHARE_STREAM = 4;
+    private static final long PLAYLIST_STREAM = 5;
+
+    private final long seed;
+    private final int albums;
+    private final int songs;
+    private final int users;
+    private final int playlists;
+    private final long plays;
+    private double zipfExponent = 1.0;
+    private double premiumBaseShare = 0.25;
+    private double premiumTopShare = 0.15;
+
+    /**
+     * @param seed      The seed; the same seed and sizes give the same data
+     * @param albums    The number of albums, at least 1
+     * @param songs     The number of songs, at least one per album
+     * @param users     The number of users
+     * @param playlists The number of playlists (none without users)
+     * @param plays     The number of plays in all the histories (none without users)
+     */
+    public DatasetGenerator(long seed, int albums, int songs, int users, int playlists, long plays) {
+        if (albums < 1 || songs < albums) {
+            throw new IllegalArgumentException("There must be at least one album and one song per album.");
+        }
+        if (users < 0 || playlists < 0 || plays < 0 || (users == 0 && (playlists > 0 || plays > 0))) {
+            throw new IllegalArgumentException("The playlists and plays need users.");
+        }
+        if (users > 0 && plays / users > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Too many plays per user.");
+        }
+        this.seed = seed;
+        this.albums = albums;
+        this.songs = songs;
+        this.users = users;
+        this.playlists = playlists;
+        this.plays = plays;
+    }
+
+    /**
+     * @param zipfExponent How strongly the plays go to the most popular songs: 0 is uniform, and the
+     *                     default of 1 gives the most played song about twice the plays of the second
+     */
+    public void setZipfExponent(double zipfExponent) {
+        if (!(zipfExponent >= 0)) {
+            throw new IllegalArgumentException("The exponent cannot be negative.");
+        }
+        this.zipfExponent = zipfExponent;
+    }
+
+    /**
+     * @param premiumBase The fraction of users on {@link PremiumBase}
+     * @param premiumTop  The fraction of users on {@link PremiumTop}; the others are on {@link FreePlan}
+     */
+    public void setPlanShares(double premiumBase, double premiumTop) {
+        if (!(premiumBase >= 0 && premiumTop >= 0 && premiumBase + premiumTop <= 1)) {
+            throw new IllegalArgumentException("The shares must be fractions adding up to at most 1.");
+        }
+        this.premiumBaseShare = premiumBase;
+        this.premiumTopShare = premiumTop;
+    }
+
+    /**
+     * Builds the whole data in memory.
+     *
+     * @return The data
+     */
+    public SpotifUMData generate() {
+        Generation generation = new Generation();
+        Map<String, Album> albumMap = new HashMap<>();
+        for (Album album : generation.albumList) {
+            albumMap.put(album.getTitle(), album);
+        }
+        Map<String, User> userMap = new HashMap<>();
+        for (int u = 0; u < users; u++) {
+            User user = generation.user(u);
+            userMap.put(user.getName(), user);
+        }
+        Map<String, Playlist> playlistMap = new HashMap<>();
+        for (int p = 0; p < playlists; p++) {
+            Playlist playlist = generation.playlist(p, userMap::get);
+            playlistMap.put(playlist.getPlaylistName(), playlist);
+        }
+        SpotifUMData data = new SpotifUMData(albumMap, userMap, playlistMap);
+        data.linkReferences();
+        return data;
+    }
+
+    /**
+     * Writes the data as a single JSON file, as {@link JsonDataParser#toJsonData} would.
+     *
+     * @param file The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writeJson(Path file) throws IOException {
+        Generation generation = new Generation();
+        try (DataWriter writer = new JsonDataParser().openWriter(file.toString(), generation.albumList)) {
+            generation.writeTo(writer);
+        }
+    }
+
+    /**
+     * Writes the data as a binary snapshot, as {@link BinarySnapshotCodec#save} would.
+     *
+     * @param file The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        Generation generation = new Generation();
+        try (DataWriter writer = new BinarySnapshotCodec().openWriter(file, generation.albumList, users, playlists)) {
+            generation.writeTo(writer);
+        }
+    }
+
+    /**
+     * Writes a dataset from the command line, e.g.
+     * {@code --plays 10000000 --users 100000 --snapshot data/large.snap --json data/large.json}.
+     * The other options are --seed, --albums, --songs, --playlists and --zipf.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i] + ".");
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        DatasetGenerator generator = new DatasetGenerator(
+                Long.parseLong(options.getOrDefault("seed", "37")),
+                Integer.parseInt(options.getOrDefault("albums", "10000")),
+                Integer.parseInt(options.getOrDefault("songs", "100000")),
+                Integer.parseInt(options.getOrDefault("users", "100000")),
+                Integer.parseInt(options.getOrDefault("playlists", "10000")),
+                Long.parseLong(options.getOrDefault("plays", "10000000")));
+        generator.setZipfExponent(Double.parseDouble(options.getOrDefault("zipf", "1.0")));
+        if (!options.containsKey("json") && !options.containsKey("snapshot")) {
+            throw new IllegalArgumentException("Give a --json and/or --snapshot file to write.");
+        }
+        if (options.containsKey("snapshot")) {
+            long start = System.nanoTime();
+            generator.writeSnapshot(Path.of(options.get("snapshot")));
+            System.out.printf("Wrote %s in %.1f s%n", options.get("snapshot"), (System.nanoTime() - start) / 1e9);
+        }
+        if (options.containsKey("json")) {
+            long start = System.nanoTime();
+            generator.writeJson(Path.of(options.get("json")));
+            System.out.printf("Wrote %s in %.1f s%n", options.get("json"), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private SplittableRandom random(long stream, long index) {
+        // the MurmurHash3 finalizer, so nearby indexes give unrelated seeds
+        long x = seed ^ (stream << 56) ^ (index * 0x9E3779B97F4A7C15L);
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return new SplittableRandom(x);
+    }
+
+    private SubscriptionPlan plan(SplittableRandom random) {
+        double x = random.nextDouble();
+        if (x < premiumTopShare) {
+            return new PremiumTop();
+        }
+        return x < premiumTopShare + premiumBaseShare ? new PremiumBase() : new FreePlan();
+    }
+
+    /**
+     * The plays of a user: an even share of all plays, of which a random part is moved to or from the
+     * other user of its pair, so the shares vary but still add up to the total.
+     */
+    private int playsOf(int user) {
+        long share = plays / users + (user < plays % users ? 1 : 0);
+        int partner = user ^ 1;
+        if (partner >= users) {
+            return (int) share;
+        }
+        long partnerShare = plays / users + (partner < plays % users ? 1 : 0);
+        long moved = random(SHARE_STREAM, user >> 1).nextLong(Math.min(share, partnerShare) + 1);
+        return (int) ((user & 1) == 0 ? share - moved : share + moved);
+    }
+
+    private interface PlayConsumer {
+        void play(int song, long second);
+    }
+
+    /**
+     * The catalog and the popularity of its songs, shared by the users and playlists of one generation.
+     */
+    private final class Generation {
+        private final List<Album> albumList = new ArrayList<>();
+        private final Song[] catalog = new Song[songs];
+        private final double[] popularity = new double[songs];
+        private final int[] byPopularity = new int[songs];
+        private final int[] premiumUsers;
+
+        Generation() {
+            SplittableRandom random = random(CATALOG_STREAM, 0);
+            double sum = 0;
+            for (int rank = 0; rank < songs; rank++) {
+                sum += 1 / Math.pow(rank + 1, zipfExponent);
+                popularity[rank] = sum;
+            }
+            for (int rank = 0; rank < songs; rank++) {
+                popularity[rank] /= sum;
+                byPopularity[rank] = rank;
+            }
+            for (int i = songs - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = byPopularity[i];
+                byPopularity[i] = byPopularity[j];
+                byPopularity[j] = swap;
+            }
+
+            int[] timesPlayed = new int[songs];
+            for (int u = 0; u < users; u++) {
+                plays(u, (song, second) -> timesPlayed[song]++);
+            }
+            for (int a = 0; a < albums; a++) {
+                buildAlbum(a, random, timesPlayed);
+            }
+
+            int[] premium = new int[users];
+            int count = 0;
+            for (int u = 0; u < users; u++) {
+                if (plan(random(USER_STREAM, u)).canCreatePlaylist()) {
+                    premium[count++] = u;
+                }
+            }
+            this.premiumUsers = Arrays.copyOf(premium, count);
+        }
+
+        private void buildAlbum(int a, SplittableRandom random, int[] timesPlayed) {
+            int artistIndex = a / ALBUMS_PER_ARTIST;
+            String artist = "Artist " + artistIndex;
+            String genre = GENRES[artistIndex % GENRES.length];
+            int first = (int) ((long) a * songs / albums);
+            int end = (int) ((long) (a + 1) * songs / albums);
+            List<Song> albumSongs = new ArrayList<>(end - first);
+            for (int s = first; s < end; s++) {
+                String name = "Song " + s;
+                String notes = MUSICAL_NOTES[random.nextInt(MUSICAL_NOTES.length)];
+                int duration = 120 + random.nextInt(300);
+                double kind = random.nextDouble();
+                Song song;
+                if (kind < 0.05) {
+                    song = new MultimediaSong(name, artist, artist + " Records", "Lyrics for " + name + "...", notes, genre,
+                            duration, "https://www.youtube.com/watch?v=" + Integer.toHexString(s));
+                } else if (kind < 0.15) {
+                    song = new ExplicitSong(name, artist, artist + " Records", "Lyrics for " + name + "...", notes, genre, duration);
+                } else {
+                    song = new Song(name, artist, artist + " Records", "Lyrics for " + name + "...", notes, genre, duration);
+                }
+                song.setTimesPlayed(timesPlayed[s]);
+                // fixed ids, so the songs get the same ones whichever way the data is loaded
+                song.setId(s + 1);
+                albumSongs.add(song);
+            }
+            Album album = new Album("Album " + a, artist, 1960 + random.nextInt(65), genre, albumSongs);
+            // the album keeps copies: the histories and playlists must use those
+            List<Song> kept = album.getSongs();
+            for (int s = first; s < end; s++) {
+                catalog[s] = kept.get(s - first);
+            }
+            album.setCurrentSong(kept.get(0).clone());
+            albumList.add(album);
+        }
+
+        private int pickSong(SplittableRandom random) {
+            int rank = Arrays.binarySearch(popularity, random.nextDouble());
+            rank = rank >= 0 ? rank : Math.min(-rank - 1, songs - 1);
+            return byPopularity[rank];
+        }
+
+        /**
+         * Generates the plays of a user in order, each a song index and a second since {@link #START}.
+         */
+        private void plays(int u, PlayConsumer consumer) {
+            SplittableRandom random = random(PLAYS_STREAM, u);
+            int count = playsOf(u);
+            long meanGap = Math.max(1, SPAN_SECONDS / (count + 1));
+            long second = 0;
+            for (int i = 0; i < count; i++) {
+                second += 1 + random.nextLong(2 * meanGap);
+                consumer.play(pickSong(random), second);
+            }
+        }
+
+        User user(int u) {
+            SplittableRandom random = random(USER_STREAM, u);
+            SubscriptionPlan plan = plan(random);
+            // points from the plays on the free plan before the current plan
+            double[] points = {5 * random.nextInt(200)};
+            User user = new User("user" + u, "user" + u + "@example.com", u + " Main Street", plan,
+                    "pass" + u, 0, new ArrayList<>());
+            plays(u, (song, second) -> {
+                user.updateHistory(catalog[song], START.plusSeconds(second));
+                // the compounding bonus of PremiumTop would overflow after tens of thousands of plays
+                points[0] = Math.min(plan.addPoints(points[0]), Double.MAX_VALUE);
+            });
+            user.setPontos(points[0]);
+            return user;
+        }
+
+        /**
+         * @param creators Finds the user to set as the creator, by name
+         */
+        Playlist playlist(int p, Function<String, User> creators) {
+            SplittableRandom random = random(PLAYLIST_STREAM, p);
+            int[] candidates = premiumUsers.length > 0 ? premiumUsers : null;
+            int creator = candidates != null ? candidates[random.nextInt(candidates.length)] : random.nextInt(users);
+            int size = MIN_PLAYLIST_SONGS + random.nextInt(MAX_PLAYLIST_SONGS - MIN_PLAYLIST_SONGS + 1);
+            List<Song> playlistSongs = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                playlistSongs.add(catalog[pickSong(random)]);
+            }
+            String name = "Playlist " + p;
+            // a few playlists have most of the followers
+            int followers = (int) Math.min(1_000_000, 1 / (1 - random.nextDouble()) - 1);
+            String status = random.nextDouble() < 0.8 ? "public" : "private";
+            Playlist playlist = new Playlist(creators.apply("user" + creator), name, "Generated playlist " + p,
+                    followers, status, playlistSongs);
+            playlist.setCurrentSong(playlist.getSongs().get(0).clone());
+            return playlist;
+        }
+
+        void writeTo(DataWriter writer) throws IOException {
+            for (int u = 0; u < users; u++) {
+                writer.writeUser(user(u));
+            }
+            for (int p = 0; p < playlists; p++) {
+                // the creator is linked to the written user by name when loaded, so its history is left out
+                Playlist playlist = playlist(p, name -> {
+                    int u = Integer.parseInt(name.substring("user".length()));
+                    return new User(name, name + "@example.com", u + " Main Street",
+                            plan(random(USER_STREAM, u)), "pass" + u, 0, new ArrayList<>());
+                });
+                writer.writePlaylist(playlist.getPlaylistName(), playlist);
+            }
+        }
+    }
+}
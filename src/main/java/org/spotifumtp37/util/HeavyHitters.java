@@ -0,0 +1,191 @@
+package org.spotifumtp37.util;
+
+import java.util.*;
+
+/**
+ * Counts how often keys are seen in a stream, keeping only the most frequent ones in bounded memory
+ * (the Space-Saving algorithm).
+ * <p>
+ * At most {@code capacity} keys are tracked. When a new key arrives and every slot is taken, the key
+ * with the lowest count is dropped and the new key takes over its count, remembering it as its
+ * possible error. So a tracked key's count is never below its real count and at most
+ * {@link #getError(Object)} above it, and any key seen more than {@code total / capacity} times is
+ * always tracked. With an error of epsilon the capacity is {@code ceil(1 / epsilon)}.
+ * </p>
+ * In exact mode ({@link #exact()}) every key is tracked and the counts are exact, which the tests use
+ * to check the approximate mode. Each update is O(log capacity).
+ *
+ * @param <K> The type of the keys counted
+ */
+public class HeavyHitters<K> {
+    private final int capacity;
+    private final Map<K, Counter<K>> counters = new HashMap<>();
+    private final TreeSet<Counter<K>> order = new TreeSet<>(
+            Comparator.<Counter<K>>comparingLong(counter -> counter.count)
+                    .thenComparing(Comparator.<Counter<K>>comparingLong(counter -> counter.sequence).reversed()));
+    private long total;
+    private long nextSequence;
+
+    private HeavyHitters(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a counter tracking at most the given number of keys.
+     *
+     * @param capacity The number of keys tracked
+     * @param <K>      The type of the keys
+     * @return The counter
+     */
+    public static <K> HeavyHitters<K> withCapacity(int capacity) {
+        return new HeavyHitters<>(capacity);
+    }
+
+    /**
+     * Creates a counter whose counts are over by at most {@code epsilon} times the number of keys seen.
+     *
+     * @param epsilon The error, between 0 (exclusive) and 1
+     * @param <K>     The type of the keys
+     * @return The counter
+     */
+    public static <K> HeavyHitters<K> withError(double epsilon) {
+        if (!(epsilon > 0 && epsilon <= 1)) {
+            throw new IllegalArgumentException("The error must be between 0 and 1.");
+        }
+        return new HeavyHitters<>((int) Math.min(Integer.MAX_VALUE, Math.ceil(1 / epsilon)));
+    }
+
+    /**
+     * Creates a counter that tracks every key, with exact counts.
+     *
+     * @param <K> The type of the keys
+     * @return The counter
+     */
+    public static <K> HeavyHitters<K> exact() {
+        return new HeavyHitters<>(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Counts one occurrence of a key.
+     *
+     * @param key The key; null is ignored
+     */
+    public void add(K key) {
+        add(key, 1);
+    }
+
+    /**
+     * Counts several occurrences of a key.
+     *
+     * @param key   The key; null is ignored
+     * @param count The number of occurrences, not negative
+     */
+    public void add(K key, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Cannot remove occurrences from the counts.");
+        }
+        if (key == null || count == 0) {
+            return;
+        }
+        total += count;
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            order.remove(counter);
+        } else if (counters.size() < capacity) {
+            counter = new Counter<>(key, nextSequence++);
+            counters.put(key, counter);
+        } else {
+            // takes over the slot of the least counted key, and its count as the possible error
+            counter = order.pollFirst();
+            counters.remove(counter.key);
+            counter = new Counter<>(key, nextSequence++, counter.count);
+            counters.put(key, counter);
+        }
+        counter.count += count;
+        order.add(counter);
+    }
+
+    /**
+     * @param key The key
+     * @return The counted occurrences of the key (never below the real number), or 0 if it is not tracked
+     */
+    public long getCount(K key) {
+        Counter<K> counter = counters.get(key);
+        return counter != null ? counter.count : 0;
+    }
+
+    /**
+     * @param key The key
+     * @return How much the count of the key may be over the real number
+     */
+    public long getError(K key) {
+        Counter<K> counter = counters.get(key);
+        return counter != null ? counter.error : 0;
+    }
+
+    /**
+     * @return The most any count may be over its real number: the total seen divided by the capacity
+     */
+    public long getErrorBound() {
+        return isExact() ? 0 : total / capacity;
+    }
+
+    /**
+     * @return The number of occurrences counted, of all keys
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return True if every key is tracked and the counts are exact
+     */
+    public boolean isExact() {
+        return capacity == Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the most counted keys, most counted first (the first counted on a tie).
+     *
+     * @param k The number of keys wanted
+     * @return Up to k keys
+     */
+    public List<K> top(int k) {
+        List<K> top = new ArrayList<>(Math.min(k, order.size()));
+        Iterator<Counter<K>> iterator = order.descendingIterator();
+        while (top.size() < k && iterator.hasNext()) {
+            top.add(iterator.next().key);
+        }
+        return top;
+    }
+
+    /**
+     * Forgets every key and count.
+     */
+    public void clear() {
+        counters.clear();
+        order.clear();
+        total = 0;
+    }
+
+    private static final class Counter<K> {
+        private final K key;
+        private final long sequence;
+        private final long error;
+        private long count;
+
+        Counter(K key, long sequence) {
+            this(key, sequence, 0);
+        }
+
+        Counter(K key, long sequence, long error) {
+            this.key = key;
+            this.sequence = sequence;
+            this.error = error;
+            this.count = error;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.spotifumtp37.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Estimates how many different values were added, in a fixed amount of memory (HyperLogLog).
+ * <p>
+ * Each value is hashed to 64 bits: the first {@code precision} bits pick one of
+ * {@code 2^precision} registers, which keeps the longest run of leading zeros seen in the rest.
+ * The estimate has a relative error of about {@code 1.04 / sqrt(2^precision)} (3.25% with 1 KB at
+ * precision 10), and small counts are estimated by linear counting, which is close to exact.
+ * Adding a value again changes nothing, and two sketches of the same precision merge into the
+ * sketch of both sets of values, so sketches kept apart (per shard) can be combined.
+ * </p>
+ * A sketch starts sparse, keeping only the registers that are set (4 bytes each), and turns into the
+ * full array of registers once that would take half its size, so the many sketches of small sets
+ * (e.g. the listeners of each song) take a few bytes each instead of {@code 2^precision}.
+ */
+public class HyperLogLog implements Serializable {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    // the registers, or null while the sketch is sparse
+    private byte[] registers;
+    // while sparse, the registers that are set as (index << 8 | value), sorted by index
+    private int[] sparse;
+    private int sparseSize;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param precision The number of bits used to pick a register, between 4 and 16
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ".");
+        }
+        this.precision = precision;
+        this.sparse = new int[4];
+    }
+
+    /**
+     * Copy constructor.
+     *
+     * @param other The sketch to copy
+     */
+    public HyperLogLog(HyperLogLog other) {
+        this.precision = other.precision;
+        this.registers = other.registers != null ? other.registers.clone() : null;
+        this.sparse = other.sparse != null ? other.sparse.clone() : null;
+        this.sparseSize = other.sparseSize;
+    }
+
+    /**
+     * Rebuilds a sketch from its registers, as returned by {@link #getRegisters()}.
+     *
+     * @param registers The registers; their number must be a power of two between 2^4 and 2^16
+     * @return The sketch
+     */
+    public static HyperLogLog fromRegisters(byte[] registers) {
+        int precision = Integer.numberOfTrailingZeros(registers.length);
+        if (Integer.bitCount(registers.length) != 1) {
+            throw new IllegalArgumentException("The number of registers must be a power of two.");
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] != 0) {
+                sketch.update(i, registers[i]);
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value The value; null is ignored
+     */
+    public void add(String value) {
+        if (value != null) {
+            addHash(hash(value));
+        }
+    }
+
+    /**
+     * Adds a value by its 64-bit hash, which must be well mixed.
+     *
+     * @param hash The hash of the value
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // a set bit below the used ones caps the rank at 64 - precision + 1
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        update(index, rank);
+    }
+
+    // raises a register to the given value if it is lower
+    private void update(int index, int value) {
+        if (registers != null) {
+            if (value > registers[index]) {
+                registers[index] = (byte) value;
+            }
+            return;
+        }
+        int position = sparseIndex(index);
+        if (position >= 0) {
+            if (value > (sparse[position] & 0xff)) {
+                sparse[position] = index << 8 | value;
+            }
+            return;
+        }
+        if (sparseSize + 1 > (1 << precision) / 8) {
+            toDense();
+            update(index, value);
+            return;
+        }
+        position = -position - 1;
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparseSize * 2);
+        }
+        System.arraycopy(sparse, position, sparse, position + 1, sparseSize - position);
+        sparse[position] = index << 8 | value;
+        sparseSize++;
+    }
+
+    // the position of a register in the sparse list, or (-insertion point - 1) if it is not set
+    private int sparseIndex(int index) {
+        int low = 0;
+        int high = sparseSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = sparse[middle] >>> 8;
+            if (found < index) {
+                low = middle + 1;
+            } else if (found > index) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private void toDense() {
+        registers = dense();
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    // the full array of registers, shared while dense
+    private byte[] dense() {
+        if (registers != null) {
+            return registers;
+        }
+        byte[] dense = new byte[1 << precision];
+        for (int i = 0; i < sparseSize; i++) {
+            dense[sparse[i] >>> 8] = (byte) sparse[i];
+        }
+        return dense;
+    }
+
+    /**
+     * @return The estimated number of different values added
+     */
+    public long estimate() {
+        int m = 1 << precision;
+        double sum = 0;
+        int zeros = 0;
+        if (registers != null) {
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        } else {
+            zeros = m - sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += 1.0 / (1L << (sparse[i] & 0xff));
+            }
+        }
+        double estimate = alpha(m) * m * (double) m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Adds all the values of another sketch to this one.
+     *
+     * @param other A sketch of the same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of different precisions.");
+        }
+        if (other.registers == null) {
+            for (int i = 0; i < other.sparseSize; i++) {
+                update(other.sparse[i] >>> 8, other.sparse[i] & 0xff);
+            }
+            return;
+        }
+        if (registers == null) {
+            toDense();
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return The number of bits used to pick a register
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return The standard relative error of the estimate
+     */
+    public double getRelativeError() {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    /**
+     * @return {@code true} while only the registers that are set are kept
+     */
+    public boolean isSparse() {
+        return registers == null;
+    }
+
+    /**
+     * @return A copy of the registers, to save the sketch
+     */
+    public byte[] getRegisters() {
+        return registers != null ? registers.clone() : dense();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        HyperLogLog other = (HyperLogLog) obj;
+        if (registers == null && other.registers == null) {
+            return precision == other.precision && Arrays.equals(sparse, 0, sparseSize, other.sparse, 0, other.sparseSize);
+        }
+        return Arrays.equals(dense(), other.dense());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(dense());
+    }
+
+    @Override
+    public HyperLogLog clone() {
+        return new HyperLogLog(this);
+    }
+
+    /**
+     * 64-bit hash of a string: FNV-1a over its characters, mixed with the MurmurHash3 finalizer
+     * so every output bit depends on every input bit.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
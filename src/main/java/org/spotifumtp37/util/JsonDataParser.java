@@ -3,6 +3,8 @@ package org.spotifumtp37.util;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import org.spotifumtp37.model.DataSnapshot;
 import org.spotifumtp37.model.SpotifUMData;
 import org.spotifumtp37.model.album.Album;
 import org.spotifumtp37.model.playlist.Playlist;
@@ -11,8 +13,16 @@ import org.spotifumtp37.model.user.User;
 
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class JsonDataParser {
     private static final String DATA_DIR = "data/";
@@ -20,18 +30,57 @@ public class JsonDataParser {
     private static final String ALBUMS_FILE = "albums.json";
     private static final String PLAYLISTS_FILE = "playlists.json";
 
+    private static final Type USER_MAP_TYPE = new TypeToken<Map<String, User>>() {
+    }.getType();
+    private static final Type ALBUM_MAP_TYPE = new TypeToken<Map<String, Album>>() {
+    }.getType();
+    private static final Type PLAYLIST_MAP_TYPE = new TypeToken<Map<String, Playlist>>() {
+    }.getType();
+
     private final Gson gson;
+    private final boolean parallel;
 
     public JsonDataParser() {
-        this.gson = new GsonBuilder()
-                .registerTypeAdapter(SubscriptionPlan.class, new SubscriptionPlanAdapter())
-                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .registerTypeAdapter(org.spotifumtp37.model.album.Song.class, new SongTypeAdapter())//for explicit and multimedia songs
+        this(false);
+    }
+
+    /**
+     * @param parallel When true, the users, albums and playlists files of a directory are read
+     *                 and written at the same time on separate threads. Saving streams straight
+     *                 from the live model instead of a deep copy, and loading links the playlist
+     *                 creators back to the loaded users at the end.
+     */
+    public JsonDataParser(boolean parallel) {
+        this.parallel = parallel;
+        this.gson = gsonBuilder()
                 .setPrettyPrinting()
                 .create();
         new File(DATA_DIR).mkdirs();
     }
 
+    /**
+     * Gets a builder with the adapters of the saved data registered, for code that writes or
+     * reads the model as JSON elsewhere (e.g. the HTTP API).
+     * All adapters are streaming TypeAdapters, so albums, songs, users, histories and playlists
+     * are read and written token by token without building intermediate JsonElement trees.
+     *
+     * @return A new builder
+     */
+    public static GsonBuilder gsonBuilder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(SubscriptionPlan.class, new SubscriptionPlanAdapter())
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .registerTypeAdapter(org.spotifumtp37.model.album.Song.class, new SongTypeAdapter());//for explicit and multimedia songs
+    }
+
+    private static Reader openReader(File file) throws IOException {
+        return Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static Writer openWriter(File file) throws IOException {
+        return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+
     /**
      * Deserializes all the state from JSON
      * Supports both single file and multiple file formats.
@@ -39,11 +88,13 @@ public class JsonDataParser {
     public SpotifUMData fromJsonData(String filePath) throws IOException {
         File file = new File(filePath);
         if (file.isDirectory()) {
-            return loadFromMultipleFiles(filePath);
+            return parallel ? loadFromMultipleFilesParallel(filePath) : loadFromMultipleFiles(filePath);
         } else {
             // Original single file behavior
-            try (FileReader reader = new FileReader(filePath)) {
-                return gson.fromJson(reader, SpotifUMData.class);
+            try (Reader reader = openReader(file)) {
+                SpotifUMData data = gson.fromJson(reader, SpotifUMData.class);
+                data.linkReferences();
+                return data;
             }
         }
     }
@@ -55,11 +106,92 @@ public class JsonDataParser {
     public void toJsonData(SpotifUMData data, String filePath) throws IOException {
         File file = new File(filePath);
         if (file.isDirectory()) {
-            saveToMultipleFiles(data, filePath);
+            if (parallel) {
+                saveToMultipleFilesParallel(data, filePath);
+            } else {
+                saveToMultipleFiles(data, filePath);
+            }
         } else {
-            // Original single file behavior
-            try (FileWriter writer = new FileWriter(filePath)) {
-                gson.toJson(data, writer);
+            // through the snapshot, which also loads the albums of an attached catalog not looked up yet
+            DataSnapshot snapshot = data.snapshot();
+            try (DataWriter writer = openWriter(filePath, snapshot.getAlbums().values())) {
+                for (User user : snapshot.getUsers().values()) {
+                    writer.writeUser(user);
+                }
+                for (Map.Entry<String, Playlist> entry : snapshot.getPlaylists().entrySet()) {
+                    writer.writePlaylist(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts writing a single-file JSON one user and playlist at a time, for data too large to be
+     * held in memory at once. The albums are written now; the users and then the playlists follow.
+     * The file reads back with {@link #fromJsonData(String)} like one written by {@link #toJsonData}.
+     *
+     * @param filePath The file to write
+     * @param albums   The albums of the data
+     * @return The writer, which must be closed
+     * @throws IOException If the file cannot be written
+     */
+    public DataWriter openWriter(String filePath, Collection<Album> albums) throws IOException {
+        return new StreamWriter(new File(filePath), albums);
+    }
+
+    private final class StreamWriter implements DataWriter {
+        private final JsonWriter out;
+        private boolean writingPlaylists;
+
+        StreamWriter(File file, Collection<Album> albums) throws IOException {
+            this.out = gson.newJsonWriter(openWriter(file));
+            try {
+                out.beginObject();
+                out.name("albums").beginObject();
+                for (Album album : albums) {
+                    out.name(album.getTitle());
+                    gson.toJson(album, Album.class, out);
+                }
+                out.endObject();
+                out.name("users").beginObject();
+            } catch (IOException | RuntimeException e) {
+                out.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void writeUser(User user) throws IOException {
+            if (writingPlaylists) {
+                throw new IllegalStateException("The users must be written before the playlists.");
+            }
+            out.name(user.getName());
+            gson.toJson(user, User.class, out);
+        }
+
+        @Override
+        public void writePlaylist(String key, Playlist playlist) throws IOException {
+            startPlaylists();
+            out.name(key);
+            gson.toJson(playlist, Playlist.class, out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                startPlaylists();
+                out.endObject();
+                out.endObject();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void startPlaylists() throws IOException {
+            if (!writingPlaylists) {
+                out.endObject();
+                out.name("playlists").beginObject();
+                writingPlaylists = true;
             }
         }
     }
@@ -70,10 +202,8 @@ public class JsonDataParser {
         // Load users
         File usersFile = new File(directoryPath, USERS_FILE);
         if (usersFile.exists()) {
-            Type userMapType = new TypeToken<Map<String, User>>() {
-            }.getType();
-            try (FileReader reader = new FileReader(usersFile)) {
-                Map<String, User> users = gson.fromJson(reader, userMapType);
+            try (Reader reader = openReader(usersFile)) {
+                Map<String, User> users = gson.fromJson(reader, USER_MAP_TYPE);
                 data.setMapUsers(users);
             }
         }
@@ -81,10 +211,8 @@ public class JsonDataParser {
         // Load albums
         File albumsFile = new File(directoryPath, ALBUMS_FILE);
         if (albumsFile.exists()) {
-            Type albumMapType = new TypeToken<Map<String, Album>>() {
-            }.getType();
-            try (FileReader reader = new FileReader(albumsFile)) {
-                Map<String, Album> albums = gson.fromJson(reader, albumMapType);
+            try (Reader reader = openReader(albumsFile)) {
+                Map<String, Album> albums = gson.fromJson(reader, ALBUM_MAP_TYPE);
                 data.setMapAlbums(albums);
             }
         }
@@ -92,14 +220,13 @@ public class JsonDataParser {
         // Load playlists
         File playlistsFile = new File(directoryPath, PLAYLISTS_FILE);
         if (playlistsFile.exists()) {
-            Type playlistMapType = new TypeToken<Map<String, Playlist>>() {
-            }.getType();
-            try (FileReader reader = new FileReader(playlistsFile)) {
-                Map<String, Playlist> playlists = gson.fromJson(reader, playlistMapType);
+            try (Reader reader = openReader(playlistsFile)) {
+                Map<String, Playlist> playlists = gson.fromJson(reader, PLAYLIST_MAP_TYPE);
                 data.setMapPlaylists(playlists);
             }
         }
 
+        data.linkReferences();
         return data;
     }
 
@@ -109,19 +236,105 @@ public class JsonDataParser {
             directory.mkdirs();
         }
 
+        DataSnapshot snapshot = data.snapshot();
+
         // Save users
-        try (FileWriter writer = new FileWriter(new File(directory, USERS_FILE))) {
-            gson.toJson(data.getMapUsers(), writer);
+        try (Writer writer = openWriter(new File(directory, USERS_FILE))) {
+            gson.toJson(snapshot.getUsers(), writer);
         }
 
         // Save albums
-        try (FileWriter writer = new FileWriter(new File(directory, ALBUMS_FILE))) {
-            gson.toJson(data.getMapAlbumsCopy(), writer);
+        try (Writer writer = openWriter(new File(directory, ALBUMS_FILE))) {
+            gson.toJson(snapshot.getAlbums(), writer);
         }
 
         // Save playlists
-        try (FileWriter writer = new FileWriter(new File(directory, PLAYLISTS_FILE))) {
-            gson.toJson(data.getMapPlaylists(), writer);
+        try (Writer writer = openWriter(new File(directory, PLAYLISTS_FILE))) {
+            gson.toJson(snapshot.getPlaylists(), writer);
+        }
+    }
+
+    private SpotifUMData loadFromMultipleFilesParallel(String directoryPath) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Map<String, User>> users = executor.submit(() -> readMap(new File(directoryPath, USERS_FILE), USER_MAP_TYPE));
+            Future<Map<String, Album>> albums = executor.submit(() -> readMap(new File(directoryPath, ALBUMS_FILE), ALBUM_MAP_TYPE));
+            Future<Map<String, Playlist>> playlists = executor.submit(() -> readMap(new File(directoryPath, PLAYLISTS_FILE), PLAYLIST_MAP_TYPE));
+            awaitAll(List.of(users, albums, playlists));
+
+            SpotifUMData data = new SpotifUMData(resultOf(albums), resultOf(users), resultOf(playlists));
+            data.linkReferences();
+            return data;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void saveToMultipleFilesParallel(SpotifUMData data, String directoryPath) throws IOException {
+        File directory = new File(directoryPath);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        DataSnapshot snapshot = data.snapshot();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            awaitAll(List.of(
+                    executor.submit(() -> writeMap(new File(directory, USERS_FILE), snapshot.getUsers())),
+                    executor.submit(() -> writeMap(new File(directory, ALBUMS_FILE), snapshot.getAlbums())),
+                    executor.submit(() -> writeMap(new File(directory, PLAYLISTS_FILE), snapshot.getPlaylists()))
+            ));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private <T> Map<String, T> readMap(File file, Type mapType) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = openReader(file)) {
+            return gson.fromJson(reader, mapType);
+        }
+    }
+
+    private Void writeMap(File file, Map<String, ?> map) throws IOException {
+        try (Writer writer = openWriter(file)) {
+            gson.toJson(map, writer);
+        }
+        return null;
+    }
+
+    /**
+     * Waits for every task, even when one of them fails, so no file is still being
+     * read or written when this returns. The first failure is rethrown.
+     */
+    private static void awaitAll(List<? extends Future<?>> tasks) throws IOException {
+        IOException failure = null;
+        for (Future<?> task : tasks) {
+            try {
+                resultOf(task);
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static <T> T resultOf(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the data files.");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package org.spotifumtp37.util;
+
+import java.util.Locale;
+
+/**
+ * Histogram of durations in nanoseconds, in a fixed amount of memory however many are recorded.
+ * <p>
+ * The buckets are log-linear: every power of two is split into 32 equal buckets, so any value is
+ * known to within about 3% (values under 32 ns exactly) and a percentile is read off the buckets
+ * instead of a sorted copy of all the values. Recording is a shift and an increment. Not thread
+ * safe: each thread records into its own histogram and they are {@linkplain #merge merged} at the end.
+ * </p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration, negative values being counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the durations recorded by another histogram to this one.
+     *
+     * @param other The other histogram
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * @return The number of durations recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The longest duration, or 0 if none was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return The mean duration, or 0 if none was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets a percentile, e.g. 99 for the duration that 99% of the recorded ones do not exceed.
+     * The answer is the top of the bucket the percentile falls in, so it is never under the real
+     * value by more than the bucket's width, and never over the maximum.
+     *
+     * @param percentile Between 0 and 100
+     * @return The duration, or 0 if none was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Describes the distribution one line per power of two that has values, e.g.
+     * {@code [1.0 us, 2.0 us)  1234  56.7%}.
+     *
+     * @return The lines, or an empty string if none was recorded
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        long[] byPower = new long[64];
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                byPower[64 - Long.numberOfLeadingZeros(highestValueIn(i))] += counts[i];
+            }
+        }
+        for (int power = 0; power < byPower.length; power++) {
+            if (byPower[power] > 0) {
+                double from = power == 0 ? 0 : Math.scalb(1.0, power - 1);
+                text.append(String.format(Locale.ROOT, "[%s, %s)  %d  %.1f%%%n", format(from),
+                        format(Math.scalb(1.0, power)), byPower[power], 100.0 * byPower[power] / count));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param nanos A duration
+     * @return The duration in the largest unit it has at least one of, e.g. {@code 1.5 ms}
+     */
+    public static String format(double nanos) {
+        if (nanos >= 1e9) {
+            return String.format(Locale.ROOT, "%.1f s", nanos / 1e9);
+        } else if (nanos >= 1e6) {
+            return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+        } else if (nanos >= 1e3) {
+            return String.format(Locale.ROOT, "%.1f us", nanos / 1e3);
+        }
+        return String.format(Locale.ROOT, "%.0f ns", nanos);
+    }
+}
@@ -0,0 +1,194 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.DataListener;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.playlist.PlayListener;
+import org.spotifumtp37.model.playlist.Playable;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Continuously refreshed leaderboards of the most played songs, artists, genres and publishers.
+ * <p>
+ * Each board is a {@link HeavyHitters} counter, so its memory is bounded by the error asked for,
+ * however many songs there are. The boards start from the play counts of the album songs and
+ * then count every play reported by {@link PlayEvents}, from albums and playlists alike.
+ * Albums added to the data later bring their play counts with them, and when the data is replaced
+ * as a whole (a load or {@link SpotifUMData#restoreFrom}) the boards start again from the new albums.
+ * With an error of 0 the boards are exact.
+ * </p>
+ */
+public class Leaderboards implements PlayListener, DataListener {
+    private final SpotifUMData data;
+    private final double epsilon;
+    private HeavyHitters<SongKey> songs;
+    private HeavyHitters<String> artists;
+    private HeavyHitters<String> genres;
+    private HeavyHitters<String> publishers;
+
+    /**
+     * Builds the boards from the play counts of the data's album songs and starts following the
+     * data and counting the plays.
+     *
+     * @param data    The data to start from
+     * @param epsilon How much a count may be over the real one, as a fraction of all plays; 0 for exact boards
+     */
+    public Leaderboards(SpotifUMData data, double epsilon) {
+        this.data = data;
+        this.epsilon = epsilon;
+        rebuild();
+        data.addDataListener(this);
+        PlayEvents.addListener(this);
+    }
+
+    /**
+     * Stops following the data and counting the plays.
+     */
+    public void close() {
+        data.removeDataListener(this);
+        PlayEvents.removeListener(this);
+    }
+
+    /**
+     * Starts the boards again from the play counts of the data's album songs.
+     */
+    public synchronized void rebuild() {
+        songs = counter(epsilon);
+        artists = counter(epsilon);
+        genres = counter(epsilon);
+        publishers = counter(epsilon);
+
+        DataSnapshot snapshot = data.snapshot();
+        for (Album album : snapshot.getAlbums().values()) {
+            countAlbum(album);
+        }
+    }
+
+    /**
+     * @param k The number of songs wanted
+     * @return Copies of up to k of the most played songs, most played first
+     */
+    public synchronized List<Song> getTopSongs(int k) {
+        List<Song> top = new ArrayList<>();
+        for (SongKey key : songs.top(k)) {
+            top.add(key.song.clone());
+        }
+        return top;
+    }
+
+    /**
+     * @param k The number of artists wanted
+     * @return Up to k of the most played artists, most played first
+     */
+    public synchronized List<String> getTopArtists(int k) {
+        return artists.top(k);
+    }
+
+    /**
+     * @param k The number of genres wanted
+     * @return Up to k of the most played genres, most played first
+     */
+    public synchronized List<String> getTopGenres(int k) {
+        return genres.top(k);
+    }
+
+    /**
+     * @param k The number of publishers wanted
+     * @return Up to k of the most played publishers, most played first
+     */
+    public synchronized List<String> getTopPublishers(int k) {
+        return publishers.top(k);
+    }
+
+    /**
+     * @param song The song
+     * @return The counted plays of the song, at most {@link #getErrorBound()} over the real number
+     */
+    public synchronized long getPlays(Song song) {
+        return songs.getCount(new SongKey(song));
+    }
+
+    /**
+     * @param artist The artist
+     * @return The counted plays of the artist's songs, at most {@link #getErrorBound()} over the real number
+     */
+    public synchronized long getArtistPlays(String artist) {
+        return artists.getCount(artist);
+    }
+
+    /**
+     * @return The most a count of the boards may be over its real number
+     */
+    public synchronized long getErrorBound() {
+        return songs.getErrorBound();
+    }
+
+    @Override
+    public synchronized void played(Playable source, User user, Song song, LocalDateTime time, double pointsDelta) {
+        // plays are reported for every data, only the ones by its users are counted
+        if (song != null && user != null && data.getCurrentUserPointer(user.getName()) == user) {
+            count(song, 1);
+        }
+    }
+
+    @Override
+    public synchronized void albumAdded(Album album) {
+        countAlbum(album);
+    }
+
+    @Override
+    public void dataReplaced() {
+        rebuild();
+    }
+
+    private void countAlbum(Album album) {
+        for (Song song : album.getSongs()) {
+            count(song, song.getTimesPlayed());
+        }
+    }
+
+    private void count(Song song, long plays) {
+        SongKey key = new SongKey(song);
+        // a song new to the board is kept as a copy, so later changes to the song do not move its key
+        songs.add(songs.getCount(key) > 0 ? key : new SongKey(song.clone()), plays);
+        artists.add(song.getArtist(), plays);
+        genres.add(song.getGenre(), plays);
+        publishers.add(song.getPublisher(), plays);
+    }
+
+    private static <K> HeavyHitters<K> counter(double epsilon) {
+        return epsilon == 0 ? HeavyHitters.exact() : HeavyHitters.withError(epsilon);
+    }
+
+    /**
+     * A song on the board, matched by artist and name (as in the histories), so the copies of a song
+     * in albums and playlists count as one. Holds the song as it was when first counted.
+     */
+    private static final class SongKey {
+        private final Song song;
+
+        SongKey(Song song) {
+            this.song = song;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof SongKey other)) return false;
+            return Objects.equals(song.getArtist(), other.song.getArtist()) && Objects.equals(song.getName(), other.song.getName());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(song.getArtist(), song.getName());
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.DataListener;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.playlist.PlayListener;
+import org.spotifumtp37.model.playlist.Playable;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Approximate number of different users who played each song and each artist, kept up to date
+ * with the plays, without going through the users' histories on every question.
+ * <p>
+ * Each song (matched by artist and name, as in the histories) and each artist has a
+ * {@link HyperLogLog} of the names of the users who played it. The sketches start from the
+ * histories and take every play reported by {@link PlayEvents}. A sketch cannot forget a user, so
+ * removed users still count until {@link #rebuild()}; replacing whole maps rebuilds on its own.
+ * The sketches of songs with few listeners stay sparse (4 bytes per listener); only the widely played
+ * ones take the full {@code 2^precision} bytes.
+ * </p>
+ * The counts of several data shards merge with {@link #merge(ListenerCounts)}, and are saved next to
+ * the data snapshot with {@link #save(Path)} and read back with {@link #open}.
+ */
+public class ListenerCounts implements PlayListener, DataListener {
+    private static final int MAGIC = 0x53504C43; // "SPLC"
+    private static final int VERSION = 1;
+
+    private final SpotifUMData data;
+    private final int precision;
+    private Map<String, Map<String, HyperLogLog>> songs;
+    private Map<String, HyperLogLog> artists;
+
+    /**
+     * Counts the listeners in the data's histories and starts following the plays.
+     *
+     * @param data      The data to follow
+     * @param precision The precision of the sketches (see {@link HyperLogLog#HyperLogLog(int)})
+     */
+    public ListenerCounts(SpotifUMData data, int precision) {
+        this(data, precision, true);
+    }
+
+    private ListenerCounts(SpotifUMData data, int precision, boolean count) {
+        if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be between " + HyperLogLog.MIN_PRECISION +
+                    " and " + HyperLogLog.MAX_PRECISION + ".");
+        }
+        this.data = data;
+        this.precision = precision;
+        this.songs = new HashMap<>();
+        this.artists = new HashMap<>();
+        if (count) {
+            rebuild();
+        }
+        data.addDataListener(this);
+        PlayEvents.addListener(this);
+    }
+
+    /**
+     * Reads the counts saved with {@link #save(Path)} if they were saved with the data as it is now
+     * (the same number of plays in the histories); otherwise counts them from the histories.
+     *
+     * @param data      The data to follow
+     * @param precision The precision of the sketches, used when they are counted again
+     * @param file      The file the counts were saved to
+     * @return The counts, following the data and the plays
+     */
+    public static ListenerCounts open(SpotifUMData data, int precision, Path file) {
+        if (Files.isRegularFile(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == totalPlays(data.snapshot())) {
+                    ListenerCounts counts = new ListenerCounts(data, in.readInt(), false);
+                    try {
+                        counts.read(in);
+                        return counts;
+                    } catch (IOException e) {
+                        counts.close();
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                // unreadable or out of date: counted again below
+            }
+        }
+        return new ListenerCounts(data, precision);
+    }
+
+    /**
+     * Stops following the data and the plays.
+     */
+    public void close() {
+        data.removeDataListener(this);
+        PlayEvents.removeListener(this);
+    }
+
+    /**
+     * Counts the listeners again from the users' histories.
+     */
+    public synchronized void rebuild() {
+        songs = new HashMap<>();
+        artists = new HashMap<>();
+        for (User user : data.snapshot().getUsers().values()) {
+            countHistory(user);
+        }
+    }
+
+    /**
+     * @param song The song
+     * @return The estimated number of different users who played the song
+     */
+    public long getDistinctListeners(Song song) {
+        return getDistinctListeners(song.getArtist(), song.getName());
+    }
+
+    /**
+     * @param artist The artist of the song
+     * @param name   The name of the song
+     * @return The estimated number of different users who played the song
+     */
+    public synchronized long getDistinctListeners(String artist, String name) {
+        HyperLogLog sketch = songs.getOrDefault(artist, Collections.emptyMap()).get(name);
+        return sketch != null ? sketch.estimate() : 0;
+    }
+
+    /**
+     * @param artist The artist
+     * @return The estimated number of different users who played songs of the artist
+     */
+    public synchronized long getDistinctListeners(String artist) {
+        HyperLogLog sketch = artists.get(artist);
+        return sketch != null ? sketch.estimate() : 0;
+    }
+
+    /**
+     * @return The standard relative error of the counts
+     */
+    public double getRelativeError() {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    /**
+     * Adds the listeners counted by another instance (e.g. over another shard of the users).
+     *
+     * @param other Counts of the same precision
+     */
+    public void merge(ListenerCounts other) {
+        Map<String, Map<String, HyperLogLog>> otherSongs;
+        Map<String, HyperLogLog> otherArtists;
+        synchronized (other) {
+            otherSongs = new HashMap<>();
+            other.songs.forEach((artist, byName) -> byName.forEach((name, sketch) ->
+                    otherSongs.computeIfAbsent(artist, key -> new HashMap<>()).put(name, sketch.clone())));
+            otherArtists = new HashMap<>();
+            other.artists.forEach((artist, sketch) -> otherArtists.put(artist, sketch.clone()));
+        }
+        synchronized (this) {
+            otherSongs.forEach((artist, byName) -> byName.forEach((name, sketch) ->
+                    songSketch(artist, name).merge(sketch)));
+            otherArtists.forEach((artist, sketch) -> artistSketch(artist).merge(sketch));
+        }
+    }
+
+    /**
+     * Writes the counts to a temporary file next to the target and then moves it into place.
+     *
+     * @param file The file to write
+     * @throws IOException If the file cannot be written
+     */
+    public synchronized void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(totalPlays(data.snapshot()));
+                out.writeInt(precision);
+                out.writeInt(artists.size());
+                for (Map.Entry<String, HyperLogLog> entry : artists.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.write(entry.getValue().getRegisters());
+                }
+                int songCount = songs.values().stream().mapToInt(Map::size).sum();
+                out.writeInt(songCount);
+                for (Map.Entry<String, Map<String, HyperLogLog>> byArtist : songs.entrySet()) {
+                    for (Map.Entry<String, HyperLogLog> entry : byArtist.getValue().entrySet()) {
+                        out.writeUTF(byArtist.getKey());
+                        out.writeUTF(entry.getKey());
+                        out.write(entry.getValue().getRegisters());
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public synchronized void played(Playable source, User user, Song song, LocalDateTime time, double pointsDelta) {
+        // plays are reported for every data, only the ones by its users are counted
+        if (user != null && song != null && data.getCurrentUserPointer(user.getName()) == user) {
+            count(user.getName(), song);
+        }
+    }
+
+    @Override
+    public synchronized void userAdded(User user) {
+        countHistory(user);
+    }
+
+    @Override
+    public void dataReplaced() {
+        rebuild();
+    }
+
+    private synchronized void read(DataInput in) throws IOException {
+        int registers = 1 << precision;
+        int artistCount = in.readInt();
+        for (int i = 0; i < artistCount; i++) {
+            String artist = in.readUTF();
+            artists.put(artist, readSketch(in, registers));
+        }
+        int songCount = in.readInt();
+        for (int i = 0; i < songCount; i++) {
+            String artist = in.readUTF();
+            String name = in.readUTF();
+            songs.computeIfAbsent(artist, key -> new HashMap<>()).put(name, readSketch(in, registers));
+        }
+    }
+
+    private static HyperLogLog readSketch(DataInput in, int registers) throws IOException {
+        byte[] bytes = new byte[registers];
+        in.readFully(bytes);
+        return HyperLogLog.fromRegisters(bytes);
+    }
+
+    private void countHistory(User user) {
+        for (History record : user.getHistoryView()) {
+            Song song = record.getSongPointer();
+            if (song != null) {
+                count(user.getName(), song);
+            }
+        }
+    }
+
+    private void count(String listener, Song song) {
+        if (song.getArtist() == null || song.getName() == null) {
+            return;
+        }
+        long hash = HyperLogLog.hash(listener);
+        songSketch(song.getArtist(), song.getName()).addHash(hash);
+        artistSketch(song.getArtist()).addHash(hash);
+    }
+
+    private HyperLogLog songSketch(String artist, String name) {
+        return songs.computeIfAbsent(artist, key -> new HashMap<>())
+                .computeIfAbsent(name, key -> new HyperLogLog(precision));
+    }
+
+    private HyperLogLog artistSketch(String artist) {
+        return artists.computeIfAbsent(artist, key -> new HyperLogLog(precision));
+    }
+
+    private static long totalPlays(DataSnapshot snapshot) {
+        long plays = 0;
+        for (User user : snapshot.getUsers().values()) {
+            plays += user.getHistoryView().size();
+        }
+        return plays;
+    }
+}
@@ -0,0 +1,172 @@
+package org.spotifumtp37.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Number of plays per day and per hour of the day, for activity queries over date ranges.
+ * <p>
+ * The counts of each hour of each day are kept in an array indexed by day, along with prefix-sum
+ * (Fenwick) trees over the days: one for whole days and one per hour of the day. So the plays in a
+ * range of days, or the hourly histogram of a range, are found in O(log d) for d days covered,
+ * and each play costs O(log d). The arrays grow (in both directions) to cover new days.
+ * </p>
+ */
+public class PlayActivity {
+    private static final int HOURS = 24;
+
+    private long firstDay;
+    private int capacity;
+    private long[] counts = new long[0];
+    private long[] days = new long[1];
+    private long[][] hours = new long[HOURS][1];
+    private long total;
+
+    /**
+     * Adds (or with a negative delta, removes) plays at a time.
+     *
+     * @param time  The time of the plays; ignored if null
+     * @param delta The number of plays
+     */
+    public void add(LocalDateTime time, long delta) {
+        if (time == null || delta == 0) {
+            return;
+        }
+        int day = dayIndex(time.toLocalDate().toEpochDay());
+        int hour = time.getHour();
+        counts[day * HOURS + hour] += delta;
+        update(days, day, delta);
+        update(hours[hour], day, delta);
+        total += delta;
+    }
+
+    /**
+     * @return The number of plays counted
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @param day The day
+     * @return The number of plays on the day
+     */
+    public long playsOn(LocalDate day) {
+        return playsBetween(day, day);
+    }
+
+    /**
+     * Counts the plays in a range of days.
+     *
+     * @param from The first day (inclusive)
+     * @param to   The last day (inclusive)
+     * @return The number of plays in the range
+     */
+    public long playsBetween(LocalDate from, LocalDate to) {
+        return rangeSum(days, from, to);
+    }
+
+    /**
+     * Gets the number of plays of each day in a range.
+     *
+     * @param from The first day (inclusive)
+     * @param to   The last day (inclusive)
+     * @return One count per day, from the first to the last; empty if the range is empty
+     */
+    public long[] dailyActivity(LocalDate from, LocalDate to) {
+        long first = from.toEpochDay();
+        int length = (int) Math.max(0, to.toEpochDay() - first + 1);
+        long[] activity = new long[length];
+        for (int i = 0; i < length; i++) {
+            long day = first + i - firstDay;
+            if (day >= 0 && day < capacity) {
+                for (int hour = 0; hour < HOURS; hour++) {
+                    activity[i] += counts[(int) day * HOURS + hour];
+                }
+            }
+        }
+        return activity;
+    }
+
+    /**
+     * Gets the number of plays in each hour of the day over a range of days.
+     *
+     * @param from The first day (inclusive)
+     * @param to   The last day (inclusive)
+     * @return 24 counts, for the hours 0 to 23
+     */
+    public long[] hourlyActivity(LocalDate from, LocalDate to) {
+        long[] activity = new long[HOURS];
+        for (int hour = 0; hour < HOURS; hour++) {
+            activity[hour] = rangeSum(hours[hour], from, to);
+        }
+        return activity;
+    }
+
+    private long rangeSum(long[] tree, LocalDate from, LocalDate to) {
+        long start = Math.max(from.toEpochDay() - firstDay, 0);
+        long end = Math.min(to.toEpochDay() - firstDay, capacity - 1L);
+        if (capacity == 0 || start > end) {
+            return 0;
+        }
+        return prefixSum(tree, (int) end) - prefixSum(tree, (int) start - 1);
+    }
+
+    /**
+     * Position of a day in the arrays, growing them if the day is not covered yet.
+     */
+    private int dayIndex(long epochDay) {
+        if (capacity == 0) {
+            firstDay = epochDay;
+            resize(firstDay, 16);
+        } else if (epochDay < firstDay) {
+            long needed = firstDay + capacity - epochDay;
+            resize(firstDay + capacity - Math.max(2L * capacity, needed), (int) Math.max(2L * capacity, needed));
+        } else if (epochDay >= firstDay + capacity) {
+            resize(firstDay, (int) Math.max(2L * capacity, epochDay - firstDay + 1));
+        }
+        return (int) (epochDay - firstDay);
+    }
+
+    private void resize(long newFirstDay, int newCapacity) {
+        long[] newCounts = new long[newCapacity * HOURS];
+        int offset = (int) (firstDay - newFirstDay);
+        System.arraycopy(counts, 0, newCounts, offset * HOURS, counts.length);
+        firstDay = newFirstDay;
+        capacity = newCapacity;
+        counts = newCounts;
+        days = new long[capacity + 1];
+        hours = new long[HOURS][capacity + 1];
+        for (int day = 0; day < capacity; day++) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                long count = counts[day * HOURS + hour];
+                days[day + 1] += count;
+                hours[hour][day + 1] += count;
+            }
+        }
+        // builds the trees in O(n): each node passes its sum up to its parent
+        for (int node = 1; node <= capacity; node++) {
+            int parent = node + (node & -node);
+            if (parent <= capacity) {
+                days[parent] += days[node];
+                for (int hour = 0; hour < HOURS; hour++) {
+                    hours[hour][parent] += hours[hour][node];
+                }
+            }
+        }
+    }
+
+    private static void update(long[] tree, int index, long delta) {
+        for (int node = index + 1; node < tree.length; node += node & -node) {
+            tree[node] += delta;
+        }
+    }
+
+    private static long prefixSum(long[] tree, int index) {
+        long sum = 0;
+        for (int node = index + 1; node > 0; node -= node & -node) {
+            sum += tree[node];
+        }
+        return sum;
+    }
+}
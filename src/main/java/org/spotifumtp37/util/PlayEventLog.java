@@ -0,0 +1,540 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.DataListener;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayListener;
+import org.spotifumtp37.model.playlist.Playable;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.subscription.PremiumTop;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of plays, so the state changed by {@link Playable#play(User)} (play counts,
+ * points and history) is persisted by writing only the new plays instead of the whole data.
+ * <p>
+ * Plays are buffered and written by a background thread in groups (group commit): the thread waits
+ * up to the commit interval for more plays to arrive, then writes and forces them all at once.
+ * On startup the log is replayed over the last snapshot, and {@link #compact()} folds it into a new
+ * snapshot and empties it. That also happens on its own once the log holds {@code compactEvery} plays
+ * and when the data is replaced: the snapshot is taken by the thread that made the change and written
+ * by the background thread, so a play never waits for a whole snapshot to be saved.
+ * </p>
+ * <p>
+ * Registered as a {@link DataListener}, the log also keeps the users signed up since the last
+ * snapshot, so their plays are not lost on replay.
+ * </p>
+ * Each record is {@code length, payload, CRC32 of the payload}, the payload being the source kind
+ * and name, the song artist and name, the user name, the time and the points earned, or, for a new
+ * user, the user's details. A torn record at the end of the file (a crash in the middle of a write)
+ * ends the replay and is cut off.
+ * <p>
+ * Replay skips plays already in the user's history (same time and song), so a crash between writing
+ * a snapshot and emptying the log does not apply them twice.
+ * </p>
+ */
+public class PlayEventLog implements PlayListener, DataListener, Closeable {
+    private static final byte SOURCE_OTHER = 0;
+    private static final byte SOURCE_ALBUM = 1;
+    private static final byte SOURCE_PLAYLIST = 2;
+    private static final byte USER_ADDED = 3;
+
+    private final FileChannel channel;
+    private final SpotifUMData data;
+    private final Path snapshotFile;
+    private final BinarySnapshotCodec codec;
+    private final long commitIntervalMillis;
+    private final int compactEvery;
+
+    private final Object lock = new Object();
+    private final Object ioLock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingEvents;
+    private int loggedEvents;
+    // a snapshot waiting to be written by the flusher, and the records it already holds
+    private DataSnapshot requestedSnapshot;
+    private ByteArrayOutputStream beforeSnapshot;
+    private boolean closed;
+    private volatile IOException failure;
+    private final Thread flusher;
+
+    /**
+     * Opens (or creates) a play log.
+     *
+     * @param logFile The log file
+     * @param data The live data the plays are applied to, replayed over and compacted from
+     * @param snapshotFile The snapshot the log is compacted into
+     * @param commitIntervalMillis How long a play can wait in memory for others to be written with it
+     * @param compactEvery Number of logged plays after which the log is compacted (0 to only compact on request)
+     * @throws IOException If the log file cannot be opened
+     */
+    public PlayEventLog(Path logFile, SpotifUMData data, Path snapshotFile, long commitIntervalMillis, int compactEvery)
+            throws IOException {
+        this.channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+        this.data = data;
+        this.snapshotFile = snapshotFile;
+        this.codec = new BinarySnapshotCodec();
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.compactEvery = compactEvery;
+        this.flusher = new Thread(this::runFlusher, "play-log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens the data kept in a snapshot and play log pair: loads the snapshot (if there is one)
+     * into {@code data}, replays the log over it and returns the log, ready to receive new plays.
+     *
+     * @param data The data to restore into (normally still empty)
+     * @param snapshotFile The snapshot file
+     * @param logFile The log file
+     * @return The opened log
+     * @throws IOException If the snapshot or the log cannot be read
+     */
+    public static PlayEventLog open(SpotifUMData data, Path snapshotFile, Path logFile) throws IOException {
+        if (BinarySnapshotCodec.isSnapshot(snapshotFile)) {
+            data.restoreFrom(new BinarySnapshotCodec().load(snapshotFile));
+        }
+        PlayEventLog log = new PlayEventLog(logFile, data, snapshotFile, 10, 10_000);
+        log.replay();
+        return log;
+    }
+
+    @Override
+    public void played(Playable source, User user, Song song, LocalDateTime time, double pointsDelta) {
+        // plays are reported for every data, only the ones by its users belong in its log
+        if (user == null || data.getCurrentUserPointer(user.getName()) != user) {
+            return;
+        }
+        byte[] record;
+        try {
+            record = encode(source, user, song, time, pointsDelta);
+        } catch (IOException e) {
+            failure = e;
+            return;
+        }
+        synchronized (lock) {
+            pending.writeBytes(record);
+            pendingEvents++;
+            loggedEvents++;
+            if (compactEvery > 0 && loggedEvents >= compactEvery && requestedSnapshot == null) {
+                requestSnapshot();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public void userAdded(User user) {
+        byte[] record;
+        try {
+            record = encodeUser(user);
+        } catch (IOException e) {
+            failure = e;
+            return;
+        }
+        synchronized (lock) {
+            pending.writeBytes(record);
+            pendingEvents++;
+            loggedEvents++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * The log no longer describes changes to the replaced data, so it is folded into a new snapshot.
+     */
+    @Override
+    public void dataReplaced() {
+        synchronized (lock) {
+            requestSnapshot();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Takes a snapshot for the flusher to write, with the records logged so far, which it covers.
+     * Called holding {@code lock}, by the thread that changed the data, so nothing logged is left out
+     * of the snapshot.
+     */
+    private void requestSnapshot() {
+        DataSnapshot snapshot = data.snapshot();
+        if (requestedSnapshot == null) {
+            beforeSnapshot = pending;
+        } else {
+            beforeSnapshot.writeBytes(pending.toByteArray());
+        }
+        requestedSnapshot = snapshot;
+        pending = new ByteArrayOutputStream();
+        pendingEvents = 0;
+        loggedEvents = 0;
+    }
+
+    /**
+     * @return The number of plays in the log (written or still pending) since it was last compacted
+     */
+    public int getLoggedEvents() {
+        synchronized (lock) {
+            return loggedEvents;
+        }
+    }
+
+    /**
+     * Writes and forces every pending play.
+     *
+     * @throws IOException If writing fails now, or failed earlier in the background
+     */
+    public void flush() throws IOException {
+        writePending();
+        throwFailure();
+    }
+
+    /**
+     * Applies the plays in the log to the data and cuts off a torn record at the end, if there is one.
+     *
+     * @return The number of plays applied
+     * @throws IOException If the log cannot be read
+     */
+    public int replay() throws IOException {
+        synchronized (ioLock) {
+            Map<String, Set<String>> seen = new HashMap<>();
+            int applied = 0;
+            int records = 0;
+            long end = 0;
+            channel.position(0);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (true) {
+                byte[] payload = readRecord(in);
+                if (payload == null) {
+                    break;
+                }
+                end += 8 + payload.length;
+                records++;
+                if (payload[0] == USER_ADDED) {
+                    applyUser(payload);
+                } else if (apply(payload, seen)) {
+                    applied++;
+                }
+            }
+            channel.truncate(end);
+            channel.position(end);
+            synchronized (lock) {
+                loggedEvents = records + pendingEvents;
+            }
+            return applied;
+        }
+    }
+
+    /**
+     * Saves the data into the snapshot file and empties the log.
+     *
+     * @throws IOException If the snapshot cannot be written
+     */
+    public void compact() throws IOException {
+        synchronized (ioLock) {
+            writePending();
+            codec.save(data, snapshotFile);
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            synchronized (lock) {
+                loggedEvents = pendingEvents; // plays made since the snapshot was written
+            }
+        }
+    }
+
+    /**
+     * Writes the pending plays and stops the background writer.
+     *
+     * @throws IOException If writing fails now, or failed earlier in the background
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            synchronized (lock) {
+                while (!closed && pending.size() == 0 && requestedSnapshot == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(commitIntervalMillis); // let more plays join this write
+                writePending();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    private void writePending() throws IOException {
+        synchronized (ioLock) {
+            DataSnapshot snapshot;
+            byte[] before;
+            byte[] batch;
+            synchronized (lock) {
+                snapshot = requestedSnapshot;
+                before = snapshot != null ? beforeSnapshot.toByteArray() : null;
+                requestedSnapshot = null;
+                beforeSnapshot = null;
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream();
+                pendingEvents = 0;
+            }
+            IOException snapshotFailure = null;
+            if (snapshot != null) {
+                // the records the snapshot holds are written first: if saving it fails, the log still has them
+                write(before);
+                try {
+                    codec.save(snapshot, snapshotFile);
+                    channel.truncate(0);
+                    channel.position(0);
+                    channel.force(true);
+                } catch (IOException e) {
+                    snapshotFailure = e;
+                }
+            }
+            write(batch);
+            if (snapshotFailure != null) {
+                throw snapshotFailure;
+            }
+        }
+    }
+
+    private void write(byte[] records) throws IOException {
+        if (records.length == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void throwFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            failure = null;
+            throw e;
+        }
+    }
+
+    private static byte[] encode(Playable source, User user, Song song, LocalDateTime time, double pointsDelta)
+            throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(payload);
+        if (source instanceof Album) {
+            out.writeByte(SOURCE_ALBUM);
+            writeString(out, ((Album) source).getTitle());
+        } else if (source instanceof Playlist) {
+            out.writeByte(SOURCE_PLAYLIST);
+            writeString(out, ((Playlist) source).getPlaylistName());
+        } else {
+            out.writeByte(SOURCE_OTHER);
+            writeString(out, null);
+        }
+        writeString(out, song.getArtist());
+        writeString(out, song.getName());
+        writeString(out, user.getName());
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+        out.writeDouble(pointsDelta);
+        out.flush();
+        return frame(payload.toByteArray());
+    }
+
+    private static byte[] encodeUser(User user) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(USER_ADDED);
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        writeString(out, user.getAddress());
+        writeString(out, user.getSubscriptionPlan() != null ? user.getSubscriptionPlan().getClass().getSimpleName() : null);
+        writeString(out, user.getPassword());
+        out.writeDouble(user.getPontos());
+        out.flush();
+        return frame(payload.toByteArray());
+    }
+
+    private static byte[] frame(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(8 + bytes.length);
+        record.putInt(bytes.length).put(bytes).putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Reads the payload of the next record, or returns null at the end of the log or at a torn record.
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            int checksum = in.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Applies one play to the data.
+     *
+     * @return true if it was applied, false if the user is gone or the play is already in their history
+     */
+    private boolean apply(byte[] payload, Map<String, Set<String>> seen) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte sourceKind = in.readByte();
+        String sourceName = readString(in);
+        String artist = readString(in);
+        String songName = readString(in);
+        String userName = readString(in);
+        LocalDateTime time = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        double pointsDelta = in.readDouble();
+
+        User user = data.getCurrentUserPointer(userName);
+        if (user == null) {
+            return false;
+        }
+        Set<String> userPlays = seen.computeIfAbsent(userName, name -> {
+            Set<String> plays = new HashSet<>();
+            for (History h : user.getHistoryView()) {
+                plays.add(h.getTime() + "\0" + (h.getSongPointer() != null ? h.getSongPointer().getName() : null));
+            }
+            return plays;
+        });
+        if (!userPlays.add(time + "\0" + songName)) {
+            return false;
+        }
+
+        Song song = findSong(sourceKind, sourceName, songName);
+        if (song != null) {
+            song.incrementTimesPlayed();
+        } else {
+            // played from a list that was not saved (e.g. a generated playlist): only the user changes
+            song = findCatalogSong(artist, songName);
+        }
+        user.setPontos(user.getPontos() + pointsDelta);
+        user.updateHistory(song, time);
+        return true;
+    }
+
+    /**
+     * Adds a user signed up after the snapshot, unless the snapshot already has them.
+     */
+    private void applyUser(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readByte();
+        String name = readString(in);
+        String email = readString(in);
+        String address = readString(in);
+        String plan = readString(in);
+        String password = readString(in);
+        double pontos = in.readDouble();
+        if (data.getCurrentUserPointer(name) != null) {
+            return;
+        }
+        try {
+            data.addUser(new User(name, email, address, switch (plan == null ? "FreePlan" : plan) {
+                case "PremiumBase" -> new PremiumBase();
+                case "PremiumTop" -> new PremiumTop();
+                default -> new FreePlan();
+            }, password, pontos, new ArrayList<>()));
+        } catch (AlreadyExistsException e) {
+            // added in between, nothing to do
+        }
+    }
+
+    private Song findSong(byte sourceKind, String sourceName, String songName) {
+        try {
+            if (sourceKind == SOURCE_ALBUM && data.existsAlbum(sourceName)) {
+                return data.getAlbum(sourceName).getSongPointer(songName);
+            }
+            if (sourceKind == SOURCE_PLAYLIST && data.existsPlaylist(sourceName)) {
+                return data.getPlaylist(sourceName).getSongPointer(songName);
+            }
+        } catch (DoesntExistException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private Song findCatalogSong(String artist, String songName) {
+        for (Album album : data.getMapAlbumsView().values()) {
+            Song song = album.getSongPointer(songName);
+            if (song != null && artist.equals(song.getArtist())) {
+                return song;
+            }
+        }
+        return new Song(songName, artist, "", "", "", "", 0);
+    }
+
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
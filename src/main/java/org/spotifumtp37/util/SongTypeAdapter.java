@@ -1,48 +1,97 @@
 package org.spotifumtp37.util;
 
-import com.google.gson.*;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.spotifumtp37.model.album.Song;
 import org.spotifumtp37.model.album.MultimediaSong;
 import org.spotifumtp37.model.album.ExplicitSong;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
-public class SongTypeAdapter implements JsonSerializer<Song>, JsonDeserializer<Song> {
-
-    // Gson instance WITHOUT this adapter to prevent recursion
-    private final Gson delegateGson = new Gson();
+/**
+ * Streaming adapter for songs (for explicit and multimedia songs).
+ * Reads and writes the fields token by token, so no intermediate JsonObject
+ * is built for each song. The "multimedia" / "explicit" discriminators decide
+ * which subclass is created.
+ */
+public class SongTypeAdapter extends TypeAdapter<Song> {
 
     @Override
-    public Song deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-        JsonObject obj = json.getAsJsonObject();
-        boolean isMultimedia = obj.has("multimedia") && obj.get("multimedia").getAsBoolean();
-        boolean isExplicit = obj.has("explicit") && obj.get("explicit").getAsBoolean();
+    public Song read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
 
-        if (isMultimedia) {
-            MultimediaSong song = delegateGson.fromJson(json, MultimediaSong.class);
-            if (obj.has("videoLink")) {
-                song.setVideoLink(obj.get("videoLink").getAsString());
+        String name = null, artist = null, publisher = null, lyrics = null;
+        String musicalNotes = null, genre = null, videoLink = null;
+        int durationInSeconds = 0, timesPlayed = 0, id = 0;
+        boolean isMultimedia = false, isExplicit = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "name" -> name = in.nextString();
+                case "artist" -> artist = in.nextString();
+                case "publisher" -> publisher = in.nextString();
+                case "lyrics" -> lyrics = in.nextString();
+                case "musicalNotes" -> musicalNotes = in.nextString();
+                case "genre" -> genre = in.nextString();
+                case "durationInSeconds" -> durationInSeconds = in.nextInt();
+                case "timesPlayed" -> timesPlayed = in.nextInt();
+                case "id" -> id = in.nextInt();
+                case "multimedia" -> isMultimedia = in.nextBoolean();
+                case "explicit" -> isExplicit = in.nextBoolean();
+                case "videoLink" -> videoLink = in.nextString();
+                default -> in.skipValue();
             }
-            return song;
+        }
+        in.endObject();
+
+        Song song;
+        if (isMultimedia) {
+            song = new MultimediaSong(name, artist, publisher, lyrics, musicalNotes, genre, durationInSeconds, videoLink);
         } else if (isExplicit) {
-            return delegateGson.fromJson(json, ExplicitSong.class);
+            song = new ExplicitSong(name, artist, publisher, lyrics, musicalNotes, genre, durationInSeconds);
         } else {
-            return delegateGson.fromJson(json, Song.class);
+            song = new Song(name, artist, publisher, lyrics, musicalNotes, genre, durationInSeconds);
         }
+        song.setTimesPlayed(timesPlayed);
+        song.setId(id);
+        return song;
     }
 
     @Override
-    public JsonElement serialize(Song src, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject obj = delegateGson.toJsonTree(src, src.getClass()).getAsJsonObject();
+    public void write(JsonWriter out, Song src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
         if (src instanceof MultimediaSong) {
-            obj.addProperty("multimedia", true);
-            String videoLink = ((MultimediaSong) src).getVideoLink();
-            if (videoLink != null) {
-                obj.addProperty("videoLink", videoLink);
-            }
+            out.name("multimedia").value(true);
+            out.name("videoLink").value(((MultimediaSong) src).getVideoLink());
         } else if (src instanceof ExplicitSong) {
-            obj.addProperty("explicit", true);
+            out.name("explicit").value(true);
+        }
+        out.name("name").value(src.getName());
+        out.name("artist").value(src.getArtist());
+        out.name("publisher").value(src.getPublisher());
+        out.name("lyrics").value(src.getLyrics());
+        out.name("musicalNotes").value(src.getMusicalNotes());
+        out.name("genre").value(src.getGenre());
+        out.name("durationInSeconds").value(src.getDurationInSeconds());
+        out.name("timesPlayed").value(src.getTimesPlayed());
+        if (src.getId() != 0) {
+            out.name("id").value(src.getId());
         }
-        return obj;
+        out.endObject();
     }
-}
\ No newline at end of file
+}
@@ -3,15 +3,49 @@ package org.spotifumtp37.util;
 import org.spotifumtp37.model.album.Album;
 import org.spotifumtp37.model.album.Song;
 import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.History;
 import org.spotifumtp37.model.user.User;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Stats {
 
+    /**
+     * Fewest users (or albums) each thread of the pool must get for a split to pay for itself.
+     * StatsParallelBenchmark measures the split costing 10 to 20 us, and getTopListenerFromDate, the
+     * cheapest statistic that splits, about 0.06 us a user; 512 users give each thread about 30 us of
+     * work, enough to cover it (mostListenedGenre, at over 1 us a user, covers it much sooner).
+     */
+    static final int MIN_PER_THREAD = 512;
+
+    /**
+     * Number of users (or albums) from which the statistics are split across the common fork-join pool
+     * when no mode is given. Below it, or when the pool has a single thread, they run on the calling thread.
+     * It is {@link #MIN_PER_THREAD} for each thread of the pool (2048 with four), unless set with the
+     * system property {@code spotifum.stats.parallelThreshold}.
+     */
+    public static final int PARALLEL_THRESHOLD = parallelThreshold(
+            Integer.getInteger("spotifum.stats.parallelThreshold"), ForkJoinPool.getCommonPoolParallelism());
+
+    /**
+     * Order used to break ties between songs with the same play count: by artist, name and id.
+     */
+    static final Comparator<Song> SONG_ORDER = Comparator
+            .comparing(Song::getArtist, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparing(Song::getName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparingInt(Song::getId);
+
+    /**
+     * Order used with {@code max} to break ties between users: the first user by name is the greatest.
+     */
+    private static final Comparator<User> USER_ORDER = Comparator
+            .comparing(User::getName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .reversed();
+
     /**
      * Gets the most played song from all albums.
      *
@@ -19,12 +53,23 @@ public class Stats {
      * @return The most played Song, or null if no albums or songs are available.
      */
     public static Song getMostPlayedSong(Map<String, Album> albums) {
+        return getMostPlayedSong(albums, albums != null && isLarge(albums.size()));
+    }
+
+    /**
+     * Gets the most played song from all albums. On a tie, the first song by artist and name.
+     *
+     * @param albums   A map of album titles to Album objects.
+     * @param parallel Whether to split the albums across threads.
+     * @return The most played Song, or null if no albums or songs are available.
+     */
+    public static Song getMostPlayedSong(Map<String, Album> albums, boolean parallel) {
         if (albums == null || albums.isEmpty()) {
             return null;
         }
-        return albums.values().stream()
-                .flatMap(album -> album.getSongsCopy().stream())
-                .max(Comparator.comparingInt(Song::getTimesPlayed))
+        return stream(albums.values(), parallel)
+                .flatMap(album -> album.getSongs().stream())
+                .max(Comparator.comparingInt(Song::getTimesPlayed).thenComparing(SONG_ORDER.reversed()))
                 .orElse(null);
     }
 
@@ -35,22 +80,28 @@ public class Stats {
      * @return The name of the most listened to artist, or null if no data.
      */
     public static String getMostListenedArtist(Map<String, Album> albums) {
+        return getMostListenedArtist(albums, albums != null && isLarge(albums.size()));
+    }
+
+    /**
+     * Gets the artist with the most song plays across all albums. On a tie, the first artist by name.
+     *
+     * @param albums   A map of album titles to Album objects.
+     * @param parallel Whether to split the albums across threads, each counting into its own map.
+     * @return The name of the most listened to artist, or null if no data.
+     */
+    public static String getMostListenedArtist(Map<String, Album> albums, boolean parallel) {
         if (albums == null || albums.isEmpty()) {
             return null;
         }
-        Map<String, Integer> playCountByArtist = new HashMap<>();
+        Map<String, Long> playCountByArtist = stream(albums.values(), parallel)
+                .collect(HashMap::new, (counts, album) -> {
+                    for (Song song : album.getSongs()) {
+                        counts.merge(song.getArtist(), (long) song.getTimesPlayed(), Long::sum);
+                    }
+                }, Stats::mergeCounts);
 
-        for (Album album : albums.values()) {
-            for (Song song : album.getSongsCopy()) {
-                String artist = song.getArtist();
-                playCountByArtist.put(artist, playCountByArtist.getOrDefault(artist, 0) + song.getTimesPlayed());
-            }
-        }
-
-        return playCountByArtist.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
+        return topKey(playCountByArtist);
     }
 
     /**
@@ -60,27 +111,71 @@ public class Stats {
      * @return The User with the largest listening history, or null if the map is empty or null.
      */
     public static User getTopListener(Map<String, User> usersMap) {
+        return getTopListener(usersMap, usersMap != null && isLarge(usersMap.size()));
+    }
+
+    /**
+     * Gets the user who has listened to the most songs (based on history size). On a tie, the first user by name.
+     *
+     * @param usersMap A map of usernames to User objects.
+     * @param parallel Whether to split the users across threads.
+     * @return The User with the largest listening history, or null if the map is empty or null.
+     */
+    public static User getTopListener(Map<String, User> usersMap, boolean parallel) {
         if (usersMap == null || usersMap.isEmpty()) {
             return null;
         }
-        return usersMap.values().stream()
-                .max(Comparator.comparingInt(user -> user.getHistory().size()))
+        return stream(usersMap.values(), parallel)
+                .max(Comparator.<User>comparingInt(user -> user.getHistoryView().size()).thenComparing(USER_ORDER))
                 .orElse(null);
     }
 
+    /**
+     * Gets the user who has listened to the most songs since a date.
+     * Each user's plays in the period are found by a binary search over their history.
+     *
+     * @param usersMap A map of usernames to User objects.
+     * @param fromDate The start of the period (inclusive).
+     * @return The User with the most plays since the date, or null if the map is empty or null.
+     */
     public static User getTopListenerFromDate(Map<String, User> usersMap, LocalDateTime fromDate) {
+        return getTopListenerFromDate(usersMap, fromDate, usersMap != null && isLarge(usersMap.size()));
+    }
+
+    /**
+     * Gets the user who has listened to the most songs since a date. On a tie, the first user by name.
+     *
+     * @param usersMap A map of usernames to User objects.
+     * @param fromDate The start of the period (inclusive).
+     * @param parallel Whether to split the users across threads.
+     * @return The User with the most plays since the date, or null if the map is empty or null.
+     */
+    public static User getTopListenerFromDate(Map<String, User> usersMap, LocalDateTime fromDate, boolean parallel) {
         if (usersMap == null || usersMap.isEmpty() || fromDate == null) {
             return null;
         }
-        return usersMap.values().stream()
-                .max(Comparator.comparingInt(user ->
-                        (int) user.getHistory().stream()
-                                .filter(h -> h.getTime().isAfter(fromDate) || h.getTime().isEqual(fromDate))
-                                .count()
-                ))
+        return stream(usersMap.values(), parallel)
+                .max(Comparator.<User>comparingInt(user -> user.countPlaysFrom(fromDate)).thenComparing(USER_ORDER))
                 .orElse(null);
     }
 
+    /**
+     * Counts the songs played by all users in a period.
+     *
+     * @param usersMap A map of usernames to User objects.
+     * @param from     The start of the period (inclusive), or null for no start.
+     * @param to       The end of the period (exclusive), or null for no end.
+     * @return The number of plays in the period.
+     */
+    public static long countPlaysBetween(Map<String, User> usersMap, LocalDateTime from, LocalDateTime to) {
+        if (usersMap == null || usersMap.isEmpty()) {
+            return 0L;
+        }
+        return stream(usersMap.values(), isLarge(usersMap.size()))
+                .mapToLong(user -> user.countPlaysBetween(from, to))
+                .sum();
+    }
+
     /**
      * Gets the user with the most points.
      * Assumes User.getPontos() returns the current, subscription-adjusted points.
@@ -89,11 +184,22 @@ public class Stats {
      * @return The User with the most points, or null if the map is empty or null.
      */
     public static User getUserWithMostPoints(Map<String, User> usersMap) {
+        return getUserWithMostPoints(usersMap, usersMap != null && isLarge(usersMap.size()));
+    }
+
+    /**
+     * Gets the user with the most points. On a tie, the first user by name.
+     *
+     * @param usersMap A map of usernames to User objects.
+     * @param parallel Whether to split the users across threads.
+     * @return The User with the most points, or null if the map is empty or null.
+     */
+    public static User getUserWithMostPoints(Map<String, User> usersMap, boolean parallel) {
         if (usersMap == null || usersMap.isEmpty()) {
             return null;
         }
-        return usersMap.values().stream()
-                .max(Comparator.comparingDouble(User::getPontos))
+        return stream(usersMap.values(), parallel)
+                .max(Comparator.comparingDouble(User::getPontos).thenComparing(USER_ORDER))
                 .orElse(null);
     }
 
@@ -104,19 +210,28 @@ public class Stats {
      * @return The name of the most reproduced genre, or null if no users or history.
      */
     public static String mostListenedGenre(Map<String, User> usersMap) {
+        return mostListenedGenre(usersMap, usersMap != null && isLarge(usersMap.size()));
+    }
+
+    /**
+     * Determines the most played genre based on all users' listening histories. On a tie, the first genre by name.
+     *
+     * @param usersMap A map of usernames to User objects, where each User has a listening history.
+     * @param parallel Whether to split the users across threads, each counting into its own map.
+     * @return The name of the most reproduced genre, or null if no users or history.
+     */
+    public static String mostListenedGenre(Map<String, User> usersMap, boolean parallel) {
         if (usersMap == null || usersMap.isEmpty()) {
             return null;
         }
+        Map<String, Long> genreCounter = stream(usersMap.values(), parallel)
+                .collect(HashMap::new, (counts, user) -> {
+                    for (History record : user.getHistoryView()) {
+                        counts.merge(record.getSongPointer().getGenre(), 1L, Long::sum);
+                    }
+                }, Stats::mergeCounts);
 
-        Map<String, Long> GenreCounter = usersMap.values().stream()
-                .flatMap(user -> user.getHistory().stream()) // Stream all history entries from all users
-                .map(historyEntry -> historyEntry.getSong().getGenre()) // Get the genre of each song in history
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting())); // Count occurrences of each genre
-
-        return GenreCounter.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
+        return topKey(genreCounter);
     }
 
     /**
@@ -155,4 +270,95 @@ public class Stats {
                 .map(Map.Entry::getKey)
                 .orElse(null);
     }
-}
\ No newline at end of file
+
+    /**
+     * Computes all the statistics, with per-genre, per-artist and per-plan breakdowns,
+     * going through each album, user and playlist once.
+     *
+     * @param albums    A map of album titles to Album objects.
+     * @param usersMap  A map of usernames to User objects.
+     * @param playlists A map of playlist names to Playlist objects.
+     * @return The report of the statistics.
+     */
+    public static StatsReport report(Map<String, Album> albums, Map<String, User> usersMap, Map<String, Playlist> playlists) {
+        int size = (albums != null ? albums.size() : 0) + (usersMap != null ? usersMap.size() : 0);
+        return report(albums, usersMap, playlists, isLarge(size));
+    }
+
+    /**
+     * Computes all the statistics, with per-genre, per-artist and per-plan breakdowns,
+     * going through each album, user and playlist once.
+     * In parallel, the maps are split across the common fork-join pool and the partial counts are merged;
+     * the report is the same either way.
+     *
+     * @param albums    A map of album titles to Album objects.
+     * @param usersMap  A map of usernames to User objects.
+     * @param playlists A map of playlist names to Playlist objects.
+     * @param parallel  Whether to split the work across threads.
+     * @return The report of the statistics.
+     */
+    public static StatsReport report(Map<String, Album> albums, Map<String, User> usersMap, Map<String, Playlist> playlists,
+                                     boolean parallel) {
+        StatsReport.Counts counts = new StatsReport.Counts();
+        if (albums != null) {
+            counts.merge(stream(albums.values(), parallel)
+                    .collect(StatsReport.Counts::new, StatsReport.Counts::addAlbum, StatsReport.Counts::merge));
+        }
+        if (usersMap != null) {
+            counts.merge(stream(usersMap.values(), parallel)
+                    .collect(StatsReport.Counts::new, StatsReport.Counts::addUser, StatsReport.Counts::merge));
+        }
+        if (playlists != null) {
+            counts.merge(stream(playlists.values(), parallel)
+                    .collect(StatsReport.Counts::new, StatsReport.Counts::addPlaylist, StatsReport.Counts::merge));
+        }
+        return counts.build();
+    }
+
+    /**
+     * The parallel threshold for a pool of the given parallelism, or the configured one if set.
+     */
+    static int parallelThreshold(Integer configured, int parallelism) {
+        if (configured != null) {
+            return configured;
+        }
+        return MIN_PER_THREAD * Math.max(1, parallelism);
+    }
+
+    /**
+     * Whether a statistic over this many users or albums is worth splitting across threads.
+     */
+    static boolean isLarge(int size) {
+        return size >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * The key with the highest count, the first key by name on a tie; null keys are never picked.
+     */
+    static String topKey(Map<String, Long> counts) {
+        String top = null;
+        long best = Long.MIN_VALUE;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            String key = entry.getKey();
+            long count = entry.getValue();
+            if (key != null && (count > best || (count == best && key.compareTo(top) < 0))) {
+                top = key;
+                best = count;
+            }
+        }
+        return top;
+    }
+
+    private static void mergeCounts(Map<String, Long> counts, Map<String, Long> other) {
+        other.forEach((key, count) -> counts.merge(key, count, Long::sum));
+    }
+
+    /**
+     * Streams the values, in parallel over a list copy of them, which splits into even chunks
+     * (a map's own values split by hash buckets, which may be uneven).
+     */
+    private static <T> Stream<T> stream(Collection<T> values, boolean parallel) {
+        return parallel ? new ArrayList<>(values).parallelStream() : values.stream();
+    }
+
+}
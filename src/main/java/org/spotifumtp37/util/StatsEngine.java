@@ -0,0 +1,384 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.DataListener;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.playlist.PlayListener;
+import org.spotifumtp37.model.playlist.Playable;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps the statistics of {@link Stats} up to date as the data changes, instead of recomputing
+ * them over all albums and users on every call.
+ * <p>
+ * The engine listens to the plays ({@link PlayEvents}) and to the changes made through
+ * {@link SpotifUMData} ({@link DataListener}), and keeps running counters in rankings ordered by
+ * count, so each statistic is read in O(1) and each change costs O(log n). When whole maps are
+ * replaced it starts over from the data. Changes made directly to the entities (e.g. editing a
+ * song's play count) are not seen; {@link #rebuild()} recomputes everything after them.
+ * </p>
+ * <p>
+ * It also counts the plays in the users' histories per day and hour ({@link PlayActivity}), for
+ * activity over date ranges.
+ * </p>
+ * The answers match the batch methods of {@link Stats} over the same data, except that on a tie
+ * either may return a different one of the tied entries.
+ */
+public class StatsEngine implements PlayListener, DataListener {
+    private final SpotifUMData data;
+
+    private Ranking<Song> songs;
+    private Ranking<String> artists;
+    private Ranking<String> genres;
+    private Ranking<String> listeners;
+    private Ranking<String> creators;
+    private Map<String, Integer> songsByArtist;
+    private Map<String, User> users;
+    private Map<String, User> creatorUsers;
+    private PlayActivity activity;
+
+    /**
+     * Builds the statistics of the data and starts following it.
+     *
+     * @param data The data to follow
+     */
+    public StatsEngine(SpotifUMData data) {
+        this.data = data;
+        rebuild();
+        data.addDataListener(this);
+        PlayEvents.addListener(this);
+    }
+
+    /**
+     * Stops following the data and the plays.
+     */
+    public void close() {
+        data.removeDataListener(this);
+        PlayEvents.removeListener(this);
+    }
+
+    /**
+     * Recomputes every statistic from the data.
+     */
+    public synchronized void rebuild() {
+        songs = new Ranking<>(new IdentityHashMap<>());
+        artists = new Ranking<>(new HashMap<>());
+        genres = new Ranking<>(new HashMap<>());
+        listeners = new Ranking<>(new HashMap<>());
+        creators = new Ranking<>(new HashMap<>());
+        songsByArtist = new HashMap<>();
+        users = new HashMap<>();
+        creatorUsers = new HashMap<>();
+        activity = new PlayActivity();
+
+        DataSnapshot snapshot = data.snapshot();
+        for (Album album : snapshot.getAlbums().values()) {
+            countAlbum(album, 1);
+        }
+        for (User user : snapshot.getUsers().values()) {
+            countUser(user, 1);
+        }
+        for (Playlist playlist : snapshot.getPlaylists().values()) {
+            countCreator(playlist.getCreator(), 1);
+        }
+    }
+
+    /**
+     * @return The most played album song, or null if there are no songs
+     * @see Stats#getMostPlayedSong(Map)
+     */
+    public synchronized Song getMostPlayedSong() {
+        return songs.top();
+    }
+
+    /**
+     * @return The artist with the most plays of their album songs, or null if there are no songs
+     * @see Stats#getMostListenedArtist(Map)
+     */
+    public synchronized String getMostListenedArtist() {
+        return artists.top();
+    }
+
+    /**
+     * @return The genre played the most in the users' histories, or null if the histories are empty
+     * @see Stats#mostListenedGenre(Map)
+     */
+    public synchronized String mostListenedGenre() {
+        return genres.top();
+    }
+
+    /**
+     * @return The user with the longest history, or null if there are no users
+     * @see Stats#getTopListener(Map)
+     */
+    public synchronized User getTopListener() {
+        String name = listeners.top();
+        return name != null ? users.get(name) : null;
+    }
+
+    /**
+     * @return The user who created the most playlists, or null if no playlist has a creator
+     * @see Stats#userWithMostPlaylists(Map)
+     */
+    public synchronized User userWithMostPlaylists() {
+        String name = creators.top();
+        return name != null ? creatorUsers.get(name) : null;
+    }
+
+    /**
+     * Gets the most played album songs, most played first.
+     *
+     * @param k The number of songs wanted
+     * @return Up to k songs
+     */
+    public synchronized List<Song> getTopSongs(int k) {
+        return songs.top(k);
+    }
+
+    /**
+     * Gets the genres played the most in the users' histories, most played first.
+     *
+     * @param k The number of genres wanted
+     * @return Up to k genres
+     */
+    public synchronized List<String> getTopGenres(int k) {
+        return genres.top(k);
+    }
+
+    /**
+     * @param from The start of the period (inclusive)
+     * @return The user with the most plays since the given time, or null if there are no users
+     * @see Stats#getTopListenerFromDate(Map, LocalDateTime)
+     */
+    public synchronized User getTopListenerFromDate(LocalDateTime from) {
+        return Stats.getTopListenerFromDate(users, from);
+    }
+
+    /**
+     * Counts the plays in the users' histories in a range of days.
+     *
+     * @param from The first day (inclusive)
+     * @param to   The last day (inclusive)
+     * @return The number of plays
+     */
+    public synchronized long playsBetween(LocalDate from, LocalDate to) {
+        return activity.playsBetween(from, to);
+    }
+
+    /**
+     * @param from The first day (inclusive)
+     * @param to   The last day (inclusive)
+     * @return The number of plays of each day in the range
+     * @see PlayActivity#dailyActivity(LocalDate, LocalDate)
+     */
+    public synchronized long[] dailyActivity(LocalDate from, LocalDate to) {
+        return activity.dailyActivity(from, to);
+    }
+
+    /**
+     * @param from The first day (inclusive)
+     * @param to   The last day (inclusive)
+     * @return The number of plays in each hour of the day over the range
+     * @see PlayActivity#hourlyActivity(LocalDate, LocalDate)
+     */
+    public synchronized long[] hourlyActivity(LocalDate from, LocalDate to) {
+        return activity.hourlyActivity(from, to);
+    }
+
+    @Override
+    public synchronized void played(Playable source, User user, Song song, LocalDateTime time, double pointsDelta) {
+        // only plays of album songs held by the data change their counts
+        if (songs.contains(song)) {
+            songs.set(song, song.getTimesPlayed());
+            artists.add(song.getArtist(), 1);
+        }
+        // and only plays by the user held by the data are in its history
+        if (user != null && users.get(user.getName()) == user) {
+            listeners.add(user.getName(), 1);
+            activity.add(time, 1);
+            if (song != null && song.getGenre() != null) {
+                genres.add(song.getGenre(), 1);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void albumAdded(Album album) {
+        countAlbum(album, 1);
+    }
+
+    @Override
+    public synchronized void albumRemoved(Album album) {
+        countAlbum(album, -1);
+    }
+
+    @Override
+    public synchronized void userAdded(User user) {
+        countUser(user, 1);
+    }
+
+    @Override
+    public synchronized void userRemoved(User user) {
+        countUser(user, -1);
+    }
+
+    @Override
+    public synchronized void playlistAdded(Playlist playlist) {
+        countCreator(playlist.getCreator(), 1);
+    }
+
+    @Override
+    public synchronized void playlistRemoved(Playlist playlist) {
+        countCreator(playlist.getCreator(), -1);
+    }
+
+    @Override
+    public synchronized void playlistCreatorChanged(Playlist playlist, User oldCreator, User newCreator) {
+        countCreator(oldCreator, -1);
+        countCreator(newCreator, 1);
+    }
+
+    @Override
+    public void dataReplaced() {
+        rebuild();
+    }
+
+    private void countAlbum(Album album, int sign) {
+        for (Song song : album.getSongs()) {
+            if (sign > 0) {
+                songs.set(song, song.getTimesPlayed());
+            } else {
+                songs.remove(song);
+            }
+            artists.add(song.getArtist(), sign * (long) song.getTimesPlayed());
+            // an artist stays in the ranking (even with no plays) while they have songs
+            int artistSongs = songsByArtist.merge(song.getArtist(), sign, Integer::sum);
+            if (artistSongs <= 0) {
+                songsByArtist.remove(song.getArtist());
+                artists.remove(song.getArtist());
+            }
+        }
+    }
+
+    private void countUser(User user, int sign) {
+        if (sign > 0) {
+            users.put(user.getName(), user);
+            listeners.set(user.getName(), user.getHistoryView().size());
+        } else {
+            users.remove(user.getName());
+            listeners.remove(user.getName());
+        }
+        for (History record : user.getHistoryView()) {
+            activity.add(record.getTime(), sign);
+            Song song = record.getSongPointer();
+            if (song != null && song.getGenre() != null) {
+                genres.add(song.getGenre(), sign);
+            }
+        }
+        genres.removeZeros();
+    }
+
+    private void countCreator(User creator, int sign) {
+        if (creator == null) {
+            return;
+        }
+        if (sign > 0) {
+            creatorUsers.putIfAbsent(creator.getName(), creator);
+        }
+        creators.add(creator.getName(), sign);
+        if (creators.count(creator.getName()) <= 0) {
+            creators.remove(creator.getName());
+            creatorUsers.remove(creator.getName());
+        }
+    }
+
+    /**
+     * Counters ordered by count (highest first, then by when the key was first counted),
+     * so the top entries are read without going through all of them.
+     */
+    private static final class Ranking<K> {
+        private final Map<K, Entry<K>> entries;
+        private final TreeSet<Entry<K>> order = new TreeSet<>(
+                Comparator.<Entry<K>>comparingLong(entry -> entry.count).reversed()
+                        .thenComparingLong(entry -> entry.sequence));
+        private long nextSequence;
+
+        Ranking(Map<K, Entry<K>> entries) {
+            this.entries = entries;
+        }
+
+        boolean contains(K key) {
+            return key != null && entries.containsKey(key);
+        }
+
+        long count(K key) {
+            Entry<K> entry = entries.get(key);
+            return entry != null ? entry.count : 0;
+        }
+
+        void add(K key, long delta) {
+            Entry<K> entry = entries.get(key);
+            set(key, (entry != null ? entry.count : 0) + delta);
+        }
+
+        void set(K key, long count) {
+            Entry<K> entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry<>(key, nextSequence++);
+                entries.put(key, entry);
+            } else {
+                order.remove(entry);
+            }
+            entry.count = count;
+            order.add(entry);
+        }
+
+        void remove(K key) {
+            Entry<K> entry = entries.remove(key);
+            if (entry != null) {
+                order.remove(entry);
+            }
+        }
+
+        void removeZeros() {
+            while (!order.isEmpty() && order.last().count <= 0) {
+                entries.remove(order.pollLast().key);
+            }
+        }
+
+        K top() {
+            return order.isEmpty() ? null : order.first().key;
+        }
+
+        List<K> top(int k) {
+            List<K> top = new ArrayList<>(Math.min(k, order.size()));
+            for (Entry<K> entry : order) {
+                if (top.size() == k) {
+                    break;
+                }
+                top.add(entry.key);
+            }
+            return top;
+        }
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        private final long sequence;
+        private long count;
+
+        Entry(K key, long sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+}
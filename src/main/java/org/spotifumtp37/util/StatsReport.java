@@ -0,0 +1,370 @@
+package org.spotifumtp37.util;
+
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * All the system statistics at one point in time, built by {@link Stats#report} in one pass over
+ * the albums, users and playlists.
+ * <p>
+ * Besides the answers of the single {@link Stats} methods it has the plays per genre and per
+ * artist, and the users, plays and points per subscription plan. The report is immutable: it keeps
+ * names and counts (and a copy of the most played song), not the users or albums themselves.
+ * On a tie the entry with the smallest name wins, so the report is the same however it was split.
+ * </p>
+ */
+public final class StatsReport {
+    private final Song mostPlayedSong;
+    private final String mostListenedArtist;
+    private final String topListener;
+    private final int topListenerPlays;
+    private final String userWithMostPoints;
+    private final double mostPoints;
+    private final String mostListenedGenre;
+    private final String userWithMostPlaylists;
+    private final long playlistsOfTopCreator;
+    private final long publicPlaylists;
+    private final int albums;
+    private final int songs;
+    private final int users;
+    private final int playlists;
+    private final long totalPlays;
+    private final Map<String, Long> playsByGenre;
+    private final Map<String, Long> playsByArtist;
+    private final Map<String, Long> usersByPlan;
+    private final Map<String, Long> playsByPlan;
+    private final Map<String, Double> pointsByPlan;
+
+    private StatsReport(Counts counts) {
+        this.mostPlayedSong = counts.mostPlayedSong != null ? counts.mostPlayedSong.clone() : null;
+        this.mostListenedArtist = Stats.topKey(counts.playsByArtist);
+        this.topListener = counts.topListener;
+        this.topListenerPlays = counts.topListenerPlays;
+        this.userWithMostPoints = counts.userWithMostPoints;
+        this.mostPoints = counts.mostPoints;
+        this.mostListenedGenre = Stats.topKey(counts.playsByGenre);
+        this.userWithMostPlaylists = Stats.topKey(counts.playlistsByCreator);
+        this.playlistsOfTopCreator = userWithMostPlaylists != null ? counts.playlistsByCreator.get(userWithMostPlaylists) : 0;
+        this.publicPlaylists = counts.publicPlaylists;
+        this.albums = counts.albums;
+        this.songs = counts.songs;
+        this.users = counts.users;
+        this.playlists = counts.playlists;
+        this.totalPlays = counts.totalPlays;
+        this.playsByGenre = Collections.unmodifiableMap(new TreeMap<>(counts.playsByGenre));
+        this.playsByArtist = Collections.unmodifiableMap(new TreeMap<>(counts.playsByArtist));
+        this.usersByPlan = Collections.unmodifiableMap(new TreeMap<>(counts.usersByPlan));
+        this.playsByPlan = Collections.unmodifiableMap(new TreeMap<>(counts.playsByPlan));
+        Map<String, Double> pointsByPlan = new TreeMap<>();
+        counts.pointsByPlan.forEach((plan, points) -> pointsByPlan.put(plan, points.doubleValue()));
+        this.pointsByPlan = Collections.unmodifiableMap(pointsByPlan);
+    }
+
+    /**
+     * @return A copy of the most played album song, or null if there are no songs
+     */
+    public Song getMostPlayedSong() {
+        return mostPlayedSong != null ? mostPlayedSong.clone() : null;
+    }
+
+    /**
+     * @return The artist with the most plays of their album songs, or null if there are no songs
+     */
+    public String getMostListenedArtist() {
+        return mostListenedArtist;
+    }
+
+    /**
+     * @return The name of the user with the longest history, or null if there are no users
+     */
+    public String getTopListener() {
+        return topListener;
+    }
+
+    /**
+     * @return The size of the top listener's history
+     */
+    public int getTopListenerPlays() {
+        return topListenerPlays;
+    }
+
+    /**
+     * @return The name of the user with the most points, or null if there are no users
+     */
+    public String getUserWithMostPoints() {
+        return userWithMostPoints;
+    }
+
+    /**
+     * @return The points of the user with the most points
+     */
+    public double getMostPoints() {
+        return mostPoints;
+    }
+
+    /**
+     * @return The genre played the most in the users' histories, or null if the histories are empty
+     */
+    public String getMostListenedGenre() {
+        return mostListenedGenre;
+    }
+
+    /**
+     * @return The name of the user who created the most playlists, or null if no playlist has a creator
+     */
+    public String getUserWithMostPlaylists() {
+        return userWithMostPlaylists;
+    }
+
+    /**
+     * @return The number of playlists created by the user who created the most
+     */
+    public long getPlaylistsOfTopCreator() {
+        return playlistsOfTopCreator;
+    }
+
+    /**
+     * @return The number of public playlists
+     */
+    public long getPublicPlaylists() {
+        return publicPlaylists;
+    }
+
+    /**
+     * @return The number of albums
+     */
+    public int getAlbums() {
+        return albums;
+    }
+
+    /**
+     * @return The number of album songs
+     */
+    public int getSongs() {
+        return songs;
+    }
+
+    /**
+     * @return The number of users
+     */
+    public int getUsers() {
+        return users;
+    }
+
+    /**
+     * @return The number of playlists
+     */
+    public int getPlaylists() {
+        return playlists;
+    }
+
+    /**
+     * @return The number of plays in all the users' histories
+     */
+    public long getTotalPlays() {
+        return totalPlays;
+    }
+
+    /**
+     * @return The plays in the users' histories per genre, by genre name
+     */
+    public Map<String, Long> getPlaysByGenre() {
+        return playsByGenre;
+    }
+
+    /**
+     * @return The plays of the album songs per artist, by artist name
+     */
+    public Map<String, Long> getPlaysByArtist() {
+        return playsByArtist;
+    }
+
+    /**
+     * @return The number of users per subscription plan, by plan name
+     */
+    public Map<String, Long> getUsersByPlan() {
+        return usersByPlan;
+    }
+
+    /**
+     * @return The plays in the users' histories per subscription plan, by plan name
+     */
+    public Map<String, Long> getPlaysByPlan() {
+        return playsByPlan;
+    }
+
+    /**
+     * @return The points of the users per subscription plan, by plan name
+     */
+    public Map<String, Double> getPointsByPlan() {
+        return pointsByPlan;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        StatsReport other = (StatsReport) obj;
+        return topListenerPlays == other.topListenerPlays
+                && Double.compare(mostPoints, other.mostPoints) == 0
+                && playlistsOfTopCreator == other.playlistsOfTopCreator
+                && publicPlaylists == other.publicPlaylists
+                && albums == other.albums
+                && songs == other.songs
+                && users == other.users
+                && playlists == other.playlists
+                && totalPlays == other.totalPlays
+                && Objects.equals(mostPlayedSong, other.mostPlayedSong)
+                && Objects.equals(mostListenedArtist, other.mostListenedArtist)
+                && Objects.equals(topListener, other.topListener)
+                && Objects.equals(userWithMostPoints, other.userWithMostPoints)
+                && Objects.equals(mostListenedGenre, other.mostListenedGenre)
+                && Objects.equals(userWithMostPlaylists, other.userWithMostPlaylists)
+                && playsByGenre.equals(other.playsByGenre)
+                && playsByArtist.equals(other.playsByArtist)
+                && usersByPlan.equals(other.usersByPlan)
+                && playsByPlan.equals(other.playsByPlan)
+                && pointsByPlan.equals(other.pointsByPlan);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mostListenedArtist, topListener, userWithMostPoints, mostListenedGenre,
+                userWithMostPlaylists, albums, songs, users, playlists, totalPlays);
+    }
+
+    @Override
+    public String toString() {
+        return "StatsReport{" +
+                "mostPlayedSong=" + (mostPlayedSong != null ? mostPlayedSong.getName() : null) +
+                ", mostListenedArtist='" + mostListenedArtist + '\'' +
+                ", topListener='" + topListener + '\'' +
+                ", userWithMostPoints='" + userWithMostPoints + '\'' +
+                ", mostListenedGenre='" + mostListenedGenre + '\'' +
+                ", userWithMostPlaylists='" + userWithMostPlaylists + '\'' +
+                ", publicPlaylists=" + publicPlaylists +
+                ", totalPlays=" + totalPlays +
+                '}';
+    }
+
+    /**
+     * Mutable running counts of a part of the data. Each part is counted on its own (possibly on
+     * its own thread) and the parts are merged, then turned into a report with {@link #build()}.
+     */
+    static final class Counts {
+        private Song mostPlayedSong;
+        private String topListener;
+        private int topListenerPlays = -1;
+        private String userWithMostPoints;
+        private double mostPoints = Double.NEGATIVE_INFINITY;
+        private long publicPlaylists;
+        private int albums;
+        private int songs;
+        private int users;
+        private int playlists;
+        private long totalPlays;
+        private final Map<String, Long> playsByGenre = new HashMap<>();
+        private final Map<String, Long> playsByArtist = new HashMap<>();
+        private final Map<String, Long> playlistsByCreator = new HashMap<>();
+        private final Map<String, Long> usersByPlan = new HashMap<>();
+        private final Map<String, Long> playsByPlan = new HashMap<>();
+        // summed exactly, so the totals do not depend on the order the users were added in
+        private final Map<String, BigDecimal> pointsByPlan = new HashMap<>();
+
+        void addAlbum(Album album) {
+            albums++;
+            for (Song song : album.getSongs()) {
+                songs++;
+                addSong(song);
+                if (song.getArtist() != null) {
+                    playsByArtist.merge(song.getArtist(), (long) song.getTimesPlayed(), Long::sum);
+                }
+            }
+        }
+
+        void addUser(User user) {
+            users++;
+            List<History> history = user.getHistoryView();
+            for (History record : history) {
+                Song song = record.getSongPointer();
+                if (song != null && song.getGenre() != null) {
+                    playsByGenre.merge(song.getGenre(), 1L, Long::sum);
+                }
+            }
+            totalPlays += history.size();
+            addListener(user.getName(), history.size());
+            addPoints(user.getName(), user.getPontos());
+
+            String plan = user.getSubscriptionPlan() != null ? user.getSubscriptionPlan().getClass().getSimpleName() : "None";
+            usersByPlan.merge(plan, 1L, Long::sum);
+            playsByPlan.merge(plan, (long) history.size(), Long::sum);
+            pointsByPlan.merge(plan, new BigDecimal(user.getPontos()), BigDecimal::add);
+        }
+
+        void addPlaylist(Playlist playlist) {
+            playlists++;
+            if (playlist.isPublic()) {
+                publicPlaylists++;
+            }
+            if (playlist.getCreator() != null) {
+                playlistsByCreator.merge(playlist.getCreator().getName(), 1L, Long::sum);
+            }
+        }
+
+        void merge(Counts other) {
+            if (other.mostPlayedSong != null) {
+                addSong(other.mostPlayedSong);
+            }
+            if (other.topListener != null) {
+                addListener(other.topListener, other.topListenerPlays);
+            }
+            if (other.userWithMostPoints != null) {
+                addPoints(other.userWithMostPoints, other.mostPoints);
+            }
+            publicPlaylists += other.publicPlaylists;
+            albums += other.albums;
+            songs += other.songs;
+            users += other.users;
+            playlists += other.playlists;
+            totalPlays += other.totalPlays;
+            other.playsByGenre.forEach((key, count) -> playsByGenre.merge(key, count, Long::sum));
+            other.playsByArtist.forEach((key, count) -> playsByArtist.merge(key, count, Long::sum));
+            other.playlistsByCreator.forEach((key, count) -> playlistsByCreator.merge(key, count, Long::sum));
+            other.usersByPlan.forEach((key, count) -> usersByPlan.merge(key, count, Long::sum));
+            other.playsByPlan.forEach((key, count) -> playsByPlan.merge(key, count, Long::sum));
+            other.pointsByPlan.forEach((key, points) -> pointsByPlan.merge(key, points, BigDecimal::add));
+        }
+
+        StatsReport build() {
+            return new StatsReport(this);
+        }
+
+        private void addSong(Song song) {
+            if (mostPlayedSong == null || song.getTimesPlayed() > mostPlayedSong.getTimesPlayed()
+                    || (song.getTimesPlayed() == mostPlayedSong.getTimesPlayed() && Stats.SONG_ORDER.compare(song, mostPlayedSong) < 0)) {
+                mostPlayedSong = song;
+            }
+        }
+
+        private void addListener(String name, int plays) {
+            if (plays > topListenerPlays || (plays == topListenerPlays && name.compareTo(topListener) < 0)) {
+                topListener = name;
+                topListenerPlays = plays;
+            }
+        }
+
+        private void addPoints(String name, double points) {
+            int byPoints = Double.compare(points, mostPoints);
+            if (byPoints > 0 || (byPoints == 0 && name.compareTo(userWithMostPoints) < 0)) {
+                userWithMostPoints = name;
+                mostPoints = points;
+            }
+        }
+    }
+}
@@ -1,34 +1,51 @@
 // SubscriptionPlanAdapter.java
 package org.spotifumtp37.util;
 
-import com.google.gson.*;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import org.spotifumtp37.model.subscription.*;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 /**
  * Handles both writing and reading SubscriptionPlan subtypes
  */
-public class SubscriptionPlanAdapter
-        implements JsonSerializer<SubscriptionPlan>, JsonDeserializer<SubscriptionPlan> {
+public class SubscriptionPlanAdapter extends TypeAdapter<SubscriptionPlan> {
 
     @Override
-    public JsonElement serialize(SubscriptionPlan src, Type typeOfSrc, JsonSerializationContext ctx) {
-        JsonObject obj = (JsonObject) ctx.serialize(src, src.getClass());
-        // add a "type" property so we can round‑trip it
-        obj.addProperty("type", src.getClass().getSimpleName());
-        return obj;
+    public void write(JsonWriter out, SubscriptionPlan src) throws IOException {
+        if (src == null) {
+            out.nullValue();
+            return;
+        }
+        // the plans have no state, a "type" property is enough to round-trip them
+        out.beginObject();
+        out.name("type").value(src.getClass().getSimpleName());
+        out.endObject();
     }
 
     @Override
-    public SubscriptionPlan deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext ctx)
-            throws JsonParseException {
-        JsonObject obj = json.getAsJsonObject();
-        String kind = obj.has("type") ? obj.get("type").getAsString() : "FreePlan";
+    public SubscriptionPlan read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String kind = "FreePlan";
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("type") && in.peek() == JsonToken.STRING) {
+                kind = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
         return switch (kind) {
-            case "PremiumBase" -> ctx.deserialize(obj, PremiumBase.class);
-            case "PremiumTop" -> ctx.deserialize(obj, PremiumTop.class);
-            default -> ctx.deserialize(obj, FreePlan.class);
+            case "PremiumBase" -> new PremiumBase();
+            case "PremiumTop" -> new PremiumTop();
+            default -> new FreePlan();
         };
     }
 }
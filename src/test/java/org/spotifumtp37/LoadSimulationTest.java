@@ -0,0 +1,80 @@
+package org.spotifumtp37;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.user.User;
+import org.spotifumtp37.util.DatasetGenerator;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadSimulationTest {
+
+    @AfterEach
+    void tearDown() {
+        PlayEvents.setListener(null);
+    }
+
+    private static long timesPlayed(SpotifUMData data) {
+        long total = 0;
+        for (Album album : data.getMapAlbumsView().values()) {
+            for (Song song : album.getSongs()) {
+                total += song.getTimesPlayed();
+            }
+        }
+        return total;
+    }
+
+    @Test
+    void countsEveryOperation() throws InterruptedException {
+        SpotifUMData data = new DatasetGenerator(37, 20, 200, 10, 0, 0).generate();
+        AtomicLong plays = new AtomicLong();
+        PlayEvents.addListener((source, user, song, time, pointsDelta) -> plays.incrementAndGet());
+
+        LoadSimulation simulation = new LoadSimulation(data, 50);
+        simulation.setThreads(2);
+        simulation.setPlanShares(0.5, 0.0);
+        LoadSimulation.Report report = simulation.run(Duration.ofMillis(300));
+
+        long played = report.getCount(LoadSimulation.Operation.PLAY);
+        assertTrue(played > 0);
+        assertEquals(played, plays.get());
+        assertEquals(played, timesPlayed(data));
+        long history = 0;
+        for (int i = 0; i < 50; i++) {
+            history += data.getCurrentUserPointer("sim-" + i).getHistoryView().size();
+        }
+        assertEquals(played, history);
+        assertEquals(50, report.getUsersByPlan().values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(2, report.getUsersByPlan().size());
+        // the free users cannot go back, the premium ones can
+        long previous = report.getCount(LoadSimulation.Operation.PREVIOUS);
+        assertTrue(report.getDeniedPrevious() > 0 && report.getDeniedPrevious() < previous);
+        assertTrue(report.getPlaysPerSecond() > 0);
+        assertTrue(report.toString().contains("plays/s"));
+    }
+
+    @Test
+    void keepsToTheRate() throws InterruptedException {
+        SpotifUMData data = new DatasetGenerator(37, 5, 50, 0, 0, 0).generate();
+        LoadSimulation simulation = new LoadSimulation(data, 20);
+        simulation.setPlanShares(0, 0);
+        simulation.setRate(50);
+        simulation.setOperationMix(1, 0, 0, 0);
+        LoadSimulation.Report report = simulation.run(Duration.ofSeconds(1));
+
+        // 20 free users at 50 operations per second for a second, all plays
+        long played = report.getCount(LoadSimulation.Operation.PLAY);
+        assertTrue(played > 700 && played < 1300, "played " + played);
+        assertEquals(0, report.getCount(LoadSimulation.Operation.NEXT));
+        for (User user : data.getMapUsersView().values()) {
+            assertEquals(5.0 * user.getHistoryView().size(), user.getPontos(), 1e-9);
+        }
+    }
+}
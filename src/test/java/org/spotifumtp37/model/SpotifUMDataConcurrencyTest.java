@@ -0,0 +1,199 @@
+package org.spotifumtp37.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.user.User;
+import org.spotifumtp37.util.Stats;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress tests of the concurrent mode: many threads play, add and remove at the same time, and
+ * nothing may be lost.
+ */
+class SpotifUMDataConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int USERS = 4;
+    private static final int PLAYS = 20_000;
+
+    private SpotifUMData data;
+
+    interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    @BeforeEach
+    void setUp() throws AlreadyExistsException {
+        data = new SpotifUMData();
+        List<Song> songs = List.of(
+                new Song("Song1", "Artist1", "Publisher1", "Lyrics1", "Notes1", "Rock", 180),
+                new Song("Song2", "Artist1", "Publisher1", "Lyrics2", "Notes2", "Rock", 200));
+        data.addAlbum(new Album("Album1", "Artist1", 2000, "Rock", songs));
+        for (int u = 0; u < USERS; u++) {
+            data.addUser(new User("user" + u, "user" + u + "@email.com", "Address", new FreePlan(), "pass", 0, new ArrayList<>()));
+        }
+        data.makeConcurrent();
+    }
+
+    @AfterEach
+    void tearDown() {
+        PlayEvents.setListener(null);
+    }
+
+    /**
+     * Runs the task on several threads, all started at once, and rethrows the first failure.
+     */
+    private static void runConcurrently(int threads, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                try {
+                    future.get(2, TimeUnit.MINUTES);
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentPlaysAreNotLost() throws Exception {
+        Album album = data.getAlbum("Album1");
+        Song played = album.getSongs().get(0);
+        album.setCurrentSong(played);
+        AtomicInteger events = new AtomicInteger();
+        PlayEvents.addListener((source, user, song, time, pointsDelta) -> events.incrementAndGet());
+        AtomicInteger playing = new AtomicInteger(THREADS);
+
+        // one more thread reads the whole data while the others play
+        runConcurrently(THREADS + 1, thread -> {
+            if (thread == THREADS) {
+                while (playing.get() > 0) {
+                    DataSnapshot snapshot = data.snapshot();
+                    Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists());
+                }
+                return;
+            }
+            try {
+                User user = data.getCurrentUserPointer("user" + (thread % USERS));
+                for (int i = 0; i < PLAYS; i++) {
+                    album.play(user);
+                }
+            } finally {
+                playing.decrementAndGet();
+            }
+        });
+
+        assertEquals(THREADS * PLAYS, played.getTimesPlayed());
+        assertEquals(THREADS * PLAYS, events.get());
+        int playsPerUser = THREADS / USERS * PLAYS;
+        for (int u = 0; u < USERS; u++) {
+            User user = data.getCurrentUserPointer("user" + u);
+            assertEquals(playsPerUser, user.getHistoryView().size());
+            assertEquals(playsPerUser, user.countPlaysFrom(null));
+            assertEquals(5.0 * playsPerUser, user.getPontos());
+            for (int i = 0; i < playsPerUser; i += 997) {
+                assertEquals("Song1", user.getHistoryView().get(i).getSongPointer().getName());
+            }
+        }
+    }
+
+    @Test
+    void concurrentAddsAndRemovesAreAtomic() throws Exception {
+        int names = 1000;
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger alreadyThere = new AtomicInteger();
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < names; i++) {
+                try {
+                    data.addUser(new User("listener" + i, "", "", new FreePlan(), "", 0, new ArrayList<>()));
+                    added.incrementAndGet();
+                } catch (AlreadyExistsException e) {
+                    alreadyThere.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(names, added.get());
+        assertEquals((THREADS - 1) * names, alreadyThere.get());
+        assertEquals(USERS + names, data.getMapUsersView().size());
+
+        AtomicInteger removed = new AtomicInteger();
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < names; i++) {
+                try {
+                    data.removeUser("listener" + i);
+                    removed.incrementAndGet();
+                } catch (DoesntExistException e) {
+                    // removed by another thread
+                }
+            }
+        });
+        assertEquals(names, removed.get());
+        assertEquals(USERS, data.getMapUsersView().size());
+    }
+
+    @Test
+    void playlistIndexStaysConsistent() throws Exception {
+        List<Song> songs = data.getAlbum("Album1").getSongs();
+        runConcurrently(THREADS, thread -> {
+            User creator = data.getCurrentUserPointer("user" + (thread % USERS));
+            for (int i = 0; i < 500; i++) {
+                String name = "list" + (i % 50);
+                try {
+                    data.addPlaylist(new Playlist(creator, name, "", 0, "public", songs));
+                } catch (AlreadyExistsException e) {
+                    // another thread added it first
+                }
+                if (i % 3 == 0) {
+                    try {
+                        data.removePlaylist(name);
+                    } catch (DoesntExistException e) {
+                        // another thread removed it first
+                    }
+                }
+            }
+        });
+
+        Map<String, Set<String>> expected = new HashMap<>();
+        for (Map.Entry<String, Playlist> entry : data.getMapPlaylistsView().entrySet()) {
+            expected.computeIfAbsent(entry.getValue().getCreator().getName(), name -> new HashSet<>()).add(entry.getKey());
+        }
+        for (int u = 0; u < USERS; u++) {
+            User user = data.getCurrentUserPointer("user" + u);
+            assertEquals(expected.getOrDefault(user.getName(), Set.of()), data.getPlaylistMapByCreator(user).keySet());
+        }
+    }
+
+    @Test
+    void concurrentModeKeepsTheData() throws DoesntExistException {
+        assertTrue(data.isConcurrent());
+        assertEquals(USERS, data.getMapUsersView().size());
+        assertTrue(data.existsAlbum("Album1"));
+        assertEquals("Song2", data.getSong("Song2", "Album1").getName());
+    }
+}
@@ -0,0 +1,142 @@
+package org.spotifumtp37.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.user.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifUMDataTest {
+
+    private SpotifUMData data;
+    private User alice;
+    private User bob;
+    private List<Song> songs;
+
+    @BeforeEach
+    void setUp() throws AlreadyExistsException {
+        data = new SpotifUMData();
+        alice = new User("alice", "alice@email.com", "Address1", new FreePlan(), "pass1", 0, new ArrayList<>());
+        bob = new User("bob", "bob@email.com", "Address2", new FreePlan(), "pass2", 0, new ArrayList<>());
+        data.addUser(alice);
+        data.addUser(bob);
+        songs = List.of(new Song("Song1", "Artist1", "Publisher1", "Lyrics1", "Notes1", "Rock", 180));
+    }
+
+    @Test
+    void playlistsByCreatorFollowAddAndRemove() throws AlreadyExistsException, DoesntExistException {
+        data.addPlaylist(new Playlist(alice, "Mine", "", 0, "private", songs));
+        data.addPlaylist(new Playlist(bob, "His", "", 0, "private", songs));
+        assertEquals(Set.of("Mine"), data.getPlaylistMapByCreator(alice).keySet());
+
+        data.addPlaylist(new Playlist(alice, "Mine too", "", 0, "public", songs));
+        assertEquals(Set.of("Mine", "Mine too"), data.getPlaylistMapByCreator(alice).keySet());
+
+        data.removePlaylist("Mine");
+        assertEquals(Set.of("Mine too"), data.getPlaylistMapByCreator(alice).keySet());
+        assertEquals(Set.of("His"), data.getPlaylistMapByCreator(bob).keySet());
+    }
+
+    @Test
+    void playlistsByCreatorFollowCreatorChanges() throws AlreadyExistsException, DoesntExistException {
+        data.addPlaylist(new Playlist(alice, "Shared", "", 0, "private", songs));
+        assertEquals(1, data.getPlaylistMapByCreator(alice).size());
+
+        data.getPlaylist("Shared").setCreatorUsername(bob);
+        assertTrue(data.getPlaylistMapByCreator(alice).isEmpty());
+        assertEquals(Set.of("Shared"), data.getPlaylistMapByCreator(bob).keySet());
+        assertThrows(DoesntExistException.class, () -> data.getAnyPlaylist("Shared", alice));
+        assertNotNull(data.getAnyPlaylist("Shared", bob));
+    }
+
+    @Test
+    void playlistsByCreatorFollowSetMapPlaylists() throws AlreadyExistsException {
+        data.addPlaylist(new Playlist(alice, "Old", "", 0, "private", songs));
+        assertEquals(1, data.getPlaylistMapByCreator(alice).size());
+
+        Map<String, Playlist> replacement = new HashMap<>();
+        replacement.put("New", new Playlist(bob, "New", "", 0, "private", songs));
+        data.setMapPlaylists(replacement);
+        assertTrue(data.getPlaylistMapByCreator(alice).isEmpty());
+        assertEquals(Set.of("New"), data.getPlaylistMapByCreator(bob).keySet());
+    }
+
+    @Test
+    void getAnyPlaylistChecksOwnershipOrVisibility() throws AlreadyExistsException, DoesntExistException {
+        data.addPlaylist(new Playlist(alice, "Private", "", 0, "private", songs));
+        data.addPlaylist(new Playlist(alice, "Public", "", 0, "public", songs));
+
+        assertNotNull(data.getAnyPlaylist("Private", alice));
+        assertThrows(DoesntExistException.class, () -> data.getAnyPlaylist("Private", bob));
+        assertNotNull(data.getAnyPlaylist("Public", bob));
+        assertThrows(DoesntExistException.class, () -> data.getAnyPlaylist("Missing", alice));
+    }
+
+    @Test
+    void songsGetStableIdsFromTheCatalog() throws AlreadyExistsException, DoesntExistException {
+        Album album = new Album("Album1", "Artist1", 2020, "Rock", songs);
+        album.addSong("Song2", "Publisher1", "Lyrics2", "Notes2", "Rock", 200, false, false, "");
+        data.addAlbum(album);
+
+        Song first = data.getSong("Song1", "Album1");
+        Song second = data.getSong("Song2", "Album1");
+        assertNotEquals(0, first.getId());
+        assertNotEquals(0, second.getId());
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(first.getId(), data.getSong("Song1", "Album1").getId());
+
+        data.addAlbum(new Album("Album2", "Artist1", 2021, "Rock", songs));
+        assertNotEquals(first.getId(), data.getSong("Song1", "Album2").getId());
+    }
+
+    @Test
+    void playlistMembershipSurvivesPlays() throws AlreadyExistsException, DoesntExistException {
+        data.addAlbum(new Album("Album1", "Artist1", 2020, "Rock", songs));
+        Song song = data.getSong("Song1", "Album1");
+        Playlist playlist = new Playlist(alice, "Mine", "", 0, "private", List.of(song));
+        data.addPlaylist(playlist);
+
+        Playlist stored = data.getPlaylist("Mine");
+        stored.play(data.getCurrentUserPointer("alice"));
+        assertEquals(1, stored.getCurrentSong().getTimesPlayed());
+        assertEquals(song, stored.getCurrentSong());
+        assertTrue(stored.getSongs().contains(song));
+    }
+
+    @Test
+    void snapshotKeepsThePointInTimeMaps() throws AlreadyExistsException, DoesntExistException {
+        data.addPlaylist(new Playlist(alice, "Before", "", 0, "private", songs));
+        DataSnapshot snapshot = data.snapshot();
+
+        data.addPlaylist(new Playlist(alice, "After", "", 0, "private", songs));
+        data.removeUser("bob");
+        User carol = new User("carol", "carol@email.com", "Address3", new FreePlan(), "pass3", 0, new ArrayList<>());
+        data.addUser(carol);
+
+        assertEquals(Set.of("Before"), snapshot.getPlaylists().keySet());
+        assertEquals(Set.of("alice", "bob"), snapshot.getUsers().keySet());
+        assertEquals(Set.of("Before", "After"), data.getMapPlaylists().keySet());
+        assertEquals(Set.of("alice", "carol"), data.getMapUsers().keySet());
+        // entities are shared, not copied
+        assertSame(data.getCurrentUserPointer("alice"), snapshot.getUsers().get("alice"));
+    }
+
+    @Test
+    void snapshotIsReadOnly() {
+        DataSnapshot snapshot = data.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getUsers().remove("alice"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getAlbums().clear());
+    }
+}
@@ -171,6 +171,24 @@ class AlbumTest {
         assertEquals(2, album.getSongs().size()); // Original album still has 2 songs
     }
 
+    @Test
+    void songLookupFollowsAddAndDelete() {
+        // Look up before and after changing the songs, so the index is already built
+        assertTrue(album.hasSong("Song1"));
+        assertSame(album.getSongs().get(0), album.getSongPointer("Song1"));
+        assertFalse(album.hasSong("Song3"));
+        assertNull(album.getSongPointer("Song3"));
+
+        album.addSong("Song3", "Publisher1", "Lyrics3", "Notes3", "Jazz", 200, false, false, null);
+        assertTrue(album.hasSong("Song3"));
+        assertEquals("Lyrics3", album.getSongPointer("Song3").getLyrics());
+
+        album.deleteSong("Song1");
+        assertFalse(album.hasSong("Song1"));
+        assertNull(album.getSongPointer("Song1"));
+        assertTrue(album.hasSong("Song2"));
+    }
+
     @Test
     void getTitle() {
         assertEquals("Test Album", album.getTitle());
@@ -334,4 +352,59 @@ class AlbumTest {
         assertTrue(albumString.contains("2022"));
         assertTrue(albumString.contains("Mixed"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void nextFollowsCloneAndDelete() throws SubscriptionDoesNotAllowException {
+        album.addSong("Song3", "Publisher1", "Lyrics3", "Notes3", "Rock", 200, false, false, "");
+        album.setCurrentSong(album.getSongPointer("Song2"));
+        album.play(premiumUser);
+
+        Album copy = album.clone();
+        copy.next(premiumUser);
+        assertEquals("Song3", copy.getCurrentSong().getName());
+
+        album.deleteSong("Song1");
+        album.previous(premiumUser);
+        assertEquals("Song3", album.getCurrentSong().getName());
+        album.next(premiumUser);
+        assertEquals("Song2", album.getCurrentSong().getName());
+    }
+
+    @Test
+    void playbackHasItsOwnCursor() {
+        album.setCurrentSong(album.getSongPointer("Song1"));
+        Album playback = album.playback();
+        assertEquals("Song1", playback.getCurrentSong().getName());
+
+        playback.next(premiumUser);
+        playback.play(premiumUser);
+        assertEquals("Song1", album.getCurrentSong().getName());
+        assertSame(album.getSongPointer("Song2"), playback.getCurrentSong());
+        assertEquals(1, album.getSongPointer("Song2").getTimesPlayed());
+    }
+
+    @Test
+    void playbackKeepsTheSongsItStartedWith() {
+        Album playback = album.playback();
+        List<Song> before = playback.getSongs();
+        album.deleteSong("Song2");
+        album.addSong("Song9", "Publisher", "Lyrics", "Notes", "Rock", 100, false, false, null);
+
+        assertEquals(before, playback.getSongs());
+        assertNotNull(playback.getSongPointer("Song2"));
+        assertNull(playback.getSongPointer("Song9"));
+        assertNull(album.getSongPointer("Song2"));
+    }
+
+    @Test
+    void lookupWithRepeatedNames() {
+        Song again = new Song("Song1", "Artist1", "Publisher1", "Other lyrics", "Notes1", "Rock", 100);
+        Album repeated = new Album("Repeated", "Artist1", 2022, "Mixed", List.of(song1, again, song2));
+        assertEquals("Lyrics1", repeated.getSongPointer("Song1").getLyrics());
+
+        assertTrue(repeated.deleteSong("Song1"));
+        assertNull(repeated.getSongPointer("Song1"));
+        assertEquals(1, repeated.getSongs().size());
+        assertEquals("Lyrics2", repeated.getSongPointer("Song2").getLyrics());
+    }
+}
@@ -0,0 +1,147 @@
+package org.spotifumtp37.model.album;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.util.JsonDataParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCatalogTest {
+
+    private SpotifUMData data;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+    }
+
+    @Test
+    void catalogHasEveryAlbumAndSong(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("catalog.spmc");
+        MappedCatalog.write(data.getMapAlbumsView().values(), file);
+        MappedCatalog catalog = MappedCatalog.open(file);
+
+        assertEquals(data.getMapAlbumsView().size(), catalog.getAlbumCount());
+        for (Album album : data.getMapAlbumsView().values()) {
+            Album view = catalog.getAlbum(album.getTitle());
+            assertNotNull(view);
+            assertEquals(album.getArtist(), view.getArtist());
+            assertEquals(album.getGenre(), view.getGenre());
+            assertEquals(album.getReleaseYear(), view.getReleaseYear());
+            assertEquals(album.getSongs().size(), view.getSongs().size());
+            for (int i = 0; i < album.getSongs().size(); i++) {
+                Song song = album.getSongs().get(i);
+                Song other = view.getSongs().get(i);
+                assertEquals(song.getName(), other.getName());
+                assertEquals(song.getLyrics(), other.getLyrics());
+                assertEquals(song.getMusicalNotes(), other.getMusicalNotes());
+                assertEquals(song.getDurationInSeconds(), other.getDurationInSeconds());
+                assertEquals(song.getTimesPlayed(), other.getTimesPlayed());
+                assertEquals(song.isExplicit(), other.isExplicit());
+                assertEquals(song.isMultimedia(), other.isMultimedia());
+                // clones of the views are regular songs
+                assertEquals(song, other.clone());
+            }
+        }
+        assertNull(catalog.getAlbum("Not an album"));
+    }
+
+    @Test
+    void multimediaViewsKeepTheVideoLink(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("catalog.spmc");
+        MappedCatalog.write(data.getMapAlbumsView().values(), file);
+
+        Song speakToMe = MappedCatalog.open(file).getAlbum("The Dark Side of the Moon").getSongs().get(0);
+        assertInstanceOf(MultimediaSong.class, speakToMe);
+        assertEquals("https://www.youtube.com/watch?v=qkEn2Puh5xg", ((MultimediaSong) speakToMe).getVideoLink());
+    }
+
+    @Test
+    void dataFallsBackToTheCatalog(@TempDir Path dir) throws IOException, DoesntExistException {
+        Path file = dir.resolve("catalog.spmc");
+        MappedCatalog.write(data.getMapAlbumsView().values(), file);
+
+        SpotifUMData mapped = new SpotifUMData();
+        mapped.attachCatalog(MappedCatalog.open(file));
+
+        assertTrue(mapped.existsAlbum("The Dark Side of the Moon"));
+        assertTrue(mapped.existsSong("Breathe", "The Dark Side of the Moon"));
+        assertEquals("Breathe", mapped.getSong("Breathe", "The Dark Side of the Moon").getName());
+
+        // changes to albums read from the catalog are kept in memory
+        Album album = mapped.getAlbum("The Dark Side of the Moon");
+        Song current = album.getSongs().get(1);
+        int played = current.getTimesPlayed();
+        current.incrementTimesPlayed();
+        assertEquals(played + 1, mapped.getAlbum("The Dark Side of the Moon").getSongs().get(1).getTimesPlayed());
+
+        mapped.removeAlbum("The Dark Side of the Moon");
+        assertFalse(mapped.existsAlbum("The Dark Side of the Moon"));
+        assertThrows(DoesntExistException.class, () -> mapped.getAlbum("The Dark Side of the Moon"));
+        assertEquals(data.getMapAlbumsView().size() - 1, mapped.getMapAlbums().size());
+    }
+
+    @Test
+    void songsKeepTheirIds(@TempDir Path dir) throws IOException, DoesntExistException, AlreadyExistsException {
+        Path file = dir.resolve("catalog.spmc");
+        MappedCatalog.write(data.getMapAlbumsView().values(), file);
+        MappedCatalog catalog = MappedCatalog.open(file);
+
+        int max = 0;
+        for (Album album : data.getMapAlbumsView().values()) {
+            List<Song> songs = catalog.getAlbum(album.getTitle()).getSongs();
+            for (int i = 0; i < songs.size(); i++) {
+                assertEquals(album.getSongs().get(i).getId(), songs.get(i).getId());
+                max = Math.max(max, songs.get(i).getId());
+            }
+        }
+        assertEquals(max, catalog.getMaxSongId());
+
+        // a lazily loaded album keeps them, and new songs get ids after the catalog's
+        SpotifUMData mapped = new SpotifUMData();
+        mapped.attachCatalog(catalog);
+        Album album = mapped.getAlbum("The Dark Side of the Moon");
+        assertEquals(data.getAlbum("The Dark Side of the Moon").getSongs(), album.getSongs());
+        assertEquals(data.getAlbum("The Dark Side of the Moon").getSongs().get(0).getId(), album.getSongs().get(0).getId());
+        mapped.addAlbum(new Album("New", "Artist", 2025, "Rock", List.of(new Song("New", "Artist", "", "", "", "Rock", 100))));
+        assertEquals(max + 1, mapped.getAlbum("New").getSongPointer("New").getId());
+    }
+
+    @Test
+    void savingToJsonKeepsTheCatalogAlbums(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("catalog.spmc");
+        MappedCatalog.write(data.getMapAlbumsView().values(), file);
+        SpotifUMData mapped = new SpotifUMData();
+        mapped.attachCatalog(MappedCatalog.open(file));
+
+        Path json = dir.resolve("saved.json");
+        new JsonDataParser().toJsonData(mapped, json.toString());
+        SpotifUMData loaded = new JsonDataParser().fromJsonData(json.toString());
+        assertEquals(data.getMapAlbumsView().keySet(), loaded.getMapAlbumsView().keySet());
+        for (Album album : data.getMapAlbumsView().values()) {
+            assertEquals(album.getSongs(), loaded.getMapAlbumsView().get(album.getTitle()).getSongs());
+        }
+    }
+
+    @Test
+    void openRejectsOtherFiles() {
+        assertThrows(IOException.class, () -> MappedCatalog.open(Path.of("data/spotifumdata.json")));
+    }
+
+    @Test
+    void writeReplacesExistingFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("catalog.spmc");
+        Files.writeString(file, "old contents");
+        MappedCatalog.write(data.getMapAlbumsView().values(), file);
+        assertEquals(data.getMapAlbumsView().size(), MappedCatalog.open(file).getAlbumCount());
+    }
+}
@@ -249,6 +249,36 @@ class SongTest {
         assertNotEquals(song, diffDuration);
     }
 
+    @Test
+    void equalsById() {
+        song.setId(7);
+        Song copy = song.clone();
+        copy.incrementTimesPlayed();
+        copy.setLyrics("Edited");
+        assertEquals(7, copy.getId());
+        assertEquals(song, copy);
+
+        Song other = new Song(song);
+        other.setId(8);
+        assertNotEquals(song, other);
+    }
+
+    @Test
+    void equalsByIdIsTransitive() {
+        song.setId(7);
+        Song renamed = song.clone();
+        renamed.setName("Renamed");
+        assertEquals(song, renamed);
+        assertEquals(song.hashCode(), renamed.hashCode());
+
+        // a song without an id is never equal to one with, even with the same fields
+        Song withoutId = new Song(song);
+        withoutId.setId(0);
+        assertNotEquals(song, withoutId);
+        assertNotEquals(withoutId, song);
+        assertNotEquals(renamed, withoutId);
+    }
+
     @Test
     void testHashCode() {
         // Same songs should have same hash code
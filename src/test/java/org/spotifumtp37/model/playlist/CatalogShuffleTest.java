@@ -0,0 +1,97 @@
+package org.spotifumtp37.model.playlist;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.exceptions.SubscriptionDoesNotAllowException;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.user.User;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogShuffleTest {
+    private List<Album> albums;
+    private User freeUser;
+    private User premiumUser;
+
+    @BeforeEach
+    void setUp() {
+        albums = List.of(
+                new Album("Album1", "Artist1", 2000, "Rock", List.of(
+                        new Song("Song1", "Artist1", "Publisher1", "Lyrics1", "Notes1", "Rock", 180),
+                        new Song("Song2", "Artist1", "Publisher1", "Lyrics2", "Notes2", "Rock", 200))),
+                new Album("Empty", "Artist2", 2001, "Pop", List.of()),
+                new Album("Album3", "Artist3", 2002, "Jazz", List.of(
+                        new Song("Song3", "Artist3", "Publisher3", "Lyrics3", "Notes3", "Jazz", 150),
+                        new Song("Song4", "Artist3", "Publisher3", "Lyrics4", "Notes4", "Jazz", 160),
+                        new Song("Song5", "Artist3", "Publisher3", "Lyrics5", "Notes5", "Jazz", 170))));
+        freeUser = new User("FreeUser", "free@email.com", "Address1", new FreePlan(), "pass1", 0, new ArrayList<>());
+        premiumUser = new User("PremiumUser", "premium@email.com", "Address2", new PremiumBase(), "pass2", 0, new ArrayList<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        PlayEvents.setListener(null);
+    }
+
+    @Test
+    void playsEverySongOfTheAlbumsOncePerRound() {
+        CatalogShuffle shuffle = new CatalogShuffle(albums, 11);
+        assertEquals(5, shuffle.size());
+        Set<String> round = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            Song song = shuffle.getCurrentSong();
+            assertSame(shuffle.getCurrentAlbum().getSongPointer(song.getName()), song);
+            assertTrue(round.add(song.getName()));
+            shuffle.next(freeUser);
+        }
+    }
+
+    @Test
+    void playsAreCountedOnTheAlbums() {
+        List<Playable> sources = new ArrayList<>();
+        PlayEvents.setListener((source, user, song, time, pointsDelta) -> sources.add(source));
+        CatalogShuffle shuffle = new CatalogShuffle(albums, 5);
+        Song song = shuffle.getCurrentSong();
+        shuffle.play(freeUser);
+        assertEquals(1, song.getTimesPlayed());
+        assertSame(shuffle.getCurrentAlbum(), sources.get(0));
+        assertEquals(1, freeUser.getHistoryView().size());
+    }
+
+    @Test
+    void browsingGoesInCatalogOrder() throws SubscriptionDoesNotAllowException {
+        CatalogShuffle shuffle = new CatalogShuffle(albums, 3);
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            order.add(shuffle.getCurrentSong().getName());
+            shuffle.next(premiumUser);
+        }
+        int start = Integer.parseInt(order.get(0).substring(4)) - 1;
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Song" + ((start + i) % 5 + 1), order.get(i));
+        }
+        shuffle.previous(premiumUser);
+        assertEquals(order.get(4), shuffle.getCurrentSong().getName());
+        assertThrows(SubscriptionDoesNotAllowException.class, () -> shuffle.previous(freeUser));
+    }
+
+    @Test
+    void emptyCatalogHasNoSong() {
+        CatalogShuffle shuffle = new CatalogShuffle(List.of(new Album()));
+        assertEquals(0, shuffle.size());
+        assertNull(shuffle.getCurrentSong());
+        shuffle.next(freeUser);
+        shuffle.nextShuffle();
+        shuffle.play(freeUser);
+        assertEquals(0, freeUser.getHistoryView().size());
+    }
+}
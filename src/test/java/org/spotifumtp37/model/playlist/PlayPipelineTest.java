@@ -0,0 +1,231 @@
+package org.spotifumtp37.model.playlist;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayPipelineTest {
+    private Album album;
+    private List<User> users;
+    private PlayPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        album = new Album("Album1", "Artist1", 2000, "Rock", List.of(
+                new Song("Song1", "Artist1", "Publisher1", "Lyrics1", "Notes1", "Rock", 180),
+                new Song("Song2", "Artist1", "Publisher1", "Lyrics2", "Notes2", "Rock", 200)));
+        users = new ArrayList<>();
+        for (int u = 0; u < 3; u++) {
+            users.add(new User("user" + u, "user" + u + "@email.com", "Address", new FreePlan(), "pass", 0, new ArrayList<>()));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        PlayEvents.setListener(null);
+    }
+
+    private Song song(int index) {
+        return album.getSongPointer("Song" + (index + 1));
+    }
+
+    @Test
+    void appliesEveryPlayOnceFlushed() throws InterruptedException {
+        List<String> reported = new CopyOnWriteArrayList<>();
+        PlayEvents.setListener((source, user, song, time, pointsDelta) -> reported.add(user.getName() + " " + song.getName()));
+        pipeline = new PlayPipeline(64, 16, PlayPipeline.Backpressure.BLOCK);
+
+        int threads = 4;
+        int plays = 2_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                Album playback = album.playback();
+                for (int i = 0; i < plays; i++) {
+                    playback.setCurrentSong(song(i % 2));
+                    playback.play(users.get((thread + i) % users.size()));
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        PlayEvents.flush();
+
+        assertEquals(0, pipeline.getPending());
+        assertEquals(threads * plays, pipeline.getApplied());
+        assertTrue(pipeline.getBatches() <= pipeline.getApplied());
+        assertEquals(threads * plays / 2, song(0).getTimesPlayed());
+        assertEquals(threads * plays / 2, song(1).getTimesPlayed());
+        assertEquals(threads * plays, reported.size());
+        int history = 0;
+        for (User user : users) {
+            history += user.getHistoryView().size();
+            assertEquals(user.getHistoryView().size() * 5.0, user.getPontos());
+        }
+        assertEquals(threads * plays, history);
+        assertEquals(0, pipeline.getDropped());
+        assertEquals(0, pipeline.getFailures());
+    }
+
+    @Test
+    void keepsTheOrderOfEachUsersPlays() throws InterruptedException {
+        List<String> reported = new ArrayList<>();
+        PlayEvents.setListener((source, user, song, time, pointsDelta) -> reported.add(song.getName()));
+        pipeline = new PlayPipeline(8, 3, PlayPipeline.Backpressure.BLOCK);
+        User user = users.get(0);
+        List<String> played = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            album.setCurrentSong(song(i % 3 == 0 ? 1 : 0));
+            album.play(user);
+            played.add(album.getCurrentSong().getName());
+        }
+        pipeline.flush();
+
+        assertEquals(played, reported);
+        List<String> history = new ArrayList<>();
+        user.getHistoryView().forEach(h -> history.add(h.getSongPointer().getName()));
+        assertEquals(played, history);
+    }
+
+    @Test
+    void dropsPlaysWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        PlayEvents.setListener((source, user, song, time, pointsDelta) -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pipeline = new PlayPipeline(4, 1, PlayPipeline.Backpressure.DROP);
+        album.setCurrentSong(song(0));
+        album.play(users.get(0));
+        blocked.await();
+        // the pipeline is stuck on the first play, which keeps its slot: three more fit in the ring
+        for (int i = 0; i < 10; i++) {
+            album.play(users.get(0));
+        }
+        assertEquals(7, pipeline.getDropped());
+        release.countDown();
+        pipeline.flush();
+
+        assertEquals(4, pipeline.getApplied());
+        assertEquals(4, song(0).getTimesPlayed());
+        assertEquals(4, users.get(0).getHistoryView().size());
+    }
+
+    @Test
+    void callerRunsPlaysWhenFull() throws InterruptedException {
+        Thread caller = Thread.currentThread();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Boolean> onCaller = new CopyOnWriteArrayList<>();
+        PlayEvents.setListener((source, user, song, time, pointsDelta) -> {
+            onCaller.add(Thread.currentThread() == caller);
+            if (Thread.currentThread() != caller) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        pipeline = new PlayPipeline(2, 1, PlayPipeline.Backpressure.CALLER_RUNS);
+        album.setCurrentSong(song(1));
+        album.play(users.get(1));
+        blocked.await();
+        for (int i = 0; i < 5; i++) {
+            album.play(users.get(1));
+        }
+        assertEquals(4, onCaller.stream().filter(Boolean::booleanValue).count());
+        release.countDown();
+        pipeline.flush();
+
+        assertEquals(2, pipeline.getApplied());
+        assertEquals(0, pipeline.getDropped());
+        assertEquals(6, song(1).getTimesPlayed());
+        assertEquals(30.0, users.get(1).getPontos());
+    }
+
+    @Test
+    void closeAppliesWhatIsLeft() {
+        pipeline = new PlayPipeline(1024, 8, PlayPipeline.Backpressure.BLOCK);
+        assertThrows(IllegalStateException.class, () -> new PlayPipeline(16, 8, PlayPipeline.Backpressure.BLOCK));
+        album.setCurrentSong(song(0));
+        for (int i = 0; i < 500; i++) {
+            album.play(users.get(i % users.size()));
+        }
+        pipeline.close();
+        assertEquals(500, song(0).getTimesPlayed());
+        assertEquals(500, pipeline.getApplied());
+
+        // closed: plays are applied where they happen again
+        album.play(users.get(0));
+        assertEquals(501, song(0).getTimesPlayed());
+        assertEquals(500, pipeline.getApplied());
+    }
+
+    @Test
+    void flushFromAListenerFails() throws InterruptedException {
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        PlayEvents.setListener((source, user, song, time, pointsDelta) -> {
+            try {
+                PlayEvents.flush();
+            } catch (Exception e) {
+                failures.add(e);
+            }
+        });
+        pipeline = new PlayPipeline(8, 8, PlayPipeline.Backpressure.BLOCK);
+        album.setCurrentSong(song(0));
+        album.play(users.get(0));
+        pipeline.flush();
+        assertEquals(1, failures.size());
+        assertInstanceOf(IllegalStateException.class, failures.get(0));
+        assertThrows(IllegalArgumentException.class, () -> new PlayPipeline(6, 8, PlayPipeline.Backpressure.DROP));
+    }
+
+    @Test
+    void playersGoOnWhenThePipelineDies() throws InterruptedException {
+        Error boom = new Error("listener failed");
+        PlayEvents.setListener((source, user, song, time, pointsDelta) -> {
+            if (Thread.currentThread().getName().equals("play-pipeline")) {
+                throw boom;
+            }
+        });
+        pipeline = new PlayPipeline(2, 1, PlayPipeline.Backpressure.BLOCK);
+        album.setCurrentSong(song(0));
+        album.play(users.get(0));
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (pipeline.getConsumerFailure() == null && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertSame(boom, pipeline.getConsumerFailure());
+
+        // the ring would be full: players must not wait for the dead thread
+        for (int i = 0; i < 10; i++) {
+            album.play(users.get(0));
+        }
+        assertEquals(11, song(0).getTimesPlayed());
+        assertEquals(11, users.get(0).getHistoryView().size());
+        IllegalStateException e = assertThrows(IllegalStateException.class, pipeline::flush);
+        assertSame(boom, e.getCause());
+    }
+}
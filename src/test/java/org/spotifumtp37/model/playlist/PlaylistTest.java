@@ -378,6 +378,18 @@ class PlaylistTest {
         assertFalse(songs.contains(song1));
     }
 
+    @Test
+    void songsViewKeepsTheListItWasTakenFrom() throws SubscriptionDoesNotAllowException {
+        List<Song> view = playlist.getSongsView();
+        Song newSong = new Song("NewSong", "NewArtist", "NewPublisher", "NewLyrics", "NewNotes", "NewGenre", 250);
+
+        playlist.addSong(newSong);
+        playlist.deleteSong(song1);
+
+        assertEquals(List.of(song1, song2, song3), view);
+        assertEquals(List.of(song2, song3, newSong), playlist.getSongsView());
+    }
+
     @Test
     void deleteSong_DoesNotExist() {
         // Create song that's not in playlist
@@ -462,4 +474,37 @@ class PlaylistTest {
         assertEquals(song1, singleSongPlaylist.getCurrentSong());
     }
     
-}
\ No newline at end of file
+
+    @Test
+    void navigationFollowsDeletesAndPlays() throws SubscriptionDoesNotAllowException {
+        playlist.setCurrentSong(playlist.getSongPointer("Song2"));
+        playlist.play(premiumUser);
+        playlist.deleteSong(song1);
+        assertEquals("Song2", playlist.getCurrentSong().getName());
+
+        playlist.next(premiumUser);
+        assertEquals("Song3", playlist.getCurrentSong().getName());
+        playlist.next(premiumUser);
+        assertEquals("Song2", playlist.getCurrentSong().getName());
+        playlist.previous(premiumUser);
+        assertEquals("Song3", playlist.getCurrentSong().getName());
+
+        playlist.deleteSong(song3);
+        assertEquals("Song2", playlist.getCurrentSong().getName());
+    }
+
+    @Test
+    void setSongsLeavesRunningPlaybacksAlone() {
+        Playlist playback = playlist.playback();
+        List<Song> view = playlist.getSongsView();
+        Song playing = playback.getCurrentSong();
+
+        playlist.setSongs(List.of(new Song("NewSong", "NewArtist", "NewPublisher", "NewLyrics", "NewNotes", "NewGenre", 240)));
+
+        assertEquals(3, view.size());
+        assertEquals(3, playback.getSongsView().size());
+        assertSame(playing, playback.getCurrentSong());
+        assertEquals(List.of("NewSong"), playlist.getSongsView().stream().map(Song::getName).toList());
+        assertEquals("NewSong", playlist.getCurrentSong().getName());
+    }
+}
@@ -0,0 +1,75 @@
+package org.spotifumtp37.model.playlist;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShuffleSessionTest {
+
+    @Test
+    void sameSeedSameOrder() {
+        ShuffleSession a = new ShuffleSession(50, 42);
+        ShuffleSession b = new ShuffleSession(50, 42);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(a.next(), b.next());
+        }
+    }
+
+    @Test
+    void everySongOncePerRound() {
+        ShuffleSession session = new ShuffleSession(20, 7);
+        for (int round = 0; round < 5; round++) {
+            Set<Integer> seen = new HashSet<>();
+            for (int i = 0; i < 20; i++) {
+                int position = session.next();
+                assertTrue(position >= 0 && position < 20);
+                assertTrue(seen.add(position));
+            }
+        }
+    }
+
+    @Test
+    void noRepeatAcrossRounds() {
+        for (long seed = 0; seed < 200; seed++) {
+            ShuffleSession session = new ShuffleSession(3, seed);
+            int previous = session.next();
+            for (int i = 0; i < 30; i++) {
+                int position = session.next();
+                assertNotEquals(previous, position);
+                previous = position;
+            }
+        }
+    }
+
+    @Test
+    void nextAfterSkipsTheCurrentSong() {
+        ShuffleSession session = new ShuffleSession(2, 3);
+        int current = 0;
+        for (int i = 0; i < 20; i++) {
+            int position = session.nextAfter(current);
+            assertNotEquals(current, position);
+            current = position;
+        }
+        assertEquals(0, new ShuffleSession(1, 3).nextAfter(0));
+        assertThrows(IllegalArgumentException.class, () -> new ShuffleSession(0, 3));
+    }
+
+    @Test
+    void nextAfterKeepsTheSkippedSongInTheRound() {
+        for (long seed = 0; seed < 200; seed++) {
+            ShuffleSession session = new ShuffleSession(5, seed);
+            // a song picked by hand, not drawn: skipping it must not use up its place in the round
+            int current = 2;
+            Set<Integer> round = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                int position = session.nextAfter(current);
+                assertNotEquals(current, position);
+                assertTrue(round.add(position));
+                current = position;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.spotifumtp37.model.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.model.album.Song;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryListTest {
+
+    private HistoryList history;
+    private Song song1;
+    private Song song2;
+    private LocalDateTime time;
+
+    @BeforeEach
+    void setUp() {
+        history = new HistoryList();
+        song1 = new Song("Song1", "Artist1", "Publisher1", "Lyrics1", "Notes1", "Rock", 180);
+        song2 = new Song("Song2", "Artist2", "Publisher2", "Lyrics2", "Notes2", "Pop", 200);
+        time = LocalDateTime.of(2025, 5, 17, 4, 51, 52, 984853900);
+    }
+
+    @Test
+    void appendGrowsAndKeepsOrder() {
+        for (int i = 0; i < 1000; i++) {
+            history.append(i % 2 == 0 ? song1 : song2, time.plusSeconds(i));
+        }
+        assertEquals(1000, history.size());
+        assertSame(song1, history.songAt(0));
+        assertSame(song2, history.songAt(999));
+        assertEquals(time.plusSeconds(999), history.timeAt(999));
+        assertEquals(2, history.distinctSongs());
+    }
+
+    @Test
+    void timesKeepTheirNanoseconds() {
+        history.append(song1, time);
+        assertEquals(time, history.get(0).getTime());
+    }
+
+    @Test
+    void nullSongAndTimeAreKept() {
+        history.add(new History());
+        assertNull(history.songAt(0));
+        assertNull(history.timeAt(0));
+        assertEquals(new History(), history.get(0));
+    }
+
+    @Test
+    void songsAreMatchedByArtistAndName() {
+        history.append(song1, time);
+        history.append(song1.clone(), time.plusMinutes(3));
+        assertEquals(1, history.distinctSongs());
+        assertSame(history.songAt(0), history.songAt(1));
+    }
+
+    @Test
+    void copyDoesNotShareSongs() {
+        history.append(song1, time);
+        HistoryList copy = new HistoryList(history);
+        copy.append(song2, time.plusMinutes(3));
+
+        assertEquals(1, history.size());
+        assertEquals(2, copy.size());
+        assertEquals(history.get(0), copy.get(0));
+        assertNotSame(history.songAt(0), copy.songAt(0));
+    }
+
+    @Test
+    void clearEmptiesTheHistory() {
+        history.append(song1, time);
+        history.clear();
+        assertTrue(history.isEmpty());
+        assertEquals(0, history.distinctSongs());
+        assertThrows(IndexOutOfBoundsException.class, () -> history.songAt(0));
+    }
+
+    @Test
+    void countsRangesInOrder() {
+        for (int i = 0; i < 100; i++) {
+            history.append(song1, time.plusMinutes(i));
+        }
+        assertTrue(history.isChronological());
+        assertEquals(100, history.countFrom(null));
+        assertEquals(100, history.countFrom(time));
+        assertEquals(90, history.countFrom(time.plusMinutes(10)));
+        assertEquals(89, history.countFrom(time.plusMinutes(10).plusNanos(1)));
+        assertEquals(5, history.countBetween(time.plusMinutes(10), time.plusMinutes(15)));
+        assertEquals(0, history.countBetween(time.plusMinutes(15), time.plusMinutes(10)));
+        assertEquals(0, history.countFrom(time.plusDays(1)));
+    }
+
+    @Test
+    void countsRangesOutOfOrderAndSkipsMissingTimes() {
+        history.append(song1, time.plusMinutes(5));
+        history.append(song1, time);
+        history.add(new History());
+        history.append(song2, time.plusMinutes(10));
+        assertFalse(history.isChronological());
+        assertEquals(3, history.countFrom(null));
+        assertEquals(2, history.countFrom(time.plusMinutes(1)));
+        assertEquals(1, history.countBetween(time, time.plusMinutes(5)));
+
+        HistoryList copy = new HistoryList(history);
+        assertFalse(copy.isChronological());
+        copy.clear();
+        assertTrue(copy.isChronological());
+    }
+}
@@ -104,6 +104,20 @@ class UserTest {
         assertEquals(1, user.getHistory().size());
     }
 
+    @Test
+    void getHistoryView() {
+        user.updateHistory(song1);
+        List<History> view = user.getHistoryView();
+        assertEquals(1, view.size());
+        assertEquals("Test Song 1", view.get(0).getSongPointer().getName());
+
+        // Plays made after the view was taken are not part of it
+        user.updateHistory(song1);
+        assertEquals(1, view.size());
+        assertEquals(2, user.getHistoryView().size());
+        assertThrows(UnsupportedOperationException.class, view::clear);
+    }
+
     @Test
     void setSubscriptionPlan() {
         // Test changing from Free to Premium
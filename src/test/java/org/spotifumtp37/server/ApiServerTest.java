@@ -0,0 +1,171 @@
+package org.spotifumtp37.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiServerTest {
+    private SpotifUMData data;
+    private ApiServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws AlreadyExistsException, IOException {
+        data = new SpotifUMData();
+        List<Song> songs = List.of(
+                new Song("Song1", "Artist1", "Publisher1", "Lyrics1", "Notes1", "Rock", 180),
+                new Song("Song2", "Artist1", "Publisher1", "Lyrics2", "Notes2", "Rock", 200));
+        data.addAlbum(new Album("Album One", "Artist1", 2000, "Rock", songs));
+        data.addUser(new User("free", "free@email.com", "Address", new FreePlan(), "pass1", 0, new ArrayList<>()));
+        data.addUser(new User("premium", "premium@email.com", "Address", new PremiumBase(), "pass2", 0, new ArrayList<>()));
+        server = new ApiServer(data, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort()).resolve(path);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        return send(method, path, body, null, null);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, String user, String password)
+            throws IOException, InterruptedException {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).method(method, publisher);
+        if (user != null) {
+            request.header("Authorization", "Basic " + Base64.getEncoder()
+                    .encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8)));
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonElement json(HttpResponse<String> response, int status) {
+        assertEquals(status, response.statusCode(), response.body());
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(null));
+        return JsonParser.parseString(response.body());
+    }
+
+    @Test
+    void browsesTheCatalog() throws IOException, InterruptedException {
+        JsonArray albums = json(send("GET", "/albums", null), 200).getAsJsonArray();
+        assertEquals(1, albums.size());
+        assertEquals("Album One", albums.get(0).getAsJsonObject().get("title").getAsString());
+        assertEquals(2, albums.get(0).getAsJsonObject().get("songs").getAsInt());
+
+        JsonObject album = json(send("GET", "/albums/Album%20One", null), 200).getAsJsonObject();
+        assertEquals("Song2", album.getAsJsonArray("songs").get(1).getAsJsonObject().get("name").getAsString());
+
+        assertEquals("Not found: Nope", json(send("GET", "/albums/Nope", null), 404).getAsJsonObject().get("error").getAsString());
+        HttpResponse<String> wrongMethod = send("DELETE", "/albums", null);
+        assertEquals(405, wrongMethod.statusCode());
+        assertEquals("GET", wrongMethod.headers().firstValue("Allow").orElse(null));
+    }
+
+    @Test
+    void createsChangesAndDeletesPlaylists() throws IOException, InterruptedException {
+        String body = "{\"name\": \"Mine\", \"status\": \"private\","
+                + " \"songs\": [{\"album\": \"Album One\", \"song\": \"Song2\"}]}";
+        HttpResponse<String> anonymous = send("POST", "/playlists", body);
+        json(anonymous, 401);
+        assertTrue(anonymous.headers().firstValue("WWW-Authenticate").orElse("").startsWith("Basic"));
+        json(send("POST", "/playlists", body, "premium", "wrong"), 401);
+        json(send("POST", "/playlists", body, "nobody", "pass2"), 401);
+        json(send("POST", "/playlists", body.replace("{", "{\"creator\": \"premium\", "), "free", "pass1"), 403);
+        JsonObject created = json(send("POST", "/playlists", body, "premium", "pass2"), 201).getAsJsonObject();
+        assertEquals("premium", created.get("creator").getAsString());
+        assertEquals("Song2", created.getAsJsonArray("songs").get(0).getAsJsonObject().get("name").getAsString());
+        json(send("POST", "/playlists", body, "premium", "pass2"), 409);
+        json(send("POST", "/playlists", body.replace("Mine", "Free"), "free", "pass1"), 403);
+        json(send("POST", "/playlists", "{\"status\": \"public\"}", "premium", "pass2"), 400);
+        json(send("POST", "/playlists", "{not json", "premium", "pass2"), 400);
+
+        json(send("GET", "/playlists/Mine", null), 404);
+        assertEquals(0, json(send("GET", "/playlists", null), 200).getAsJsonArray().size());
+        assertEquals(1, json(send("GET", "/playlists", null, "premium", "pass2"), 200).getAsJsonArray().size());
+        assertEquals(1, json(send("GET", "/playlists?user=premium", null, "premium", "pass2"), 200).getAsJsonArray().size());
+        assertEquals("Mine", json(send("GET", "/playlists/Mine", null, "premium", "pass2"), 200)
+                .getAsJsonObject().get("name").getAsString());
+        // naming the creator is not enough to see a private playlist
+        json(send("GET", "/playlists?user=premium", null), 401);
+        json(send("GET", "/playlists/Mine?user=premium", null), 401);
+        json(send("GET", "/playlists?user=premium", null, "free", "pass1"), 403);
+        json(send("GET", "/playlists/Mine", null, "free", "pass1"), 404);
+
+        String change = "{\"status\": \"public\", \"description\": \"Now public\"}";
+        json(send("PUT", "/playlists/Mine?user=premium", change), 401);
+        json(send("PUT", "/playlists/Mine", change, "premium", "pass2"), 200);
+        JsonObject changed = json(send("GET", "/playlists/Mine", null), 200).getAsJsonObject();
+        assertEquals("Now public", changed.get("description").getAsString());
+        assertEquals("public", data.getMapPlaylistsView().get("Mine").getStatus());
+
+        json(send("DELETE", "/playlists/Mine?user=premium", null), 401);
+        json(send("DELETE", "/playlists/Mine", null, "free", "pass1"), 403);
+        json(send("DELETE", "/playlists/Mine", null, "premium", "pass2"), 200);
+        assertFalse(data.existsPlaylist("Mine"));
+        assertTrue(data.getPlaylistMapByCreator(data.getCurrentUserPointer("premium")).isEmpty());
+    }
+
+    @Test
+    void playsAndReportsStats() throws AlreadyExistsException, IOException, InterruptedException {
+        json(send("POST", "/plays", "{\"user\": \"free\", \"album\": \"Album One\"}"), 401);
+        json(send("POST", "/plays", "{\"user\": \"free\", \"album\": \"Album One\"}", "premium", "pass2"), 403);
+        JsonObject played = json(send("POST", "/plays",
+                "{\"album\": \"Album One\", \"song\": \"Song2\"}", "free", "pass1"), 201).getAsJsonObject();
+        assertEquals("Song2", played.getAsJsonObject("song").get("name").getAsString());
+        assertEquals(5.0, played.get("points").getAsDouble());
+        json(send("POST", "/plays", "{\"user\": \"free\", \"album\": \"Album One\"}", "free", "pass1"), 201);
+        json(send("POST", "/plays", "{\"album\": \"Album One\", \"song\": \"Nope\"}", "free", "pass1"), 404);
+        json(send("POST", "/plays", "{}", "free", "pass1"), 400);
+        data.addAlbum(new Album("Empty", "Artist2", 2001, "Pop", List.of()));
+        json(send("POST", "/plays", "{\"album\": \"Empty\"}", "free", "pass1"), 400);
+
+        Album album = data.getMapAlbumsView().get("Album One");
+        assertEquals(1, album.getSongPointer("Song1").getTimesPlayed());
+        assertEquals(1, album.getSongPointer("Song2").getTimesPlayed());
+        assertEquals(2, data.getCurrentUserPointer("free").getHistoryView().size());
+
+        JsonObject stats = json(send("GET", "/stats", null), 200).getAsJsonObject();
+        assertEquals(2, stats.get("totalPlays").getAsLong());
+        assertEquals("free", stats.get("topListener").getAsString());
+    }
+
+    @Test
+    void loadClientMeasuresTheServer() throws InterruptedException {
+        ApiLoadClient.Report report = ApiLoadClient.run(uri("/"), List.of("/albums", "/albums/Album%20One", "/stats"), 4, 300);
+        assertEquals(300, report.getRequests());
+        assertEquals(0, report.getErrors());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencyMicros(50) <= report.getLatencyMicros(99));
+        assertTrue(report.toString().contains("p99"));
+    }
+}
@@ -0,0 +1,149 @@
+package org.spotifumtp37.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.subscription.PremiumBase;
+import org.spotifumtp37.model.user.User;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionServerTest {
+    private SpotifUMData data;
+    private SessionServer server;
+    private final List<Client> clients = new ArrayList<>();
+
+    private final class Client implements Closeable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            assertTrue(in.readLine().startsWith("OK SpotifUM session."));
+            clients.add(this);
+        }
+
+        String send(String command) throws IOException {
+            out.write(command + "\n");
+            out.flush();
+            return in.readLine();
+        }
+
+        Client login(String name, String password) throws IOException {
+            assertEquals("OK Password?", send("user " + name));
+            assertEquals("OK Logged in as " + name + ".", send("pass " + password));
+            return this;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws AlreadyExistsException, IOException {
+        data = new SpotifUMData();
+        List<Song> songs = List.of(
+                new Song("Song1", "Artist1", "Publisher1", "Lyrics1", "Notes1", "Rock", 180),
+                new Song("Song2", "Artist1", "Publisher1", "Lyrics2", "Notes2", "Rock", 200),
+                new Song("Song3", "Artist1", "Publisher1", "Lyrics3", "Notes3", "Rock", 220));
+        data.addAlbum(new Album("Album One", "Artist1", 2000, "Rock", songs));
+        data.addUser(new User("free", "free@email.com", "Address", new FreePlan(), "pass1", 0, new ArrayList<>()));
+        data.addUser(new User("premium", "premium@email.com", "Address", new PremiumBase(), "pass2", 0, new ArrayList<>()));
+        server = new SessionServer(data, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Client client : clients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    private int timesPlayed(String song) {
+        return data.getMapAlbumsView().get("Album One").getSongPointer(song).getTimesPlayed();
+    }
+
+    @Test
+    void playsThroughTheSocket() throws IOException {
+        Client client = new Client();
+        assertEquals("ERR Log in first.", client.send("album Album One"));
+        client.send("user premium");
+        assertEquals("ERR Invalid credentials.", client.send("pass wrong"));
+        client.login("premium", "pass2");
+
+        assertEquals("OK Now playing \"Song1\" by Artist1", client.send("album Album One"));
+        assertEquals("OK Now playing \"Song2\" by Artist1", client.send("next"));
+        assertEquals("OK Now playing \"Song1\" by Artist1", client.send("prev"));
+        assertEquals("OK \"Song1\" by Artist1", client.send("now"));
+        assertEquals("OK Stopped.", client.send("stop"));
+        assertEquals("ERR Nothing is playing.", client.send("next"));
+        assertTrue(client.send("album Nope").startsWith("ERR Album not found"));
+        assertEquals("OK Bye.", client.send("quit"));
+        assertNull(client.in.readLine());
+
+        assertEquals(2, timesPlayed("Song1"));
+        assertEquals(1, timesPlayed("Song2"));
+        assertEquals(3, data.getCurrentUserPointer("premium").getHistoryView().size());
+    }
+
+    @Test
+    void sessionsHaveTheirOwnCursor() throws IOException {
+        Song stored = data.getMapAlbumsView().get("Album One").getCurrentSong();
+        Client first = new Client().login("premium", "pass2");
+        Client second = new Client().login("premium", "pass2");
+        Client free = new Client().login("free", "pass1");
+
+        first.send("album Album One");
+        second.send("album Album One");
+        free.send("album Album One");
+        first.send("next");
+        assertEquals("OK Now playing \"Song3\" by Artist1", first.send("next"));
+        assertEquals("OK Now playing \"Song2\" by Artist1", second.send("next"));
+        assertTrue(free.send("prev").startsWith("ERR Cannot go back."));
+        assertEquals("OK \"Song1\" by Artist1", free.send("now"));
+        assertSame(stored, data.getMapAlbumsView().get("Album One").getCurrentSong());
+
+        assertEquals(3, timesPlayed("Song1"));
+        assertEquals(2, timesPlayed("Song2"));
+        assertEquals(1, timesPlayed("Song3"));
+    }
+
+    @Test
+    void keepsManyIdleSessions() throws IOException, InterruptedException {
+        int sessions = 200;
+        for (int i = 0; i < sessions; i++) {
+            new Client();
+        }
+        assertEquals(sessions, server.getSessionCount());
+        assertEquals("OK Now playing \"Song1\" by Artist1",
+                clients.get(sessions / 2).login("free", "pass1").send("album Album One"));
+
+        clients.get(0).close();
+        for (int i = 0; i < 100 && server.getSessionCount() == sessions; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(sessions - 1, server.getSessionCount());
+
+        server.close();
+        assertNull(clients.get(1).in.readLine());
+        assertEquals(0, server.getSessionCount());
+    }
+}
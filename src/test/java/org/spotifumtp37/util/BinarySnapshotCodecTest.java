@@ -0,0 +1,155 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.MultimediaSong;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotCodecTest {
+
+    private BinarySnapshotCodec codec;
+    private SpotifUMData data;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        codec = new BinarySnapshotCodec();
+        data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+    }
+
+    @Test
+    void roundTripAlbums(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.snap");
+        codec.save(data, file);
+        SpotifUMData loaded = codec.load(file);
+
+        assertEquals(data.getMapAlbums().keySet(), loaded.getMapAlbums().keySet());
+        for (Album album : data.getMapAlbums().values()) {
+            Album other = loaded.getMapAlbums().get(album.getTitle());
+            assertEquals(album.getArtist(), other.getArtist());
+            assertEquals(album.getGenre(), other.getGenre());
+            assertEquals(album.getReleaseYear(), other.getReleaseYear());
+            assertEquals(album.getSongs(), other.getSongs());
+            for (int i = 0; i < album.getSongs().size(); i++) {
+                assertEquals(album.getSongs().get(i).getClass(), other.getSongs().get(i).getClass());
+            }
+        }
+        Song speakToMe = loaded.getMapAlbums().get("The Dark Side of the Moon").getSongs().get(0);
+        assertEquals("https://www.youtube.com/watch?v=qkEn2Puh5xg", ((MultimediaSong) speakToMe).getVideoLink());
+    }
+
+    @Test
+    void roundTripUsersAndPlaylists(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.snap");
+        codec.save(data, file);
+        SpotifUMData loaded = codec.load(file);
+
+        assertEquals(data.getMapUsers().keySet(), loaded.getMapUsers().keySet());
+        for (User user : data.getMapUsers().values()) {
+            User other = loaded.getMapUsers().get(user.getName());
+            assertEquals(user.getEmail(), other.getEmail());
+            assertEquals(user.getPassword(), other.getPassword());
+            assertEquals(user.getPontos(), other.getPontos());
+            assertEquals(user.getSubscriptionPlan().getClass(), other.getSubscriptionPlan().getClass());
+
+            List<History> history = user.getHistory();
+            List<History> otherHistory = other.getHistory();
+            assertEquals(history.size(), otherHistory.size());
+            for (int i = 0; i < history.size(); i++) {
+                assertEquals(history.get(i).getTime(), otherHistory.get(i).getTime());
+                assertEquals(history.get(i).getSong().getName(), otherHistory.get(i).getSong().getName());
+            }
+        }
+
+        assertEquals(data.getMapPlaylists().keySet(), loaded.getMapPlaylists().keySet());
+        for (Playlist playlist : data.getMapPlaylists().values()) {
+            Playlist other = loaded.getMapPlaylists().get(playlist.getPlaylistName());
+            assertEquals(playlist.getCreator(), other.getCreator());
+            assertEquals(playlist.getStatus(), other.getStatus());
+            assertEquals(playlist.getSongs().size(), other.getSongs().size());
+            if (other.getCreator() != null && loaded.existsUser(other.getCreator().getName())) {
+                assertSame(loaded.getCurrentUserPointer(other.getCreator().getName()), other.getCreator());
+            }
+        }
+    }
+
+    @Test
+    void roundTripKeepsThePlayCountsOfCopies(@TempDir Path dir) throws IOException {
+        Playlist edited = data.getMapPlaylistsView().values().iterator().next();
+        Song copy = edited.getSongPointer(edited.getSongsView().get(0).getName());
+        copy.setLyrics("Edited after it was added");
+        copy.setTimesPlayed(copy.getTimesPlayed() + 7);
+        Path file = dir.resolve("data.snap");
+        codec.save(data, file);
+        SpotifUMData loaded = codec.load(file);
+
+        for (Playlist playlist : data.getMapPlaylists().values()) {
+            List<Song> songs = playlist.getSongs();
+            List<Song> otherSongs = loaded.getMapPlaylists().get(playlist.getPlaylistName()).getSongs();
+            for (int i = 0; i < songs.size(); i++) {
+                String where = playlist.getPlaylistName() + "#" + i + " " + songs.get(i).getName();
+                assertEquals(songs.get(i).getTimesPlayed(), otherSongs.get(i).getTimesPlayed(), where);
+                assertEquals(songs.get(i).getLyrics(), otherSongs.get(i).getLyrics(), where);
+            }
+        }
+        for (User user : data.getMapUsers().values()) {
+            List<History> history = user.getHistory();
+            List<History> otherHistory = loaded.getMapUsers().get(user.getName()).getHistory();
+            for (int i = 0; i < history.size(); i++) {
+                assertEquals(history.get(i).getSong().getTimesPlayed(), otherHistory.get(i).getSong().getTimesPlayed(),
+                        user.getName() + "#" + i);
+            }
+        }
+
+        // the history holds copies: playing the catalog song later does not change them
+        User listener = loaded.getMapUsers().values().stream()
+                .filter(user -> !user.getHistoryView().isEmpty()).findFirst().orElseThrow();
+        Song played = listener.getHistoryView().get(0).getSongPointer();
+        int before = played.getTimesPlayed();
+        for (Album album : loaded.getMapAlbumsView().values()) {
+            Song song = album.getSongPointer(played.getName());
+            if (song != null && song.getArtist().equals(played.getArtist())) {
+                song.incrementTimesPlayed();
+            }
+        }
+        assertEquals(before, played.getTimesPlayed());
+    }
+
+    @Test
+    void snapshotIsSmallerThanJson(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.snap");
+        codec.save(data, file);
+        assertTrue(Files.size(file) < Files.size(Path.of("data/spotifumdata.json")));
+    }
+
+    @Test
+    void isSnapshot(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.snap");
+        codec.save(data, file);
+        assertTrue(BinarySnapshotCodec.isSnapshot(file));
+        assertFalse(BinarySnapshotCodec.isSnapshot(Path.of("data/spotifumdata.json")));
+        assertFalse(BinarySnapshotCodec.isSnapshot(dir.resolve("missing.snap")));
+    }
+
+    @Test
+    void truncatedSnapshotFails(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.snap");
+        codec.save(data, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> codec.load(file));
+    }
+}
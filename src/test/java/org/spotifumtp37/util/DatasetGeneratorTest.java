@@ -0,0 +1,102 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetGeneratorTest {
+
+    private static DatasetGenerator generator() {
+        return new DatasetGenerator(37, 20, 200, 50, 10, 5000);
+    }
+
+    private static StatsReport report(SpotifUMData data) {
+        return Stats.report(data.getMapAlbumsView(), data.getMapUsersView(), data.getMapPlaylistsView());
+    }
+
+    @Test
+    void generatesTheSizesAsked() {
+        SpotifUMData data = generator().generate();
+        StatsReport report = report(data);
+
+        assertEquals(20, report.getAlbums());
+        assertEquals(200, report.getSongs());
+        assertEquals(50, report.getUsers());
+        assertEquals(10, report.getPlaylists());
+        assertEquals(5000, report.getTotalPlays());
+        assertEquals(3, report.getUsersByPlan().size());
+
+        long timesPlayed = 0;
+        for (Album album : data.getMapAlbumsView().values()) {
+            for (Song song : album.getSongs()) {
+                timesPlayed += song.getTimesPlayed();
+            }
+        }
+        assertEquals(5000, timesPlayed);
+        for (User user : data.getMapUsersView().values()) {
+            List<History> history = user.getHistoryView();
+            for (int i = 1; i < history.size(); i++) {
+                assertFalse(history.get(i).getTime().isBefore(history.get(i - 1).getTime()), user.getName());
+            }
+        }
+        for (Playlist playlist : data.getMapPlaylistsView().values()) {
+            assertTrue(playlist.getCreator().getSubscriptionPlan().canCreatePlaylist());
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameData() {
+        assertEquals(report(generator().generate()), report(generator().generate()));
+        assertNotEquals(report(generator().generate()),
+                report(new DatasetGenerator(38, 20, 200, 50, 10, 5000).generate()));
+    }
+
+    @Test
+    void playsFollowZipf() {
+        List<Integer> counts = new ArrayList<>();
+        for (Album album : generator().generate().getMapAlbumsView().values()) {
+            for (Song song : album.getSongs()) {
+                counts.add(song.getTimesPlayed());
+            }
+        }
+        Collections.sort(counts);
+        int median = counts.get(counts.size() / 2);
+        int top = counts.get(counts.size() - 1);
+        // with 200 songs the first rank gets about 17% of the plays, the median about 0.2%
+        assertTrue(top > 20 * Math.max(1, median), top + " vs " + median);
+    }
+
+    @Test
+    void writtenFilesLoadAsGenerated(@TempDir Path dir) throws IOException {
+        StatsReport expected = report(generator().generate());
+
+        Path json = dir.resolve("generated.json");
+        generator().writeJson(json);
+        SpotifUMData fromJson = new JsonDataParser().fromJsonData(json.toString());
+        assertEquals(expected, report(fromJson));
+
+        Path snapshot = dir.resolve("generated.snap");
+        generator().writeSnapshot(snapshot);
+        SpotifUMData fromSnapshot = new BinarySnapshotCodec().load(snapshot);
+        assertEquals(expected, report(fromSnapshot));
+
+        for (SpotifUMData loaded : List.of(fromJson, fromSnapshot)) {
+            for (Playlist playlist : loaded.getMapPlaylistsView().values()) {
+                assertSame(loaded.getMapUsersView().get(playlist.getCreator().getName()), playlist.getCreator());
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTest {
+
+    @AfterEach
+    void tearDown() {
+        PlayEvents.setListener(null);
+    }
+
+    @Test
+    void exactModeCountsEverything() {
+        HeavyHitters<String> counter = HeavyHitters.exact();
+        counter.add("a");
+        counter.add("b", 3);
+        counter.add("a");
+        counter.add(null);
+
+        assertTrue(counter.isExact());
+        assertEquals(2, counter.getCount("a"));
+        assertEquals(3, counter.getCount("b"));
+        assertEquals(0, counter.getCount("c"));
+        assertEquals(5, counter.getTotal());
+        assertEquals(0, counter.getErrorBound());
+        assertEquals(List.of("b", "a"), counter.top(5));
+    }
+
+    @Test
+    void tiesKeepTheFirstCounted() {
+        HeavyHitters<String> counter = HeavyHitters.exact();
+        counter.add("x");
+        counter.add("y");
+        counter.add("z");
+        assertEquals(List.of("x", "y"), counter.top(2));
+    }
+
+    @Test
+    void boundedCountsStayWithinTheError() {
+        HeavyHitters<Integer> approximate = HeavyHitters.withError(0.01);
+        HeavyHitters<Integer> exact = HeavyHitters.exact();
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            // roughly Zipf-distributed keys over 10 000 values
+            int key = (int) Math.floor(Math.pow(10_000, random.nextDouble()));
+            approximate.add(key);
+            exact.add(key);
+        }
+
+        long bound = approximate.getErrorBound();
+        assertEquals(200_000 / 100, bound);
+        for (int key : exact.top(10_000)) {
+            long count = exact.getCount(key);
+            long estimate = approximate.getCount(key);
+            if (count > bound) {
+                assertTrue(estimate >= count, "a key seen more than the bound is always tracked");
+            }
+            if (estimate > 0) {
+                assertTrue(estimate >= count && estimate - approximate.getError(key) <= count);
+                assertTrue(estimate - count <= bound);
+            }
+        }
+        assertEquals(exact.top(5), approximate.top(5));
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> HeavyHitters.withCapacity(0));
+        assertThrows(IllegalArgumentException.class, () -> HeavyHitters.withError(0));
+        assertThrows(IllegalArgumentException.class, () -> HeavyHitters.exact().add("a", -1));
+    }
+
+    @Test
+    void leaderboardsFollowThePlays() throws IOException, DoesntExistException {
+        SpotifUMData data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        Leaderboards boards = new Leaderboards(data, 0);
+        try {
+            Song top = Stats.getMostPlayedSong(data.snapshot().getAlbums());
+            assertEquals(top.getTimesPlayed(), boards.getPlays(boards.getTopSongs(1).get(0)));
+            StatsReport report = Stats.report(data.snapshot().getAlbums(), null, null);
+            assertEquals(report.getPlaysByArtist().get(report.getMostListenedArtist()),
+                    boards.getArtistPlays(boards.getTopArtists(1).get(0)));
+
+            Album album = data.getAlbum(data.snapshot().getAlbums().keySet().iterator().next());
+            User user = data.getCurrentUserPointer(data.snapshot().getUsers().keySet().iterator().next());
+            album.setCurrentSong();
+            Song played = album.getCurrentSong();
+            long before = boards.getPlays(played);
+            for (int i = 0; i < 1000; i++) {
+                album.play(user);
+            }
+            assertEquals(before + 1000, boards.getPlays(played));
+            assertEquals(played.getName(), boards.getTopSongs(1).get(0).getName());
+            assertEquals(played.getArtist(), boards.getTopArtists(1).get(0));
+            assertEquals(played.getGenre(), boards.getTopGenres(1).get(0));
+            assertEquals(played.getPublisher(), boards.getTopPublishers(1).get(0));
+        } finally {
+            boards.close();
+        }
+    }
+
+    @Test
+    void leaderboardsStartAgainWhenTheDataIsReplaced() throws IOException, DoesntExistException {
+        SpotifUMData data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        Leaderboards boards = new Leaderboards(data, 0);
+        try {
+            Album album = data.getAlbum(data.snapshot().getAlbums().keySet().iterator().next());
+            User user = data.getCurrentUserPointer(data.snapshot().getUsers().keySet().iterator().next());
+            album.setCurrentSong();
+            Song played = album.getCurrentSong();
+            long before = boards.getPlays(played);
+            for (int i = 0; i < 1000; i++) {
+                album.play(user);
+            }
+            assertEquals(before + 1000, boards.getPlays(played));
+
+            data.restoreFrom(new JsonDataParser().fromJsonData("data/spotifumdata.json"));
+            assertEquals(before, boards.getPlays(played));
+            Song top = Stats.getMostPlayedSong(data.snapshot().getAlbums());
+            assertEquals(top.getTimesPlayed(), boards.getPlays(boards.getTopSongs(1).get(0)));
+
+            data.restoreFrom(new SpotifUMData());
+            assertTrue(boards.getTopSongs(1).isEmpty());
+            assertEquals(0, boards.getPlays(played));
+        } finally {
+            boards.close();
+        }
+    }
+}
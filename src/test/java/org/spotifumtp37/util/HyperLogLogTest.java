@@ -0,0 +1,194 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        PlayEvents.setListener(null);
+    }
+
+    @Test
+    void smallCountsAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog(10);
+        assertEquals(0, sketch.estimate());
+        for (int i = 0; i < 50; i++) {
+            sketch.add("user " + i);
+            sketch.add("user " + i);
+        }
+        assertEquals(50, sketch.estimate(), 2);
+    }
+
+    @Test
+    void largeCountsStayWithinTheError() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        int distinct = 100_000;
+        for (int i = 0; i < distinct; i++) {
+            sketch.add("user " + i);
+        }
+        double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+        assertTrue(error < 3 * sketch.getRelativeError(), "error " + error);
+    }
+
+    @Test
+    void mergedSketchesCountTheUnion() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        HyperLogLog both = new HyperLogLog(12);
+        for (int i = 0; i < 20_000; i++) {
+            first.add("user " + i);
+            both.add("user " + i);
+        }
+        for (int i = 10_000; i < 30_000; i++) {
+            second.add("user " + i);
+            both.add("user " + i);
+        }
+        first.merge(second);
+        assertEquals(both, first);
+        assertEquals(both, HyperLogLog.fromRegisters(both.getRegisters()));
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(10)));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+    }
+
+    @Test
+    void sparseSketchesMatchTheFullRegisters() {
+        HyperLogLog sparse = new HyperLogLog(10);
+        for (int i = 0; i < 40; i++) {
+            sparse.add("user " + i);
+        }
+        assertTrue(sparse.isSparse());
+        HyperLogLog loaded = HyperLogLog.fromRegisters(sparse.getRegisters());
+        assertTrue(loaded.isSparse());
+        assertEquals(sparse, loaded);
+
+        HyperLogLog grown = sparse.clone();
+        HyperLogLog other = new HyperLogLog(10);
+        for (int i = 40; i < 1000; i++) {
+            grown.add("user " + i);
+            other.add("user " + i);
+        }
+        assertFalse(grown.isSparse());
+        assertEquals(sparse.estimate(), HyperLogLog.fromRegisters(sparse.getRegisters()).estimate());
+        assertEquals(1000, grown.estimate(), 3 * grown.getRelativeError() * 1000);
+
+        // merging a sparse sketch into a full one, and a full one into a sparse one, give the same
+        HyperLogLog sparseFirst = sparse.clone();
+        sparseFirst.merge(other);
+        other.merge(sparse);
+        assertEquals(grown, sparseFirst);
+        assertEquals(grown, other);
+        assertEquals(grown.hashCode(), other.hashCode());
+    }
+
+    @Test
+    void listenerCountsMatchTheHistories() throws IOException, DoesntExistException {
+        SpotifUMData data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        ListenerCounts counts = new ListenerCounts(data, 12);
+        try {
+            assertMatchesHistories(data, counts);
+
+            Album album = data.getAlbum(data.snapshot().getAlbums().keySet().iterator().next());
+            album.setCurrentSong();
+            for (String name : data.snapshot().getUsers().keySet()) {
+                album.play(data.getCurrentUserPointer(name));
+            }
+            assertEquals(data.snapshot().getUsers().size(), counts.getDistinctListeners(album.getCurrentSong()));
+            assertMatchesHistories(data, counts);
+        } finally {
+            counts.close();
+        }
+    }
+
+    @Test
+    void savedCountsAreReadBackWhileCurrent() throws IOException, DoesntExistException {
+        SpotifUMData data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        Path file = tempDir.resolve("listeners.hll");
+        ListenerCounts counts = new ListenerCounts(data, 10);
+        counts.save(file);
+        counts.close();
+
+        ListenerCounts read = ListenerCounts.open(data, 4, file);
+        assertEquals(1.04 / Math.sqrt(1024), read.getRelativeError());
+        assertMatchesHistories(data, read);
+        read.close();
+
+        // a play not in the saved counts: they are counted again from the histories
+        Album album = data.getAlbum(data.snapshot().getAlbums().keySet().iterator().next());
+        album.setCurrentSong();
+        album.play(data.getCurrentUserPointer(data.snapshot().getUsers().keySet().iterator().next()));
+        ListenerCounts recounted = ListenerCounts.open(data, 4, file);
+        assertEquals(1.04 / Math.sqrt(16), recounted.getRelativeError());
+        recounted.close();
+    }
+
+    @Test
+    void shardsMerge() throws IOException {
+        SpotifUMData data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        List<String> names = new ArrayList<>(data.snapshot().getUsers().keySet());
+        SpotifUMData firstShard = new SpotifUMData();
+        SpotifUMData secondShard = new SpotifUMData();
+        Map<String, User> first = new HashMap<>();
+        Map<String, User> second = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            (i % 2 == 0 ? first : second).put(names.get(i), data.getMapUsers().get(names.get(i)));
+        }
+        firstShard.setMapUsers(first);
+        secondShard.setMapUsers(second);
+
+        ListenerCounts whole = new ListenerCounts(data, 12);
+        ListenerCounts merged = new ListenerCounts(firstShard, 12);
+        ListenerCounts other = new ListenerCounts(secondShard, 12);
+        merged.merge(other);
+        for (String artist : artists(data)) {
+            assertEquals(whole.getDistinctListeners(artist), merged.getDistinctListeners(artist));
+        }
+        whole.close();
+        merged.close();
+        other.close();
+    }
+
+    private static Set<String> artists(SpotifUMData data) {
+        Set<String> artists = new HashSet<>();
+        for (User user : data.snapshot().getUsers().values()) {
+            for (History record : user.getHistoryView()) {
+                artists.add(record.getSongPointer().getArtist());
+            }
+        }
+        return artists;
+    }
+
+    private static void assertMatchesHistories(SpotifUMData data, ListenerCounts counts) {
+        Map<String, Set<String>> byArtist = new HashMap<>();
+        Map<List<String>, Set<String>> bySong = new HashMap<>();
+        for (User user : data.snapshot().getUsers().values()) {
+            for (History record : user.getHistoryView()) {
+                Song song = record.getSongPointer();
+                byArtist.computeIfAbsent(song.getArtist(), key -> new HashSet<>()).add(user.getName());
+                bySong.computeIfAbsent(List.of(song.getArtist(), song.getName()), key -> new HashSet<>()).add(user.getName());
+            }
+        }
+        assertFalse(byArtist.isEmpty());
+        byArtist.forEach((artist, users) -> assertEquals(users.size(), counts.getDistinctListeners(artist)));
+        bySong.forEach((song, users) -> assertEquals(users.size(), counts.getDistinctListeners(song.get(0), song.get(1))));
+        assertEquals(0, counts.getDistinctListeners("Nobody"));
+    }
+}
@@ -0,0 +1,138 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.ExplicitSong;
+import org.spotifumtp37.model.album.MultimediaSong;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.PremiumTop;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonDataParserTest {
+
+    private JsonDataParser parser;
+    private SpotifUMData data;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        parser = new JsonDataParser();
+        data = parser.fromJsonData("data/spotifumdata.json");
+    }
+
+    @Test
+    void fromJsonDataReadsSongSubclasses() {
+        Album album = data.getMapAlbums().get("The Dark Side of the Moon");
+        assertNotNull(album);
+
+        Song speakToMe = album.getSongs().get(0);
+        assertInstanceOf(MultimediaSong.class, speakToMe);
+        assertEquals("https://www.youtube.com/watch?v=qkEn2Puh5xg", ((MultimediaSong) speakToMe).getVideoLink());
+
+        Song breathe = album.getSongs().get(1);
+        assertInstanceOf(ExplicitSong.class, breathe);
+        assertTrue(breathe.isExplicit());
+    }
+
+    @Test
+    void fromJsonDataReadsUsersAndHistory() {
+        User carol = data.getMapUsers().get("carol");
+        assertNotNull(carol);
+        assertInstanceOf(PremiumTop.class, carol.getSubscriptionPlan());
+        assertFalse(carol.getHistory().isEmpty());
+        assertNotNull(carol.getHistory().get(0).getTime());
+    }
+
+    @Test
+    void historyKeepsTheSongsAsTheyWerePlayed() {
+        History record = null;
+        Song catalogSong = null;
+        for (User user : data.getMapUsersView().values()) {
+            for (History h : user.getHistoryView()) {
+                for (Album album : data.getMapAlbumsView().values()) {
+                    Song song = h.getSongPointer() == null ? null : album.getSongPointer(h.getSongPointer().getName());
+                    if (song != null && song.getArtist().equals(h.getSongPointer().getArtist())) {
+                        record = h;
+                        catalogSong = song;
+                    }
+                }
+            }
+        }
+        assertNotNull(catalogSong);
+        Song played = record.getSongPointer();
+        assertNotSame(catalogSong, played);
+
+        String lyrics = played.getLyrics();
+        catalogSong.setLyrics("Edited later");
+        assertEquals(lyrics, played.getLyrics());
+    }
+
+    @Test
+    void roundTripSingleFile(@TempDir Path dir) throws IOException {
+        File file = dir.resolve("data.json").toFile();
+        parser.toJsonData(data, file.getPath());
+
+        SpotifUMData reloaded = parser.fromJsonData(file.getPath());
+        assertSameAlbums(data, reloaded);
+        assertEquals(data.getMapUsers().keySet(), reloaded.getMapUsers().keySet());
+        assertEquals(data.getMapPlaylists().keySet(), reloaded.getMapPlaylists().keySet());
+        assertEquals(data.getMapUsers().get("carol").getHistory(), reloaded.getMapUsers().get("carol").getHistory());
+    }
+
+    @Test
+    void roundTripMultipleFiles(@TempDir Path dir) throws IOException {
+        parser.toJsonData(data, dir.toString());
+
+        SpotifUMData reloaded = parser.fromJsonData(dir.toString());
+        assertSameAlbums(data, reloaded);
+        assertEquals(data.getMapUsers().keySet(), reloaded.getMapUsers().keySet());
+        assertEquals(data.getMapPlaylists().keySet(), reloaded.getMapPlaylists().keySet());
+    }
+
+    @Test
+    void parallelRoundTripMultipleFiles(@TempDir Path dir) throws IOException {
+        JsonDataParser parallelParser = new JsonDataParser(true);
+        parallelParser.toJsonData(data, dir.toString());
+
+        SpotifUMData reloaded = parallelParser.fromJsonData(dir.toString());
+        assertSameAlbums(data, reloaded);
+        assertEquals(data.getMapUsers().keySet(), reloaded.getMapUsers().keySet());
+        assertEquals(data.getMapPlaylists().keySet(), reloaded.getMapPlaylists().keySet());
+        assertEquals(data.getMapUsers().get("carol").getHistory().size(),
+                reloaded.getMapUsers().get("carol").getHistory().size());
+
+        // creators are linked back to the loaded users instead of the copies embedded in playlists.json
+        for (Playlist playlist : reloaded.getMapPlaylistsView().values()) {
+            if (playlist.getCreator() != null && reloaded.existsUser(playlist.getCreator().getName())) {
+                assertSame(reloaded.getCurrentUserPointer(playlist.getCreator().getName()), playlist.getCreator());
+            }
+        }
+    }
+
+    @Test
+    void parallelLoadOfMissingFiles(@TempDir Path dir) throws IOException {
+        SpotifUMData empty = new JsonDataParser(true).fromJsonData(dir.toString());
+        assertTrue(empty.getMapAlbums().isEmpty());
+        assertTrue(empty.getMapUsers().isEmpty());
+        assertTrue(empty.getMapPlaylists().isEmpty());
+    }
+
+    private static void assertSameAlbums(SpotifUMData expected, SpotifUMData actual) {
+        assertEquals(expected.getMapAlbums().keySet(), actual.getMapAlbums().keySet());
+        for (Album album : expected.getMapAlbums().values()) {
+            Album other = actual.getMapAlbums().get(album.getTitle());
+            assertEquals(album.getArtist(), other.getArtist());
+            assertEquals(album.getSongs(), other.getSongs());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayActivityTest {
+
+    private PlayActivity activity;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        activity = new PlayActivity();
+        day = LocalDate.of(2025, 5, 17);
+    }
+
+    @Test
+    void emptyActivity() {
+        assertEquals(0, activity.total());
+        assertEquals(0, activity.playsOn(day));
+        assertArrayEquals(new long[3], activity.dailyActivity(day, day.plusDays(2)));
+        assertArrayEquals(new long[24], activity.hourlyActivity(day, day));
+    }
+
+    @Test
+    void countsDaysAndHours() {
+        activity.add(day.atTime(9, 30), 1);
+        activity.add(day.atTime(9, 45), 2);
+        activity.add(day.plusDays(2).atTime(23, 0), 1);
+        activity.add(null, 5);
+
+        assertEquals(4, activity.total());
+        assertEquals(3, activity.playsOn(day));
+        assertEquals(0, activity.playsOn(day.plusDays(1)));
+        assertEquals(4, activity.playsBetween(day.minusYears(1), day.plusYears(1)));
+        assertArrayEquals(new long[]{0, 3, 0, 1, 0}, activity.dailyActivity(day.minusDays(1), day.plusDays(3)));
+        assertEquals(3, activity.hourlyActivity(day, day.plusDays(2))[9]);
+        assertEquals(1, activity.hourlyActivity(day, day.plusDays(2))[23]);
+        assertEquals(0, activity.hourlyActivity(day.plusDays(1), day.plusDays(1))[23]);
+
+        activity.add(day.atTime(9, 30), -1);
+        assertEquals(2, activity.playsOn(day));
+    }
+
+    @Test
+    void growsInBothDirections() {
+        Random random = new Random(7);
+        long[] expected = new long[2000];
+        LocalDate first = day.minusDays(1000);
+        for (int i = 0; i < 5000; i++) {
+            int offset = random.nextInt(expected.length);
+            activity.add(first.plusDays(offset).atTime(random.nextInt(24), 0), 1);
+            expected[offset]++;
+        }
+        assertArrayEquals(expected, activity.dailyActivity(first, first.plusDays(expected.length - 1)));
+
+        long between = 0;
+        for (int i = 500; i <= 1500; i++) {
+            between += expected[i];
+        }
+        assertEquals(between, activity.playsBetween(first.plusDays(500), first.plusDays(1500)));
+        assertEquals(5000, activity.total());
+    }
+
+    @Test
+    void hourlyActivityOfARange() {
+        LocalDateTime time = day.atTime(0, 0);
+        for (int i = 0; i < 24 * 10; i++) {
+            activity.add(time.plusHours(i), 1);
+        }
+        long[] hourly = activity.hourlyActivity(day.plusDays(2), day.plusDays(5));
+        for (long count : hourly) {
+            assertEquals(4, count);
+        }
+    }
+}
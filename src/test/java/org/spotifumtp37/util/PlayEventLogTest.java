@@ -0,0 +1,201 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.PremiumTop;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayEventLogTest {
+
+    private static final String ALBUM = "The Dark Side of the Moon";
+
+    private SpotifUMData data;
+    private Path snapshot;
+    private Path logFile;
+
+    @BeforeEach
+    void setUp(@TempDir Path dir) throws IOException {
+        data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        snapshot = dir.resolve("state.snap");
+        logFile = dir.resolve("plays.log");
+        new BinarySnapshotCodec().save(data, snapshot);
+    }
+
+    @AfterEach
+    void tearDown() {
+        PlayEvents.setListener(null);
+    }
+
+    @Test
+    void replayRestoresPlaysOverTheSnapshot() throws IOException, DoesntExistException {
+        PlayEventLog log = PlayEventLog.open(data, snapshot, logFile);
+        PlayEvents.setListener(log);
+        User carol = data.getCurrentUserPointer("carol");
+        Album album = data.getAlbum(ALBUM);
+        Song breathe = album.getSongs().get(1);
+        album.setCurrentSong(breathe);
+        album.play(carol);
+        album.play(carol);
+        Playlist playlist = data.getMapPlaylistsView().values().iterator().next();
+        playlist.play(carol);
+        log.close();
+        PlayEvents.setListener(null);
+
+        SpotifUMData restored = new SpotifUMData();
+        PlayEventLog reopened = PlayEventLog.open(restored, snapshot, logFile);
+        reopened.close();
+
+        User restoredCarol = restored.getCurrentUserPointer("carol");
+        assertEquals(carol.getPontos(), restoredCarol.getPontos(), 1e-9);
+        assertEquals(carol.getHistory(), restoredCarol.getHistory());
+        assertEquals(breathe.getTimesPlayed(), restored.getAlbum(ALBUM).getSongs().get(1).getTimesPlayed());
+        Playlist restoredPlaylist = restored.getPlaylist(playlist.getPlaylistName());
+        assertEquals(playlist.getCurrentSong().getTimesPlayed(),
+                restoredPlaylist.getSongPointer(playlist.getCurrentSong().getName()).getTimesPlayed());
+    }
+
+    @Test
+    void compactionEmptiesTheLog() throws IOException, DoesntExistException {
+        PlayEventLog log = PlayEventLog.open(data, snapshot, logFile);
+        PlayEvents.setListener(log);
+        User carol = data.getCurrentUserPointer("carol");
+        data.getAlbum(ALBUM).play(carol);
+        log.flush();
+        assertTrue(Files.size(logFile) > 0);
+
+        log.compact();
+        assertEquals(0, Files.size(logFile));
+        assertEquals(0, log.getLoggedEvents());
+        log.close();
+
+        SpotifUMData restored = new SpotifUMData();
+        PlayEventLog.open(restored, snapshot, logFile).close();
+        assertEquals(carol.getHistory().size(), restored.getCurrentUserPointer("carol").getHistory().size());
+    }
+
+    @Test
+    void ignoresPlaysOfOtherData() throws IOException, DoesntExistException {
+        PlayEventLog log = PlayEventLog.open(data, snapshot, logFile);
+        PlayEvents.setListener(log);
+        SpotifUMData other = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        other.getAlbum(ALBUM).play(other.getCurrentUserPointer("carol"));
+        log.flush();
+        assertEquals(0, log.getLoggedEvents());
+        assertEquals(0, Files.size(logFile));
+        log.close();
+    }
+
+    @Test
+    void replayDoesNotApplyPlaysTwice()throws IOException, DoesntExistException {
+        PlayEventLog log = PlayEventLog.open(data, snapshot, logFile);
+        PlayEvents.setListener(log);
+        User carol = data.getCurrentUserPointer("carol");
+        data.getAlbum(ALBUM).play(carol);
+        log.flush();
+        // as if the process stopped after writing the snapshot but before emptying the log
+        new BinarySnapshotCodec().save(data, snapshot);
+        log.close();
+
+        SpotifUMData restored = new SpotifUMData();
+        PlayEventLog reopened = new PlayEventLog(logFile, restored, snapshot, 10, 0);
+        restored.restoreFrom(new BinarySnapshotCodec().load(snapshot));
+        assertEquals(0, reopened.replay());
+        reopened.close();
+        assertEquals(carol.getPontos(), restored.getCurrentUserPointer("carol").getPontos(), 1e-9);
+    }
+
+    @Test
+    void tornRecordIsCutOff() throws IOException, DoesntExistException {
+        PlayEventLog log = PlayEventLog.open(data, snapshot, logFile);
+        PlayEvents.setListener(log);
+        data.getAlbum(ALBUM).play(data.getCurrentUserPointer("carol"));
+        log.close();
+        long size = Files.size(logFile);
+        Files.write(logFile, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        SpotifUMData restored = new SpotifUMData();
+        PlayEventLog reopened = PlayEventLog.open(restored, snapshot, logFile);
+        assertEquals(1, reopened.getLoggedEvents());
+        reopened.close();
+        assertEquals(size, Files.size(logFile));
+    }
+
+    @Test
+    void compactsAfterTheThreshold() throws IOException, DoesntExistException {
+        PlayEventLog log = new PlayEventLog(logFile, data, snapshot, 10, 3);
+        PlayEvents.setListener(log);
+        User carol = data.getCurrentUserPointer("carol");
+        Album album = data.getAlbum(ALBUM);
+        for (int i = 0; i < 3; i++) {
+            album.play(carol);
+        }
+        assertEquals(0, log.getLoggedEvents());
+        log.close();
+        assertEquals(0, Files.size(logFile));
+        assertEquals(carol.getHistory().size(),
+                new BinarySnapshotCodec().load(snapshot).getCurrentUserPointer("carol").getHistory().size());
+    }
+
+    @Test
+    void keepsTheUsersSignedUpSinceTheSnapshot() throws IOException, DoesntExistException, AlreadyExistsException {
+        PlayEventLog log = PlayEventLog.open(data, snapshot, logFile);
+        PlayEvents.setListener(log);
+        data.addDataListener(log);
+        data.addUser(new User("frank", "frank@email.com", "Braga", new PremiumTop(), "pass", 0, new ArrayList<>()));
+        data.addUser(new User("grace", "grace@email.com", "Porto", new PremiumTop(), "pass", 0, new ArrayList<>()));
+        User frank = data.getCurrentUserPointer("frank");
+        data.getAlbum(ALBUM).play(frank);
+        data.getAlbum(ALBUM).play(frank);
+        data.removeDataListener(log);
+        log.close();
+        PlayEvents.setListener(null);
+
+        SpotifUMData restored = new SpotifUMData();
+        PlayEventLog.open(restored, snapshot, logFile).close();
+        User restoredFrank = restored.getCurrentUserPointer("frank");
+        assertNotNull(restoredFrank);
+        assertInstanceOf(PremiumTop.class, restoredFrank.getSubscriptionPlan());
+        assertEquals(frank.getPontos(), restoredFrank.getPontos(), 1e-9);
+        assertEquals(frank.getHistory(), restoredFrank.getHistory());
+        // signed up without playing anything
+        assertEquals("grace@email.com", restored.getCurrentUserPointer("grace").getEmail());
+    }
+
+    @Test
+    void keepsThePlaysMadeAfterAThresholdSnapshot() throws IOException, DoesntExistException {
+        PlayEventLog log = new PlayEventLog(logFile, data, snapshot, 10, 3);
+        PlayEvents.setListener(log);
+        User carol = data.getCurrentUserPointer("carol");
+        Album album = data.getAlbum(ALBUM);
+        for (int i = 0; i < 5; i++) {
+            album.play(carol);
+        }
+        assertEquals(2, log.getLoggedEvents());
+        log.close();
+        PlayEvents.setListener(null);
+
+        SpotifUMData restored = new SpotifUMData();
+        PlayEventLog reopened = PlayEventLog.open(restored, snapshot, logFile);
+        assertEquals(2, reopened.getLoggedEvents());
+        reopened.close();
+        assertEquals(carol.getHistory(), restored.getCurrentUserPointer("carol").getHistory());
+        assertEquals(carol.getPontos(), restored.getCurrentUserPointer("carol").getPontos(), 1e-9);
+    }
+}
@@ -0,0 +1,249 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.exceptions.AlreadyExistsException;
+import org.spotifumtp37.exceptions.DoesntExistException;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Album;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.playlist.PlayEvents;
+import org.spotifumtp37.model.playlist.Playlist;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.user.History;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsEngineTest {
+
+    private SpotifUMData data;
+    private StatsEngine engine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        engine = new StatsEngine(data);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+        PlayEvents.setListener(null);
+    }
+
+    @Test
+    void matchesTheBatchStatsOnLoad() {
+        assertMatchesBatch();
+    }
+
+    @Test
+    void matchesTheBatchStatsUnderRandomChanges() throws AlreadyExistsException, DoesntExistException {
+        for (long seed = 0; seed < 5; seed++) {
+            Random random = new Random(seed);
+            for (int step = 0; step < 300; step++) {
+                change(random, step);
+                assertMatchesBatch();
+            }
+        }
+    }
+
+    @Test
+    void followsReplacedMaps() {
+        data.setMapUsers(new HashMap<>());
+        assertNull(engine.getTopListener());
+        assertNull(engine.mostListenedGenre());
+        assertMatchesBatch();
+    }
+
+    @Test
+    void countsActivityByDayAndHour() {
+        LocalDate first = LocalDate.of(2025, 5, 16);
+        LocalDate last = LocalDate.of(2025, 5, 18);
+        DataSnapshot snapshot = data.snapshot();
+        long total = Stats.countPlaysBetween(snapshot.getUsers(), null, null);
+
+        assertEquals(total, engine.playsBetween(first, last));
+        assertEquals(total, sum(engine.dailyActivity(first, last)));
+        assertEquals(total, sum(engine.hourlyActivity(first, last)));
+        assertEquals(0, engine.playsBetween(last.plusDays(1), last.plusDays(30)));
+        assertEquals(Stats.countPlaysBetween(snapshot.getUsers(), first.plusDays(1).atStartOfDay(), null),
+                engine.playsBetween(first.plusDays(1), last));
+    }
+
+    private void change(Random random, int step) throws AlreadyExistsException, DoesntExistException {
+        DataSnapshot snapshot = data.snapshot();
+        List<String> albums = new ArrayList<>(snapshot.getAlbums().keySet());
+        List<String> users = new ArrayList<>(snapshot.getUsers().keySet());
+        List<String> playlists = new ArrayList<>(snapshot.getPlaylists().keySet());
+        User user = users.isEmpty() ? null : data.getCurrentUserPointer(pick(random, users));
+
+        switch (random.nextInt(9)) {
+            case 0, 1, 2 -> {
+                if (user != null && !albums.isEmpty()) {
+                    Album album = data.getAlbum(pick(random, albums));
+                    if (!album.getSongs().isEmpty()) {
+                        album.setCurrentSong();
+                        album.play(user);
+                    }
+                }
+            }
+            case 3 -> {
+                if (user != null && !playlists.isEmpty()) {
+                    data.getPlaylist(pick(random, playlists)).play(user);
+                }
+            }
+            case 4 -> {
+                // a copy of a user is not the data's user: its plays are not in the data
+                if (user != null && !albums.isEmpty()) {
+                    Album album = data.getAlbum(pick(random, albums));
+                    if (!album.getSongs().isEmpty()) {
+                        album.setCurrentSong();
+                        album.play(data.getUser(user.getName()));
+                    }
+                }
+            }
+            case 5 -> {
+                if (random.nextBoolean() || users.isEmpty()) {
+                    data.addUser(new User("user " + step + " " + random.nextInt(), "mail", "address", new FreePlan(), "pass", 0, new ArrayList<>()));
+                } else {
+                    data.removeUser(user.getName());
+                }
+            }
+            case 6 -> {
+                if ((random.nextBoolean() || playlists.isEmpty()) && user != null && !albums.isEmpty()) {
+                    List<Song> songs = data.getAlbum(pick(random, albums)).getSongs();
+                    data.addPlaylist(new Playlist(user, "playlist " + step + " " + random.nextInt(), "", 0, "public", songs));
+                } else if (!playlists.isEmpty()) {
+                    data.removePlaylist(pick(random, playlists));
+                }
+            }
+            case 7 -> {
+                if (user != null && !playlists.isEmpty()) {
+                    data.getPlaylist(pick(random, playlists)).setCreatorUsername(user);
+                }
+            }
+            default -> {
+                if ((random.nextBoolean() || albums.isEmpty())) {
+                    List<Song> songs = List.of(
+                            new Song("New " + step, "Artist " + random.nextInt(3), "Publisher", "Lyrics", "Notes", "Genre " + random.nextInt(3), 120));
+                    Album album = new Album("Album " + step + " " + random.nextInt(), "Artist", 2025, "Genre", songs);
+                    album.setCurrentSong();
+                    data.addAlbum(album);
+                } else if (albums.size() > 3) {
+                    data.removeAlbum(pick(random, albums));
+                }
+            }
+        }
+    }
+
+    private static long sum(long[] counts) {
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static String pick(Random random, List<String> keys) {
+        return keys.get(random.nextInt(keys.size()));
+    }
+
+    private void assertMatchesBatch() {
+        DataSnapshot snapshot = data.snapshot();
+
+        Song batchSong = Stats.getMostPlayedSong(snapshot.getAlbums());
+        Song song = engine.getMostPlayedSong();
+        assertEquals(batchSong == null, song == null);
+        if (song != null) {
+            assertEquals(batchSong.getTimesPlayed(), song.getTimesPlayed());
+        }
+
+        String batchArtist = Stats.getMostListenedArtist(snapshot.getAlbums());
+        String artist = engine.getMostListenedArtist();
+        assertEquals(batchArtist == null, artist == null);
+        if (artist != null) {
+            assertEquals(artistPlays(snapshot, batchArtist), artistPlays(snapshot, artist));
+        }
+
+        String batchGenre = Stats.mostListenedGenre(snapshot.getUsers());
+        String genre = engine.mostListenedGenre();
+        assertEquals(batchGenre == null, genre == null);
+        if (genre != null) {
+            assertEquals(genrePlays(snapshot, batchGenre), genrePlays(snapshot, genre));
+        }
+
+        User batchListener = Stats.getTopListener(snapshot.getUsers());
+        User listener = engine.getTopListener();
+        assertEquals(batchListener == null, listener == null);
+        if (listener != null) {
+            assertSame(snapshot.getUsers().get(listener.getName()), listener);
+            assertEquals(batchListener.getHistoryView().size(), listener.getHistoryView().size());
+        }
+
+        LocalDateTime since = LocalDateTime.of(2025, 5, 17, 0, 0);
+        User batchRecent = Stats.getTopListenerFromDate(snapshot.getUsers(), since);
+        User recent = engine.getTopListenerFromDate(since);
+        assertEquals(batchRecent == null, recent == null);
+        if (recent != null) {
+            assertEquals(recentPlays(batchRecent, since), recentPlays(recent, since));
+        }
+
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Long> perDay = new HashMap<>();
+        for (User user : snapshot.getUsers().values()) {
+            for (History record : user.getHistoryView()) {
+                perDay.merge(record.getTime().toLocalDate(), 1L, Long::sum);
+            }
+        }
+        assertEquals(perDay.getOrDefault(today, 0L), engine.playsBetween(today, today));
+        assertEquals(perDay.values().stream().mapToLong(Long::longValue).sum(),
+                engine.playsBetween(LocalDate.of(2000, 1, 1), today.plusDays(1)));
+
+        User batchCreator = Stats.userWithMostPlaylists(snapshot.getPlaylists());
+        User creator = engine.userWithMostPlaylists();
+        assertEquals(batchCreator == null, creator == null);
+        if (creator != null) {
+            assertEquals(playlistsBy(snapshot, batchCreator), playlistsBy(snapshot, creator));
+        }
+    }
+
+    private static long artistPlays(DataSnapshot snapshot, String artist) {
+        return snapshot.getAlbums().values().stream()
+                .flatMap(album -> album.getSongs().stream())
+                .filter(song -> song.getArtist().equals(artist))
+                .mapToLong(Song::getTimesPlayed)
+                .sum();
+    }
+
+    private static long genrePlays(DataSnapshot snapshot, String genre) {
+        return snapshot.getUsers().values().stream()
+                .flatMap(user -> user.getHistoryView().stream())
+                .map(History::getSongPointer)
+                .filter(song -> song.getGenre().equals(genre))
+                .count();
+    }
+
+    private static long recentPlays(User user, LocalDateTime since) {
+        return user.getHistoryView().stream()
+                .filter(record -> !record.getTime().isBefore(since))
+                .count();
+    }
+
+    private static long playlistsBy(DataSnapshot snapshot, User creator) {
+        return snapshot.getPlaylists().values().stream()
+                .filter(playlist -> creator.equals(playlist.getCreator()))
+                .count();
+    }
+}
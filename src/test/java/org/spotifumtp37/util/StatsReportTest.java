@@ -0,0 +1,111 @@
+package org.spotifumtp37.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.spotifumtp37.model.DataSnapshot;
+import org.spotifumtp37.model.SpotifUMData;
+import org.spotifumtp37.model.album.Song;
+import org.spotifumtp37.model.subscription.FreePlan;
+import org.spotifumtp37.model.user.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsReportTest {
+
+    private DataSnapshot snapshot;
+    private StatsReport report;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SpotifUMData data = new JsonDataParser().fromJsonData("data/spotifumdata.json");
+        snapshot = data.snapshot();
+        report = Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists());
+    }
+
+    @Test
+    void matchesTheSingleStatistics() {
+        Song song = Stats.getMostPlayedSong(snapshot.getAlbums());
+        assertEquals(song.getTimesPlayed(), report.getMostPlayedSong().getTimesPlayed());
+        assertEquals(report.getPlaysByArtist().get(Stats.getMostListenedArtist(snapshot.getAlbums())),
+                report.getPlaysByArtist().get(report.getMostListenedArtist()));
+        assertEquals(report.getPlaysByGenre().get(Stats.mostListenedGenre(snapshot.getUsers())),
+                report.getPlaysByGenre().get(report.getMostListenedGenre()));
+
+        User listener = Stats.getTopListener(snapshot.getUsers());
+        assertEquals(listener.getHistoryView().size(), report.getTopListenerPlays());
+        assertEquals(report.getTopListenerPlays(), snapshot.getUsers().get(report.getTopListener()).getHistoryView().size());
+        assertEquals(Stats.getUserWithMostPoints(snapshot.getUsers()).getPontos(), report.getMostPoints());
+        assertEquals(Stats.countPublicPlaylists(snapshot.getPlaylists()), report.getPublicPlaylists());
+        assertNotNull(report.getUserWithMostPlaylists());
+    }
+
+    @Test
+    void breakdownsAddUp() {
+        assertEquals(snapshot.getUsers().size(), report.getUsers());
+        assertEquals(snapshot.getAlbums().size(), report.getAlbums());
+        assertEquals(snapshot.getPlaylists().size(), report.getPlaylists());
+        assertEquals(report.getTotalPlays(), sum(report.getPlaysByGenre()));
+        assertEquals(report.getTotalPlays(), sum(report.getPlaysByPlan()));
+        assertEquals(report.getUsers(), sum(report.getUsersByPlan()));
+        assertEquals(Stats.countPlaysBetween(snapshot.getUsers(), null, null), report.getTotalPlays());
+
+        long songPlays = snapshot.getAlbums().values().stream()
+                .flatMap(album -> album.getSongs().stream())
+                .mapToLong(Song::getTimesPlayed)
+                .sum();
+        assertEquals(songPlays, sum(report.getPlaysByArtist()));
+    }
+
+    @Test
+    void parallelGivesTheSameReport() {
+        StatsReport parallel = Stats.report(snapshot.getAlbums(), snapshot.getUsers(), snapshot.getPlaylists(), true);
+        assertEquals(report, parallel);
+    }
+
+    @Test
+    void pointsDoNotDependOnTheSplit() {
+        // summed as doubles, (1e16 + 1) + 1 and 1e16 + (1 + 1) differ
+        User big = new User("big", "big@email.com", "Address", new FreePlan(), "pass", 1e16, new ArrayList<>());
+        User first = new User("first", "first@email.com", "Address", new FreePlan(), "pass", 1, new ArrayList<>());
+        User second = new User("second", "second@email.com", "Address", new FreePlan(), "pass", 1, new ArrayList<>());
+
+        StatsReport.Counts inOrder = new StatsReport.Counts();
+        inOrder.addUser(big);
+        inOrder.addUser(first);
+        inOrder.addUser(second);
+        StatsReport.Counts split = new StatsReport.Counts();
+        StatsReport.Counts rest = new StatsReport.Counts();
+        split.addUser(big);
+        rest.addUser(first);
+        rest.addUser(second);
+        split.merge(rest);
+
+        assertEquals(inOrder.build(), split.build());
+        assertEquals(1e16 + 2, split.build().getPointsByPlan().get("FreePlan"));
+    }
+
+    @Test
+    void reportIsImmutable() {
+        assertThrows(UnsupportedOperationException.class, () -> report.getPlaysByGenre().clear());
+        report.getMostPlayedSong().setTimesPlayed(-1);
+        assertNotEquals(-1, report.getMostPlayedSong().getTimesPlayed());
+    }
+
+    @Test
+    void emptyData() {
+        StatsReport empty = Stats.report(Map.of(), null, Map.of());
+        assertNull(empty.getMostPlayedSong());
+        assertNull(empty.getTopListener());
+        assertNull(empty.getMostListenedGenre());
+        assertEquals(0, empty.getTotalPlays());
+        assertTrue(empty.getUsersByPlan().isEmpty());
+    }
+
+    private static long sum(Map<String, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -248,4 +248,57 @@ class StatsTest {
         // Test with null playlists map
         assertNull(Stats.userWithMostPlaylists(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    void parallelMatchesSequential() {
+        Random random = new Random(42);
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Song song = new Song("Song" + i, "Artist" + random.nextInt(20), "Publisher", "Lyrics", "Notes",
+                    "Genre" + random.nextInt(8), 180);
+            song.setTimesPlayed(random.nextInt(5));
+            songs.add(song);
+        }
+        for (int i = 0; i < 50; i++) {
+            albums.put("Album" + i, new Album("Album" + i, "Artist", 2020, "Genre", songs.subList(i * 4, i * 4 + 4)));
+        }
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 3000; i++) {
+            List<History> history = new ArrayList<>();
+            int plays = random.nextInt(10);
+            for (int j = 0; j < plays; j++) {
+                history.add(new History(songs.get(random.nextInt(songs.size())), start.plusHours(random.nextInt(1000))));
+            }
+            history.sort(Comparator.comparing(History::getTime));
+            users.put("User" + i, new User("User" + i, "mail", "address", new FreePlan(), "pass", random.nextInt(4), history));
+        }
+        LocalDateTime from = start.plusHours(500);
+
+        assertSame(Stats.getMostPlayedSong(albums, false), Stats.getMostPlayedSong(albums, true));
+        assertEquals(Stats.getMostListenedArtist(albums, false), Stats.getMostListenedArtist(albums, true));
+        assertSame(Stats.getTopListener(users, false), Stats.getTopListener(users, true));
+        assertSame(Stats.getTopListenerFromDate(users, from, false), Stats.getTopListenerFromDate(users, from, true));
+        assertSame(Stats.getUserWithMostPoints(users, false), Stats.getUserWithMostPoints(users, true));
+        assertEquals(Stats.mostListenedGenre(users, false), Stats.mostListenedGenre(users, true));
+        assertEquals(Stats.report(albums, users, playlists, false), Stats.report(albums, users, playlists, true));
+    }
+
+    @Test
+    void tiesGoToTheFirstName() {
+        users.put("B", new User("B", "mail", "address", new FreePlan(), "pass", 10, new ArrayList<>()));
+        users.put("A", new User("A", "mail", "address", new FreePlan(), "pass", 10, new ArrayList<>()));
+        users.put("C", new User("C", "mail", "address", new FreePlan(), "pass", 10, new ArrayList<>()));
+
+        assertEquals("A", Stats.getUserWithMostPoints(users, false).getName());
+        assertEquals("A", Stats.getUserWithMostPoints(users, true).getName());
+        assertEquals("A", Stats.getTopListener(users).getName());
+    }
+
+    @Test
+    void parallelThresholdFollowsThePool() {
+        assertEquals(2048, Stats.parallelThreshold(null, 4));
+        assertEquals(8192, Stats.parallelThreshold(null, 16));
+        assertEquals(Stats.MIN_PER_THREAD, Stats.parallelThreshold(null, 1));
+        assertEquals(100, Stats.parallelThreshold(100, 16));
+    }
+}